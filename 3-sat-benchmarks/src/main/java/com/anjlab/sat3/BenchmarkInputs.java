@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2010, 2011 AnjLab
+ * 
+ * This file is part of 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem 
+ * is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem
+ * is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.anjlab.sat3;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import cern.colt.list.ObjectArrayList;
+
+/**
+ * Structures built from CNF files of the 3-sat-core tests, which are packaged with the benchmarks.
+ */
+final class BenchmarkInputs
+{
+    private BenchmarkInputs()
+    {
+    }
+    
+    /**
+     * Benchmarks measure operations themselves, not the self-checks.
+     */
+    static void disableAssertions()
+    {
+        Helper.setAssertionLevel(AssertionLevel.Off);
+    }
+    
+    static ITabularFormula loadFormula(String resourceName) throws IOException
+    {
+        InputStream is = BenchmarkInputs.class.getResourceAsStream("/" + resourceName);
+        if (is == null)
+        {
+            throw new IllegalArgumentException("Resource not found: " + resourceName);
+        }
+        try
+        {
+            ITabularFormula formula = new MappedDIMACSFormulaReader().readFormula(is);
+            ((SimpleFormula) formula).clearTierHash3();
+            return formula;
+        }
+        finally
+        {
+            is.close();
+        }
+    }
+    
+    /**
+     * @return List of unified {@link ICompactTripletsStructure}, all with the same permutation.
+     */
+    static ObjectArrayList createCTS(String resourceName) throws IOException
+    {
+        ITabularFormula formula = loadFormula(resourceName);
+        ObjectArrayList cts = Helper.createCTF(formula);
+        Helper.completeToCTS(cts, formula.getPermutation());
+        Helper.unify(cts);
+        return cts;
+    }
+}
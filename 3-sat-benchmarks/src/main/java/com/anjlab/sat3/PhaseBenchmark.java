@@ -0,0 +1,498 @@
+/*
+ * Copyright (c) 2010, 2011 AnjLab
+ * 
+ * This file is part of 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem 
+ * is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem
+ * is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.anjlab.sat3;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.OptionBuilder;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.cli.PosixParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import cern.colt.list.ObjectArrayList;
+
+/**
+ * <p>Measures each phase of the solve separately on a set of instances and writes 
+ * median and 95th percentile of time and allocations per phase to a JSON file, 
+ * see {@link PhaseBenchmarkResults}. Use {@link PhaseBenchmarkDiff} to compare two result files.</p>
+ * 
+ * <p>Each phase runs on a copy of the output of the previous phase, copying is not measured. 
+ * Warm-up iterations run before the measured ones. Phases are run in the calling thread 
+ * with assertions off.</p>
+ */
+public class PhaseBenchmark
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(PhaseBenchmark.class);
+    
+    private static final String HELP_OPTION = "h";
+    private static final String WARMUP_ITERATIONS_OPTION = "w";
+    private static final String ITERATIONS_OPTION = "i";
+    private static final String MAX_TIME_OPTION = "m";
+    private static final String OUTPUT_FILE_OPTION = "o";
+    
+    /**
+     * Instances of 3-sat-core tests packaged with the benchmarks.
+     */
+    public static final String[] DEFAULT_INSTANCES = {
+        "uf20-01000.cnf", "uf20-0532.cnf", 
+        "uf50-01000.cnf", "uf50-0999.cnf", 
+        "uf75-0100.cnf", "uf75-078.cnf", 
+        "RTI_k3_n100_m429_42_SAT.cnf", 
+        "cnf-v112-c418-100-sat.cnf"
+    };
+    
+    public static final String LOAD_FORMULA_PHASE = "LoadFormula";
+    
+    private final int warmupIterations;
+    private final int iterations;
+    private final long maxTime;
+    
+    //  null if JVM doesn't support measuring allocations of a thread
+    private final com.sun.management.ThreadMXBean threadMXBean;
+    
+    /**
+     * @param warmupIterations Number of runs of each phase before the measured ones.
+     * @param iterations Number of measured runs of each phase.
+     * @param maxTime Time limit of all runs of a phase in milliseconds, <code>0</code> means no limit. 
+     * When the limit is exceeded remaining runs are skipped, but a phase is always measured at least once.
+     */
+    public PhaseBenchmark(int warmupIterations, int iterations, long maxTime)
+    {
+        this.warmupIterations = warmupIterations;
+        this.iterations = iterations;
+        this.maxTime = maxTime;
+        
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean 
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported())
+        {
+            threadMXBean = (com.sun.management.ThreadMXBean) bean;
+            threadMXBean.setThreadAllocatedMemoryEnabled(true);
+        }
+        else
+        {
+            threadMXBean = null;
+        }
+    }
+    
+    public static void main(String[] args) throws Exception
+    {
+        Options options = getCommandLineOptions();
+        
+        CommandLineParser parser = new PosixParser();
+        CommandLine commandLine;
+        try
+        {
+            commandLine = parser.parse(options, args);
+        }
+        catch (ParseException e)
+        {
+            commandLine = null;
+        }
+        
+        if (commandLine == null || commandLine.hasOption(HELP_OPTION))
+        {
+            HelpFormatter formatter = new HelpFormatter();
+            formatter.printHelp(PhaseBenchmark.class.getName() + " [OPTIONS] [<instance>...]" +
+                    "\nWhere <instance> is a path to *.cnf file or a name of the packaged instance, " +
+                    "by default all packaged instances are used: " + Arrays.toString(DEFAULT_INSTANCES), options);
+            System.exit(0);
+        }
+        
+        int warmupIterations = 2;
+        if (commandLine.hasOption(WARMUP_ITERATIONS_OPTION))
+        {
+            warmupIterations = Integer.parseInt(commandLine.getOptionValue(WARMUP_ITERATIONS_OPTION));
+        }
+        int iterations = 5;
+        if (commandLine.hasOption(ITERATIONS_OPTION))
+        {
+            iterations = Integer.parseInt(commandLine.getOptionValue(ITERATIONS_OPTION));
+        }
+        long maxTime = TimeUnit.MINUTES.toMillis(5);
+        if (commandLine.hasOption(MAX_TIME_OPTION))
+        {
+            maxTime = TimeUnit.SECONDS.toMillis(Long.parseLong(commandLine.getOptionValue(MAX_TIME_OPTION)));
+        }
+        String outputFilename = commandLine.getOptionValue(OUTPUT_FILE_OPTION, "phase-benchmark.json");
+        
+        String[] instances = commandLine.getArgs().length > 0 ? commandLine.getArgs() : DEFAULT_INSTANCES;
+        
+        BenchmarkInputs.disableAssertions();
+        
+        PhaseBenchmark benchmark = new PhaseBenchmark(warmupIterations, iterations, maxTime);
+        
+        PhaseBenchmarkResults results = new PhaseBenchmarkResults();
+        results.setProperty("implementationVersion", Helper.getImplementationVersionFromManifest("3-SAT Core RI"));
+        results.setProperty("javaVersion", System.getProperty("java.version"));
+        results.setProperty("warmupIterations", warmupIterations);
+        results.setProperty("iterations", iterations);
+        
+        for (String instance : instances)
+        {
+            benchmark.run(instance, results);
+        }
+        
+        results.write(new File(outputFilename));
+        
+        LOGGER.info("Results written to {}", outputFilename);
+    }
+    
+    @SuppressWarnings("static-access")
+    private static Options getCommandLineOptions()
+    {
+        Options options = new Options();
+        
+        options.addOption(OptionBuilder.withLongOpt("warmup")
+                                       .hasArg()
+                                       .withArgName("number")
+                                       .withDescription("Number of warm-up runs of each phase (default 2).")
+                                       .create(WARMUP_ITERATIONS_OPTION));
+        
+        options.addOption(OptionBuilder.withLongOpt("iterations")
+                                       .hasArg()
+                                       .withArgName("number")
+                                       .withDescription("Number of measured runs of each phase (default 5).")
+                                       .create(ITERATIONS_OPTION));
+        
+        options.addOption(OptionBuilder.withLongOpt("max-time")
+                                       .hasArg()
+                                       .withArgName("seconds")
+                                       .withDescription("Skip remaining runs of a phase after <seconds> (default 300), " +
+                                                        "every phase is measured at least once.")
+                                       .create(MAX_TIME_OPTION));
+        
+        options.addOption(OptionBuilder.withLongOpt("output")
+                                       .hasArg()
+                                       .withArgName("filename")
+                                       .withDescription("Name of the results file (default phase-benchmark.json).")
+                                       .create(OUTPUT_FILE_OPTION));
+        
+        options.addOption(HELP_OPTION, "help", false, "Prints this help message.");
+        
+        return options;
+    }
+    
+    /**
+     * Measures all phases of the instance and adds their records to <code>results</code>. 
+     * If a phase finds the instance unsatisfiable, remaining phases are skipped.
+     */
+    public void run(String instance, PhaseBenchmarkResults results) throws IOException
+    {
+        LOGGER.info("Benchmark {}...", instance);
+        
+        File file = new File(instance);
+        boolean temporary = false;
+        if (!file.isFile())
+        {
+            file = extractResource(instance);
+            temporary = true;
+        }
+        
+        try
+        {
+            PhaseRun phaseRun = new PhaseRun(file);
+            
+            String[] phases = getPhases();
+            for (String phase : phases)
+            {
+                results.add(measure(instance, phase, phaseRun));
+                
+                if (phaseRun.isUnsatisfiable())
+                {
+                    LOGGER.info("{} is unsatisfiable at {}, remaining phases skipped", instance, phase);
+                    break;
+                }
+            }
+        }
+        finally
+        {
+            if (temporary && !file.delete())
+            {
+                LOGGER.warn("Cannot delete {}", file);
+            }
+        }
+    }
+    
+    private static String[] getPhases()
+    {
+        SolverPhase[] solverPhases = SolverPhase.values();
+        String[] phases = new String[solverPhases.length + 1];
+        phases[0] = LOAD_FORMULA_PHASE;
+        for (int i = 0; i < solverPhases.length; i++)
+        {
+            phases[i + 1] = solverPhases[i].name();
+        }
+        return phases;
+    }
+    
+    private PhaseBenchmarkResults.Record measure(String instance, String phase, PhaseRun phaseRun) throws IOException
+    {
+        long[] times = new long[iterations];
+        long[] allocations = new long[iterations];
+        
+        long phaseStart = System.currentTimeMillis();
+        
+        for (int i = 0; i < warmupIterations && !isTimeExceeded(phaseStart); i++)
+        {
+            phaseRun.prepare(phase);
+            phaseRun.run(phase);
+        }
+        
+        int samples = 0;
+        while (samples < iterations && (samples == 0 || !isTimeExceeded(phaseStart)))
+        {
+            phaseRun.prepare(phase);
+            
+            long allocated = getAllocatedBytes();
+            long start = System.nanoTime();
+            
+            phaseRun.run(phase);
+            
+            times[samples] = System.nanoTime() - start;
+            allocations[samples] = allocated < 0 ? -1 : getAllocatedBytes() - allocated;
+            samples++;
+        }
+        
+        phaseRun.complete(phase);
+        
+        times = Arrays.copyOf(times, samples);
+        allocations = Arrays.copyOf(allocations, samples);
+        Arrays.sort(times);
+        Arrays.sort(allocations);
+        
+        PhaseBenchmarkResults.Record record = new PhaseBenchmarkResults.Record(instance, phase, samples, 
+                toMillis(percentile(times, 50)), toMillis(percentile(times, 95)), percentile(allocations, 50));
+        
+        LOGGER.info("{} {}: median {}ms, p95 {}ms, allocated {} bytes ({} samples)", 
+                new Object[] { instance, phase, record.getMedianMillis(), record.getP95Millis(), 
+                               record.getAllocatedBytes(), samples });
+        
+        return record;
+    }
+    
+    private boolean isTimeExceeded(long phaseStart)
+    {
+        return maxTime > 0 && System.currentTimeMillis() - phaseStart > maxTime;
+    }
+    
+    private long getAllocatedBytes()
+    {
+        return threadMXBean == null 
+             ? -1 
+             : threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+    
+    /**
+     * Nearest-rank percentile of sorted values.
+     */
+    static long percentile(long[] sortedValues, int percent)
+    {
+        int rank = (int) Math.ceil(percent / 100.0 * sortedValues.length);
+        return sortedValues[Math.max(0, rank - 1)];
+    }
+    
+    private static double toMillis(long nanos)
+    {
+        return Math.round(nanos / 1000.0) / 1000.0;
+    }
+    
+    private static File extractResource(String resourceName) throws IOException
+    {
+        InputStream is = PhaseBenchmark.class.getResourceAsStream("/" + resourceName);
+        if (is == null)
+        {
+            throw new IllegalArgumentException("Instance not found: " + resourceName);
+        }
+        try
+        {
+            String extension = resourceName.substring(resourceName.lastIndexOf('.'));
+            File file = File.createTempFile("phase-benchmark-", extension);
+            OutputStream os = new FileOutputStream(file);
+            try
+            {
+                byte[] buffer = new byte[8192];
+                int length;
+                while ((length = is.read(buffer)) != -1)
+                {
+                    os.write(buffer, 0, length);
+                }
+            }
+            finally
+            {
+                os.close();
+            }
+            return file;
+        }
+        finally
+        {
+            is.close();
+        }
+    }
+    
+    /**
+     * Inputs and outputs of the phases of a single instance.
+     */
+    private static final class PhaseRun
+    {
+        private final File file;
+        
+        private ITabularFormula formula;
+        private ObjectArrayList cts;
+        private ObjectArrayList unifiedCTS;
+        private ObjectArrayList hss;
+        
+        //  Copy of the previous phase output the phase runs on
+        private ObjectArrayList input;
+        private HSSSnapshot hssSnapshot;
+        
+        //  Output of the last run of the phase
+        private Object output;
+        private boolean unsatisfiable;
+        
+        public PhaseRun(File file)
+        {
+            this.file = file;
+        }
+        
+        public void prepare(String phase)
+        {
+            VarPairsIndexFactory.getInstance().clear();
+            
+            if (SolverPhase.CreateCTS.name().equals(phase))
+            {
+                //  Clones of CTF can't be completed, so CTF is created again
+                input = Helper.createCTF(formula);
+            }
+            else if (SolverPhase.Unify.name().equals(phase))
+            {
+                input = Helper.cloneStructures(cts);
+            }
+            else if (SolverPhase.CreateHSS.name().equals(phase))
+            {
+                input = Helper.cloneStructures(unifiedCTS);
+            }
+            else if (SolverPhase.FindHSSRoute.name().equals(phase))
+            {
+                if (hssSnapshot == null)
+                {
+                    hssSnapshot = HSSSnapshot.take(hss);
+                }
+                input = hssSnapshot.restore();
+            }
+        }
+        
+        /**
+         * Runs the phase, a phase that finds the formula unsatisfiable is still a complete run.
+         */
+        public void run(String phase) throws IOException
+        {
+            try
+            {
+                output = runPhase(phase);
+                unsatisfiable = false;
+            }
+            catch (EmptyStructureException e)
+            {
+                output = null;
+                unsatisfiable = true;
+            }
+        }
+        
+        public boolean isUnsatisfiable()
+        {
+            return unsatisfiable;
+        }
+        
+        private Object runPhase(String phase) throws IOException
+        {
+            if (LOAD_FORMULA_PHASE.equals(phase))
+            {
+                return Helper.loadFromFile(file.getPath());
+            }
+            if (SolverPhase.CreateCTF.name().equals(phase))
+            {
+                return Helper.createCTF(formula);
+            }
+            if (SolverPhase.CreateCTS.name().equals(phase))
+            {
+                Helper.completeToCTS(input, formula.getPermutation());
+                return input;
+            }
+            if (SolverPhase.Unify.name().equals(phase))
+            {
+                Helper.unify(input);
+                return input;
+            }
+            if (SolverPhase.CreateHSS.name().equals(phase))
+            {
+                return Helper.createHyperStructuresSystem(input, new Properties());
+            }
+            if (SolverPhase.FindHSSRoute.name().equals(phase))
+            {
+                return Helper.findHSSRouteByReduce(input, CheckpointPolicy.NONE);
+            }
+            throw new IllegalArgumentException("Unknown phase " + phase);
+        }
+        
+        /**
+         * Keeps output of the phase as input of the next one.
+         */
+        public void complete(String phase)
+        {
+            if (LOAD_FORMULA_PHASE.equals(phase))
+            {
+                formula = (ITabularFormula) output;
+            }
+            else if (SolverPhase.CreateCTS.name().equals(phase))
+            {
+                cts = (ObjectArrayList) output;
+            }
+            else if (SolverPhase.Unify.name().equals(phase))
+            {
+                unifiedCTS = (ObjectArrayList) output;
+            }
+            else if (SolverPhase.CreateHSS.name().equals(phase))
+            {
+                hss = (ObjectArrayList) output;
+            }
+            input = null;
+            output = null;
+        }
+    }
+}
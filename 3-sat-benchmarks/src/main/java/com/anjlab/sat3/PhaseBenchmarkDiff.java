@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2010, 2011 AnjLab
+ * 
+ * This file is part of 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem 
+ * is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem
+ * is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.anjlab.sat3;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.OptionBuilder;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.cli.PosixParser;
+
+/**
+ * <p>Compares two results of {@link PhaseBenchmark} and prints change of median time, 
+ * 95th percentile time and allocations for every instance and phase.</p>
+ * 
+ * <p>Exits with status 1 if any phase regressed: its median time or allocations grew by more 
+ * than the threshold, or it's missing in the current results. Time changes smaller than 
+ * the minimum time difference are ignored as noise.</p>
+ */
+public class PhaseBenchmarkDiff
+{
+    private static final String HELP_OPTION = "h";
+    private static final String THRESHOLD_OPTION = "t";
+    private static final String MIN_TIME_DIFFERENCE_OPTION = "d";
+    
+    private final double threshold;
+    private final double minTimeDifference;
+    
+    /**
+     * @param threshold Allowed growth of median time and allocations, in percent.
+     * @param minTimeDifference Time differences less than this number of milliseconds are not regressions.
+     */
+    public PhaseBenchmarkDiff(double threshold, double minTimeDifference)
+    {
+        this.threshold = threshold;
+        this.minTimeDifference = minTimeDifference;
+    }
+    
+    public static void main(String[] args) throws Exception
+    {
+        Options options = getCommandLineOptions();
+        
+        CommandLineParser parser = new PosixParser();
+        CommandLine commandLine;
+        try
+        {
+            commandLine = parser.parse(options, args);
+        }
+        catch (ParseException e)
+        {
+            commandLine = null;
+        }
+        
+        if (commandLine == null || commandLine.getArgs().length != 2 || commandLine.hasOption(HELP_OPTION))
+        {
+            HelpFormatter formatter = new HelpFormatter();
+            formatter.printHelp(PhaseBenchmarkDiff.class.getName() + " [OPTIONS] <baseline.json> <current.json>" +
+                    "\nWhere <baseline.json> and <current.json> are results of " + PhaseBenchmark.class.getName(), options);
+            System.exit(0);
+        }
+        
+        double threshold = 10;
+        if (commandLine.hasOption(THRESHOLD_OPTION))
+        {
+            threshold = Double.parseDouble(commandLine.getOptionValue(THRESHOLD_OPTION));
+        }
+        double minTimeDifference = 1;
+        if (commandLine.hasOption(MIN_TIME_DIFFERENCE_OPTION))
+        {
+            minTimeDifference = Double.parseDouble(commandLine.getOptionValue(MIN_TIME_DIFFERENCE_OPTION));
+        }
+        
+        PhaseBenchmarkResults baseline = PhaseBenchmarkResults.read(new File(commandLine.getArgs()[0]));
+        PhaseBenchmarkResults current = PhaseBenchmarkResults.read(new File(commandLine.getArgs()[1]));
+        
+        int regressions = new PhaseBenchmarkDiff(threshold, minTimeDifference).diff(baseline, current);
+        
+        if (regressions > 0)
+        {
+            System.out.println(regressions + " regression(s) found");
+            System.exit(1);
+        }
+        System.out.println("No regressions found");
+    }
+    
+    @SuppressWarnings("static-access")
+    private static Options getCommandLineOptions()
+    {
+        Options options = new Options();
+        
+        options.addOption(OptionBuilder.withLongOpt("threshold")
+                                       .hasArg()
+                                       .withArgName("percent")
+                                       .withDescription("Allowed growth of median time and allocations (default 10).")
+                                       .create(THRESHOLD_OPTION));
+        
+        options.addOption(OptionBuilder.withLongOpt("min-time-difference")
+                                       .hasArg()
+                                       .withArgName("millis")
+                                       .withDescription("Smaller time differences are not regressions (default 1).")
+                                       .create(MIN_TIME_DIFFERENCE_OPTION));
+        
+        options.addOption(HELP_OPTION, "help", false, "Prints this help message.");
+        
+        return options;
+    }
+    
+    /**
+     * Prints the comparison to standard output.
+     * 
+     * @return Number of regressions.
+     */
+    public int diff(PhaseBenchmarkResults baseline, PhaseBenchmarkResults current)
+    {
+        Map<String, PhaseBenchmarkResults.Record> currentRecords = new HashMap<String, PhaseBenchmarkResults.Record>();
+        for (PhaseBenchmarkResults.Record record : current.getRecords())
+        {
+            currentRecords.put(record.getKey(), record);
+        }
+        
+        System.out.println(String.format("%-32s %-14s %12s %12s %8s %12s %8s %14s %8s", 
+                "Instance", "Phase", "Base median", "Median", "Change", "P95", "Change", "Allocated", "Change"));
+        
+        int regressions = 0;
+        
+        Set<String> baselineKeys = new HashSet<String>();
+        for (PhaseBenchmarkResults.Record before : baseline.getRecords())
+        {
+            baselineKeys.add(before.getKey());
+            
+            PhaseBenchmarkResults.Record after = currentRecords.get(before.getKey());
+            if (after == null)
+            {
+                System.out.println(String.format("%-32s %-14s %12.3f %12s   REGRESSION: missing in current results", 
+                        before.getInstance(), before.getPhase(), before.getMedianMillis(), "-"));
+                regressions++;
+                continue;
+            }
+            
+            boolean timeRegression = after.getMedianMillis() - before.getMedianMillis() > minTimeDifference
+                                  && change(before.getMedianMillis(), after.getMedianMillis()) > threshold;
+            boolean allocationRegression = before.getAllocatedBytes() >= 0 && after.getAllocatedBytes() >= 0
+                                  && change(before.getAllocatedBytes(), after.getAllocatedBytes()) > threshold;
+            
+            System.out.println(String.format("%-32s %-14s %12.3f %12.3f %7.1f%% %12.3f %7.1f%% %14d %7.1f%%%s", 
+                    before.getInstance(), before.getPhase(), 
+                    before.getMedianMillis(), after.getMedianMillis(), change(before.getMedianMillis(), after.getMedianMillis()), 
+                    after.getP95Millis(), change(before.getP95Millis(), after.getP95Millis()), 
+                    after.getAllocatedBytes(), change(before.getAllocatedBytes(), after.getAllocatedBytes()), 
+                    timeRegression || allocationRegression ? "   REGRESSION" : ""));
+            
+            if (timeRegression || allocationRegression)
+            {
+                regressions++;
+            }
+        }
+        
+        for (PhaseBenchmarkResults.Record after : current.getRecords())
+        {
+            if (!baselineKeys.contains(after.getKey()))
+            {
+                System.out.println(String.format("%-32s %-14s %12s %12.3f   new in current results", 
+                        after.getInstance(), after.getPhase(), "-", after.getMedianMillis()));
+            }
+        }
+        
+        return regressions;
+    }
+    
+    /**
+     * @return Change in percent.
+     */
+    private static double change(double before, double after)
+    {
+        if (before == 0)
+        {
+            return after == 0 ? 0 : 100;
+        }
+        return (after - before) * 100 / before;
+    }
+}
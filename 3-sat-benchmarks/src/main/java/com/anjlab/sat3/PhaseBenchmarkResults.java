@@ -0,0 +1,479 @@
+/*
+ * Copyright (c) 2010, 2011 AnjLab
+ * 
+ * This file is part of 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem 
+ * is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem
+ * is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.anjlab.sat3;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Results of {@link PhaseBenchmark} in JSON format:
+ * 
+ * <pre>
+ * {
+ *   "implementationVersion": "2.0.0-PRE",
+ *   "javaVersion": "1.8.0_392",
+ *   "warmupIterations": 2,
+ *   "iterations": 5,
+ *   "results": [
+ *     {"instance": "uf50-01000.cnf", "phase": "Unify", "samples": 5, 
+ *      "medianMillis": 12.5, "p95Millis": 14.1, "allocatedBytes": 1048576},
+ *     ...
+ *   ]
+ * }
+ * </pre>
+ * 
+ * <p><code>allocatedBytes</code> is the median number of bytes allocated by a single run of the phase, 
+ * or <code>-1</code> if JVM doesn't support measuring allocations of a thread.</p>
+ */
+public final class PhaseBenchmarkResults
+{
+    public static final class Record
+    {
+        private final String instance;
+        private final String phase;
+        private final int samples;
+        private final double medianMillis;
+        private final double p95Millis;
+        private final long allocatedBytes;
+        
+        public Record(String instance, String phase, int samples, double medianMillis, double p95Millis, long allocatedBytes)
+        {
+            this.instance = instance;
+            this.phase = phase;
+            this.samples = samples;
+            this.medianMillis = medianMillis;
+            this.p95Millis = p95Millis;
+            this.allocatedBytes = allocatedBytes;
+        }
+        
+        public String getInstance()
+        {
+            return instance;
+        }
+        public String getPhase()
+        {
+            return phase;
+        }
+        public int getSamples()
+        {
+            return samples;
+        }
+        public double getMedianMillis()
+        {
+            return medianMillis;
+        }
+        public double getP95Millis()
+        {
+            return p95Millis;
+        }
+        public long getAllocatedBytes()
+        {
+            return allocatedBytes;
+        }
+        
+        /**
+         * @return Key to match records of the same instance and phase in different results.
+         */
+        public String getKey()
+        {
+            return instance + " " + phase;
+        }
+    }
+    
+    //  Properties of the run, in order they're written
+    private final Map<String, Object> properties = new LinkedHashMap<String, Object>();
+    private final List<Record> records = new ArrayList<Record>();
+    
+    public void setProperty(String name, Object value)
+    {
+        properties.put(name, value);
+    }
+    
+    public Object getProperty(String name)
+    {
+        return properties.get(name);
+    }
+    
+    public void add(Record record)
+    {
+        records.add(record);
+    }
+    
+    public List<Record> getRecords()
+    {
+        return records;
+    }
+    
+    public void write(File file) throws IOException
+    {
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+        try
+        {
+            writer.write("{\n");
+            for (Map.Entry<String, Object> property : properties.entrySet())
+            {
+                writer.write("  " + quote(property.getKey()) + ": " + toJSON(property.getValue()) + ",\n");
+            }
+            writer.write("  \"results\": [");
+            for (int i = 0; i < records.size(); i++)
+            {
+                Record record = records.get(i);
+                writer.write(i == 0 ? "\n" : ",\n");
+                writer.write("    {\"instance\": " + quote(record.instance)
+                           + ", \"phase\": " + quote(record.phase)
+                           + ", \"samples\": " + record.samples
+                           + ", \"medianMillis\": " + record.medianMillis
+                           + ", \"p95Millis\": " + record.p95Millis
+                           + ", \"allocatedBytes\": " + record.allocatedBytes + "}");
+            }
+            writer.write("\n  ]\n}\n");
+        }
+        finally
+        {
+            writer.close();
+        }
+    }
+    
+    private static String toJSON(Object value)
+    {
+        if (value == null)
+        {
+            return "null";
+        }
+        if (value instanceof Number || value instanceof Boolean)
+        {
+            return value.toString();
+        }
+        return quote(value.toString());
+    }
+    
+    private static String quote(String value)
+    {
+        StringBuilder builder = new StringBuilder(value.length() + 2);
+        builder.append('"');
+        for (int i = 0; i < value.length(); i++)
+        {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\')
+            {
+                builder.append('\\').append(c);
+            }
+            else if (c < 0x20)
+            {
+                builder.append(String.format("\\u%04x", (int) c));
+            }
+            else
+            {
+                builder.append(c);
+            }
+        }
+        return builder.append('"').toString();
+    }
+    
+    @SuppressWarnings("unchecked")
+    public static PhaseBenchmarkResults read(File file) throws IOException
+    {
+        InputStream is = new FileInputStream(file);
+        Object json;
+        try
+        {
+            json = new JSONParser(new InputStreamReader(is, "UTF-8")).parse();
+        }
+        finally
+        {
+            is.close();
+        }
+        
+        if (!(json instanceof Map))
+        {
+            throw new IOException("Not a benchmark results file: " + file);
+        }
+        
+        PhaseBenchmarkResults results = new PhaseBenchmarkResults();
+        
+        for (Map.Entry<String, Object> property : ((Map<String, Object>) json).entrySet())
+        {
+            if ("results".equals(property.getKey()))
+            {
+                for (Object item : (List<Object>) property.getValue())
+                {
+                    Map<String, Object> record = (Map<String, Object>) item;
+                    results.add(new Record((String) record.get("instance"), 
+                                           (String) record.get("phase"), 
+                                           ((Number) record.get("samples")).intValue(), 
+                                           ((Number) record.get("medianMillis")).doubleValue(), 
+                                           ((Number) record.get("p95Millis")).doubleValue(), 
+                                           ((Number) record.get("allocatedBytes")).longValue()));
+                }
+            }
+            else
+            {
+                results.setProperty(property.getKey(), property.getValue());
+            }
+        }
+        
+        return results;
+    }
+    
+    /**
+     * Reads JSON values as {@link Map}, {@link List}, {@link String}, {@link Double}, {@link Boolean} or <code>null</code>.
+     */
+    private static final class JSONParser
+    {
+        private final Reader reader;
+        private int c;
+        
+        public JSONParser(Reader reader) throws IOException
+        {
+            this.reader = reader;
+            next();
+        }
+        
+        public Object parse() throws IOException
+        {
+            Object value = parseValue();
+            skipWhitespace();
+            if (c != -1)
+            {
+                throw error("end of input");
+            }
+            return value;
+        }
+        
+        private void next() throws IOException
+        {
+            c = reader.read();
+        }
+        
+        private void skipWhitespace() throws IOException
+        {
+            while (c == ' ' || c == '\t' || c == '\n' || c == '\r')
+            {
+                next();
+            }
+        }
+        
+        private void expect(char expected) throws IOException
+        {
+            skipWhitespace();
+            if (c != expected)
+            {
+                throw error("'" + expected + "'");
+            }
+            next();
+        }
+        
+        private IOException error(String expected)
+        {
+            return new IOException("Malformed JSON: expected " + expected 
+                    + " but was " + (c == -1 ? "end of input" : "'" + (char) c + "'"));
+        }
+        
+        private Object parseValue() throws IOException
+        {
+            skipWhitespace();
+            if (c == '{')
+            {
+                return parseObject();
+            }
+            if (c == '[')
+            {
+                return parseArray();
+            }
+            if (c == '"')
+            {
+                return parseString();
+            }
+            if (c == '-' || (c >= '0' && c <= '9'))
+            {
+                return parseNumber();
+            }
+            if (c == 't' || c == 'f' || c == 'n')
+            {
+                String literal = parseLiteral();
+                if ("null".equals(literal))
+                {
+                    return null;
+                }
+                if ("true".equals(literal) || "false".equals(literal))
+                {
+                    return Boolean.valueOf(literal);
+                }
+                throw new IOException("Malformed JSON: unexpected literal " + literal);
+            }
+            throw error("value");
+        }
+        
+        private Map<String, Object> parseObject() throws IOException
+        {
+            Map<String, Object> object = new LinkedHashMap<String, Object>();
+            expect('{');
+            skipWhitespace();
+            if (c == '}')
+            {
+                next();
+                return object;
+            }
+            while (true)
+            {
+                skipWhitespace();
+                String name = parseString();
+                expect(':');
+                object.put(name, parseValue());
+                skipWhitespace();
+                if (c == '}')
+                {
+                    next();
+                    return object;
+                }
+                expect(',');
+            }
+        }
+        
+        private List<Object> parseArray() throws IOException
+        {
+            List<Object> array = new ArrayList<Object>();
+            expect('[');
+            skipWhitespace();
+            if (c == ']')
+            {
+                next();
+                return array;
+            }
+            while (true)
+            {
+                array.add(parseValue());
+                skipWhitespace();
+                if (c == ']')
+                {
+                    next();
+                    return array;
+                }
+                expect(',');
+            }
+        }
+        
+        private String parseString() throws IOException
+        {
+            if (c != '"')
+            {
+                throw error("string");
+            }
+            next();
+            StringBuilder builder = new StringBuilder();
+            while (c != '"')
+            {
+                if (c == -1)
+                {
+                    throw error("'\"'");
+                }
+                if (c == '\\')
+                {
+                    next();
+                    if (c == 'u')
+                    {
+                        char[] hex = new char[4];
+                        for (int i = 0; i < 4; i++)
+                        {
+                            next();
+                            hex[i] = (char) c;
+                        }
+                        builder.append((char) Integer.parseInt(new String(hex), 16));
+                    }
+                    else if (c == 'n')
+                    {
+                        builder.append('\n');
+                    }
+                    else if (c == 't')
+                    {
+                        builder.append('\t');
+                    }
+                    else if (c == 'r')
+                    {
+                        builder.append('\r');
+                    }
+                    else if (c == 'b')
+                    {
+                        builder.append('\b');
+                    }
+                    else if (c == 'f')
+                    {
+                        builder.append('\f');
+                    }
+                    else
+                    {
+                        builder.append((char) c);
+                    }
+                }
+                else
+                {
+                    builder.append((char) c);
+                }
+                next();
+            }
+            next();
+            return builder.toString();
+        }
+        
+        private Double parseNumber() throws IOException
+        {
+            StringBuilder builder = new StringBuilder();
+            while (c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E' || (c >= '0' && c <= '9'))
+            {
+                builder.append((char) c);
+                next();
+            }
+            try
+            {
+                return Double.valueOf(builder.toString());
+            }
+            catch (NumberFormatException e)
+            {
+                throw new IOException("Malformed JSON: bad number " + builder);
+            }
+        }
+        
+        private String parseLiteral() throws IOException
+        {
+            StringBuilder builder = new StringBuilder();
+            while (c >= 'a' && c <= 'z')
+            {
+                builder.append((char) c);
+                next();
+            }
+            return builder.toString();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2010, 2011 AnjLab
+ * 
+ * This file is part of 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem 
+ * is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem
+ * is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.anjlab.sat3;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cern.colt.list.ObjectArrayList;
+
+/**
+ * Operations of {@link SimpleFormula} on the unified CTS built from a formula, 
+ * the way they are used to build and reduce HSS. Operations that change the structure 
+ * work on a clone, {@link #cloneStructure()} is the baseline for them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimpleFormulaBenchmark
+{
+    @Param({"uf50-01000.cnf", "uf75-0100.cnf"})
+    public String formula;
+    
+    private SimpleFormula structure;
+    private SimpleFormula otherStructure;
+    
+    private int[] varNames;
+    private int middleTierIndex;
+    private ITripletValue middleTierValue;
+    
+    @Setup
+    public void setup() throws IOException
+    {
+        BenchmarkInputs.disableAssertions();
+        
+        ObjectArrayList cts = BenchmarkInputs.createCTS(formula);
+        
+        structure = (SimpleFormula) cts.get(0);
+        otherStructure = (SimpleFormula) cts.get(cts.size() - 1);
+        
+        varNames = structure.getPermutation().elements().clone();
+        
+        middleTierIndex = structure.getTiers().size() / 2;
+        middleTierValue = structure.getTier(middleTierIndex).iterator().next();
+    }
+    
+    @Benchmark
+    public SimpleFormula cloneStructure()
+    {
+        return structure.clone();
+    }
+    
+    @Benchmark
+    public int intersect()
+    {
+        SimpleFormula clone = structure.clone();
+        clone.intersect(otherStructure);
+        return clone.getClausesCount();
+    }
+    
+    @Benchmark
+    public int union()
+    {
+        SimpleFormula clone = structure.clone();
+        clone.union(otherStructure);
+        return clone.getClausesCount();
+    }
+    
+    /**
+     * Reduces the middle tier to a single triplet value and cleans up the structure, 
+     * as a reduction of a basic graph tier does.
+     */
+    @Benchmark
+    public int cleanup()
+    {
+        SimpleFormula clone = structure.clone();
+        clone.getTier(middleTierIndex).intersect(middleTierValue);
+        clone.cleanup(middleTierIndex, middleTierIndex);
+        return clone.getClausesCount();
+    }
+    
+    @Benchmark
+    public int concretize()
+    {
+        SimpleFormula clone = structure.clone();
+        clone.concretize(varNames[varNames.length / 2], Value.AllPlain);
+        return clone.getClausesCount();
+    }
+    
+    @Benchmark
+    public int valueOf()
+    {
+        int result = 0;
+        for (int i = 0; i < varNames.length; i++)
+        {
+            result += structure.valueOf(varNames[i]).ordinal();
+        }
+        return result;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2010, 2011 AnjLab
+ * 
+ * This file is part of 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem 
+ * is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem
+ * is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.anjlab.sat3;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Operations of {@link SimplePermutation} on the permutation of a formula.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimplePermutationBenchmark
+{
+    @Param({"uf50-01000.cnf", "uf75-0100.cnf"})
+    public String formula;
+    
+    private int[] varNames;
+    
+    //  Permutation that is only reordered by the benchmarks, so it always has the same variables
+    private IPermutation permutation;
+    
+    @Setup
+    public void setup() throws IOException
+    {
+        BenchmarkInputs.disableAssertions();
+        
+        varNames = BenchmarkInputs.loadFormula(formula).getPermutation().elements().clone();
+        
+        permutation = new SimplePermutation();
+        for (int i = 0; i < varNames.length; i++)
+        {
+            permutation.add(varNames[i]);
+        }
+    }
+    
+    @Benchmark
+    public IPermutation add()
+    {
+        IPermutation result = new SimplePermutation();
+        for (int i = 0; i < varNames.length; i++)
+        {
+            result.add(varNames[i]);
+        }
+        return result;
+    }
+    
+    @Benchmark
+    public int indexOf()
+    {
+        int result = 0;
+        for (int i = 0; i < varNames.length; i++)
+        {
+            result += permutation.indexOf(varNames[i]);
+        }
+        return result;
+    }
+    
+    /**
+     * Moves the middle third of the permutation to its start, as joining a triplet to a CTF structure does.
+     */
+    @Benchmark
+    public int shiftToStart()
+    {
+        int size = permutation.size();
+        permutation.shiftToStart(size / 3, 2 * size / 3);
+        return permutation.get(0);
+    }
+    
+    @Benchmark
+    public int swap()
+    {
+        int result = 0;
+        for (int i = 0; i < varNames.length - 1; i += 2)
+        {
+            permutation.swap(varNames[i], varNames[i + 1]);
+            result += permutation.indexOf(varNames[i]);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2010, 2011 AnjLab
+ * 
+ * This file is part of 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem 
+ * is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem
+ * is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.anjlab.sat3;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cern.colt.list.ObjectArrayList;
+
+/**
+ * Operations of {@link SimpleTier} applied to every tier of the unified CTS built from a formula.
+ * Operations that remove triplets work on clones, {@link #cloneTiers()} is the baseline for them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimpleTierBenchmark
+{
+    @Param({"uf50-01000.cnf", "uf75-0100.cnf"})
+    public String formula;
+    
+    //  Adjacent tiers of the same structure, tiers[i + 1] follows tiers[i] if next[i]
+    private ITier[] tiers;
+    private boolean[] next;
+    
+    //  Tiers that are only transposed and swapped, so they never change their triplets
+    private ITier[] permutedTiers;
+    
+    @Setup
+    public void setup() throws IOException
+    {
+        BenchmarkInputs.disableAssertions();
+        
+        ObjectArrayList cts = BenchmarkInputs.createCTS(formula);
+        
+        ObjectArrayList allTiers = new ObjectArrayList();
+        ObjectArrayList nextFlags = new ObjectArrayList();
+        for (int i = 0; i < cts.size(); i++)
+        {
+            ObjectArrayList structureTiers = ((ITabularFormula) cts.get(i)).getTiers();
+            for (int j = 0; j < structureTiers.size(); j++)
+            {
+                allTiers.add(structureTiers.get(j));
+                nextFlags.add(Boolean.valueOf(j < structureTiers.size() - 1));
+            }
+        }
+        
+        tiers = new ITier[allTiers.size()];
+        next = new boolean[allTiers.size()];
+        permutedTiers = new ITier[allTiers.size()];
+        for (int i = 0; i < tiers.length; i++)
+        {
+            tiers[i] = (ITier) allTiers.get(i);
+            next[i] = ((Boolean) nextFlags.get(i)).booleanValue();
+            permutedTiers[i] = tiers[i].clone();
+        }
+    }
+    
+    @Benchmark
+    public int cloneTiers()
+    {
+        int result = 0;
+        for (int i = 0; i < tiers.length; i++)
+        {
+            result += tiers[i].clone().size();
+        }
+        return result;
+    }
+    
+    /**
+     * Adjoins each pair of neighbour tiers of a structure, as the structure cleanup does.
+     */
+    @Benchmark
+    public int adjoin()
+    {
+        int result = 0;
+        for (int i = 0; i < tiers.length - 1; i++)
+        {
+            if (!next[i])
+            {
+                continue;
+            }
+            ITier ti = tiers[i].clone();
+            ITier tj = tiers[i + 1].clone();
+            
+            ti.adjoinRight(tj);
+            tj.adjoinLeft(ti);
+            
+            result += ti.size() + tj.size();
+        }
+        return result;
+    }
+    
+    @Benchmark
+    public int swap()
+    {
+        int result = 0;
+        for (int i = 0; i < permutedTiers.length; i++)
+        {
+            ITier tier = permutedTiers[i];
+            tier.swapAB();
+            tier.swapAC();
+            tier.swapBC();
+            result += tier.getAName();
+        }
+        return result;
+    }
+    
+    @Benchmark
+    public int transposeTo()
+    {
+        int result = 0;
+        for (int i = 0; i < permutedTiers.length; i++)
+        {
+            ITier tier = permutedTiers[i];
+            int a = tier.getAName();
+            int b = tier.getBName();
+            int c = tier.getCName();
+            
+            tier.transposeTo(c, a, b);
+            result += tier.getAName();
+            tier.transposeTo(b, c, a);
+            result += tier.getAName();
+        }
+        return result;
+    }
+    
+    @Benchmark
+    public int concretize()
+    {
+        int result = 0;
+        for (int i = 0; i < tiers.length; i++)
+        {
+            ITier tier = tiers[i].clone();
+            tier.concretize(tier.getBName(), (i & 1) == 0 ? Value.AllPlain : Value.AllNegative);
+            result += tier.size();
+        }
+        return result;
+    }
+    
+    @Benchmark
+    public int valueOf()
+    {
+        int result = 0;
+        for (int i = 0; i < tiers.length; i++)
+        {
+            ITier tier = tiers[i];
+            result += tier.valueOfA().ordinal() + tier.valueOfB().ordinal() + tier.valueOfC().ordinal();
+        }
+        return result;
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2010, 2011 AnjLab
+ * 
+ * This file is part of 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem 
+ * is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem
+ * is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.anjlab.sat3;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares table-driven tier operations of {@link TierTables} with the bit-twiddling 
+ * implementation they were generated from. Each benchmark applies the operation to 
+ * {@link #TIERS_COUNT} random tiers, the way {@link Helper#unify(cern.colt.list.ObjectArrayList)} 
+ * applies them to every pair of tiers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TierAlgebraBenchmark
+{
+    private static final int TIERS_COUNT = 1024;
+    
+    private byte[] keys;
+    private byte[] plainMasks;
+    private byte[] negativeMasks;
+    
+    private SimpleTier[] tiers;
+    private SimpleTier[] otherTiers;
+    
+    @Setup
+    public void setup()
+    {
+        Random random = new Random(42);
+        
+        keys = new byte[TIERS_COUNT + 1];
+        random.nextBytes(keys);
+        
+        plainMasks = TierTables.CONCRETIZE_MASKS[0];
+        negativeMasks = TierTables.CONCRETIZE_MASKS[1];
+        
+        tiers = new SimpleTier[TIERS_COUNT];
+        otherTiers = new SimpleTier[TIERS_COUNT];
+        for (int i = 0; i < TIERS_COUNT; i++)
+        {
+            //  Tiers share variables 2 and 3, but both need transposition to be adjoined
+            tiers[i] = SimpleTier.createTier(2, 3, 1, keys[i]);
+            otherTiers[i] = SimpleTier.createTier(4, 2, 3, keys[i + 1]);
+        }
+    }
+    
+    @Benchmark
+    public int swapTables()
+    {
+        int result = 0;
+        for (int i = 0; i < TIERS_COUNT; i++)
+        {
+            byte k = keys[i];
+            result += SimpleTier.swapAB(k) + SimpleTier.swapAC(k) + SimpleTier.swapBC(k);
+        }
+        return result;
+    }
+    
+    @Benchmark
+    public int swapBits()
+    {
+        int result = 0;
+        for (int i = 0; i < TIERS_COUNT; i++)
+        {
+            byte k = keys[i];
+            result += TierTables.swapABBits(k) + TierTables.swapACBits(k) + TierTables.swapBCBits(k);
+        }
+        return result;
+    }
+    
+    @Benchmark
+    public int adjoinTables()
+    {
+        int result = 0;
+        for (int i = 0; i < TIERS_COUNT; i++)
+        {
+            byte k = keys[i];
+            byte next = keys[i + 1];
+            result += SimpleTier.adjoinRight(k, next) + SimpleTier.adjoinLeft(next, k);
+        }
+        return result;
+    }
+    
+    @Benchmark
+    public int adjoinBits()
+    {
+        int result = 0;
+        for (int i = 0; i < TIERS_COUNT; i++)
+        {
+            byte k = keys[i];
+            byte next = keys[i + 1];
+            result += TierTables.adjoinRightBits(k, next) + TierTables.adjoinLeftBits(next, k);
+        }
+        return result;
+    }
+    
+    @Benchmark
+    public int valueOfTables()
+    {
+        int result = 0;
+        for (int i = 0; i < TIERS_COUNT; i++)
+        {
+            byte k = keys[i];
+            result += SimpleTier.valueOfA(k).ordinal() 
+                    + SimpleTier.valueOfB(k).ordinal() 
+                    + SimpleTier.valueOfC(k).ordinal();
+        }
+        return result;
+    }
+    
+    @Benchmark
+    public int valueOfBits()
+    {
+        int result = 0;
+        for (int i = 0; i < TIERS_COUNT; i++)
+        {
+            byte k = keys[i];
+            result += TierTables.valueOfBits(k, plainMasks[0], negativeMasks[0]).ordinal() 
+                    + TierTables.valueOfBits(k, plainMasks[1], negativeMasks[1]).ordinal() 
+                    + TierTables.valueOfBits(k, plainMasks[2], negativeMasks[2]).ordinal();
+        }
+        return result;
+    }
+    
+    @Benchmark
+    public int sizePopcount()
+    {
+        int result = 0;
+        for (int i = 0; i < TIERS_COUNT; i++)
+        {
+            result += Integer.bitCount(keys[i] & 0xFF);
+        }
+        return result;
+    }
+    
+    @Benchmark
+    public int sizeBits()
+    {
+        int result = 0;
+        for (int i = 0; i < TIERS_COUNT; i++)
+        {
+            result += TierTables.sizeBits(keys[i]);
+        }
+        return result;
+    }
+    
+    /**
+     * transposeTo + adjoinRight + adjoinLeft on tier objects, as in the inner loop of 
+     * {@link Helper#unify(cern.colt.list.ObjectArrayList)}.
+     */
+    @Benchmark
+    public int unifyTierPair()
+    {
+        int result = 0;
+        for (int i = 0; i < TIERS_COUNT; i++)
+        {
+            ITier ti = tiers[i].clone();
+            ITier tj = otherTiers[i].clone();
+            
+            ti.transposeTo(1, 2, 3);
+            tj.transposeTo(2, 3, 4);
+            ti.adjoinRight(tj);
+            tj.adjoinLeft(ti);
+            
+            result += ti.size() + tj.size();
+        }
+        return result;
+    }
+}
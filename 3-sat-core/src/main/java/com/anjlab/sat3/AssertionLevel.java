@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2010, 2011 AnjLab
+ * 
+ * This file is part of 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem 
+ * is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem
+ * is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.anjlab.sat3;
+
+/**
+ * Levels of internal program self-check.
+ * 
+ * @see Helper#setAssertionLevel(AssertionLevel)
+ */
+public enum AssertionLevel
+{
+    /**
+     * No self-checks.
+     */
+    Off,
+    /**
+     * Invariants are checked on the changed range of tiers only, 
+     * and only for a random subset of operations.
+     */
+    Sampled,
+    /**
+     * Invariants are checked on the changed range of tiers after every operation.
+     */
+    Incremental,
+    /**
+     * Invariants are checked on the whole structure after every operation, 
+     * i.e. partial operations are compared with the full ones.
+     */
+    Full
+}
@@ -0,0 +1,338 @@
+/*
+ * Copyright (c) 2010, 2011 AnjLab
+ * 
+ * This file is part of 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem 
+ * is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem
+ * is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.anjlab.sat3;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.IdentityHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import cern.colt.list.ObjectArrayList;
+import cern.colt.map.OpenIntObjectHashMap;
+
+/**
+ * <p>Single-file binary format of HSS.</p>
+ * 
+ * <p>File layout (all numbers are big-endian <code>int</code>s unless specified):</p>
+ * <pre>
+ * MAGIC VERSION
+ * permutationsCount { size varName[size] }
+ * basicCTS
+ * hssCount {
+ *     otherCTS
+ *     tiersCount { verticesCount { tierKey:byte flags:byte substructure } }
+ * }
+ * </pre>
+ * <p>where every structure is written as <code>permutationIndex tiersCount keys_73516240:byte[tiersCount]</code>.
+ * Permutations are shared, i.e. all structures that use the same permutation instance 
+ * refer to the single record of the permutations table.</p>
+ * <p>HSS may be saved partially built, see {@link TierCheckpointPolicy}.</p>
+ */
+final class BinaryHSSFile
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(BinaryHSSFile.class);
+    
+    private static final int MAGIC = 0x48535331;   //  "HSS1"
+    private static final int VERSION = 1;
+    
+    private static final int BOTTOM1_EMPTY = 1;
+    private static final int BOTTOM2_EMPTY = 2;
+    private static final int DIRTY = 4;
+    
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    private BinaryHSSFile()
+    {
+    }
+    
+    public static boolean isBinaryHSS(File file) throws IOException
+    {
+        if (!file.isFile() || file.length() < 4)
+        {
+            return false;
+        }
+        FileInputStream input = new FileInputStream(file);
+        try
+        {
+            ByteBuffer buffer = ByteBuffer.allocate(4);
+            input.getChannel().read(buffer, 0);
+            buffer.flip();
+            return buffer.remaining() == 4 && buffer.getInt() == MAGIC;
+        }
+        finally
+        {
+            input.close();
+        }
+    }
+    
+    public static void save(File file, ObjectArrayList hss) throws IOException
+    {
+        IHyperStructure basicGraph = (IHyperStructure) hss.get(0);
+        
+        //  Collect shared permutations
+        IdentityHashMap<IPermutation, Integer> permutations = new IdentityHashMap<IPermutation, Integer>();
+        ObjectArrayList permutationsList = new ObjectArrayList();
+        addPermutation(permutations, permutationsList, basicGraph.getBasicCTS());
+        for (int h = 0; h < hss.size(); h++)
+        {
+            IHyperStructure hs = (IHyperStructure) hss.get(h);
+            addPermutation(permutations, permutationsList, hs.getOtherCTS());
+            for (int j = 0; j < hs.getTiers().size(); j++)
+            {
+                ObjectArrayList vertices = ((OpenIntObjectHashMap) hs.getTiers().get(j)).values();
+                for (int i = 0; i < vertices.size(); i++)
+                {
+                    addPermutation(permutations, permutationsList, ((IVertex) vertices.get(i)).getCTS());
+                }
+            }
+        }
+        
+        FileOutputStream output = new FileOutputStream(file);
+        try
+        {
+            FileChannel channel = output.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            
+            putInt(channel, buffer, MAGIC);
+            putInt(channel, buffer, VERSION);
+            
+            putInt(channel, buffer, permutationsList.size());
+            for (int p = 0; p < permutationsList.size(); p++)
+            {
+                IPermutation permutation = (IPermutation) permutationsList.get(p);
+                int[] elements = permutation.elements();
+                putInt(channel, buffer, permutation.size());
+                for (int i = 0; i < permutation.size(); i++)
+                {
+                    putInt(channel, buffer, elements[i]);
+                }
+            }
+            
+            putCTS(channel, buffer, permutations, basicGraph.getBasicCTS());
+            
+            putInt(channel, buffer, hss.size());
+            for (int h = 0; h < hss.size(); h++)
+            {
+                IHyperStructure hs = (IHyperStructure) hss.get(h);
+                
+                putCTS(channel, buffer, permutations, hs.getOtherCTS());
+                
+                putInt(channel, buffer, hs.getTiers().size());
+                for (int j = 0; j < hs.getTiers().size(); j++)
+                {
+                    OpenIntObjectHashMap tier = (OpenIntObjectHashMap) hs.getTiers().get(j);
+                    
+                    //  Keep order of vertices the same as in directory format
+                    putInt(channel, buffer, tier.size());
+                    for (int i = 0; i < tier.size(); i++)
+                    {
+                        int key = tier.keys().get(i);
+                        SimpleVertex vertex = (SimpleVertex) tier.get(key);
+                        //  Keep flags as is, not derived from the tiers below, 
+                        //  because HSS may be saved partially built
+                        int flags = (vertex.isEmptyEdgeFound(EdgeKind.Bottom1) ? BOTTOM1_EMPTY : 0)
+                                  | (vertex.isEmptyEdgeFound(EdgeKind.Bottom2) ? BOTTOM2_EMPTY : 0)
+                                  | (vertex.isDirty() ? DIRTY : 0);
+                        
+                        ensureRemaining(channel, buffer, 2);
+                        buffer.put(vertex.getTripletValue().getTierKey());
+                        buffer.put((byte) flags);
+                        putCTS(channel, buffer, permutations, vertex.getCTS());
+                    }
+                }
+                
+                LOGGER.debug("HSS({}) saved", h);
+            }
+            
+            flush(channel, buffer);
+        }
+        finally
+        {
+            output.close();
+        }
+    }
+    
+    private static void addPermutation(IdentityHashMap<IPermutation, Integer> permutations, 
+            ObjectArrayList permutationsList, ICompactTripletsStructure cts)
+    {
+        IPermutation permutation = cts.getPermutation();
+        if (!permutations.containsKey(permutation))
+        {
+            permutations.put(permutation, permutationsList.size());
+            permutationsList.add(permutation);
+        }
+    }
+    
+    private static void putCTS(FileChannel channel, ByteBuffer buffer, 
+            IdentityHashMap<IPermutation, Integer> permutations, ICompactTripletsStructure cts) throws IOException
+    {
+        int tiersCount = cts.isEmpty() ? 0 : cts.getTiers().size();
+        
+        putInt(channel, buffer, permutations.get(cts.getPermutation()));
+        putInt(channel, buffer, tiersCount);
+        
+        if (cts instanceof PackedFormula)
+        {
+            long[] words = ((PackedFormula) cts).words;
+            for (int j = 0; j < tiersCount; j++)
+            {
+                ensureRemaining(channel, buffer, 1);
+                buffer.put(TierKernels.get(words, j));
+            }
+        }
+        else
+        {
+            for (int j = 0; j < tiersCount; j++)
+            {
+                ensureRemaining(channel, buffer, 1);
+                buffer.put(SimpleTier.keysOf(cts.getTier(j)));
+            }
+        }
+    }
+    
+    private static void putInt(FileChannel channel, ByteBuffer buffer, int value) throws IOException
+    {
+        ensureRemaining(channel, buffer, 4);
+        buffer.putInt(value);
+    }
+    
+    private static void ensureRemaining(FileChannel channel, ByteBuffer buffer, int count) throws IOException
+    {
+        if (buffer.remaining() < count)
+        {
+            flush(channel, buffer);
+        }
+    }
+    
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException
+    {
+        buffer.flip();
+        while (buffer.hasRemaining())
+        {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+    
+    public static ObjectArrayList load(File file) throws IOException
+    {
+        FileInputStream input = new FileInputStream(file);
+        try
+        {
+            FileChannel channel = input.getChannel();
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            
+            if (buffer.getInt() != MAGIC)
+            {
+                throw new IOException(file + " is not a binary HSS file");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION)
+            {
+                throw new IOException("Unsupported version of binary HSS file: " + version);
+            }
+            
+            IPermutation[] permutations = new IPermutation[buffer.getInt()];
+            for (int p = 0; p < permutations.length; p++)
+            {
+                int size = buffer.getInt();
+                IPermutation permutation = new SimplePermutation();
+                for (int i = 0; i < size; i++)
+                {
+                    permutation.add(buffer.getInt());
+                }
+                permutations[p] = permutation;
+            }
+            
+            ICompactTripletsStructure basicCTS = getSimpleFormula(buffer, permutations);
+            
+            int hssCount = buffer.getInt();
+            ObjectArrayList hss = new ObjectArrayList(hssCount);
+            
+            for (int h = 0; h < hssCount; h++)
+            {
+                ICompactTripletsStructure otherCTS = getSimpleFormula(buffer, permutations);
+                IHyperStructure hs = new SimpleHyperStructure(basicCTS, otherCTS);
+                hss.add(hs);
+                
+                int tiersCount = buffer.getInt();
+                for (int j = 0; j < tiersCount; j++)
+                {
+                    int verticesCount = buffer.getInt();
+                    OpenIntObjectHashMap tier = new OpenIntObjectHashMap(8);
+                    hs.getTiers().add(tier);
+                    
+                    for (int i = 0; i < verticesCount; i++)
+                    {
+                        byte tierKey = buffer.get();
+                        int flags = buffer.get();
+                        ITripletValue tripletValue = SimpleTripletValueFactory.getTripletValue(tierKey);
+                        
+                        IPermutation permutation = permutations[buffer.getInt()];
+                        byte[] keys = new byte[buffer.getInt()];
+                        buffer.get(keys);
+                        
+                        SimpleVertex vertex = new SimpleVertex(basicCTS.getTier(j), j, tripletValue, 
+                                                               new PackedFormula(permutation, keys));
+                        vertex.setHyperStructure(hs);
+                        
+                        if ((flags & BOTTOM1_EMPTY) != 0) vertex.foundEmptyEdge(EdgeKind.Bottom1);
+                        if ((flags & BOTTOM2_EMPTY) != 0) vertex.foundEmptyEdge(EdgeKind.Bottom2);
+                        if ((flags & DIRTY) != 0) vertex.markDirty();
+                        
+                        tier.put(tripletValue.getTierKey(), vertex);
+                    }
+                }
+            }
+            
+            return hss;
+        }
+        finally
+        {
+            input.close();
+        }
+    }
+    
+    private static ICompactTripletsStructure getSimpleFormula(ByteBuffer buffer, IPermutation[] permutations)
+    {
+        IPermutation permutation = permutations[buffer.getInt()];
+        int tiersCount = buffer.getInt();
+        
+        SimpleFormula formula = new SimpleFormula(permutation);
+        int[] varNames = permutation.elements();
+        for (int j = 0; j < tiersCount; j++)
+        {
+            formula.addTier(SimpleTier.createTier(varNames[j], varNames[j + 1], varNames[j + 2], buffer.get()));
+        }
+        formula.clearTierHash3();
+        
+        return formula;
+    }
+}
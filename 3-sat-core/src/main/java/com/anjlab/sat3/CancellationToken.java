@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2010, 2011 AnjLab
+ * 
+ * This file is part of 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem 
+ * is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem
+ * is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.anjlab.sat3;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Allows to cancel solve running in another thread, see {@link Sat3Solver}, 
+ * either explicitly or when deadline of the solve is reached.
+ */
+public final class CancellationToken
+{
+    private volatile boolean cancelled;
+    
+    //  Value of System.nanoTime() when solve should be cancelled, valid if hasDeadline is true
+    private volatile long deadline;
+    private volatile boolean hasDeadline;
+    
+    public void cancel()
+    {
+        cancelled = true;
+    }
+    
+    /**
+     * Cancels the solve when timeout elapses, counting from now.
+     */
+    public void cancelAfter(long timeout, TimeUnit unit)
+    {
+        deadline = System.nanoTime() + unit.toNanos(timeout);
+        hasDeadline = true;
+    }
+    
+    public boolean isCancelled()
+    {
+        return cancelled || isDeadlineExceeded();
+    }
+    
+    /**
+     * @return True if the deadline set with {@link #cancelAfter(long, TimeUnit)} was reached.
+     */
+    public boolean isDeadlineExceeded()
+    {
+        return hasDeadline && System.nanoTime() - deadline >= 0;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2010, 2011 AnjLab
+ * 
+ * This file is part of 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem 
+ * is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem
+ * is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.anjlab.sat3;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import cern.colt.list.ObjectArrayList;
+
+/**
+ * Defines how often HSS is saved to disk during {@link Helper#findHSSRouteByReduce(ObjectArrayList, CheckpointPolicy)}, 
+ * and whether it is saved when the solve was cancelled, so that search may be resumed later.
+ */
+public final class CheckpointPolicy
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(CheckpointPolicy.class);
+    
+    /**
+     * Never save HSS to disk. Has no state, so may be shared by concurrent solves.
+     */
+    public static final CheckpointPolicy NONE = new CheckpointPolicy(null, 0);
+    
+    private final String hssPath;
+    private final int reductionsPerCheckpoint;
+    private final boolean saveOnCancel;
+    private int reductionsCount;
+    
+    /**
+     * @param hssPath Path to save HSS to.
+     * @param reductionsPerCheckpoint HSS will be saved after every N-th reduction, 
+     * <code>0</code> means never.
+     */
+    public CheckpointPolicy(String hssPath, int reductionsPerCheckpoint)
+    {
+        this(hssPath, reductionsPerCheckpoint, false);
+    }
+    
+    /**
+     * @param hssPath Path to save HSS to.
+     * @param reductionsPerCheckpoint HSS will be saved after every N-th reduction, 
+     * <code>0</code> means never.
+     * @param saveOnCancel If <code>true</code> HSS will be saved when the solve was cancelled.
+     */
+    public CheckpointPolicy(String hssPath, int reductionsPerCheckpoint, boolean saveOnCancel)
+    {
+        this.hssPath = hssPath;
+        this.reductionsPerCheckpoint = reductionsPerCheckpoint;
+        this.saveOnCancel = saveOnCancel;
+    }
+    
+    public String getHSSPath()
+    {
+        return hssPath;
+    }
+    
+    public int getReductionsPerCheckpoint()
+    {
+        return reductionsPerCheckpoint;
+    }
+    
+    public boolean isSaveOnCancel()
+    {
+        return saveOnCancel;
+    }
+    
+    /**
+     * Called each time HSS was rebuilt after reduction of a basic graph tier.
+     */
+    public void reductionCompleted(ObjectArrayList hss) throws IOException
+    {
+        if (reductionsPerCheckpoint <= 0)
+        {
+            return;
+        }
+        
+        reductionsCount++;
+        
+        if (reductionsCount % reductionsPerCheckpoint == 0)
+        {
+            LOGGER.info("Checkpoint HSS after {} reductions to {}", reductionsCount, hssPath);
+            save(hss);
+        }
+    }
+    
+    /**
+     * Called when the solve was cancelled during reduction.
+     * 
+     * @param hss HSS as it was after the last completed reduction.
+     */
+    public void solveCancelled(ObjectArrayList hss) throws IOException
+    {
+        if (!saveOnCancel)
+        {
+            return;
+        }
+        
+        LOGGER.info("Solve cancelled, save HSS to {}", hssPath);
+        save(hss);
+    }
+    
+    //  Save to temporary path first to always keep the last complete checkpoint
+    private void save(ObjectArrayList hss) throws IOException
+    {
+        String tempPath = hssPath + ".tmp";
+        Helper.saveHSS(tempPath, hss);
+        StageCheckpoints.commit(new File(tempPath), new File(hssPath));
+    }
+}
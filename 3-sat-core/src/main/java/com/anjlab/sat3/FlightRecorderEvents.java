@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2010, 2011 AnjLab
+ * 
+ * This file is part of 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem 
+ * is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem
+ * is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.anjlab.sat3;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * <p>Java Flight Recorder events of the solver, should only be used via {@link SolverEvents}. 
+ * This class is not compiled when the build JDK has no JFR, so it must not be referenced directly.</p>
+ * 
+ * <p>Events of hot operations have thresholds and no stack traces to keep overhead of recording low, 
+ * thresholds may be changed in JFR settings, e.g. <code>com.anjlab.sat3.UnifyRound#threshold=0 ms</code>.</p>
+ */
+final class FlightRecorderEvents implements SolverEvents.Recorder
+{
+    FlightRecorderEvents()
+    {
+    }
+    
+    @Name("com.anjlab.sat3.Phase")
+    @Label("Solver Phase")
+    @Category("3-SAT Solver")
+    @Threshold("0 ms")
+    static final class PhaseEvent extends Event
+    {
+        @Label("Phase")
+        String phase;
+    }
+    
+    @Name("com.anjlab.sat3.HSSTier")
+    @Label("HSS Tier Built")
+    @Description("Tier of HSS built by concordant shift of the vertices of the previous tier")
+    @Category("3-SAT Solver")
+    @Threshold("10 ms")
+    @StackTrace(false)
+    static final class HSSTierEvent extends Event
+    {
+        @Label("Tier Index")
+        int tierIndex;
+        @Label("Tiers Count")
+        int tiersCount;
+        @Label("Hyperstructures Count")
+        int hyperStructuresCount;
+        @Label("Dirty Tiers Removed")
+        int dirtyTiersRemoved;
+    }
+    
+    @Name("com.anjlab.sat3.UnifyRound")
+    @Label("Unify Round")
+    @Description("Round of unification of CTS, unification completes when no pairs left to adjoin")
+    @Category("3-SAT Solver")
+    @Threshold("1 ms")
+    @StackTrace(false)
+    static final class UnifyRoundEvent extends Event
+    {
+        @Label("Round")
+        int round;
+        @Label("Structures Count")
+        int structuresCount;
+        @Label("Pairs Processed")
+        int pairsCount;
+        @Label("Clauses Removed")
+        int clausesRemoved;
+    }
+    
+    @Name("com.anjlab.sat3.ConcordantShift")
+    @Label("Concordant Shift")
+    @Description("Shift of a vertex along the edge to the next tier in all hyperstructures of HSS")
+    @Category("3-SAT Solver")
+    @Threshold("5 ms")
+    @StackTrace(false)
+    static final class ConcordantShiftEvent extends Event
+    {
+        @Label("Tier Index")
+        int tierIndex;
+        @Label("Vertex Index")
+        int vertexIndex;
+        @Label("Vertices Count")
+        int verticesCount;
+        @Label("Hyperstructures Count")
+        int hyperStructuresCount;
+    }
+    
+    @Name("com.anjlab.sat3.ReductionStep")
+    @Label("HSS Reduction Step")
+    @Description("Reduction of a tier of the basic CTS to one vertex and rebuild of HSS")
+    @Category("3-SAT Solver")
+    @Threshold("0 ms")
+    static final class ReductionStepEvent extends Event
+    {
+        @Label("Tier Index")
+        int tierIndex;
+        @Label("Hyperstructures Count")
+        int hyperStructuresCount;
+        @Label("Rolled Back")
+        @Description("HSS was built empty and restored from snapshot to keep the other vertex")
+        boolean rolledBack;
+    }
+    
+    private static Object begin(Event event)
+    {
+        if (!event.isEnabled())
+        {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+    
+    public Object beginPhase()
+    {
+        return begin(new PhaseEvent());
+    }
+    
+    public void commitPhase(Object event, SolverPhase phase)
+    {
+        PhaseEvent phaseEvent = (PhaseEvent) event;
+        phaseEvent.phase = phase.name();
+        phaseEvent.commit();
+    }
+    
+    public Object beginHSSTier()
+    {
+        return begin(new HSSTierEvent());
+    }
+    
+    public void commitHSSTier(Object event, int tierIndex, int tiersCount, int hyperStructuresCount, int dirtyTiersRemoved)
+    {
+        HSSTierEvent tierEvent = (HSSTierEvent) event;
+        tierEvent.end();
+        if (tierEvent.shouldCommit())
+        {
+            tierEvent.tierIndex = tierIndex;
+            tierEvent.tiersCount = tiersCount;
+            tierEvent.hyperStructuresCount = hyperStructuresCount;
+            tierEvent.dirtyTiersRemoved = dirtyTiersRemoved;
+            tierEvent.commit();
+        }
+    }
+    
+    public Object beginUnifyRound()
+    {
+        return begin(new UnifyRoundEvent());
+    }
+    
+    public void commitUnifyRound(Object event, int round, int structuresCount, int pairsCount, int clausesRemoved)
+    {
+        UnifyRoundEvent roundEvent = (UnifyRoundEvent) event;
+        roundEvent.end();
+        if (roundEvent.shouldCommit())
+        {
+            roundEvent.round = round;
+            roundEvent.structuresCount = structuresCount;
+            roundEvent.pairsCount = pairsCount;
+            roundEvent.clausesRemoved = clausesRemoved;
+            roundEvent.commit();
+        }
+    }
+    
+    public Object beginConcordantShift()
+    {
+        return begin(new ConcordantShiftEvent());
+    }
+    
+    public void commitConcordantShift(Object event, int tierIndex, int vertexIndex, int verticesCount, int hyperStructuresCount)
+    {
+        ConcordantShiftEvent shiftEvent = (ConcordantShiftEvent) event;
+        shiftEvent.end();
+        if (shiftEvent.shouldCommit())
+        {
+            shiftEvent.tierIndex = tierIndex;
+            shiftEvent.vertexIndex = vertexIndex;
+            shiftEvent.verticesCount = verticesCount;
+            shiftEvent.hyperStructuresCount = hyperStructuresCount;
+            shiftEvent.commit();
+        }
+    }
+    
+    public Object beginReductionStep()
+    {
+        return begin(new ReductionStepEvent());
+    }
+    
+    public void commitReductionStep(Object event, int tierIndex, int hyperStructuresCount, boolean rolledBack)
+    {
+        ReductionStepEvent stepEvent = (ReductionStepEvent) event;
+        stepEvent.tierIndex = tierIndex;
+        stepEvent.hyperStructuresCount = hyperStructuresCount;
+        stepEvent.rolledBack = rolledBack;
+        stepEvent.commit();
+    }
+}
@@ -37,10 +37,10 @@ public class GenericFormulaReader implements IFormulaReader
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(GenericFormulaReader.class);
     
-    private int originalVarCount = 0;
-    private int originalClausesCount = 0;
+    protected int originalVarCount = 0;
+    protected int originalClausesCount = 0;
    
-    private SimpleFormula formula = new SimpleFormula();
+    protected SimpleFormula formula = new SimpleFormula();
     
     public ITabularFormula readFormula(InputStream input) throws IOException
     {
@@ -169,7 +169,14 @@ public class GenericFormulaReader implements IFormulaReader
     private int b = 0;
     private int c = 0;
     
-    private void addTriplets(OpenIntIntHashMap varMappings, IntArrayList values)
+    /**
+     * Adds clause to the formula. Clauses of length other than 3 are converted to 3-SAT clauses 
+     * using new variables that are mapped to <code>-1</code> in <code>varMappings</code>.
+     * 
+     * @param varMappings internal var name -> original var name
+     * @param values Literals of the clause with internal var names
+     */
+    protected void addTriplets(OpenIntIntHashMap varMappings, IntArrayList values)
     {
         int n = varMappings.size();
 
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2010, 2011 AnjLab
+ * 
+ * This file is part of 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem 
+ * is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem
+ * is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.anjlab.sat3;
+
+import cern.colt.list.ObjectArrayList;
+
+/**
+ * <p>In-memory snapshot of HSS taken before reducing a tier of the basic graph.</p>
+ * 
+ * <p>Reduction only modifies basic and other CTS of hyperstructures (by concretization, 
+ * cleanup and unification), and then builds new HSS from them. So the snapshot copies only 
+ * these structures, while tiers and substructure-vertices are shared with the original HSS.</p>
+ */
+final class HSSSnapshot
+{
+    private final ObjectArrayList hss;
+    private final ICompactTripletsStructure basicCTS;
+    private final ObjectArrayList otherCTS;
+    
+    private HSSSnapshot(ObjectArrayList hss)
+    {
+        this.hss = hss.copy();
+        this.basicCTS = copyOf(((IHyperStructure) hss.get(0)).getBasicCTS());
+        this.otherCTS = new ObjectArrayList(hss.size());
+        for (int h = 0; h < hss.size(); h++)
+        {
+            otherCTS.add(copyOf(((IHyperStructure) hss.get(h)).getOtherCTS()));
+        }
+    }
+    
+    public static HSSSnapshot take(ObjectArrayList hss)
+    {
+        return new HSSSnapshot(hss);
+    }
+    
+    /**
+     * Restores hyperstructures to the state they had when the snapshot was taken.
+     * Snapshot may be restored more than once.
+     * 
+     * @return List of restored hyperstructures.
+     */
+    public ObjectArrayList restore()
+    {
+        ICompactTripletsStructure basicCTS = copyOf(this.basicCTS);
+        for (int h = 0; h < hss.size(); h++)
+        {
+            ((SimpleHyperStructure) hss.get(h)).setCTS(basicCTS, copyOf((ICompactTripletsStructure) otherCTS.get(h)));
+        }
+        return hss.copy();
+    }
+    
+    private static ICompactTripletsStructure copyOf(ICompactTripletsStructure cts)
+    {
+        return (ICompactTripletsStructure) ((ITabularFormula) cts).clone();
+    }
+}
@@ -42,7 +42,6 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
-import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -51,9 +50,23 @@ import java.net.URL;
 import java.net.URLClassLoader;
 import java.net.URLDecoder;
 import java.text.MessageFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.jar.Attributes;
 import java.util.jar.JarFile;
 import java.util.jar.Manifest;
@@ -66,7 +79,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import cern.colt.function.IntObjectProcedure;
-import cern.colt.function.LongObjectProcedure;
+import cern.colt.function.IntProcedure;
 import cern.colt.list.IntArrayList;
 import cern.colt.list.LongArrayList;
 import cern.colt.list.ObjectArrayList;
@@ -89,14 +102,113 @@ public class Helper
     public static final String NUMBER_OF_HSS_TIERS_BUILT = "NumberOfHSSTiersBuilt";
     public static final String BASIC_CTS_FINAL_CLAUSES_COUNT = "BasicCTSFinalClausesCount";
     public static final String SEARCH_HSS_ROUTE_TIME = "SearchHSSRouteTime";
+    public static final String BASIC_CTS_INDEX = "BasicCTSIndex";
+    public static final String CANCELLED_PHASE = "CancelledPhase";
+    public static final String ERROR_MESSAGE = "ErrorMessage";
 
     private static final Logger LOGGER = LoggerFactory.getLogger(Helper.class);
     
+    //  Options below are used by threads without attached SolverContext, see SolverContext#current()
+    
     public static boolean UsePrettyPrint = false;
 
     public static boolean EnableAssertions = true;
     
+    private static AssertionLevel assertionLevel = AssertionLevel.Full;
+    
+    /**
+     * With {@link AssertionLevel#Sampled} level every N-th operation is checked on average.
+     */
+    public static final int ASSERTIONS_SAMPLE_RATE = 64;
+    
     public static boolean UseUniversalVarNames = true;
+    
+    /**
+     * Save HSS to a single binary file instead of a directory with DIMACS file per substructure.
+     */
+    public static boolean UseBinaryHSSFormat = false;
+    
+    /**
+     * Number of threads used to process hyperstructures of HSS in parallel.
+     * Value of 1 means that all the work is done in the calling thread.
+     */
+    public static int NumberOfThreads = 1;
+    
+    /**
+     * Maximum number of threads used to load and save hyperstructures of HSS saved to a directory.
+     * Value of 1 means that all the files are read and written in the calling thread.
+     */
+    public static int NumberOfIOThreads = SolverOptions.DEFAULT_NUMBER_OF_IO_THREADS;
+    
+    /**
+     * Reduce tiers of the basic graph trying both bottom vertices concurrently.
+     * 
+     * @see #findHSSRouteByReduce(ObjectArrayList, CheckpointPolicy)
+     */
+    public static boolean UseSpeculativeReduction = false;
+    
+    /**
+     * Token to cancel the solve or bound its time with a deadline.
+     * 
+     * @see CancellationToken#cancelAfter(long, java.util.concurrent.TimeUnit)
+     */
+    public static CancellationToken GlobalCancellationToken = null;
+
+    /**
+     * @return Assertion level of the current {@link SolverContext}.
+     */
+    public static AssertionLevel getAssertionLevel()
+    {
+        return SolverContext.current().getAssertionLevel();
+    }
+    
+    static AssertionLevel getGlobalAssertionLevel()
+    {
+        return EnableAssertions ? assertionLevel : AssertionLevel.Off;
+    }
+    
+    /**
+     * @return True if assertions are enabled in the current {@link SolverContext}.
+     */
+    public static boolean isAssertionsEnabled()
+    {
+        return getAssertionLevel() != AssertionLevel.Off;
+    }
+    
+    /**
+     * Sets level of internal program self-check for threads without attached {@link SolverContext}. 
+     * Any level except {@link AssertionLevel#Off} also sets {@link #EnableAssertions}.
+     */
+    public static void setAssertionLevel(AssertionLevel level)
+    {
+        assertionLevel = level;
+        EnableAssertions = level != AssertionLevel.Off;
+    }
+    
+    /**
+     * @return True if whole structures should be checked by expensive assertions.
+     */
+    public static boolean isFullAssertions()
+    {
+        return getAssertionLevel() == AssertionLevel.Full;
+    }
+    
+    /**
+     * @return True if changed range of the current operation should be checked by assertions.
+     * For {@link AssertionLevel#Sampled} level the result is random.
+     */
+    public static boolean isIncrementalAssertions()
+    {
+        AssertionLevel level = getAssertionLevel();
+        if (level == AssertionLevel.Sampled)
+        {
+            return ThreadLocalRandom.current().nextInt(ASSERTIONS_SAMPLE_RATE) == 0;
+        }
+        return level == AssertionLevel.Incremental;
+    }
+    
+    private static final Pattern OTHER_CTS_FILENAME_PATTERN = Pattern.compile("hss-(\\d+)-other-cts\\.cnf");
+    private static final Pattern SUBSTRUCTURE_FILENAME_PATTERN = Pattern.compile("hss-(\\d+)-tier-(\\d+)-(\\d+)\\.cnf");
 
     /**
      * 
@@ -115,6 +227,8 @@ public class Helper
 
         for (int i = 1; i < tiers.size(); i++)
         {
+            checkCancelled();
+            
             ITier tier = ((ITier) tiers.get(i)).clone();
             //  Search possible CTFs to which the tier may join
             if (!joinTier(ctf, tier))
@@ -206,7 +320,7 @@ public class Helper
         StringBuilder builder = new StringBuilder();
 
         boolean smallFormula = false; //    formula.getVarCount() < 100;
-        if (UsePrettyPrint || smallFormula)
+        if (SolverContext.current().isUsePrettyPrint() || smallFormula)
         {
             int longestVarName = 0;
             IPermutation permutation = formula.getPermutation();
@@ -285,34 +399,34 @@ public class Helper
         return builder;
     }
 
-    static final char[] LEGEND_BUFFER = new char[100];
     static final int ABC = 'z' - 'a' + 1;
 
     private static String getLegendName(int varName)
     {
-        if (UseUniversalVarNames)
+        if (SolverContext.current().isUseUniversalVarNames())
         {
             return "x" + varName;
         }
         else
         {
+            char[] buffer = new char[100];
             int count = 0;
 
             while (varName > ABC)
             {
                 int mod = varName%ABC;
-                LEGEND_BUFFER[count] = (char) ('a' + mod - 1);
+                buffer[count] = (char) ('a' + mod - 1);
                 varName = varName - ABC;
                 count++;
             }
 
             if (varName > 0)
             {
-                LEGEND_BUFFER[count] = (char) ('a' + varName - 1);
+                buffer[count] = (char) ('a' + varName - 1);
                 count++;
             }
 
-            return new String(LEGEND_BUFFER, 0, count);
+            return new String(buffer, 0, count);
         }
     }
 
@@ -368,7 +482,7 @@ public class Helper
         }
         else
         {
-            formulaReader = new GenericFormulaReader();
+            formulaReader = new MappedDIMACSFormulaReader();
         }
         
         FileInputStream is = null;
@@ -393,6 +507,33 @@ public class Helper
         }
     }
 
+    /**
+     * Puts values of variables to statistics as they're written to results file: 
+     * <code>_&lt;varName&gt;</code> by variable name of the formula and <code>&lt;originalVarName&gt;</code> 
+     * by variable name of the file the formula was read from.
+     * 
+     * @param assignment Values of variables indexed by variable name.
+     */
+    public static void putAssignment(Properties statistics, ITabularFormula formula, boolean[] assignment)
+    {
+        IPermutation permutation = formula.getPermutation();
+        for (int varName = 1; varName < assignment.length; varName++)
+        {
+            if (!permutation.contains(varName))
+            {
+                continue;
+            }
+            String value = String.valueOf(assignment[varName]);
+            statistics.put("_" + varName, value);
+            
+            int originalVarName = formula.getOriginalVarName(varName);
+            if (originalVarName > 0)
+            {
+                statistics.put(String.valueOf(originalVarName), value);
+            }
+        }
+    }
+    
     public static ITabularFormula createFormula(int... values)
     {
         if (values.length%3 != 0)
@@ -452,280 +593,495 @@ public class Helper
 
         VarPairsIndex index = VarPairsIndexFactory.getInstance().buildIndex(cts);
         
-        unify(index, ((ICompactTripletsStructureHolder) cts.get(0)).getCTS().getPermutation(), cts, 1);
-    }
-
-    private static class UnificationContext
-    {
-        public VarPairsIndex partialIndex;
-        //  Debug information
-        public int numberOfClausesRemoved = 0;
+        //  Unification reaches its fixpoint when there are no pairs to adjoin
+        //  and no fixed variables to concretize left in the worklist
+        UnificationWorklist worklist = new UnificationWorklist(index, cts);
+        worklist.addAllPairs();
+        worklist.addAllVariables();
+        
+        Metrics.Histogram clausesRemovedPerRound = SolverContext.current().getMetrics().histogram(Metrics.UNIFY_CLAUSES_REMOVED_PER_ROUND);
+        
+        int round = 0;
+        
+        while (!worklist.isEmpty())
+        {
+            checkCancelled();
+            
+            round++;
+            
+            Object roundEvent = SolverEvents.beginUnifyRound();
+            
+            LongArrayList pairs = worklist.takePairs();
+            
+            if (LOGGER.isDebugEnabled())
+            {
+                LOGGER.debug("Running unify round {}: # of pairs: {}", round, pairs.size());
+            }
+            
+            UnificationContext unificationContext;
+            
+            if (SolverContext.current().getNumberOfThreads() > 1 && pairs.size() >= PARALLEL_UNIFY_MIN_PAIRS)
+            {
+                unificationContext = unifyPairsInParallel(index, pairs, cts);
+            }
+            else
+            {
+                unificationContext = new UnificationContext();
+                
+                for (int p = 0; p < pairs.size(); p++)
+                {
+                    long key = pairs.getQuick(p);
+                    unifyPair(key, index.getTiers(key), cts, unificationContext);
+                }
+            }
+            
+            worklist.addChangedTiers(unificationContext.changedTiers);
+            unificationContext.changedTiers.clear();
+            
+            concretizeFixedVariables(worklist, cts, unificationContext);
+            
+            worklist.addChangedTiers(unificationContext.changedTiers);
+            
+            clausesRemovedPerRound.record(unificationContext.numberOfClausesRemoved);
+            SolverEvents.commitUnifyRound(roundEvent, round, cts.size(), pairs.size(), unificationContext.numberOfClausesRemoved);
+            
+            LOGGER.debug("{} clauses removed during this round", unificationContext.numberOfClausesRemoved);
+        }
+        
+        SolverContext.current().getMetrics().histogram(Metrics.UNIFY_ROUNDS).record(round);
+        
+        LOGGER.debug("Unification completed in {} rounds", round);
     }
     
     /**
-     * 
-     * @param index
-     * @param varNames
-     * @param cts List of {@link ICompactTripletsStructureHolder}
-     * @throws EmptyStructureException
+     * Concretizes all other CTS with values of queued variables that became fixed.
      */
-    private static void unify(VarPairsIndex index, IPermutation varNames, final ObjectArrayList cts, int recursionLevel) throws EmptyStructureException
+    private static void concretizeFixedVariables(UnificationWorklist worklist, ObjectArrayList cts, UnificationContext context)
     {
-        if (LOGGER.isDebugEnabled())
-        {
-            LOGGER.debug("Running unify routine ({} level)...", recursionLevel);
-            LOGGER.debug("# of pairs in index: {}; # of varNames in index: {}", index.pairs().size(), varNames.size());
-        }
+        IntArrayList variables = worklist.takeVariables();
         
-        final UnificationContext unificationContext = new UnificationContext();
-        final IPermutation partialPermutation = new SimplePermutation();
-        
-        final int[] abci = new int[3];
-        final int[] abcj = new int[3];
+        int ctsCount = cts.size();
+        Object[] ctsElements = cts.elements();
         
-        index.forEachPair(new LongObjectProcedure()
+        for (int v = 0; v < variables.size(); v++)
         {
-            public boolean apply(long key, Object value)
+            int code = variables.getQuick(v);
+            int i = worklist.getFormulaIndex(code);
+            int varName = worklist.getVarName(code);
+            
+            ICompactTripletsStructure s = ((ICompactTripletsStructureHolder) ctsElements[i]).getCTS();
+            Value value = s.valueOf(varName);
+            if (value != Value.Mixed)
             {
-                //  See VarPairsIndex#addTier() for details of key construction
-                int varName1 = (int) (key >> 21);
-                int varName2 = (int) (key & 0x1FFFFF);
-                
-                //  List of formulaAndTierIndices
-                LongArrayList tiers = (LongArrayList) value;
-                long[] tiersElements = tiers.elements();
-                int tierCount = tiers.size();
-                
-                for (int i = 0; i < tierCount - 1; i++)
+                //  Concretize all other CTS with (varName -> value)
+                for (int j = 0; j < ctsCount; j++)
                 {
-                    long formulaAndTierIndex = tiersElements[i];
-                    int formulaIndex = (int)(formulaAndTierIndex >> 32);
-                    int tierIndex = (int)(formulaAndTierIndex & 0x00000000FFFFFFFFL);
+                    if (i == j) continue;
                     
-                    ICompactTripletsStructure si = ((ICompactTripletsStructureHolder) cts.getQuick(formulaIndex)).getCTS();
-                    ITier ti = si.getTier(tierIndex);
+                    ICompactTripletsStructure sj = ((ICompactTripletsStructureHolder) ctsElements[j]).getCTS();
                     
-                    //  Remember tier permutation
-                    System.arraycopy(ti.getABC(), 0, abci, 0, 3);
+                    //  Tiers containing varName (there are maximum 3 of them) are not 
+                    //  reported by the status unless cleanup removes some clauses elsewhere
+                    int indexOf = sj.getPermutation().indexOf(varName);
+                    int from = Math.max(0, indexOf - 2);
+                    int to = Math.min(indexOf, sj.getTiers().size() - 1);
+                    int size = 0;
+                    for (int t = from; t <= to; t++)
+                    {
+                        size += sj.getTier(t).size();
+                    }
                     
-                    int tiSize = ti.size();
+                    CleanupStatus status = sj.concretize(varName, value);
                     
-                    for (int j = i + 1; j < tierCount; j++)
+                    if (status.someClausesRemoved)
                     {
-                        long formulaAndTierIndex2 = tiersElements[j];
-                        int formulaIndex2 = (int)(formulaAndTierIndex2 >> 32);
-                        int tierIndex2 = (int)(formulaAndTierIndex2 & 0x00000000FFFFFFFFL);
-                        
-                        if (formulaIndex == formulaIndex2)
-                        {
-                            continue;
-                        }
-                        
-                        ICompactTripletsStructure sj = ((ICompactTripletsStructureHolder) cts.getQuick(formulaIndex2)).getCTS();
-                        ITier tj = sj.getTier(tierIndex2);
-                        
-                        //  Remember tier permutation
-                        System.arraycopy(tj.getABC(), 0, abcj, 0, 3);
-                        
-                        //  Transpose tiers for adjoin
-                        int a = getCanonicalVarName3(varName1, varName2, ti.getCanonicalName());
-                        int c = getCanonicalVarName3(varName1, varName2, tj.getCanonicalName());
-                        
-                        ti.transposeTo(a, varName1, varName2);
-                        tj.transposeTo(varName1, varName2, c);
-                        
-                        int tjSize = tj.size();
-                        
-                        //  Ensure values of varName1 and varName2 are the same in both tiers
-                        ti.adjoinRight(tj);
-                        tj.adjoinLeft(ti);
-                        
-                        int tjSizeNew = tj.size();
-                        
-                        //  Return tier permutation back
-                        tj.transposeTo(abcj);
-                        
-                        //  Cleanup sj
-                        if (tjSize != tjSizeNew)
-                        {
-                            CleanupStatus status = sj.cleanup(tierIndex2, tierIndex2);
-                            if (status.someClausesRemoved)
-                            {
-                                updateIndicesAfterCleanupDuringUnification(status, sj, cts, unificationContext, partialPermutation);
-                            }
-                        }
+                        registerChangedTiers(status, sj, j, context);
                     }
-                    //  Return tier permutation back
-                    ti.transposeTo(abci);
                     
-                    int tiSizeNew = ti.size();
+                    if (sj.isEmpty())
+                    {
+                        throw new EmptyStructureException(sj);
+                    }
                     
-                    //  Cleanup si
-                    if (tiSize != tiSizeNew)
+                    int sizeNew = 0;
+                    for (int t = from; t <= to; t++)
                     {
-                        CleanupStatus status = si.cleanup(tierIndex, tierIndex);
-                        if (status.someClausesRemoved)
-                        {
-                            updateIndicesAfterCleanupDuringUnification(status, si, cts, unificationContext, partialPermutation);
-                        }
+                        sizeNew += sj.getTier(t).size();
                     }
-                }
-                return true;
-            }
-        });
-
-//        for (int i = 0; i < ctsCount; i++)
-//        {
-//            ICompactTripletsStructure s = ((ICompactTripletsStructureHolder) ctsElements[i]).getCTS();
-//            someClausesRemoved |= s.cleanup();
-//
-//            if (s.isEmpty())
-//            {
-//                throw new EmptyStructureException(s);
-//            }
-//        }
-
-        int varCount = varNames.size();
-        int[] varNamesElements = varNames.elements();
-        int ctsCount = cts.size();
-        Object[] ctsElements = cts.elements();
-        
-        for (int v = 0; v < varCount; v++)
-        {
-            int varName = varNamesElements[v];
-            for (int i = 0; i < ctsCount; i++)
-            {
-                ICompactTripletsStructure s = ((ICompactTripletsStructureHolder) ctsElements[i]).getCTS();
-                Value value = s.valueOf(varName);
-                if (value != Value.Mixed)
-                {
-                    //  Concretize all other CTS with (varName -> value)
-                    for (int j = 0; j < ctsCount; j++)
+                    if (size != sizeNew)
                     {
-                        if (i == j) continue;
-                        
-                        ICompactTripletsStructure sj = ((ICompactTripletsStructureHolder) ctsElements[j]).getCTS();
-                        
-                        CleanupStatus status = sj.concretize(varName, value);
-                        
-                        if (status.someClausesRemoved)
+                        //  Clauses removed by cleanup were already counted with the status
+                        if (!status.someClausesRemoved)
                         {
-                            updateIndicesAfterCleanupDuringUnification(status, sj, cts, unificationContext, partialPermutation);
+                            context.numberOfClausesRemoved += size - sizeNew;
                         }
+                        addChangedTiers(j, from, to, context);
                     }
                 }
             }
         }
-        
-        LOGGER.debug("{} clauses removed during this recursion level", unificationContext.numberOfClausesRemoved);
-        if (unificationContext.partialIndex != null || partialPermutation.size() > 0)
-        {
-            unify(unificationContext.partialIndex, partialPermutation, cts, recursionLevel + 1);
-        }
-        else
-        {
-            LOGGER.debug("Unification completed on recursion level {}", recursionLevel);
-        }
     }
-    
-    private static void updateIndicesAfterCleanupDuringUnification(
-            CleanupStatus status,
-            ICompactTripletsStructure formula, 
-            final ObjectArrayList cts,
-            final UnificationContext unificationContext,
-            final IPermutation partialPermutation)
+
+    private static class UnificationContext
     {
-        if (formula.isEmpty())
-        {
-            throw new EmptyStructureException(formula);
-        }
-        unificationContext.numberOfClausesRemoved += status.numberOfClausesRemoved;
-        if (unificationContext.partialIndex == null)
-        {
-            unificationContext.partialIndex = VarPairsIndexFactory.getInstance().
-                                    buildPartialIndex(cts, (ICompactTripletsStructureHolder) formula, status.from, status.to);
-        }
-        else
-        {
-            unificationContext.partialIndex.rebuildIndex(cts, (ICompactTripletsStructureHolder) formula, status.from, status.to);
-        }
-        for (int t = status.from; t <= status.to; t++)
+        //  List of formulaAndTierIndices of tiers changed by cleanup
+        public final LongArrayList changedTiers = new LongArrayList();
+        //  Debug information
+        public int numberOfClausesRemoved = 0;
+        //  Buffers to remember tier permutations
+        public final int[] abci = new int[3];
+        public final int[] abcj = new int[3];
+        //  Set if some structure became empty during parallel unification
+        public EmptyStructureException emptyStructureException;
+        
+        public void merge(UnificationContext context)
         {
-            ITier tier = formula.getTier(t);
-            partialPermutation.put(tier.getABC());
+            changedTiers.addAllOfFromTo(context.changedTiers, 0, context.changedTiers.size() - 1);
+            numberOfClausesRemoved += context.numberOfClausesRemoved;
+            if (emptyStructureException == null)
+            {
+                emptyStructureException = context.emptyStructureException;
+            }
         }
     }
     
     /**
-     * @param varName1
-     * @param varName2
-     * @param canonicalName array of {a, b, c}, where a < b < c
-     * @return
+     * Minimum number of pairs in a round to run unification of the pairs in parallel.
+     */
+    private static final int PARALLEL_UNIFY_MIN_PAIRS = 256;
+    
+    /**
+     * Adjoins all tiers of different CTS that contain the pair of variables encoded in the <code>key</code>.
      * 
-     * @author Viacheslav Rudyuk <viacheslav.rudyuk@gmail.com>
+     * @param tiers List of formulaAndTierIndices of the pair
      */
-    public static int getCanonicalVarName3(int varName1, int varName2, int[] canonicalName)
+    private static void unifyPair(long key, LongArrayList tiers, ObjectArrayList cts, UnificationContext context)
     {
-        int varName3;
-        if (varName1 == canonicalName[1])
-        {
-            if (varName2 == canonicalName[2])
-            {
-                varName3 = canonicalName[0];
-            } else
-            {
-                varName3 = canonicalName[2];
-            }
-        }
-        else
+        //  See VarPairsIndex#addTier() for details of key construction
+        int varName1 = (int) (key >> 21);
+        int varName2 = (int) (key & 0x1FFFFF);
+        
+        long[] tiersElements = tiers.elements();
+        int tierCount = tiers.size();
+        
+        for (int i = 0; i < tierCount - 1; i++)
         {
-            if (varName2 == canonicalName[1])
+            long formulaAndTierIndex = tiersElements[i];
+            int formulaIndex = (int)(formulaAndTierIndex >> 32);
+            int tierIndex = (int)(formulaAndTierIndex & 0x00000000FFFFFFFFL);
+            
+            ICompactTripletsStructure si = ((ICompactTripletsStructureHolder) cts.getQuick(formulaIndex)).getCTS();
+            ITier ti = si.getTier(tierIndex);
+            
+            //  Remember tier permutation
+            System.arraycopy(ti.getABC(), 0, context.abci, 0, 3);
+            
+            int tiSize = ti.size();
+            
+            for (int j = i + 1; j < tierCount; j++)
             {
-                if (varName1 > varName2)
+                long formulaAndTierIndex2 = tiersElements[j];
+                int formulaIndex2 = (int)(formulaAndTierIndex2 >> 32);
+                int tierIndex2 = (int)(formulaAndTierIndex2 & 0x00000000FFFFFFFFL);
+                
+                if (formulaIndex == formulaIndex2)
                 {
-                    varName3 = canonicalName[0];
+                    continue;
                 }
-                else
+                
+                ICompactTripletsStructure sj = ((ICompactTripletsStructureHolder) cts.getQuick(formulaIndex2)).getCTS();
+                ITier tj = sj.getTier(tierIndex2);
+                
+                //  Remember tier permutation
+                System.arraycopy(tj.getABC(), 0, context.abcj, 0, 3);
+                
+                //  Transpose tiers for adjoin
+                int a = getCanonicalVarName3(varName1, varName2, ti.getCanonicalName());
+                int c = getCanonicalVarName3(varName1, varName2, tj.getCanonicalName());
+                
+                ti.transposeTo(a, varName1, varName2);
+                tj.transposeTo(varName1, varName2, c);
+                
+                int tjSize = tj.size();
+                
+                //  Ensure values of varName1 and varName2 are the same in both tiers
+                ti.adjoinRight(tj);
+                tj.adjoinLeft(ti);
+                
+                int tjSizeNew = tj.size();
+                
+                //  Return tier permutation back
+                tj.transposeTo(context.abcj);
+                
+                //  Cleanup sj
+                if (tjSize != tjSizeNew)
                 {
-                    varName3 = canonicalName[2];
+                    context.changedTiers.add(formulaAndTierIndex2);
+                    CleanupStatus status = sj.cleanup(tierIndex2, tierIndex2);
+                    if (status.someClausesRemoved)
+                    {
+                        registerChangedTiers(status, sj, formulaIndex2, context);
+                    }
                 }
             }
-            else
+            //  Return tier permutation back
+            ti.transposeTo(context.abci);
+            
+            int tiSizeNew = ti.size();
+            
+            //  Cleanup si
+            if (tiSize != tiSizeNew)
             {
-                varName3 = canonicalName[1];
+                context.changedTiers.add(formulaAndTierIndex);
+                CleanupStatus status = si.cleanup(tierIndex, tierIndex);
+                if (status.someClausesRemoved)
+                {
+                    registerChangedTiers(status, si, formulaIndex, context);
+                }
             }
         }
-        return varName3;
     }
     
     /**
-     * 
-     * @param filenamePrefix
-     * @param cts List of {@link ITabularFormula}
-     * @throws IOException
+     * Unifies <code>pairs</code> in parallel. Pairs are partitioned into batches so that pairs 
+     * of one batch never touch the same CTS, because cleanup of a tier may change any tier of the structure. 
+     * Pairs of a batch are unified concurrently without locking, batches are unified one after another.
      */
-    public static void saveCTS(String filenamePrefix, ObjectArrayList cts) throws IOException
+    private static UnificationContext unifyPairsInParallel(VarPairsIndex index, LongArrayList pairs, ObjectArrayList cts)
     {
-        System.out.println("Saving CTS to file system...");
+        SolverContext solverContext = SolverContext.current();
+        ObjectArrayList batches = partitionPairs(index, pairs, cts.size());
+        AtomicBoolean emptyStructureFound = new AtomicBoolean();
         
-        for (int i = 0; i < cts.size(); i++)
+        UnificationContext context = new UnificationContext();
+        
+        for (int b = 0; b < batches.size() && !emptyStructureFound.get(); b++)
         {
-            ITabularFormula f = (ITabularFormula) cts.get(i);
-            String filename = filenamePrefix + "-cts-" + i + ".cnf";
-            System.out.print("Saving " + filename + "...");
-            Helper.saveToDIMACSFileFormat(f, filename);
-            System.out.println(" done");
+            LongArrayList batch = (LongArrayList) batches.getQuick(b);
+            UnifyPairsTask task = new UnifyPairsTask(solverContext, index, batch.elements(), 0, batch.size(), cts, emptyStructureFound);
+            
+            //  Batch of a single task is not worth handing over to the pool
+            context.merge(batch.size() > UnifyPairsTask.PAIRS_PER_TASK 
+                    ? solverContext.getForkJoinPool().invoke(task) 
+                    : task.compute());
         }
+        
+        if (context.emptyStructureException != null)
+        {
+            throw context.emptyStructureException;
+        }
+        
+        return context;
     }
-
+    
     /**
-     * @param formulas List of {@link ITabularFormula}
+     * Partitions <code>pairs</code> into batches of pairs that touch disjoint sets of CTS.
+     * Each pair goes to the batch next to the last batch of any of its CTS, 
+     * so pairs that touch the same CTS are unified in the order they were queued.
+     * 
+     * @return List of {@link LongArrayList} of pair keys.
      */
-    public static void printFormulas(ObjectArrayList formulas)
+    private static ObjectArrayList partitionPairs(VarPairsIndex index, LongArrayList pairs, int ctsCount)
     {
-        for (int i = 0; i < formulas.size(); i++)
+        ObjectArrayList batches = new ObjectArrayList();
+        int[] lastBatches = new int[ctsCount];
+        Arrays.fill(lastBatches, -1);
+        
+        for (int p = 0; p < pairs.size(); p++)
         {
-            Helper.prettyPrint((ITabularFormula) formulas.get(i));
+            long key = pairs.getQuick(p);
+            LongArrayList tiers = index.getTiers(key);
+            
+            int batchIndex = 0;
+            for (int i = 0; i < tiers.size(); i++)
+            {
+                int formulaIndex = (int)(tiers.getQuick(i) >> 32);
+                batchIndex = Math.max(batchIndex, lastBatches[formulaIndex] + 1);
+            }
+            for (int i = 0; i < tiers.size(); i++)
+            {
+                lastBatches[(int)(tiers.getQuick(i) >> 32)] = batchIndex;
+            }
+            
+            if (batchIndex == batches.size())
+            {
+                batches.add(new LongArrayList());
+            }
+            ((LongArrayList) batches.getQuick(batchIndex)).add(key);
+        }
+        
+        return batches;
+    }
+    
+    @SuppressWarnings("serial")
+    private static class UnifyPairsTask extends RecursiveTask<UnificationContext>
+    {
+        private static final int PAIRS_PER_TASK = 64;
+        
+        private final SolverContext solverContext;
+        private final VarPairsIndex index;
+        private final long[] pairs;
+        private final int from;
+        private final int to;
+        private final ObjectArrayList cts;
+        private final AtomicBoolean emptyStructureFound;
+        
+        public UnifyPairsTask(SolverContext solverContext, VarPairsIndex index, long[] pairs, int from, int to, 
+                ObjectArrayList cts, AtomicBoolean emptyStructureFound)
+        {
+            this.solverContext = solverContext;
+            this.index = index;
+            this.pairs = pairs;
+            this.from = from;
+            this.to = to;
+            this.cts = cts;
+            this.emptyStructureFound = emptyStructureFound;
+        }
+        
+        protected UnificationContext compute()
+        {
+            if (SolverContext.current() == solverContext)
+            {
+                return unifyPairs();
+            }
+            //  Worker thread runs task of a solve with another context
+            SolverContext previous = solverContext.enter();
+            try
+            {
+                return unifyPairs();
+            }
+            finally
+            {
+                SolverContext.exit(previous);
+            }
+        }
+        
+        private UnificationContext unifyPairs()
+        {
+            checkCancelled();
+            
+            if (to - from > PAIRS_PER_TASK)
+            {
+                int middle = (from + to) >>> 1;
+                UnifyPairsTask right = new UnifyPairsTask(solverContext, index, pairs, middle, to, cts, emptyStructureFound);
+                right.fork();
+                UnificationContext context = new UnifyPairsTask(solverContext, index, pairs, from, middle, cts, emptyStructureFound).unifyPairs();
+                context.merge(right.join());
+                return context;
+            }
+            
+            UnificationContext context = new UnificationContext();
+            
+            for (int p = from; p < to && !emptyStructureFound.get(); p++)
+            {
+                long key = pairs[p];
+                try
+                {
+                    unifyPair(key, index.getTiers(key), cts, context);
+                }
+                catch (EmptyStructureException e)
+                {
+                    context.emptyStructureException = e;
+                    emptyStructureFound.set(true);
+                }
+            }
+            
+            return context;
+        }
+    }
+    
+    private static void registerChangedTiers(
+            CleanupStatus status,
+            ICompactTripletsStructure formula,
+            int formulaIndex,
+            UnificationContext unificationContext)
+    {
+        if (formula.isEmpty())
+        {
+            throw new EmptyStructureException(formula);
+        }
+        unificationContext.numberOfClausesRemoved += status.numberOfClausesRemoved;
+        addChangedTiers(formulaIndex, status.from, status.to, unificationContext);
+    }
+    
+    private static void addChangedTiers(int formulaIndex, int from, int to, UnificationContext unificationContext)
+    {
+        for (int t = from; t <= to; t++)
+        {
+            unificationContext.changedTiers.add((long)formulaIndex << 32 | (long)t);
+        }
+    }
+    
+    /**
+     * @param varName1
+     * @param varName2
+     * @param canonicalName array of {a, b, c}, where a < b < c
+     * @return
+     * 
+     * @author Viacheslav Rudyuk <viacheslav.rudyuk@gmail.com>
+     */
+    public static int getCanonicalVarName3(int varName1, int varName2, int[] canonicalName)
+    {
+        int varName3;
+        if (varName1 == canonicalName[1])
+        {
+            if (varName2 == canonicalName[2])
+            {
+                varName3 = canonicalName[0];
+            } else
+            {
+                varName3 = canonicalName[2];
+            }
+        }
+        else
+        {
+            if (varName2 == canonicalName[1])
+            {
+                if (varName1 > varName2)
+                {
+                    varName3 = canonicalName[0];
+                }
+                else
+                {
+                    varName3 = canonicalName[2];
+                }
+            }
+            else
+            {
+                varName3 = canonicalName[1];
+            }
+        }
+        return varName3;
+    }
+    
+    /**
+     * 
+     * @param filenamePrefix
+     * @param cts List of {@link ITabularFormula}
+     * @throws IOException
+     */
+    public static void saveCTS(String filenamePrefix, ObjectArrayList cts) throws IOException
+    {
+        System.out.println("Saving CTS to file system...");
+        
+        for (int i = 0; i < cts.size(); i++)
+        {
+            ITabularFormula f = (ITabularFormula) cts.get(i);
+            String filename = filenamePrefix + "-cts-" + i + ".cnf";
+            System.out.print("Saving " + filename + "...");
+            Helper.saveToDIMACSFileFormat(f, filename);
+            System.out.println(" done");
+        }
+    }
+
+    /**
+     * @param formulas List of {@link ITabularFormula}
+     */
+    public static void printFormulas(ObjectArrayList formulas)
+    {
+        for (int i = 0; i < formulas.size(); i++)
+        {
+            Helper.prettyPrint((ITabularFormula) formulas.get(i));
         }
     }
 
@@ -759,16 +1115,24 @@ public class Helper
     {
         for (int i = 0; i < ctf.size(); i++)
         {
+            checkCancelled();
+            
             LOGGER.info("Completing CTF-{} of {} to CTS", i, ctf.size() - 1);
             ((ITabularFormula) ctf.get(i)).complete(variables);
         }
     }
 
     public static ObjectArrayList createHyperStructuresSystem(ObjectArrayList cts, Properties statistics) throws EmptyStructureException
+    {
+        return createHyperStructuresSystem(cts, statistics, TierCheckpointPolicy.NONE);
+    }
+    
+    public static ObjectArrayList createHyperStructuresSystem(ObjectArrayList cts, Properties statistics, 
+            TierCheckpointPolicy checkpointPolicy) throws EmptyStructureException
     {
         ICompactTripletsStructure sBasic = chooseBasicStructure(cts);
         
-        return createHyperStructuresSystem(cts, sBasic, statistics);
+        return createHyperStructuresSystem(cts, sBasic, statistics, checkpointPolicy);
     }
     
     /**
@@ -779,11 +1143,56 @@ public class Helper
      * @throws EmptyStructureException
      */
     public static ObjectArrayList createHyperStructuresSystem(ObjectArrayList cts, ICompactTripletsStructure sBasic, Properties statistics) throws EmptyStructureException
+    {
+        return createHyperStructuresSystem(cts, sBasic, statistics, TierCheckpointPolicy.NONE);
+    }
+    
+    /**
+     * @param checkpointPolicy Defines when partially built HSS is saved to disk.
+     * @return List of {@link IHyperStructure}
+     * @throws EmptyStructureException
+     */
+    public static ObjectArrayList createHyperStructuresSystem(ObjectArrayList cts, ICompactTripletsStructure sBasic, Properties statistics, 
+            TierCheckpointPolicy checkpointPolicy) throws EmptyStructureException
+    {
+        VarPairsIndexFactory.getInstance().clear();
+        
+        return buildHyperStructuresSystem(cts, sBasic, new ObjectArrayList(), statistics, checkpointPolicy);
+    }
+    
+    /**
+     * Continues building of HSS saved by {@link TierCheckpointPolicy}.
+     * 
+     * @param hss Partially built HSS.
+     * @return List of {@link IHyperStructure}
+     * @throws EmptyStructureException
+     */
+    public static ObjectArrayList resumeHyperStructuresSystem(ObjectArrayList hss, Properties statistics, 
+            TierCheckpointPolicy checkpointPolicy) throws EmptyStructureException
     {
         VarPairsIndexFactory.getInstance().clear();
         
-        final ObjectArrayList hss = new ObjectArrayList();
+        ICompactTripletsStructure sBasic = ((IHyperStructure) hss.get(0)).getBasicCTS();
+        
+        ObjectArrayList cts = new ObjectArrayList(hss.size() + 1);
+        cts.add(sBasic);
+        for (int h = 0; h < hss.size(); h++)
+        {
+            cts.add(((IHyperStructure) hss.get(h)).getOtherCTS());
+        }
+        
+        LOGGER.info("Resume building HSS from tier #{}", ((IHyperStructure) hss.get(0)).getTiers().size() + 1);
         
+        return buildHyperStructuresSystem(cts, sBasic, hss, statistics, checkpointPolicy);
+    }
+    
+    /**
+     * @param hss Empty list or partially built HSS.
+     */
+    private static ObjectArrayList buildHyperStructuresSystem(ObjectArrayList cts, ICompactTripletsStructure sBasic, final ObjectArrayList hss, 
+            Properties statistics, TierCheckpointPolicy checkpointPolicy) throws EmptyStructureException
+    {
+        SolverProgress progress = SolverContext.current().getProgress();
         try
         {
             statistics.put(BASIC_CTS_INITIAL_CLAUSES_COUNT, String.valueOf(sBasic.getClausesCount()));
@@ -791,12 +1200,24 @@ public class Helper
             //  List of ITier
             ObjectArrayList basicTiers = sBasic.getTiers();
             
-            IHyperStructure basicGraph = createFirstHSSTier(cts, hss, sBasic, basicTiers);
+            IHyperStructure basicGraph = hss.isEmpty() 
+                                       ? createFirstHSSTier(cts, hss, sBasic, basicTiers)
+                                       : (IHyperStructure) hss.get(0);
             
             StructuresForConcordantShift structuresForConcordantShift = new StructuresForConcordantShift(hss.size());
             
-            for (int j = 1; j < basicTiers.size(); j++)
+            Metrics metrics = SolverContext.current().getMetrics();
+            Metrics.Timer tierBuildTime = metrics.timer(Metrics.HSS_TIER_BUILD_TIME);
+            
+            progress.hssBuildStarted(basicTiers.size());
+            
+            for (int j = basicGraph.getTiers().size(); j < basicTiers.size(); j++)
             {
+                checkCancelled();
+                
+                long tierBuildStart = tierBuildTime.start();
+                Object tierEvent = SolverEvents.beginHSSTier();
+                
                 if (LOGGER.isDebugEnabled())
                 {
                     LOGGER.debug("Building HSS tier #{} of {}", j+1, basicTiers.size());
@@ -856,9 +1277,12 @@ public class Helper
     
                 //  Check for dirty vertices
                 int dirtyTiersCount = countDirtyTiers(basicGraph);
+                SolverEvents.commitHSSTier(tierEvent, nextTierIndex, basicTiers.size(), hss.size(), dirtyTiersCount);
                 if (dirtyTiersCount > 0)
                 {
                     LOGGER.debug("Remove last {} tier(s) of the HSS and rebuild them", dirtyTiersCount);
+                    metrics.histogram(Metrics.DIRTY_TIER_ROLLBACKS).record(dirtyTiersCount);
+                    progress.hssTiersRolledBack(dirtyTiersCount);
                     for (int i = 0; i < hss.size(); i++)
                     {
                         IHyperStructure hs = (IHyperStructure) hss.get(i);
@@ -875,20 +1299,28 @@ public class Helper
                 }
                 else
                 {
-                    if (Helper.EnableAssertions)
+                    if (Helper.isFullAssertions() || Helper.isIncrementalAssertions())
                     {
                         assertHSSTierContainsSameNameVertices(hss, nextTierIndex);
-                    }
-    
-                    if (Helper.EnableAssertions)
-                    {
                         assertIntersectionOfTierSubstructuresIsEmpty(basicGraph, nextTierIndex);
                     }
                 }
+                
+                long tierBuildNanos = tierBuildTime.stop(tierBuildStart);
+                
+                progress.hssTierBuilt(basicGraph.getTiers().size(), tierBuildNanos, hss);
+                
+                if (dirtyTiersCount == 0)
+                {
+                    //  Only HSS without dirty tiers may be resumed from
+                    checkpointPolicy.tierBuilt(hss);
+                }
             }
         }
         finally
         {
+            progress.hssBuildCompleted();
+            
             int hssTiersCount = 0;
             if (hss.size() > 0)
             {
@@ -937,7 +1369,10 @@ public class Helper
         IHyperStructure basicGraph = (IHyperStructure) hss.get(0);
         ICompactTripletsStructure basicCTS = basicGraph.getBasicCTS();
         
-        for (int j = 0; j < basicGraph.getTiers().size(); j++)
+        //  Previous tiers were already checked unless full check requested
+        int from = Helper.isFullAssertions() ? 0 : tierIndex;
+        
+        for (int j = from; j < basicGraph.getTiers().size(); j++)
         {
             ITier basicTier = basicCTS.getTier(j);
             for (int h = 0; h < hss.size(); h++)
@@ -1002,13 +1437,9 @@ public class Helper
         
         unifyCoincidentSubstructuresOfATier(hss, 0);
         
-        if (Helper.EnableAssertions)
+        if (Helper.isFullAssertions() || Helper.isIncrementalAssertions())
         {
             assertHSSTierContainsSameNameVertices(hss, 0);
-        }
-
-        if (Helper.EnableAssertions)
-        {
             assertIntersectionOfTierSubstructuresIsEmpty(((IHyperStructure) hss.get(0)), 0);
         }
         
@@ -1020,7 +1451,7 @@ public class Helper
     {
         if (firstBasicTier.contains(tripletValue))
         {
-            ICompactTripletsStructure clone = (ICompactTripletsStructure) sOther.clone();
+            ICompactTripletsStructure clone = new PackedFormula(sOther);
             
             clone.concretize(firstBasicTier, tripletValue);
             
@@ -1049,10 +1480,12 @@ public class Helper
             int tierKeyOfTheVertexToShift, ITripletValue adjoinTarget, EdgeKind edgeKind,
             int vertexIndex, int verticesCount, boolean showProgressToLog, StructuresForConcordantShift structuresForConcordantShift)
     {
+        Object shiftEvent = SolverEvents.beginConcordantShift();
         ObjectArrayList substructureEdges = concordantShift(
                 hss, nextTierIndex, tierKeyOfTheVertexToShift, basicNextTier.getCName(),
                 adjoinTarget.isNotC() ? Value.AllNegative : Value.AllPlain,
                 vertexIndex, verticesCount, showProgressToLog, structuresForConcordantShift);
+        SolverEvents.commitConcordantShift(shiftEvent, nextTierIndex, vertexIndex, verticesCount, hss.size());
 
         for (int h = 0; h < hss.size(); h++)
         {
@@ -1141,17 +1574,26 @@ public class Helper
         structuresForConcordantShift.clear();
         
         //  Parallel concretization
-        int prevTierIndex = nextTierIndex - 1;
-        for (int h = 0; h < hss.size(); h++)
+        final int prevTierIndex = nextTierIndex - 1;
+        final ObjectArrayList substructureEdges = structuresForConcordantShift.substructureEdges;
+        substructureEdges.setSize(hss.size());
+        final int keyOfTheVertexToShift = tierKeyOfTheVertexToShift;
+        final int varName = cName;
+        final Value value = cValue;
+        forEachIndex(hss.size(), new IntProcedure()
         {
-            IHyperStructure hs = (IHyperStructure) hss.get(h);
-            OpenIntObjectHashMap prevTier = (OpenIntObjectHashMap) hs.getTiers().get(prevTierIndex);
-            IVertex vertexToShift = (IVertex) prevTier.get(tierKeyOfTheVertexToShift);
-            //  Work with a copy of substructure-vertex to keep original substructure the same
-            ICompactTripletsStructure substructureEdge = (ICompactTripletsStructure) vertexToShift.getCTS().clone();
-            substructureEdge.concretize(cName, cValue);
-            structuresForConcordantShift.substructureEdges.add(substructureEdge);
-        }
+            public boolean apply(int h)
+            {
+                IHyperStructure hs = (IHyperStructure) hss.get(h);
+                OpenIntObjectHashMap prevTier = (OpenIntObjectHashMap) hs.getTiers().get(prevTierIndex);
+                IVertex vertexToShift = (IVertex) prevTier.get(keyOfTheVertexToShift);
+                //  Work with a copy of substructure-vertex to keep original substructure the same
+                ICompactTripletsStructure substructureEdge = (ICompactTripletsStructure) vertexToShift.getCTS().clone();
+                substructureEdge.concretize(varName, value);
+                substructureEdges.setQuick(h, substructureEdge);
+                return true;
+            }
+        });
         
         try
         {
@@ -1177,27 +1619,33 @@ public class Helper
         for (int s = 0; s < prevTierIndex; s++)
         {
             //  Parallel intersection
-            int sTierSize = ((OpenIntObjectHashMap) basicGraph.getTiers().get(s)).size();
+            final int sTierIndex = s;
+            final int sTierSize = ((OpenIntObjectHashMap) basicGraph.getTiers().get(s)).size();
+            final OpenIntObjectHashMap hsIntersections = structuresForConcordantShift.hsIntersections;
             
-            for (int h = 0; h < hss.size(); h++)
+            forEachIndex(hss.size(), new IntProcedure()
             {
-                IHyperStructure hs = (IHyperStructure) hss.get(h);
-                OpenIntObjectHashMap sTierVertices = (OpenIntObjectHashMap) hs.getTiers().get(s);
-                ObjectArrayList intersections = (ObjectArrayList) structuresForConcordantShift.hsIntersections.get(h);
-                intersections.clear();
-                
-                for (int sv = 0; sv < sTierSize; sv++)
+                public boolean apply(int h)
                 {
-                    IVertex sTierVertex = (IVertex) sTierVertices.values().get(sv);
+                    IHyperStructure hs = (IHyperStructure) hss.get(h);
+                    OpenIntObjectHashMap sTierVertices = (OpenIntObjectHashMap) hs.getTiers().get(sTierIndex);
+                    ObjectArrayList intersections = (ObjectArrayList) hsIntersections.get(h);
+                    intersections.clear();
                     
-                    ICompactTripletsStructure clone = (ICompactTripletsStructure) ((ICompactTripletsStructure) structuresForConcordantShift.substructureEdges.get(h)).clone();
-                    clone.intersect(sTierVertex.getCTS());
-                    intersections.add(clone);
+                    for (int sv = 0; sv < sTierSize; sv++)
+                    {
+                        IVertex sTierVertex = (IVertex) sTierVertices.values().get(sv);
+                        
+                        ICompactTripletsStructure clone = (ICompactTripletsStructure) ((ICompactTripletsStructure) substructureEdges.get(h)).clone();
+                        clone.intersect(sTierVertex.getCTS());
+                        intersections.add(clone);
+                    }
+                    return true;
                 }
-            }
+            });
             
             //  Unify intersections
-            int intersectionsSize = ((ObjectArrayList) structuresForConcordantShift.hsIntersections.get(0)).size();
+            final int intersectionsSize = ((ObjectArrayList) structuresForConcordantShift.hsIntersections.get(0)).size();
             
             if (intersectionsSize == 0)
             {
@@ -1228,23 +1676,21 @@ public class Helper
             
             //  Parallel union
             
-            for (int h = 0; h < hss.size(); h++)
-            {
-                ObjectArrayList intersections = (ObjectArrayList) structuresForConcordantShift.hsIntersections.get(h);
-                ICompactTripletsStructure substructureEdge = (ICompactTripletsStructure) intersections.get(0);
-                structuresForConcordantShift.substructureEdges.set(h, substructureEdge);
-            }
-            
-            for (int ks = 1; ks < intersectionsSize; ks++)
+            forEachIndex(hss.size(), new IntProcedure()
             {
-                for (int h = 0; h < hss.size(); h++)
+                public boolean apply(int h)
                 {
-                    ObjectArrayList intersections = (ObjectArrayList) structuresForConcordantShift.hsIntersections.get(h);
-                    ICompactTripletsStructure substructureEdge = (ICompactTripletsStructure) structuresForConcordantShift.substructureEdges.get(h);
-                    ICompactTripletsStructure intersection = (ICompactTripletsStructure) intersections.get(ks);
-                    substructureEdge.union(intersection);
+                    ObjectArrayList intersections = (ObjectArrayList) hsIntersections.get(h);
+                    ICompactTripletsStructure substructureEdge = (ICompactTripletsStructure) intersections.get(0);
+                    for (int ks = 1; ks < intersectionsSize; ks++)
+                    {
+                        ICompactTripletsStructure intersection = (ICompactTripletsStructure) intersections.get(ks);
+                        substructureEdge.union(intersection);
+                    }
+                    substructureEdges.setQuick(h, substructureEdge);
+                    return true;
                 }
-            }
+            });
             
             try
             {
@@ -1292,6 +1738,79 @@ public class Helper
         }
     }
 
+    /**
+     * Applies <code>procedure</code> to every index in range <code>[0, size)</code>.
+     * If number of threads of the current {@link SolverContext} is greater than 1, indices are processed in parallel 
+     * using worker threads of the context, so the procedure should only modify 
+     * structures that belong to the given index.
+     */
+    static void forEachIndex(int size, IntProcedure procedure)
+    {
+        SolverContext context = SolverContext.current();
+        if (context.getNumberOfThreads() <= 1 || size <= 1)
+        {
+            for (int i = 0; i < size; i++)
+            {
+                procedure.apply(i);
+            }
+        }
+        else
+        {
+            context.getForkJoinPool().invoke(new ForEachIndexAction(context, procedure, 0, size));
+        }
+    }
+    
+    @SuppressWarnings("serial")
+    private static class ForEachIndexAction extends RecursiveAction
+    {
+        private final SolverContext solverContext;
+        private final IntProcedure procedure;
+        private final int from;
+        private final int to;
+        
+        public ForEachIndexAction(SolverContext solverContext, IntProcedure procedure, int from, int to)
+        {
+            this.solverContext = solverContext;
+            this.procedure = procedure;
+            this.from = from;
+            this.to = to;
+        }
+        
+        protected void compute()
+        {
+            if (SolverContext.current() == solverContext)
+            {
+                apply();
+                return;
+            }
+            //  Worker thread runs task of a solve with another context
+            SolverContext previous = solverContext.enter();
+            try
+            {
+                apply();
+            }
+            finally
+            {
+                SolverContext.exit(previous);
+            }
+        }
+        
+        private void apply()
+        {
+            if (to - from == 1)
+            {
+                procedure.apply(from);
+            }
+            else
+            {
+                //  Work per index is large enough to split down to a single index
+                int middle = (from + to) >>> 1;
+                invokeAll(new ForEachIndexAction(solverContext, procedure, from, middle), 
+                          new ForEachIndexAction(solverContext, procedure, middle, to));
+            }
+        }
+    }
+    
     private static void clear(ObjectArrayList cts)
     {
         for (int i = 0; i < cts.size(); i++)
@@ -1570,17 +2089,43 @@ public class Helper
     }
     
     /**
-     * 
-     * @param hs
-     * @param route List of {@link IVertex} (optional). Route to highlight on the image.
-     * @param markers List of {@link IVertex} (optional). Set of vertices that will be marked with rounded rectangles on resulting image.
-     * @param filename
-     * @throws IOException
+     * @return Indices of at most <code>count</code> structures with the fewest clauses, 
+     * in the order of their preference as the basic structure. The first one is the structure 
+     * that {@link #createHyperStructuresSystem(ObjectArrayList, Properties)} chooses.
      */
-    public static void writeToImage(IHyperStructure hs, final ObjectArrayList route, final ObjectArrayList markers, String filename) throws IOException
+    static IntArrayList chooseBasicStructureCandidates(ObjectArrayList cts, int count)
     {
-        int fontSize = 12;
-        
+        IntArrayList candidates = new IntArrayList(count);
+        boolean[] chosen = new boolean[cts.size()];
+        while (candidates.size() < Math.min(count, cts.size()))
+        {
+            int best = -1;
+            for (int i = 0; i < cts.size(); i++)
+            {
+                if (!chosen[i] && (best == -1 || ((ICompactTripletsStructure) cts.get(best)).getClausesCount() 
+                                               > ((ICompactTripletsStructure) cts.get(i)).getClausesCount()))
+                {
+                    best = i;
+                }
+            }
+            chosen[best] = true;
+            candidates.add(best);
+        }
+        return candidates;
+    }
+    
+    /**
+     * 
+     * @param hs
+     * @param route List of {@link IVertex} (optional). Route to highlight on the image.
+     * @param markers List of {@link IVertex} (optional). Set of vertices that will be marked with rounded rectangles on resulting image.
+     * @param filename
+     * @throws IOException
+     */
+    public static void writeToImage(IHyperStructure hs, final ObjectArrayList route, final ObjectArrayList markers, String filename) throws IOException
+    {
+        int fontSize = 12;
+        
         BufferedImage image = new BufferedImage(1, 1, BufferedImage.TYPE_3BYTE_BGR);
         Graphics2D metrics = (Graphics2D) image.getGraphics();
 
@@ -2367,112 +2912,185 @@ public class Helper
         return version;
     }
     
-    public static ObjectArrayList loadHSS(String hssPath) throws IOException
+    /**
+     * Loads HSS saved by {@link #saveHSS(String, ObjectArrayList, boolean)}. 
+     * Format is detected automatically: <code>hssPath</code> is either a binary file or a directory.
+     * Hyperstructures saved to a directory are loaded in parallel, see {@link SolverOptions#getNumberOfIOThreads()}.
+     */
+    public static ObjectArrayList loadHSS(final String hssPath) throws IOException
     {
         LOGGER.info("Load HSS from {}...", hssPath);
         
-        ObjectArrayList hss = new ObjectArrayList();
+        File hssFile = new File(hssPath);
+        if (BinaryHSSFile.isBinaryHSS(hssFile))
+        {
+            ObjectArrayList hss = BinaryHSSFile.load(hssFile);
+            LOGGER.info("HSS loaded");
+            return hss;
+        }
         
         String basicCTSPath = hssPath + File.separator + "basic-cts.cnf";
         LOGGER.info("Load Basic CTS from {}...", basicCTSPath);
-        ITabularFormula basicCTS = loadFromFile(basicCTSPath);
+        final ITabularFormula basicCTS = loadFromFile(basicCTSPath);
         LOGGER.info("Basic CTS loaded");
         
-        File[] allCTS = new File(hssPath).listFiles(new FilenameFilter() {
-            public boolean accept(File dir, String name)
-            {
-                return name.endsWith(".cnf");
-            }
-        });
-        LOGGER.info("{} more instances to load", allCTS.length - 1);
+        //  List directory once and group substructure files by index of their hyperstructure
+        String[] filenames = hssFile.list();
+        if (filenames == null)
+        {
+            throw new FileNotFoundException(hssPath);
+        }
+        Arrays.sort(filenames);
         
-        String[] otherCTSPaths = new File(hssPath).list(new FilenameFilter()
+        List<String> otherCTSPaths = new ArrayList<String>();
+        final Map<String, List<String>> substructuresPaths = new HashMap<String, List<String>>();
+        
+        int ctsCount = 0;
+        for (String filename : filenames)
         {
-            public boolean accept(File dir, String name)
+            Matcher matcher = OTHER_CTS_FILENAME_PATTERN.matcher(filename);
+            if (matcher.matches())
             {
-                return name.endsWith("-other-cts.cnf");
+                otherCTSPaths.add(filename);
+                ctsCount++;
+                continue;
             }
-        });
-        
-        Arrays.sort(otherCTSPaths);
+            matcher = SUBSTRUCTURE_FILENAME_PATTERN.matcher(filename);
+            if (matcher.matches())
+            {
+                List<String> paths = substructuresPaths.get(matcher.group(1));
+                if (paths == null)
+                {
+                    paths = new ArrayList<String>();
+                    substructuresPaths.put(matcher.group(1), paths);
+                }
+                paths.add(filename);
+                ctsCount++;
+            }
+        }
+        LOGGER.info("{} more instances to load", ctsCount);
         
-        for (String otherCTSPath : otherCTSPaths)
+        List<HSSIOTask> tasks = new ArrayList<HSSIOTask>(otherCTSPaths.size());
+        for (final String otherCTSPath : otherCTSPaths)
         {
-            Matcher matcher = Pattern.compile("hss-(\\d+)-").matcher(otherCTSPath);
-            matcher.find();
-            final String hsIndex = matcher.group(1);
-            
-            LOGGER.debug("Load CTS from {}...", otherCTSPath);
-            ITabularFormula otherCTS = loadFromFile(hssPath + File.separator + otherCTSPath);
-            LOGGER.debug("CTS loaded");
-            IHyperStructure hs = new SimpleHyperStructure((ICompactTripletsStructure) basicCTS, (ICompactTripletsStructure) otherCTS);
-            hss.add(hs);
-            
-            String[] substructuresPaths = new File(hssPath).list(new FilenameFilter()
+            tasks.add(new HSSIOTask()
             {
-                public boolean accept(File dir, String name)
+                protected Object execute() throws IOException
                 {
-                    return name.startsWith("hss-" + hsIndex + "-tier");
+                    Matcher matcher = OTHER_CTS_FILENAME_PATTERN.matcher(otherCTSPath);
+                    matcher.matches();
+                    String hsIndex = matcher.group(1);
+                    
+                    List<String> paths = substructuresPaths.get(hsIndex);
+                    
+                    return loadHyperStructure(hssPath, hsIndex, (ICompactTripletsStructure) basicCTS, otherCTSPath, 
+                            paths == null ? new ArrayList<String>() : paths);
                 }
             });
+        }
+        
+        ObjectArrayList hss = new ObjectArrayList(tasks.size());
+        for (Object hs : invokeHSSIOTasks(tasks))
+        {
+            hss.add(hs);
+        }
+        
+        LOGGER.info("HSS loaded");
+        
+        return hss;
+    }
+
+    /**
+     * @param substructuresPaths Sorted names of substructure-vertex files of the hyperstructure.
+     */
+    private static IHyperStructure loadHyperStructure(String hssPath, String hsIndex, ICompactTripletsStructure basicCTS, 
+            String otherCTSPath, List<String> substructuresPaths) throws IOException
+    {
+        LOGGER.debug("Load CTS from {}...", otherCTSPath);
+        ITabularFormula otherCTS = loadFromFile(hssPath + File.separator + otherCTSPath);
+        LOGGER.debug("CTS loaded");
+        IHyperStructure hs = new SimpleHyperStructure(basicCTS, (ICompactTripletsStructure) otherCTS);
+        
+        String verticesInfoPath = hssPath + File.separator + "hss-" + hsIndex + "-vertices.properties";
+        Properties verticesInfo = new Properties();
+        InputStream is = new FileInputStream(new File(verticesInfoPath));
+        try
+        {
+            verticesInfo.load(is);
+        }
+        finally
+        {
+            is.close();
+        }
+        
+        for (String substructurePath : substructuresPaths)
+        {
+            Matcher matcher = SUBSTRUCTURE_FILENAME_PATTERN.matcher(substructurePath);
+            matcher.matches();
+            int j = Integer.parseInt(matcher.group(2));
+            String tripletString = matcher.group(3);
             
-            Arrays.sort(substructuresPaths);
+            ITripletValue tripletValue = SimpleTripletValueFactory.getTripletValue(tripletString);
             
-            String verticesInfoPath = hssPath + File.separator + "hss-" + hsIndex + "-vertices.properties";
-            Properties verticesInfo = new Properties();
-            InputStream is = new FileInputStream(new File(verticesInfoPath));
-            try
-            {
-                verticesInfo.load(is);
-            }
-            finally
+            if (hs.getTiers().size() == j)
             {
-                is.close();
+                hs.getTiers().add(new OpenIntObjectHashMap(8));
             }
+            OpenIntObjectHashMap tier = (OpenIntObjectHashMap) hs.getTiers().get(j);
             
-            for (String substructurePath : substructuresPaths)
-            {
-                Matcher matcher2 = Pattern.compile("tier-(\\d+)-(\\d+)").matcher(substructurePath);
-                matcher2.find();
-                int j = Integer.parseInt(matcher2.group(1));
-                String tripletString = matcher2.group(2);
-                
-                ITripletValue tripletValue = SimpleTripletValueFactory.getTripletValue(tripletString);
-                
-                if (hs.getTiers().size() == j)
-                {
-                    hs.getTiers().add(new OpenIntObjectHashMap(8));
-                }
-                OpenIntObjectHashMap tier = (OpenIntObjectHashMap) hs.getTiers().get(j);
-                
-                LOGGER.debug("Load CTS from {}...", substructurePath);
-                ITabularFormula substructure = loadFromFile(hssPath + File.separator + substructurePath);
-                LOGGER.debug("CTS loaded");
-                
-                SimpleVertex vertex = new SimpleVertex(basicCTS.getTier(j), j, tripletValue, (ICompactTripletsStructure) substructure);
-                vertex.setHyperStructure(hs);
-                
-                boolean bottom1empty = Boolean.parseBoolean((String) verticesInfo.get(substructurePath + "-bottom1empty"));
-                boolean bottom2empty = Boolean.parseBoolean((String) verticesInfo.get(substructurePath + "-bottom2empty"));
-                
-                if (bottom1empty) vertex.foundEmptyEdge(EdgeKind.Bottom1);
-                if (bottom2empty) vertex.foundEmptyEdge(EdgeKind.Bottom2);
-                
-                tier.put(tripletValue.getTierKey(), vertex);
-            }
+            LOGGER.debug("Load CTS from {}...", substructurePath);
+            ITabularFormula substructure = loadFromFile(hssPath + File.separator + substructurePath);
+            LOGGER.debug("CTS loaded");
+            
+            SimpleVertex vertex = new SimpleVertex(basicCTS.getTier(j), j, tripletValue, new PackedFormula((ICompactTripletsStructure) substructure));
+            vertex.setHyperStructure(hs);
+            
+            boolean bottom1empty = Boolean.parseBoolean((String) verticesInfo.get(substructurePath + "-bottom1empty"));
+            boolean bottom2empty = Boolean.parseBoolean((String) verticesInfo.get(substructurePath + "-bottom2empty"));
+            
+            if (bottom1empty) vertex.foundEmptyEdge(EdgeKind.Bottom1);
+            if (bottom2empty) vertex.foundEmptyEdge(EdgeKind.Bottom2);
+            
+            tier.put(tripletValue.getTierKey(), vertex);
         }
         
-        LOGGER.info("HSS loaded");
+        LOGGER.debug("HSS({}) loaded", hsIndex);
         
-        return hss;
+        return hs;
     }
     
     public static void saveHSS(String hssPath, ObjectArrayList hss) throws IOException
+    {
+        saveHSS(hssPath, hss, SolverContext.current().isUseBinaryHSSFormat());
+    }
+    
+    /**
+     * @param binary If <code>true</code> HSS will be saved to a single binary file <code>hssPath</code>, 
+     * otherwise it will be saved to directory <code>hssPath</code> as a set of DIMACS and properties files. 
+     * Hyperstructures are saved to a directory in parallel, see {@link SolverOptions#getNumberOfIOThreads()}.
+     */
+    public static void saveHSS(final String hssPath, ObjectArrayList hss, boolean binary) throws IOException
     {
         LOGGER.info("Saving HSS to filesystem {}...", hssPath);
         
         File hssPathFile = new File(hssPath);
         
+        if (binary)
+        {
+            if (hssPathFile.isDirectory())
+            {
+                deleteHSSDirectory(hssPathFile);
+            }
+            BinaryHSSFile.save(hssPathFile, hss);
+            LOGGER.info("HSS saved");
+            return;
+        }
+        
+        if (hssPathFile.isFile() && !hssPathFile.delete())
+        {
+            throw new IOException("Cannot delete " + hssPath);
+        }
+        
         if (!hssPathFile.exists() && !hssPathFile.mkdir())
         {
             throw new IOException("Cannot create " + hssPath);
@@ -2487,71 +3105,201 @@ public class Helper
             }
         }
         
-        IHyperStructure hs = (IHyperStructure) hss.get(0);
+        IHyperStructure basicGraph = (IHyperStructure) hss.get(0);
         
         String basicCTSPath = hssPath + File.separator + "basic-cts.cnf";
         LOGGER.info("Saving Basic CTS {}...", basicCTSPath);
-        saveToDIMACSFileFormat(hs.getBasicCTS(), basicCTSPath);
+        saveToDIMACSFileFormat(basicGraph.getBasicCTS(), basicCTSPath);
         LOGGER.info("Basic CTS saved");
         
-        int hssLength = String.valueOf(hss.size()).length();
-        int tiersLength = String.valueOf(hs.getTiers().size()).length();
+        final int hssLength = String.valueOf(hss.size()).length();
+        final int tiersLength = String.valueOf(basicGraph.getTiers().size()).length();
         
+        List<HSSIOTask> tasks = new ArrayList<HSSIOTask>(hss.size());
         for (int h = 0; h < hss.size(); h++)
         {
-            hs = (IHyperStructure) hss.get(h);
-            
-            String hssImageFilename = hssPath + File.separator + "hss-" + leadingZeros(h, hssLength) + ".png";
-            LOGGER.debug("Saving HSS({}) image {}...", h, hssImageFilename);
-            writeToImage(hs, null, null, hssImageFilename);
-            LOGGER.debug("Image saved");
-            
-            String otherCTSPath = hssPath + File.separator + "hss-" + leadingZeros(h, hssLength) + "-other-cts.cnf";
-            LOGGER.debug("Saving CTS {}...", otherCTSPath);
-            saveToDIMACSFileFormat(hs.getOtherCTS(), otherCTSPath);
-            LOGGER.debug("CTS saved");
+            final int hsIndex = h;
+            final IHyperStructure hs = (IHyperStructure) hss.get(h);
             
-            Properties verticesInfo = new Properties();
-            
-            for (int j = 0; j < hs.getTiers().size(); j++)
+            tasks.add(new HSSIOTask()
             {
-                OpenIntObjectHashMap tier = (OpenIntObjectHashMap) hs.getTiers().get(j);
-                for (int i = 0; i < tier.size(); i++)
+                protected Object execute() throws IOException
                 {
-                    int key = tier.keys().get(i);
-                    IVertex vertex = (IVertex) tier.get(key);
-                    ITripletValue triplet = SimpleTripletValueFactory.getTripletValue(key);
-                    
-                    String vertexFilename = "hss-" + leadingZeros(h, hssLength)
-                                            + "-tier-" + leadingZeros(j, tiersLength)
-                                            + "-" + triplet + ".cnf";
-                    
-                    String substructureVertexPath = hssPath + File.separator + vertexFilename; 
-                    
-                    LOGGER.debug("Saving substructure-vertex {}...", substructureVertexPath);
-                    saveToDIMACSFileFormat(vertex.getCTS(), substructureVertexPath);
-                    LOGGER.debug("Substructure-vertex saved");
-                    
-                    verticesInfo.put(vertexFilename + "-bottom1empty", String.valueOf(vertex.isBottom1Empty()));
-                    verticesInfo.put(vertexFilename + "-bottom2empty", String.valueOf(vertex.isBottom2Empty()));
+                    saveHyperStructure(hssPath, hs, leadingZeros(hsIndex, hssLength), tiersLength);
+                    LOGGER.info("HSS({}) saved", hsIndex);
+                    return hs;
                 }
+            });
+        }
+        
+        invokeHSSIOTasks(tasks);
+        
+        LOGGER.info("HSS saved");
+    }
+
+    private static void saveHyperStructure(String hssPath, IHyperStructure hs, String hsIndex, int tiersLength) throws IOException
+    {
+        String hssImageFilename = hssPath + File.separator + "hss-" + hsIndex + ".png";
+        LOGGER.debug("Saving HSS({}) image {}...", hsIndex, hssImageFilename);
+        writeToImage(hs, null, null, hssImageFilename);
+        LOGGER.debug("Image saved");
+        
+        String otherCTSPath = hssPath + File.separator + "hss-" + hsIndex + "-other-cts.cnf";
+        LOGGER.debug("Saving CTS {}...", otherCTSPath);
+        saveToDIMACSFileFormat(hs.getOtherCTS(), otherCTSPath);
+        LOGGER.debug("CTS saved");
+        
+        Properties verticesInfo = new Properties();
+        
+        for (int j = 0; j < hs.getTiers().size(); j++)
+        {
+            OpenIntObjectHashMap tier = (OpenIntObjectHashMap) hs.getTiers().get(j);
+            for (int i = 0; i < tier.size(); i++)
+            {
+                int key = tier.keys().get(i);
+                IVertex vertex = (IVertex) tier.get(key);
+                ITripletValue triplet = SimpleTripletValueFactory.getTripletValue(key);
+                
+                String vertexFilename = "hss-" + hsIndex
+                                        + "-tier-" + leadingZeros(j, tiersLength)
+                                        + "-" + triplet + ".cnf";
+                
+                String substructureVertexPath = hssPath + File.separator + vertexFilename; 
+                
+                LOGGER.debug("Saving substructure-vertex {}...", substructureVertexPath);
+                saveToDIMACSFileFormat(vertex.getCTS(), substructureVertexPath);
+                LOGGER.debug("Substructure-vertex saved");
+                
+                verticesInfo.put(vertexFilename + "-bottom1empty", String.valueOf(vertex.isBottom1Empty()));
+                verticesInfo.put(vertexFilename + "-bottom2empty", String.valueOf(vertex.isBottom2Empty()));
             }
-            
-            String verticesInfoPath = hssPath + File.separator + "hss-" + leadingZeros(h, hssLength) + "-vertices.properties";
-            LOGGER.debug("Saving vertices info {}...", verticesInfoPath);
-            OutputStream os = new FileOutputStream(new File(verticesInfoPath));
+        }
+        
+        String verticesInfoPath = hssPath + File.separator + "hss-" + hsIndex + "-vertices.properties";
+        LOGGER.debug("Saving vertices info {}...", verticesInfoPath);
+        OutputStream os = new FileOutputStream(new File(verticesInfoPath));
+        try
+        {
+           verticesInfo.store(os, null);
+        }
+        finally
+        {
+            os.close();
+        }
+        LOGGER.debug("Vertices info saved");
+    }
+    
+    /**
+     * Runs the tasks using at most {@link SolverOptions#getNumberOfIOThreads()} threads.
+     * 
+     * @return Results of the tasks in order of the tasks.
+     */
+    private static List<Object> invokeHSSIOTasks(List<HSSIOTask> tasks) throws IOException
+    {
+        List<Object> results = new ArrayList<Object>(tasks.size());
+        
+        int numberOfThreads = Math.min(SolverContext.current().getNumberOfIOThreads(), tasks.size());
+        if (numberOfThreads <= 1)
+        {
+            for (HSSIOTask task : tasks)
+            {
+                results.add(task.call());
+            }
+            return results;
+        }
+        
+        ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+        try
+        {
+            for (Future<Object> future : executor.invokeAll(tasks))
+            {
+                results.add(future.get());
+            }
+            return results;
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while loading or saving HSS");
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof IOException)
+            {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException)
+            {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error)
+            {
+                throw (Error) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+    
+    /**
+     * Task that runs in {@link SolverContext} of the thread that created it.
+     */
+    private static abstract class HSSIOTask implements Callable<Object>
+    {
+        private final SolverContext solverContext = SolverContext.current();
+        
+        public Object call() throws IOException
+        {
+            if (SolverContext.current() == solverContext)
+            {
+                return execute();
+            }
+            SolverContext previous = solverContext.enter();
             try
             {
-               verticesInfo.store(os, null);
+                return execute();
             }
             finally
             {
-                os.close();
+                SolverContext.exit(previous);
             }
-            LOGGER.debug("Vertices info saved");
-            LOGGER.info("HSS({}) saved", h);
         }
-        LOGGER.info("HSS saved");
+        
+        protected abstract Object execute() throws IOException;
+    }
+
+    /**
+     * Deletes HSS saved in either binary or directory format, if it exists.
+     */
+    static void deleteHSS(File hssPathFile) throws IOException
+    {
+        if (hssPathFile.isDirectory())
+        {
+            deleteHSSDirectory(hssPathFile);
+        }
+        else if (hssPathFile.exists() && !hssPathFile.delete())
+        {
+            throw new IOException("Cannot delete " + hssPathFile.getAbsolutePath());
+        }
+    }
+
+    private static void deleteHSSDirectory(File hssPathFile) throws IOException
+    {
+        File[] files = hssPathFile.listFiles();
+        for (File file : files)
+        {
+            if (!file.delete())
+            {
+                throw new IOException("Cannot delete " + file.getAbsolutePath());
+            }
+        }
+        if (!hssPathFile.delete())
+        {
+            throw new IOException("Cannot delete " + hssPathFile.getAbsolutePath());
+        }
     }
 
     private static String leadingZeros(int value, int length)
@@ -2566,134 +3314,63 @@ public class Helper
 
     public static ObjectArrayList findHSSRouteByReduce(ObjectArrayList hss, String hssTempPath) throws IOException
     {
-        ObjectArrayList route = quickFindHSSRoute(hss);
-        if (isValidHSSRoute(route))
-        {
-            return route;
-        }
-        
-        IHyperStructure hs = (IHyperStructure) hss.get(0);
-        ICompactTripletsStructure basicCTS = hs.getBasicCTS();
+        return findHSSRouteByReduce(hss, new CheckpointPolicy(hssTempPath + "-reduced", 1));
+    }
+
+    /**
+     * Reduces tiers of the basic graph until HSS route can be found.
+     * 
+     * <p>Before each reduction HSS is backed up with an in-memory {@link HSSSnapshot}, 
+     * disk checkpoints of reduced HSS are made according to the <code>checkpointPolicy</code>.
+     * If the solve was cancelled, HSS as it was after the last completed reduction 
+     * may be saved to resume the search later.</p>
+     */
+    public static ObjectArrayList findHSSRouteByReduce(ObjectArrayList hss, CheckpointPolicy checkpointPolicy) throws IOException
+    {
+        //  Snapshot of HSS taken before the reduction in progress, while HSS being reduced is inconsistent
+        HSSSnapshot pending = null;
         
-        //  Find next tier with one vertex
-        for (int j = 0; j < basicCTS.getTiers().size(); j++)
+        try
         {
-            //  TODO Configure hssTempPathReduced using CL options
-            final String hssTempPathReduced = hssTempPath + "-reduced";
-            if (j == 0)
+            ObjectArrayList route = quickFindHSSRoute(hss);
+            if (isValidHSSRoute(route))
             {
-                if (basicCTS.getTier(0).size() > 1)
-                {
-                    //  First reduction
-                    ObjectArrayList structures = new ObjectArrayList();
-                    OpenIntObjectHashMap verticesFromLastTiers = new OpenIntObjectHashMap();
-                    
-                    fillVerticesFromLastTier(hss, structures, verticesFromLastTiers);
-                    
-                    ObjectArrayList result = new ObjectArrayList();
-                    findIntersectionWithFirstTier(hss, result, structures, verticesFromLastTiers);
-                    
-                    ITier firstTier = basicCTS.getTier(0);
-                    IVertex firstTierVertex = (IVertex) result.get(0);
-                    firstTier.intersect(firstTierVertex.getTripletValue());
-                    basicCTS.cleanup(0, 0);
-                    
-                    //  Unify CTS
-                    ObjectArrayList cts = new ObjectArrayList();
-                    cts.add(((IHyperStructure) hss.get(0)).getBasicCTS());
-                    for (int h = 0; h < hss.size(); h++)
-                    {
-                        hs = (IHyperStructure) hss.get(h);
-                        cts.add(hs.getOtherCTS());
-                    }
-                    unify(cts);
-                    //  Update HSS by creating new one (it must be created non-empty)
-                    Properties statistics = new Properties();
-                    hss = createHyperStructuresSystem(cts, statistics);
-                    saveHSS(hssTempPathReduced, hss);
-                    //  Check if its possible to find HSS route now
-                    route = quickFindHSSRoute(hss);
-                    if (isValidHSSRoute(route))
-                    {
-                        return route;
-                    }
-                    //  Route not found. Reduce next tier
-                    
-                    //  Basic CTS may have been changed in newly created HSS
-                    if (!basicCTS.getPermutation().sameAs(((IHyperStructure) hss.get(0)).getBasicCTS().getPermutation()))
-                    {
-                        //  Basic CTS changed
-                        j = -1;
-                        basicCTS = ((IHyperStructure) hss.get(0)).getBasicCTS();
-                    }
-                }
-                continue;
+                return route;
             }
             
-            ITier tier = basicCTS.getTier(j);
-            if (tier.size() > 1)
+            Metrics metrics = SolverContext.current().getMetrics();
+            Metrics.Counter reductionSteps = metrics.counter(Metrics.REDUCTION_STEPS);
+            
+            IHyperStructure hs = (IHyperStructure) hss.get(0);
+            ICompactTripletsStructure basicCTS = hs.getBasicCTS();
+            
+            //  Find next tier with one vertex
+            for (int j = 0; j < basicCTS.getTiers().size(); j++)
             {
-                //  Previous tier contains one vertex
-                OpenIntObjectHashMap prevTier = (OpenIntObjectHashMap) ((IHyperStructure)hss.get(0)).getTiers().get(j - 1);
-                IVertex prevVertex = (IVertex) prevTier.values().get(0);
+                checkCancelled();
                 
-                if (prevVertex.hasEmptyBottomEdge())
-                {
-                    //  If previous vertex contains only one bottom vertex 
-                    //  then we should keep that vertex (and move forward to reduce next HSS tier?)
-                    if (prevVertex.getBottomVertex1() != null)
-                    {
-                        tier.intersect(prevVertex.getBottomVertex1().getTripletValue());
-                    }
-                    else if (prevVertex.getBottomVertex2() != null)
-                    {
-                        tier.intersect(prevVertex.getBottomVertex2().getTripletValue());
-                    }
-                    
-                    basicCTS.cleanup(j, j);
-                    
-                    //  Unify CTS
-                    ObjectArrayList cts = new ObjectArrayList();
-                    cts.add(((IHyperStructure) hss.get(0)).getBasicCTS());
-                    for (int h = 0; h < hss.size(); h++)
-                    {
-                        hs = (IHyperStructure) hss.get(h);
-                        cts.add(hs.getOtherCTS());
-                    }
-                    unify(cts);
-                    //  Update HSS by creating new one (it must be created non-empty)
-                    Properties statistics = new Properties();
-                    hss = createHyperStructuresSystem(cts, statistics);
-                    saveHSS(hssTempPathReduced, hss);
-                    //  Check if its possible to find HSS route now
-                    route = quickFindHSSRoute(hss);
-                    if (isValidHSSRoute(route))
-                    {
-                        return route;
-                    }
-                    //  Route not found. Reduce next tier
-                    
-                    //  Basic CTS may have been changed in newly created HSS
-                    if (!basicCTS.getPermutation().sameAs(((IHyperStructure) hss.get(0)).getBasicCTS().getPermutation()))
-                    {
-                        //  Basic CTS changed
-                        j = -1;
-                        basicCTS = ((IHyperStructure) hss.get(0)).getBasicCTS();
-                    }
-                }
-                else
+                Object stepEvent = SolverEvents.beginReductionStep();
+                boolean rolledBack = false;
+                
+                if (j == 0)
                 {
-                    LOGGER.info("Backup HSS to {}...", hssTempPath);
-                    saveHSS(hssTempPath, hss);
-                    
-                    ITripletValue bottomVertex1TripletValue = prevVertex.getBottomVertex1().getTripletValue();
-                    ITripletValue bottomVertex2TripletValue = prevVertex.getBottomVertex2().getTripletValue();
-                    
-                    tier.intersect(bottomVertex1TripletValue);
-                    
-                    try
+                    if (basicCTS.getTier(0).size() > 1)
                     {
-                        basicCTS.cleanup(j, j);
+                        //  First reduction
+                        ObjectArrayList structures = new ObjectArrayList();
+                        OpenIntObjectHashMap verticesFromLastTiers = new OpenIntObjectHashMap();
+                        
+                        fillVerticesFromLastTier(hss, structures, verticesFromLastTiers);
+                        
+                        ObjectArrayList result = new ObjectArrayList();
+                        findIntersectionWithFirstTier(hss, result, structures, verticesFromLastTiers);
+                        
+                        pending = checkpointPolicy.isSaveOnCancel() ? HSSSnapshot.take(hss) : null;
+                        
+                        ITier firstTier = basicCTS.getTier(0);
+                        IVertex firstTierVertex = (IVertex) result.get(0);
+                        firstTier.intersect(firstTierVertex.getTripletValue());
+                        basicCTS.cleanup(0, 0);
                         
                         //  Unify CTS
                         ObjectArrayList cts = new ObjectArrayList();
@@ -2707,19 +3384,46 @@ public class Helper
                         //  Update HSS by creating new one (it must be created non-empty)
                         Properties statistics = new Properties();
                         hss = createHyperStructuresSystem(cts, statistics);
+                        pending = null;
+                        route = completeReductionStep(hss, checkpointPolicy, reductionSteps, stepEvent, j, rolledBack);
+                        if (route != null)
+                        {
+                            return route;
+                        }
+                        //  Route not found. Reduce next tier
+                        
+                        //  Basic CTS may have been changed in newly created HSS
+                        if (!basicCTS.getPermutation().sameAs(((IHyperStructure) hss.get(0)).getBasicCTS().getPermutation()))
+                        {
+                            //  Basic CTS changed
+                            j = -1;
+                            basicCTS = ((IHyperStructure) hss.get(0)).getBasicCTS();
+                        }
                     }
-                    catch (EmptyStructureException e)
+                    continue;
+                }
+                
+                ITier tier = basicCTS.getTier(j);
+                if (tier.size() > 1)
+                {
+                    //  Previous tier contains one vertex
+                    OpenIntObjectHashMap prevTier = (OpenIntObjectHashMap) ((IHyperStructure)hss.get(0)).getTiers().get(j - 1);
+                    IVertex prevVertex = (IVertex) prevTier.values().get(0);
+                    
+                    if (prevVertex.hasEmptyBottomEdge())
                     {
-                        //  If HSS was built empty then  
-                        //  restore HSS and keep vertex from bottomVertex2
-                        
-                        LOGGER.info("Restore HSS from backup {}", hssTempPath);
-                        hss = loadHSS(hssTempPath);
-                        LOGGER.info("done");
+                        pending = checkpointPolicy.isSaveOnCancel() ? HSSSnapshot.take(hss) : null;
                         
-                        basicCTS = ((IHyperStructure) hss.get(0)).getBasicCTS();
-                        tier = basicCTS.getTier(j);
-                        tier.intersect(bottomVertex2TripletValue);
+                        //  If previous vertex contains only one bottom vertex 
+                        //  then we should keep that vertex (and move forward to reduce next HSS tier?)
+                        if (prevVertex.getBottomVertex1() != null)
+                        {
+                            tier.intersect(prevVertex.getBottomVertex1().getTripletValue());
+                        }
+                        else if (prevVertex.getBottomVertex2() != null)
+                        {
+                            tier.intersect(prevVertex.getBottomVertex2().getTripletValue());
+                        }
                         
                         basicCTS.cleanup(j, j);
                         
@@ -2735,30 +3439,266 @@ public class Helper
                         //  Update HSS by creating new one (it must be created non-empty)
                         Properties statistics = new Properties();
                         hss = createHyperStructuresSystem(cts, statistics);
+                        pending = null;
+                        route = completeReductionStep(hss, checkpointPolicy, reductionSteps, stepEvent, j, rolledBack);
+                        if (route != null)
+                        {
+                            return route;
+                        }
+                        //  Route not found. Reduce next tier
+                        
+                        //  Basic CTS may have been changed in newly created HSS
+                        if (!basicCTS.getPermutation().sameAs(((IHyperStructure) hss.get(0)).getBasicCTS().getPermutation()))
+                        {
+                            //  Basic CTS changed
+                            j = -1;
+                            basicCTS = ((IHyperStructure) hss.get(0)).getBasicCTS();
+                        }
                     }
-                    saveHSS(hssTempPathReduced, hss);
-                    //  Check if its possible to find HSS route now
-                    route = quickFindHSSRoute(hss);
-                    if (isValidHSSRoute(route))
-                    {
-                        return route;
-                    }
-                    //  Route not found. Reduce next tier
-                    
-                    //  Basic CTS may have been changed in newly created HSS
-                    if (!basicCTS.getPermutation().sameAs(((IHyperStructure) hss.get(0)).getBasicCTS().getPermutation()))
+                    else
                     {
-                        //  Basic CTS changed
-                        j = -1;
-                        basicCTS = ((IHyperStructure) hss.get(0)).getBasicCTS();
+                        ITripletValue bottomVertex1TripletValue = prevVertex.getBottomVertex1().getTripletValue();
+                        ITripletValue bottomVertex2TripletValue = prevVertex.getBottomVertex2().getTripletValue();
+                        
+                        if (SolverContext.current().isUseSpeculativeReduction())
+                        {
+                            ReductionBranch branch = reduceTierSpeculatively(hss, j, bottomVertex1TripletValue, bottomVertex2TripletValue);
+                            hss = branch.hss;
+                            basicCTS = branch.basicCTS;
+                        }
+                        else
+                        {
+                            LOGGER.info("Take HSS snapshot before reducing tier #{}", j);
+                            HSSSnapshot snapshot = HSSSnapshot.take(hss);
+                            pending = snapshot;
+                            
+                            tier.intersect(bottomVertex1TripletValue);
+                            
+                            try
+                            {
+                                basicCTS.cleanup(j, j);
+                            
+                                //  Unify CTS
+                                ObjectArrayList cts = new ObjectArrayList();
+                                cts.add(((IHyperStructure) hss.get(0)).getBasicCTS());
+                                for (int h = 0; h < hss.size(); h++)
+                                {
+                                    hs = (IHyperStructure) hss.get(h);
+                                    cts.add(hs.getOtherCTS());
+                                }
+                                unify(cts);
+                                //  Update HSS by creating new one (it must be created non-empty)
+                                Properties statistics = new Properties();
+                                hss = createHyperStructuresSystem(cts, statistics);
+                            }
+                            catch (EmptyStructureException e)
+                            {
+                                //  If HSS was built empty then  
+                                //  restore HSS and keep vertex from bottomVertex2
+                            
+                                LOGGER.info("Restore HSS from snapshot");
+                                hss = snapshot.restore();
+                                metrics.counter(Metrics.REDUCTION_ROLLBACKS).increment();
+                                rolledBack = true;
+                            
+                                basicCTS = ((IHyperStructure) hss.get(0)).getBasicCTS();
+                                tier = basicCTS.getTier(j);
+                                tier.intersect(bottomVertex2TripletValue);
+                            
+                                basicCTS.cleanup(j, j);
+                            
+                                //  Unify CTS
+                                ObjectArrayList cts = new ObjectArrayList();
+                                cts.add(((IHyperStructure) hss.get(0)).getBasicCTS());
+                                for (int h = 0; h < hss.size(); h++)
+                                {
+                                    hs = (IHyperStructure) hss.get(h);
+                                    cts.add(hs.getOtherCTS());
+                                }
+                                unify(cts);
+                                //  Update HSS by creating new one (it must be created non-empty)
+                                Properties statistics = new Properties();
+                                hss = createHyperStructuresSystem(cts, statistics);
+                            }
+                        }
+                        pending = null;
+                        route = completeReductionStep(hss, checkpointPolicy, reductionSteps, stepEvent, j, rolledBack);
+                        if (route != null)
+                        {
+                            return route;
+                        }
+                        //  Route not found. Reduce next tier
+                        
+                        //  Basic CTS may have been changed in newly created HSS
+                        if (!basicCTS.getPermutation().sameAs(((IHyperStructure) hss.get(0)).getBasicCTS().getPermutation()))
+                        {
+                            //  Basic CTS changed
+                            j = -1;
+                            basicCTS = ((IHyperStructure) hss.get(0)).getBasicCTS();
+                        }
                     }
                 }
             }
         }
+        catch (CancellationException e)
+        {
+            if (checkpointPolicy.isSaveOnCancel())
+            {
+                checkpointPolicy.solveCancelled(pending != null ? pending.restore() : hss);
+            }
+            throw e;
+        }
         
         throw new AssertionError("HSS was reduced to elementary CTS in basic graph but HSS route not found");
     }
+    
+    /**
+     * Accounts completed reduction of the basic graph tier and checks if HSS route can be found in reduced HSS.
+     * 
+     * @return HSS route or <code>null</code> if reduced HSS has no valid route yet.
+     */
+    private static ObjectArrayList completeReductionStep(ObjectArrayList hss, CheckpointPolicy checkpointPolicy, 
+            Metrics.Counter reductionSteps, Object stepEvent, int tierIndex, boolean rolledBack) throws IOException
+    {
+        reductionSteps.increment();
+        SolverEvents.commitReductionStep(stepEvent, tierIndex, hss.size(), rolledBack);
+        checkpointPolicy.reductionCompleted(hss);
+        
+        ObjectArrayList route = quickFindHSSRoute(hss);
+        return isValidHSSRoute(route) ? route : null;
+    }
 
+    /**
+     * Tries to reduce tier of the basic graph to each of the given triplet values concurrently 
+     * using separate copies of CTS. Result of the first successful reduction is returned and 
+     * the other one is cancelled.
+     * 
+     * @throws EmptyStructureException If both reductions lead to empty HSS.
+     */
+    static ReductionBranch reduceTierSpeculatively(ObjectArrayList hss, int tierIndex, 
+            ITripletValue tripletValue1, ITripletValue tripletValue2) throws EmptyStructureException
+    {
+        LOGGER.info("Reduce tier #{} speculatively", tierIndex);
+        
+        List<ReductionBranch> branches = new ArrayList<ReductionBranch>();
+        //  Each branch has its own context to not share var pairs indices
+        SolverContext context = SolverContext.current();
+        branches.add(new ReductionBranch(context.fork(), copyCTS(hss), tierIndex, tripletValue1));
+        branches.add(new ReductionBranch(context.fork(), copyCTS(hss), tierIndex, tripletValue2));
+        
+        ExecutorService executor = Executors.newFixedThreadPool(branches.size());
+        try
+        {
+            ReductionBranch branch = executor.invokeAny(branches);
+            
+            LOGGER.info("Tier #{} reduced to {}", tierIndex, branch.tripletValue);
+            
+            //  Work of the other branch is discarded, so are its metrics
+            context.getMetrics().merge(branch.solverContext.getMetrics());
+            
+            return branch;
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while reducing tier #" + tierIndex);
+        }
+        catch (ExecutionException e)
+        {
+            //  Both branches failed
+            if (e.getCause() instanceof RuntimeException)
+            {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+    
+    /**
+     * @return List of copies of basic CTS (first element) and other CTS of the HSS.
+     */
+    static ObjectArrayList copyCTS(ObjectArrayList hss)
+    {
+        ObjectArrayList cts = new ObjectArrayList(hss.size() + 1);
+        cts.add(((IHyperStructure) hss.get(0)).getBasicCTS().clone());
+        for (int h = 0; h < hss.size(); h++)
+        {
+            cts.add(((IHyperStructure) hss.get(h)).getOtherCTS().clone());
+        }
+        return cts;
+    }
+    
+    /**
+     * Intersects tier of the basic CTS (first element of <code>cts</code>) with the triplet value, 
+     * then unifies <code>cts</code> and creates new HSS from them.
+     */
+    static ObjectArrayList reduceTier(ObjectArrayList cts, int tierIndex, ITripletValue tripletValue) throws EmptyStructureException
+    {
+        ICompactTripletsStructure basicCTS = (ICompactTripletsStructure) cts.get(0);
+        basicCTS.getTier(tierIndex).intersect(tripletValue);
+        basicCTS.cleanup(tierIndex, tierIndex);
+        
+        unify(cts);
+        
+        //  Statistics of the rebuilt HSS are not kept, so that they don't overwrite statistics of the initial HSS
+        return createHyperStructuresSystem(cts, new Properties());
+    }
+    
+    static final class ReductionBranch implements Callable<ReductionBranch>
+    {
+        private final SolverContext solverContext;
+        private final ObjectArrayList cts;
+        private final int tierIndex;
+        private final ITripletValue tripletValue;
+        
+        final ICompactTripletsStructure basicCTS;
+        ObjectArrayList hss;
+        
+        public ReductionBranch(SolverContext solverContext, ObjectArrayList cts, int tierIndex, ITripletValue tripletValue)
+        {
+            this.solverContext = solverContext;
+            this.cts = cts;
+            this.tierIndex = tierIndex;
+            this.tripletValue = tripletValue;
+            this.basicCTS = (ICompactTripletsStructure) cts.get(0);
+        }
+        
+        public ReductionBranch call() throws Exception
+        {
+            SolverContext previous = solverContext.enter();
+            try
+            {
+                hss = reduceTier(cts, tierIndex, tripletValue);
+                return this;
+            }
+            finally
+            {
+                SolverContext.exit(previous);
+            }
+        }
+    }
+    
+    /**
+     * Allows long running operations to stop when the thread they run in was interrupted, 
+     * i.e. when speculative reduction was cancelled, or when the solve was cancelled 
+     * with {@link CancellationToken} or its deadline was reached.
+     */
+    static void checkCancelled()
+    {
+        if (Thread.currentThread().isInterrupted())
+        {
+            throw new CancellationException("Thread was interrupted");
+        }
+        if (SolverContext.current().isCancelled())
+        {
+            throw new CancellationException("Solve was cancelled");
+        }
+    }
+    
     private static boolean isValidHSSRoute(ObjectArrayList route)
     {
         for (int i = 0; i < route.size(); i++)
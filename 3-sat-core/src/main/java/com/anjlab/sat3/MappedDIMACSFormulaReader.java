@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2010, 2011 AnjLab
+ * 
+ * This file is part of 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem 
+ * is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem
+ * is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.anjlab.sat3;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import cern.colt.list.IntArrayList;
+import cern.colt.map.OpenIntIntHashMap;
+
+/**
+ * <p>DIMACS CNF reader that parses ASCII digits directly from the memory-mapped file.</p>
+ * 
+ * <p>Literals are parsed in a single pass into a primitive array. Variables are renamed 
+ * to <code>1..n</code> in the order of their original names, just like {@link GenericFormulaReader} 
+ * does, but using arrays indexed by the original var name instead of hash maps.</p>
+ */
+public class MappedDIMACSFormulaReader extends GenericFormulaReader
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(MappedDIMACSFormulaReader.class);
+    
+    public ITabularFormula readFormula(File file) throws IOException
+    {
+        FileInputStream input = new FileInputStream(file);
+        try
+        {
+            return readFormula(input);
+        }
+        finally
+        {
+            input.close();
+        }
+    }
+    
+    public ITabularFormula readFormula(InputStream input) throws IOException
+    {
+        return readFormula(toByteBuffer(input));
+    }
+    
+    private static ByteBuffer toByteBuffer(InputStream input) throws IOException
+    {
+        if (input instanceof FileInputStream)
+        {
+            FileChannel channel = ((FileInputStream) input).getChannel();
+            long size = channel.size() - channel.position();
+            if (size > Integer.MAX_VALUE)
+            {
+                throw new IOException("File is too large to be mapped: " + size + " bytes");
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, channel.position(), size);
+        }
+        
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int count;
+        while ((count = input.read(buffer)) != -1)
+        {
+            output.write(buffer, 0, count);
+        }
+        return ByteBuffer.wrap(output.toByteArray());
+    }
+    
+    private ITabularFormula readFormula(ByteBuffer buffer)
+    {
+        readMetadata(buffer);
+        
+        //  Single pass over the buffer: literals (with 0 as clause terminator) 
+        //  and flags of used original var names
+        IntArrayList literals = new IntArrayList(Math.max(10, originalClausesCount * 4));
+        boolean[] used = new boolean[originalVarCount + 1];
+        int maxVarName = 0;
+        
+        int limit = buffer.limit();
+        int sign = 1;
+        int r = 0;
+        boolean lineStart = true;
+        
+        for (int position = buffer.position(); position <= limit; position++)
+        {
+            int ch = position < limit ? buffer.get(position) : ' ';
+            
+            if (ch == ' ' || ch == '\n' || ch == '\r' || ch == '\t')
+            {
+                if (r != 0)
+                {
+                    if (r >= used.length)
+                    {
+                        boolean[] newUsed = new boolean[Math.max(r + 1, used.length * 2)];
+                        System.arraycopy(used, 0, newUsed, 0, used.length);
+                        used = newUsed;
+                    }
+                    used[r] = true;
+                    maxVarName = Math.max(maxVarName, r);
+                    literals.add(r * sign);
+                    
+                    r = 0;
+                    sign = 1;
+                }
+                lineStart = ch == '\n' || ch == '\r';
+                continue;
+            }
+            if (lineStart && ch == 'c')
+            {
+                //  Skip comment line
+                while (position + 1 < limit && buffer.get(position + 1) != '\n')
+                {
+                    position++;
+                }
+                continue;
+            }
+            lineStart = false;
+            if (ch == '0' && r == 0)
+            {
+                literals.add(0);
+                continue;
+            }
+            if (ch == '-')
+            {
+                sign = -1;
+            }
+            if ('0' <= ch && ch <= '9')
+            {
+                r = r * 10 + ch - '0';
+            }
+        }
+        
+        //  original var name -> internal var name
+        int[] internalVarNames = new int[maxVarName + 1];
+        //  internal var name -> original var name
+        OpenIntIntHashMap internalToOriginalMap = new OpenIntIntHashMap();
+        for (int varName = 1, n = 0; varName <= maxVarName; varName++)
+        {
+            if (used[varName])
+            {
+                internalVarNames[varName] = ++n;
+                internalToOriginalMap.put(n, varName);
+            }
+        }
+        
+        IntArrayList values = new IntArrayList();
+        
+        int[] literalsElements = literals.elements();
+        int literalsCount = literals.size();
+        for (int i = 0; i < literalsCount; i++)
+        {
+            int literal = literalsElements[i];
+            if (literal > 0)
+            {
+                values.add(internalVarNames[literal]);
+            }
+            else if (literal < 0)
+            {
+                values.add(-internalVarNames[-literal]);
+            }
+            else if (!values.isEmpty())
+            {
+                addTriplets(internalToOriginalMap, values);
+                values.clear();
+            }
+        }
+        if (!values.isEmpty())
+        {
+            //  Last clause without terminating zero
+            addTriplets(internalToOriginalMap, values);
+        }
+        
+        formula.setVarMappings(internalToOriginalMap);
+        
+        LOGGER.debug("Original Var Count: {}; Original Clauses Count: {}; Final Var Count: {}; Final Clauses Count: {}",
+                     new Object[] { originalVarCount, originalClausesCount, formula.getVarCount(), formula.getClausesCount() });
+        
+        return formula;
+    }
+    
+    /**
+     * Reads lines up to and including the problem line, leaves the buffer positioned after it.
+     */
+    private void readMetadata(ByteBuffer buffer)
+    {
+        StringBuilder line = new StringBuilder();
+        while (buffer.hasRemaining())
+        {
+            line.setLength(0);
+            byte ch;
+            while (buffer.hasRemaining() && (ch = buffer.get()) != '\n')
+            {
+                line.append((char) ch);
+            }
+            
+            String text = line.toString().trim().toLowerCase();
+            if (text.startsWith("c"))
+            {
+                continue;
+            }
+            if (text.startsWith("p"))
+            {
+                String[] pLine = text.split("\\W+");
+                if (pLine.length != 4 || !pLine[1].equals("cnf"))
+                {
+                    throw new AssertionError("Bad DIMACS CNF file format");
+                }
+                
+                originalVarCount = Integer.parseInt(pLine[2]);
+                originalClausesCount = Integer.parseInt(pLine[3]);
+                
+                break;
+            }
+        }
+    }
+}
@@ -0,0 +1,414 @@
+/*
+ * Copyright (c) 2010, 2011 AnjLab
+ * 
+ * This file is part of 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem 
+ * is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem
+ * is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.anjlab.sat3;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>Counters, histograms and timers of a solve, see {@link SolverContext#getMetrics()}.</p>
+ * 
+ * <p>Metrics are lock free and record values into fixed buckets without allocations, 
+ * so they're always enabled. Percentiles of histograms are approximate: a percentile is 
+ * the upper bound of the bucket it falls into, buckets are within 25% of their values.</p>
+ */
+public final class Metrics
+{
+    //  Metrics recorded by the solver. Phase times are recorded by timers named after 
+    //  statistics keys of the phases, see SolverPhase#getTimeStatisticsKey()
+    
+    /**
+     * Timer of building each tier of HSS, including tiers that are rebuilt after rollback.
+     */
+    public static final String HSS_TIER_BUILD_TIME = "HSSTierBuildTime";
+    /**
+     * Histogram of the number of dirty tiers removed by each rollback while building HSS.
+     */
+    public static final String DIRTY_TIER_ROLLBACKS = "DirtyTierRollbacks";
+    /**
+     * Histogram of the number of rounds of each unification.
+     */
+    public static final String UNIFY_ROUNDS = "UnifyRounds";
+    /**
+     * Histogram of the number of clauses removed by each round of unification.
+     */
+    public static final String UNIFY_CLAUSES_REMOVED_PER_ROUND = "UnifyClausesRemovedPerRound";
+    /**
+     * Counter of {@link SimpleFormula} and {@link PackedFormula} clones. Clones are counted in metrics 
+     * of the solve their original structure was created in, so clones made by speculative reduction 
+     * branches and portfolio candidates are counted in the calling solve, including discarded ones.
+     */
+    public static final String STRUCTURE_CLONES = "StructureClones";
+    /**
+     * Counter of tier reductions while searching HSS route.
+     */
+    public static final String REDUCTION_STEPS = "ReductionSteps";
+    /**
+     * Counter of reductions that built empty HSS, so HSS was restored from snapshot.
+     */
+    public static final String REDUCTION_ROLLBACKS = "ReductionRollbacks";
+    
+    private final ConcurrentMap<String, Object> metrics = new ConcurrentHashMap<String, Object>();
+    
+    public Counter counter(String name)
+    {
+        Object metric = metrics.get(name);
+        if (metric == null)
+        {
+            metric = register(name, new Counter());
+        }
+        return (Counter) metric;
+    }
+    
+    public Histogram histogram(String name)
+    {
+        Object metric = metrics.get(name);
+        if (metric == null)
+        {
+            metric = register(name, new Histogram());
+        }
+        return (Histogram) metric;
+    }
+    
+    public Timer timer(String name)
+    {
+        Object metric = metrics.get(name);
+        if (metric == null)
+        {
+            metric = register(name, new Timer());
+        }
+        return (Timer) metric;
+    }
+    
+    /**
+     * @return Counter of {@link #STRUCTURE_CLONES} of the current solve.
+     */
+    static Counter structureClonesCounter()
+    {
+        return SolverContext.current().getMetrics().counter(STRUCTURE_CLONES);
+    }
+    
+    private Object register(String name, Object metric)
+    {
+        Object existing = metrics.putIfAbsent(name, metric);
+        return existing == null ? metric : existing;
+    }
+    
+    /**
+     * Adds values of all metrics of <code>other</code> to the metrics of the same name, 
+     * e.g. to account work of a solve that ran in a {@link SolverContext#fork() forked} context.
+     */
+    public void merge(Metrics other)
+    {
+        for (Map.Entry<String, Object> entry : other.metrics.entrySet())
+        {
+            String name = entry.getKey();
+            Object metric = entry.getValue();
+            if (metric instanceof Counter)
+            {
+                counter(name).add(((Counter) metric).get());
+            }
+            else if (metric instanceof Timer)
+            {
+                timer(name).merge((Timer) metric);
+            }
+            else
+            {
+                histogram(name).merge((Histogram) metric);
+            }
+        }
+    }
+    
+    /**
+     * Puts values of all metrics to <code>statistics</code>. Counter is put by its name, 
+     * histogram and timer are put as a set of keys <code>&lt;name&gt;.count</code>, 
+     * <code>&lt;name&gt;.min</code>, <code>&lt;name&gt;.p50</code> etc. Values of timers are in milliseconds.
+     */
+    public void exportTo(Properties statistics)
+    {
+        for (Map.Entry<String, Object> entry : getSortedMetrics().entrySet())
+        {
+            String name = entry.getKey();
+            Object metric = entry.getValue();
+            if (metric instanceof Counter)
+            {
+                statistics.put(name, String.valueOf(((Counter) metric).get()));
+                continue;
+            }
+            Histogram histogram = (Histogram) metric;
+            statistics.put(name + ".count", String.valueOf(histogram.getCount()));
+            if (histogram.getCount() == 0)
+            {
+                continue;
+            }
+            statistics.put(name + ".total", histogram.format(histogram.getSum()));
+            statistics.put(name + ".min", histogram.format(histogram.getMin()));
+            statistics.put(name + ".mean", histogram.format(histogram.getMean()));
+            statistics.put(name + ".p50", histogram.format(histogram.getPercentile(50)));
+            statistics.put(name + ".p95", histogram.format(histogram.getPercentile(95)));
+            statistics.put(name + ".max", histogram.format(histogram.getMax()));
+        }
+    }
+    
+    /**
+     * Writes values of all metrics as a JSON object with a member per metric. Counter is written as a number, 
+     * histogram and timer as an object with <code>count</code>, <code>min</code>, <code>p50</code> etc. 
+     * Values of timers are in milliseconds.
+     */
+    public void writeJSON(Writer writer) throws IOException
+    {
+        writer.write("{");
+        boolean first = true;
+        for (Map.Entry<String, Object> entry : getSortedMetrics().entrySet())
+        {
+            writer.write(first ? "\n" : ",\n");
+            first = false;
+            
+            writer.write("  \"" + entry.getKey() + "\": ");
+            
+            Object metric = entry.getValue();
+            if (metric instanceof Counter)
+            {
+                writer.write(String.valueOf(((Counter) metric).get()));
+                continue;
+            }
+            Histogram histogram = (Histogram) metric;
+            writer.write("{\"count\": " + histogram.getCount());
+            if (histogram.getCount() > 0)
+            {
+                writer.write(", \"total\": " + histogram.format(histogram.getSum())
+                           + ", \"min\": " + histogram.format(histogram.getMin())
+                           + ", \"mean\": " + histogram.format(histogram.getMean())
+                           + ", \"p50\": " + histogram.format(histogram.getPercentile(50))
+                           + ", \"p95\": " + histogram.format(histogram.getPercentile(95))
+                           + ", \"max\": " + histogram.format(histogram.getMax()));
+            }
+            writer.write("}");
+        }
+        writer.write("\n}\n");
+    }
+    
+    private Map<String, Object> getSortedMetrics()
+    {
+        return new TreeMap<String, Object>(metrics);
+    }
+    
+    public static final class Counter
+    {
+        private final AtomicLong value = new AtomicLong();
+        
+        public void increment()
+        {
+            value.incrementAndGet();
+        }
+        
+        public void add(long delta)
+        {
+            value.addAndGet(delta);
+        }
+        
+        public long get()
+        {
+            return value.get();
+        }
+    }
+    
+    /**
+     * Histogram of non-negative values.
+     */
+    public static class Histogram
+    {
+        //  Values 0..3 have their own buckets, then each power of two is split into 4 buckets
+        private static final int BUCKETS_COUNT = 4 + 61 * 4;
+        
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS_COUNT);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+        private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+        
+        public void record(long value)
+        {
+            if (value < 0)
+            {
+                value = 0;
+            }
+            buckets.incrementAndGet(bucketOf(value));
+            count.incrementAndGet();
+            sum.addAndGet(value);
+            
+            updateMinMax(value, value);
+        }
+        
+        void merge(Histogram other)
+        {
+            if (other.getCount() == 0)
+            {
+                return;
+            }
+            for (int i = 0; i < BUCKETS_COUNT; i++)
+            {
+                long bucketCount = other.buckets.get(i);
+                if (bucketCount > 0)
+                {
+                    buckets.addAndGet(i, bucketCount);
+                }
+            }
+            count.addAndGet(other.getCount());
+            sum.addAndGet(other.getSum());
+            
+            updateMinMax(other.getMin(), other.getMax());
+        }
+        
+        private void updateMinMax(long newMin, long newMax)
+        {
+            long current = min.get();
+            while (newMin < current && !min.compareAndSet(current, newMin))
+            {
+                current = min.get();
+            }
+            current = max.get();
+            while (newMax > current && !max.compareAndSet(current, newMax))
+            {
+                current = max.get();
+            }
+        }
+        
+        static int bucketOf(long value)
+        {
+            if (value < 4)
+            {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int subBucket = (int) (value >>> (exponent - 2)) & 3;
+            return 4 + (exponent - 2) * 4 + subBucket;
+        }
+        
+        static long upperBoundOf(int bucket)
+        {
+            if (bucket < 4)
+            {
+                return bucket;
+            }
+            int exponent = (bucket - 4) / 4 + 2;
+            long subBucket = (bucket - 4) % 4;
+            return ((4 + subBucket + 1) << (exponent - 2)) - 1;
+        }
+        
+        public long getCount()
+        {
+            return count.get();
+        }
+        
+        public long getSum()
+        {
+            return sum.get();
+        }
+        
+        public long getMin()
+        {
+            return getCount() == 0 ? 0 : min.get();
+        }
+        
+        public long getMax()
+        {
+            return getCount() == 0 ? 0 : max.get();
+        }
+        
+        public double getMean()
+        {
+            long count = getCount();
+            return count == 0 ? 0 : (double) getSum() / count;
+        }
+        
+        /**
+         * @return Upper bound of the bucket that contains the percentile, but not greater than {@link #getMax()}.
+         */
+        public long getPercentile(double percent)
+        {
+            long count = getCount();
+            if (count == 0)
+            {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percent / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS_COUNT; i++)
+            {
+                seen += buckets.get(i);
+                if (seen >= rank)
+                {
+                    return Math.min(upperBoundOf(i), getMax());
+                }
+            }
+            return getMax();
+        }
+        
+        String format(double value)
+        {
+            return value == Math.rint(value) ? String.valueOf((long) value) : String.valueOf(Math.round(value * 1000) / 1000.0);
+        }
+    }
+    
+    /**
+     * Histogram of durations in nanoseconds, which are exported in milliseconds.
+     * 
+     * <pre>
+     * long start = timer.start();
+     * ...
+     * timer.stop(start);
+     * </pre>
+     */
+    public static final class Timer extends Histogram
+    {
+        public long start()
+        {
+            return System.nanoTime();
+        }
+        
+        /**
+         * @return Nanoseconds elapsed since <code>start</code>.
+         */
+        public long stop(long start)
+        {
+            long elapsed = System.nanoTime() - start;
+            record(elapsed);
+            return elapsed;
+        }
+        
+        String format(double nanos)
+        {
+            return String.valueOf(Math.round(nanos / TimeUnit.MILLISECONDS.toNanos(1) * 1000) / 1000.0);
+        }
+    }
+}
@@ -0,0 +1,787 @@
+/*
+ * Copyright (c) 2010, 2011 AnjLab
+ * 
+ * This file is part of 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem 
+ * is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem
+ * is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.anjlab.sat3;
+
+import java.util.Arrays;
+import java.util.Properties;
+
+import cern.colt.list.ObjectArrayList;
+
+/**
+ * <p>Compact triplets structure that keeps keys of all its tiers in a single array.</p>
+ * 
+ * <p>In a CTS the permutation defines variables of every tier: j-th tier is built on
+ * <code>(permutation[j], permutation[j + 1], permutation[j + 2])</code>, so there is 
+ * no need to store tiers as separate objects. Keys of 8 consecutive tiers are packed 
+ * into a single <code>long</code> (see {@link TierKernels}), so {@link #clone()}, 
+ * {@link #union(ICompactTripletsStructure)}, {@link #intersect(ICompactTripletsStructure)} 
+ * and clearing procedure process 8 tiers per operation.</p>
+ * 
+ * <p>Instances of {@link ITier} are only created on demand as views of the keys array
+ * (see {@link #getTier(int)}), i.e. when structure takes part in unification.</p>
+ * 
+ * <p>Packed structure can only be created from complete CTS, so methods used 
+ * to build CTF/CTS (like {@link #add(ITriplet)} or {@link #unionOrAdd(ITier)}) 
+ * only accept values of the existing tiers, and {@link #complete(IPermutation)} 
+ * only accepts variables the structure already has.</p>
+ */
+public final class PackedFormula implements ICompactTripletsStructure, ICompactTripletsStructureHolder
+{
+    private final IPermutation permutation;
+    //  keys_73516240 of the tiers packed by TierKernels
+    final long[] words;
+    //  Number of tiers in complete structure
+    private final int maxTiersCount;
+    //  Either maxTiersCount or 0 if structure is empty
+    private int tiersCount;
+    //  Views of the tiers, created on demand
+    private PackedTier[] tiers;
+    //  List of ITier
+    private ObjectArrayList tiersList;
+    //  Looked up once per formula created from scratch, clones share it with the original
+    private final Metrics.Counter clonesCounter;
+
+    /**
+     * Creates packed copy of <code>cts</code>.
+     * 
+     * New formula uses the same instance of <code>permutation</code>.
+     * 
+     * @param cts Complete CTS with sorted tiers.
+     */
+    public PackedFormula(ICompactTripletsStructure cts)
+    {
+        this.clonesCounter = Metrics.structureClonesCounter();
+        this.permutation = cts.getPermutation();
+        this.maxTiersCount = Math.max(0, permutation.size() - 2);
+        this.words = new long[TierKernels.wordsCount(maxTiersCount)];
+        
+        if (cts.isEmpty())
+        {
+            return;
+        }
+        
+        if (Helper.isAssertionsEnabled())
+        {
+            if (!cts.tiersSorted())
+            {
+                throw new IllegalArgumentException("Tiers should be sorted");
+            }
+        }
+        
+        ObjectArrayList ctsTiers = cts.getTiers();
+        
+        if (ctsTiers.size() != maxTiersCount)
+        {
+            throw new IllegalArgumentException("CTS should be complete, but tiers.size() != varCount - 2 (" 
+                    + ctsTiers.size() + " != " + maxTiersCount + ")");
+        }
+        
+        Object[] tiersElements = ctsTiers.elements();
+        for (int j = 0; j < maxTiersCount; j++)
+        {
+            TierKernels.set(words, j, SimpleTier.keysOf((ITier) tiersElements[j]));
+        }
+        words[words.length - 1] |= TierKernels.tailMask(maxTiersCount);
+        
+        tiersCount = maxTiersCount;
+    }
+    
+    /**
+     * Creates structure from the keys of its tiers.
+     * 
+     * @param keys keys_73516240 of the tiers or empty array for empty structure.
+     */
+    PackedFormula(IPermutation permutation, byte[] keys)
+    {
+        this.clonesCounter = Metrics.structureClonesCounter();
+        this.permutation = permutation;
+        this.maxTiersCount = Math.max(0, permutation.size() - 2);
+        this.words = new long[TierKernels.wordsCount(maxTiersCount)];
+        
+        if (keys.length == 0)
+        {
+            return;
+        }
+        
+        if (keys.length != maxTiersCount)
+        {
+            throw new IllegalArgumentException("keys.length != varCount - 2 (" 
+                    + keys.length + " != " + maxTiersCount + ")");
+        }
+        
+        for (int j = 0; j < maxTiersCount; j++)
+        {
+            TierKernels.set(words, j, keys[j]);
+        }
+        words[words.length - 1] |= TierKernels.tailMask(maxTiersCount);
+        
+        tiersCount = maxTiersCount;
+    }
+    
+    private PackedFormula(PackedFormula formula)
+    {
+        this.clonesCounter = formula.clonesCounter;
+        this.permutation = formula.permutation;
+        this.maxTiersCount = formula.maxTiersCount;
+        this.words = formula.words.clone();
+        this.tiersCount = formula.tiersCount;
+    }
+    
+    /**
+     * Creates copy of this formula.
+     * 
+     * New formula uses the same instance of <code>permutation</code> and copy of the keys.
+     */
+    public PackedFormula clone()
+    {
+        clonesCounter.increment();
+        return new PackedFormula(this);
+    }
+    
+    public void clear()
+    {
+        tiersCount = 0;
+    }
+    
+    public boolean isEmpty()
+    {
+        return tiersCount == 0;
+    }
+    
+    public int getClausesCount()
+    {
+        return isEmpty() ? 0 : TierKernels.clausesCount(words, tiersCount);
+    }
+
+    public int getVarCount()
+    {
+        return permutation.size();
+    }
+
+    public IPermutation getPermutation()
+    {
+        return permutation;
+    }
+
+    public ICompactTripletsStructure getCTS()
+    {
+        return this;
+    }
+    
+    public ITier getTier(int tierIndex)
+    {
+        if (tierIndex < 0 || tierIndex >= tiersCount)
+        {
+            throw new IndexOutOfBoundsException("Index: " + tierIndex + ", Size: " + tiersCount);
+        }
+        
+        if (tiers == null)
+        {
+            tiers = new PackedTier[maxTiersCount];
+        }
+        
+        PackedTier tier = tiers[tierIndex];
+        
+        if (tier == null)
+        {
+            int[] permutationElements = permutation.elements();
+            
+            tier = new PackedTier(this, tierIndex, 
+                                  permutationElements[tierIndex], 
+                                  permutationElements[tierIndex + 1], 
+                                  permutationElements[tierIndex + 2]);
+            
+            tiers[tierIndex] = tier;
+        }
+        
+        return tier;
+    }
+
+    public ObjectArrayList getTiers()
+    {
+        if (tiersList == null)
+        {
+            tiersList = new ObjectArrayList(maxTiersCount);
+        }
+        
+        if (tiersList.size() != tiersCount)
+        {
+            tiersList.clear();
+            
+            for (int j = 0; j < tiersCount; j++)
+            {
+                tiersList.add(getTier(j));
+            }
+        }
+        
+        return tiersList;
+    }
+
+    public ITier findTierFor(ITripletPermutation tripletPermutation)
+    {
+        int aIndex = permutation.indexOf(tripletPermutation.getAName());
+        int bIndex = permutation.indexOf(tripletPermutation.getBName());
+        int cIndex = permutation.indexOf(tripletPermutation.getCName());
+        
+        if (aIndex < 0 || bIndex < 0 || cIndex < 0)
+        {
+            return null;
+        }
+        
+        int tierIndex = Math.min(aIndex, Math.min(bIndex, cIndex));
+        
+        if (Math.max(aIndex, Math.max(bIndex, cIndex)) - tierIndex != 2 || tierIndex >= tiersCount)
+        {
+            return null;
+        }
+        
+        return getTier(tierIndex);
+    }
+
+    public boolean tiersSorted()
+    {
+        if (tiers == null)
+        {
+            return true;
+        }
+        
+        int[] permutationElements = permutation.elements();
+        
+        for (int j = 0; j < tiersCount; j++)
+        {
+            PackedTier tier = tiers[j];
+            
+            if (tier != null 
+                && !(permutationElements[j] == tier.getAName() 
+                     && permutationElements[j + 1] == tier.getBName()
+                     && permutationElements[j + 2] == tier.getCName()))
+            {
+                return false;
+            }
+        }
+        
+        return true;
+    }
+
+    private void assertTiersSorted()
+    {
+        if (!tiersSorted())
+        {
+            throw new IllegalStateException("Tiers should be sorted");
+        }
+    }
+    
+    /**
+     * Tiers of packed structure are always sorted.
+     */
+    public void sortTiers()
+    {
+    }
+
+    public void union(ICompactTripletsStructure cts)
+    {
+        PackedFormula other = (PackedFormula) cts;
+        
+        if (Helper.isAssertionsEnabled())
+        {
+            assertSamePermutation(other);
+        }
+        
+        if (other.isEmpty())
+        {
+            //  Union with empty structure will not change the structure
+            return;
+        }
+        
+        if (isEmpty())
+        {
+            System.arraycopy(other.words, 0, words, 0, words.length);
+            tiersCount = other.tiersCount;
+        }
+        else
+        {
+            //  Both left and right operands are not empty
+            TierKernels.union(words, other.words, words.length);
+        }
+        
+        //  No need in running clearing procedure
+    }
+
+    private void assertSamePermutation(PackedFormula operand)
+    {
+        if (permutation != operand.permutation && !permutation.sameAs(operand.permutation))
+        {
+            throw new IllegalArgumentException("Operand permutation should be the same as the formula permutation");
+        }
+    }
+
+    public void intersect(ICompactTripletsStructure cts)
+    {
+        PackedFormula other = (PackedFormula) cts;
+        
+        if (Helper.isAssertionsEnabled())
+        {
+            assertSamePermutation(other);
+        }
+        
+        if (other.isEmpty() || isEmpty())
+        {
+            //  Intersection with empty structure will result in empty structure
+            clear();
+            return;
+        }
+        
+        int[] range = new int[2];
+        
+        int result = TierKernels.intersect(words, other.words, words.length, range);
+        
+        if (result == TierKernels.EMPTY_TIER)
+        {
+            clear();
+        }
+        else if (result == TierKernels.SOME_REMOVED)
+        {
+            //  Single partial cleanup of the range where triplets were removed
+            cleanup(range[0], range[1]);
+        }
+    }
+
+    public CleanupStatus concretize(int varName, Value value)
+    {
+        return internalConcretize(varName, value);
+    }
+
+    public boolean concretize(ITripletPermutation tripletPermutation, ITripletValue tripletValue)
+    {
+        boolean someClausesRemoved = internalConcretize(tripletPermutation.getAName(), tripletValue.isNotA() ? Value.AllNegative : Value.AllPlain).someClausesRemoved
+                                   | internalConcretize(tripletPermutation.getBName(), tripletValue.isNotB() ? Value.AllNegative : Value.AllPlain).someClausesRemoved
+                                   | internalConcretize(tripletPermutation.getCName(), tripletValue.isNotC() ? Value.AllNegative : Value.AllPlain).someClausesRemoved;
+        
+        return someClausesRemoved;
+    }
+
+    private CleanupStatus internalConcretize(int varName, Value value)
+    {
+        if (isEmpty())
+        {
+            return CleanupStatus.NOTHING_REMOVED;
+        }
+        
+        int indexOf = permutation.indexOf(varName);
+
+        if (Helper.isAssertionsEnabled())
+        {
+            if (value != Value.AllPlain && value != Value.AllNegative)
+            {
+                throw new IllegalArgumentException(
+                        "Value should be one of (" + Value.AllPlain + ", " + Value.AllNegative 
+                        + ") but was " + value);
+            }
+            
+            if (indexOf < 0)
+            {
+                throw new IllegalArgumentException("Can't concretize on varName=" 
+                        + varName + " because varName is not from the formula's permutation");
+            }
+        }
+        
+        //  Variable is A in tier indexOf, B in tier (indexOf - 1) and C in tier (indexOf - 2)
+        
+        byte[] masks = TierTables.CONCRETIZE_MASKS[value == Value.AllPlain ? 0 : 1];
+        
+        boolean someClausesRemoved = false;
+        
+        int from = indexOf;
+        int to = indexOf;
+        
+        for (int i = 0, tierIndex = indexOf; i < 3 && tierIndex >= 0; i++, tierIndex--)
+        {
+            if (tierIndex < tiersCount)
+            {
+                from = tierIndex;
+                
+                byte keys = TierKernels.get(words, tierIndex);
+                byte tierKeys = (byte) (keys & masks[i]);
+                if (tierKeys != keys)
+                {
+                    if (tierKeys == 0)
+                    {
+                        clear();
+                        return CleanupStatus.ALL_REMOVED;
+                    }
+                    TierKernels.set(words, tierIndex, tierKeys);
+                    someClausesRemoved = true;
+                }
+            }
+        }
+        
+        if (someClausesRemoved)
+        {
+            if (to > tiersCount - 1)
+            {
+                to = tiersCount - 1;
+            }
+            return cleanup(from, to);
+        }
+        
+        return CleanupStatus.NOTHING_REMOVED;
+    }
+
+    public boolean cleanup()
+    {
+        if (tiersCount == 1)
+        {
+            return false;
+        }
+
+        if (tiersCount != getVarCount() - 2)
+        {
+            clear();
+            return true;
+        }
+
+        if (Helper.isAssertionsEnabled())
+        {
+            assertTiersSorted();
+        }
+
+        int result = TierKernels.cleanup(words, tiersCount);
+        if (result == TierKernels.EMPTY_TIER)
+        {
+            clear();
+            return true;
+        }
+        return result == TierKernels.SOME_REMOVED;
+    }
+    
+    /**
+     * Runs clearing procedure assuming that only tiers from the range <code>[from, to]</code> 
+     * were changed since the formula was clean.
+     * 
+     * @see SimpleFormula#cleanup(int, int)
+     */
+    private CleanupStatus internalCleanup(int from, int to)
+    {
+        int[] range = new int[] { from, to };
+        
+        int numberOfClausesRemoved = TierKernels.cleanup(words, tiersCount, range);
+        
+        if (numberOfClausesRemoved < 0)
+        {
+            clear();
+            return CleanupStatus.ALL_REMOVED;
+        }
+        
+        return new CleanupStatus(numberOfClausesRemoved > 0, range[0], range[1], numberOfClausesRemoved);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * <p><b>IMPORTANT!</b> If formula doesn't not meet the above conditions, the
+     * result will be incorrect. In this case if {@link Helper#EnableAssertions} 
+     * set to <code>true</code> an exception will be thrown.</p>
+     */
+    public CleanupStatus cleanup(int from, int to)
+    {
+        if (tiersCount == 1)
+        {
+            return CleanupStatus.NOTHING_REMOVED;
+        }
+
+        if (tiersCount != getVarCount() - 2)
+        {
+            clear();
+            return CleanupStatus.ALL_REMOVED;
+        }
+
+        if ((from > to) || (from < 0) || (to > tiersCount - 1))
+        {
+            throw new IllegalArgumentException("(from > to) || (from < 0) || (to > tiers.size() - 1), from: " + from + ", to: " + to);
+        }
+        
+        if (Helper.isFullAssertions())
+        {
+            assertTiersSorted();
+        }
+        
+        CleanupStatus status = internalCleanup(from, to);
+        
+        if (Helper.isFullAssertions())
+        {
+            PackedFormula clone = this.clone();
+            clone.cleanup();
+            if (this.getClausesCount() != clone.getClausesCount())
+            {
+                throw new AssertionError("Error in cleanup(from,to) implementation");
+            }
+        }
+        else if (Helper.isIncrementalAssertions() && !isEmpty())
+        {
+            assertCleanRange(status.someClausesRemoved ? status.from : from, 
+                             status.someClausesRemoved ? status.to : to);
+        }
+        
+        return status;
+    }
+    
+    /**
+     * Checks that every clause of tiers <code>[from - 1, to + 1]</code> has pairs in both neighbour tiers.
+     */
+    private void assertCleanRange(int from, int to)
+    {
+        for (int i = Math.max(0, from - 1); i < Math.min(tiersCount - 1, to + 1); i++)
+        {
+            byte keys = TierKernels.get(words, i);
+            byte nextKeys = TierKernels.get(words, i + 1);
+            if (TierKernels.adjoinRight(keys, nextKeys) != keys || TierKernels.adjoinLeft(nextKeys, keys) != nextKeys)
+            {
+                throw new AssertionError("Error in cleanup(from,to) implementation, tiers " + i + " and " + (i + 1) + " are not clean");
+            }
+        }
+    }
+
+    public Value valueOf(int varName)
+    {
+        int indexOf = permutation.indexOf(varName);
+        
+        if (Helper.isAssertionsEnabled())
+        {
+            if (indexOf < 0)
+            {
+                throw new IllegalArgumentException("Can't get value of varName=" 
+                        + varName + " because varName is not from the formula's permutation");
+            }
+        }
+        
+        Value value = Value.Mixed;
+        
+        for (int i = 0, tierIndex = indexOf; i < 3 && tierIndex >= 0; i++, tierIndex--)
+        {
+            if (tierIndex < tiersCount)
+            {
+                if (i == 0)
+                {
+                    value = SimpleTier.valueOfA(TierKernels.get(words, tierIndex));
+                    if (value == Value.Mixed)
+                    {
+                        break;
+                    }
+                }
+                else if (i == 1)
+                {
+                    if (SimpleTier.valueOfB(TierKernels.get(words, tierIndex)) != value)
+                    {
+                        value = Value.Mixed;
+                        break;
+                    }
+                }
+                else
+                {
+                    if (SimpleTier.valueOfC(TierKernels.get(words, tierIndex)) != value)
+                    {
+                        value = Value.Mixed;
+                        break;
+                    }
+                }
+            }
+        }
+        
+        return value;
+    }
+
+    public boolean isElementary()
+    {
+        if (Helper.isAssertionsEnabled())
+        {
+            assertTiersSorted();
+        }
+        if (tiersCount != permutation.size() - 2)
+        {
+            //  Not all tiers present in CTS
+            return false;
+        }
+        for (int j = 0; j < tiersCount; j++)
+        {
+            if (Integer.bitCount(TierKernels.get(words, j) & 0xFF) != 1)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean evaluate(ObjectArrayList route)
+    {
+        return SimpleFormula.evaluate(this, route);
+    }
+
+    public boolean evaluate(Properties properties)
+    {
+        return SimpleFormula.evaluate(this, properties);
+    }
+
+    public boolean containsAllValuesOf(ITier tier)
+    {
+        return SimpleFormula.containsAllValuesOf(this, tier);
+    }
+
+    /**
+     * @throws IllegalArgumentException If structure has no tier for variables of the triplet.
+     */
+    public void add(ITriplet triplet)
+    {
+        ITier targetTier = findExistingTierFor(triplet);
+        
+        triplet.transposeTo(targetTier);
+        
+        targetTier.add(triplet);
+    }
+
+    /**
+     * @throws IllegalArgumentException If structure has no tier for variables of the <code>tier</code>.
+     */
+    public void unionOrAdd(ITier tier)
+    {
+        ITier targetTier = findExistingTierFor(tier);
+        
+        tier.transposeTo(targetTier);
+        
+        targetTier.union(tier);
+    }
+    
+    private ITier findExistingTierFor(ITripletPermutation tripletPermutation)
+    {
+        ITier targetTier = findTierFor(tripletPermutation);
+        
+        if (targetTier == null)
+        {
+            throw new IllegalArgumentException("Packed structure can't be extended with tier " 
+                    + Arrays.toString(tripletPermutation.getABC()));
+        }
+        
+        return targetTier;
+    }
+
+    /**
+     * Packed structure is always complete, so this method only checks that 
+     * structure already contains all the <code>variables</code> and is not empty.
+     * 
+     * @throws IllegalArgumentException If one of the <code>variables</code> is not in the structure.
+     */
+    public void complete(IPermutation variables) throws EmptyStructureException
+    {
+        for (int i = 0; i < variables.size(); i++)
+        {
+            if (!permutation.contains(variables.get(i)))
+            {
+                throw new IllegalArgumentException("Packed structure can't be extended with variable " + variables.get(i));
+            }
+        }
+        if (isEmpty())
+        {
+            throw new EmptyStructureException(this);
+        }
+    }
+
+    public ObjectArrayList findTiersFor(int varName)
+    {
+        return findTiersFor(varName, varName);
+    }
+
+    public ObjectArrayList findTiersFor(int varName1, int varName2)
+    {
+        int index1 = permutation.indexOf(varName1);
+        int index2 = permutation.indexOf(varName2);
+        
+        if (index1 < 0 || index2 < 0)
+        {
+            return null;
+        }
+        
+        //  j-th tier is built on variables with indices j, j + 1 and j + 2
+        int from = Math.max(0, Math.max(index1, index2) - 2);
+        int to = Math.min(Math.min(index1, index2), tiersCount - 1);
+        
+        if (from > to)
+        {
+            return null;
+        }
+        
+        ObjectArrayList result = new ObjectArrayList(to - from + 1);
+        for (int j = from; j <= to; j++)
+        {
+            result.add(getTier(j));
+        }
+        return result;
+    }
+
+    public int getOriginalVarName(int varName)
+    {
+        //  Packed structure doesn't keep variable mappings, 
+        //  it is created for unification where internal names are used
+        return varName;
+    }
+    
+    public boolean equals(Object obj)
+    {
+        if (!(obj instanceof PackedFormula))
+        {
+            return false;
+        }
+        PackedFormula other = (PackedFormula) obj;
+        if (!this.permutation.sameAs(other.permutation))
+        {
+            //  Permutations differs
+            return false;
+        }
+        if (tiersCount != other.tiersCount)
+        {
+            return false;
+        }
+        if (tiersCount > 0)
+        {
+            for (int i = 0; i < words.length; i++)
+            {
+                if (words[i] != other.words[i])
+                {
+                    //  Tiers differs
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+    
+    public int hashCode()
+    {
+        int hashCode = 31 * permutation.elementsHash() + tiersCount;
+        return tiersCount > 0 ? 31 * hashCode + Arrays.hashCode(words) : hashCode;
+    }
+    
+    public String toString()
+    {
+        return Helper.buildPrettyOutput(this).insert(0, '\n').toString();
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2010, 2011 AnjLab
+ * 
+ * This file is part of 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem 
+ * is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem
+ * is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.anjlab.sat3;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * View of a single tier of {@link PackedFormula}.
+ * 
+ * Keys of the tier are stored in the formula's keys array, 
+ * so all modifications of the view are visible in the formula and vice versa.
+ */
+final class PackedTier extends SimpleTripletPermutation implements ITier
+{
+    private final PackedFormula formula;
+    private final int index;
+    
+    PackedTier(PackedFormula formula, int index, int a, int b, int c)
+    {
+        super(a, b, c);
+        
+        this.formula = formula;
+        this.index = index;
+    }
+    
+    byte getKeys()
+    {
+        return TierKernels.get(formula.words, index);
+    }
+    
+    private void setKeys(int keys_73516240)
+    {
+        TierKernels.set(formula.words, index, (byte) keys_73516240);
+    }
+    
+    public ITier clone()
+    {
+        return SimpleTier.createTier(getAName(), getBName(), getCName(), getKeys());
+    }
+    
+    public void add(ITripletValue triplet)
+    {
+        setKeys(getKeys() | triplet.getTierKey());
+    }
+
+    public void intersect(ITripletValue tripletValue)
+    {
+        setKeys(getKeys() & tripletValue.getTierKey());
+    }
+
+    public int size()
+    {
+        return Integer.bitCount(getKeys() & 0xFF);
+    }
+
+    public boolean contains(ITripletValue triplet)
+    {
+        int key = triplet.getTierKey();
+        return (getKeys() & key) == key;
+    }
+
+    public void remove(ITripletValue triplet)
+    {
+        setKeys(getKeys() & (255 ^ triplet.getTierKey()));
+    }
+
+    /**
+     * Use only if performance is not a goal.
+     */
+    public Iterator<ITripletValue> iterator()
+    {
+        return new Iterator<ITripletValue>()
+        {
+            private int key = 0;
+            private int counter = size();
+            public final boolean hasNext()
+            {
+                return counter > 0;
+            }
+            public final ITripletValue next()
+            {
+                key = key == 0 ? 1 : key << 1;
+                while ((getKeys() & key) == 0)
+                {
+                    key <<= 1;
+                }
+                
+                counter--;
+                return SimpleTripletValueFactory.getTripletValue(key);
+            }
+            public final void remove()
+            {
+                setKeys(getKeys() & (255 ^ key));
+            }
+        };
+    }
+
+    public void swapAB()
+    {
+        super.swapAB();
+        
+        setKeys(SimpleTier.swapAB(getKeys()));
+    }
+    
+    public void swapAC()
+    {
+        super.swapAC();
+        
+        setKeys(SimpleTier.swapAC(getKeys()));
+    }
+
+    public void swapBC()
+    {
+        super.swapBC();
+        
+        setKeys(SimpleTier.swapBC(getKeys()));
+    }
+    
+    public void adjoinRight(ITier tier)
+    {
+        setKeys(TierKernels.adjoinRight(getKeys(), SimpleTier.keysOf(tier)));
+    }
+
+    public void adjoinLeft(ITier tier)
+    {
+        setKeys(TierKernels.adjoinLeft(getKeys(), SimpleTier.keysOf(tier)));
+    }
+    
+    public boolean isEmpty()
+    {
+        return getKeys() == 0;
+    }
+    
+    public void intersect(ITier tier)
+    {
+        setKeys(getKeys() & SimpleTier.keysOf(tier));
+    }
+    
+    public void union(ITier tier)
+    {
+        setKeys(getKeys() | SimpleTier.keysOf(tier));
+    }
+    
+    public void concretize(int varName, Value value)
+    {
+        if (Helper.isAssertionsEnabled())
+        {
+            if (value != Value.AllPlain && value != Value.AllNegative)
+            {
+                throw new IllegalArgumentException(
+                        "Value should be one of (" + Value.AllPlain + ", " + Value.AllNegative 
+                        + ") but was " + value);
+            }
+        }
+        
+        if (getAName() == varName)
+        {
+            setKeys(getKeys() & (value == Value.AllPlain ? 0x0F : 0xF0)); 
+        }
+        else if (getBName() == varName)
+        {
+            setKeys(getKeys() & (value == Value.AllPlain ? 0x33 : 0xCC)); 
+        }
+        else if (getCName() == varName)
+        {
+            setKeys(getKeys() & (value == Value.AllPlain ? 0x55 : 0xAA)); 
+        }
+        else
+        {
+            throw new IllegalArgumentException("Can't concretize tier on varName="
+                    + varName + " because varName is not from the tier's permutation");
+        }
+    }
+    
+    public Value valueOfA()
+    {
+        return SimpleTier.valueOfA(getKeys());
+    }
+    
+    public Value valueOfB()
+    {
+        return SimpleTier.valueOfB(getKeys());
+    }
+    
+    public Value valueOfC()
+    {
+        return SimpleTier.valueOfC(getKeys());
+    }
+    
+    public void inverse()
+    {
+        setKeys(~getKeys());
+    }
+    
+    public boolean equals(Object obj)
+    {
+        if (!(obj instanceof SimpleTier || obj instanceof PackedTier))
+        {
+            return false;
+        }
+        ITier otherTier = (ITier) obj;
+        if (!Arrays.equals(getABC(), otherTier.getABC()))
+        {
+            //  Permutation differs
+            return false;
+        }
+        return getKeys() == SimpleTier.keysOf(otherTier);
+    }
+    
+    public int hashCode()
+    {
+        return SimpleTier.hashCodeOf(this);
+    }
+    
+    public String toString()
+    {
+        return clone().toString();
+    }
+}
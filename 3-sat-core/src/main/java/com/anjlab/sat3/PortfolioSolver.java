@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2010, 2011 AnjLab
+ * 
+ * This file is part of 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem 
+ * is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem
+ * is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.anjlab.sat3;
+
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import cern.colt.list.IntArrayList;
+import cern.colt.list.ObjectArrayList;
+
+/**
+ * <p>Builds HSS and searches for HSS route for several candidates to the basic structure 
+ * concurrently, and returns result of the first one that completes. Others are cancelled.</p>
+ * 
+ * <p>Every candidate runs in its own thread on its own copy of CTS and with its own {@link SolverContext}.</p>
+ */
+public class PortfolioSolver
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(PortfolioSolver.class);
+    
+    public static class Result
+    {
+        private final int basicCTSIndex;
+        private final ObjectArrayList route;
+        private final Properties statistics;
+        private final Metrics metrics;
+        
+        public Result(int basicCTSIndex, ObjectArrayList route, Properties statistics)
+        {
+            this(basicCTSIndex, route, statistics, new Metrics());
+        }
+        
+        public Result(int basicCTSIndex, ObjectArrayList route, Properties statistics, Metrics metrics)
+        {
+            this.basicCTSIndex = basicCTSIndex;
+            this.route = route;
+            this.statistics = statistics;
+            this.metrics = metrics;
+        }
+        /**
+         * @return Index of CTS that was chosen as basic structure.
+         */
+        public int getBasicCTSIndex()
+        {
+            return basicCTSIndex;
+        }
+        /**
+         * @return List of {@link IVertex}.
+         */
+        public ObjectArrayList getRoute()
+        {
+            return route;
+        }
+        /**
+         * @return Statistics of HSS creation for this candidate.
+         */
+        public Properties getStatistics()
+        {
+            return statistics;
+        }
+        /**
+         * @return Metrics of HSS creation and HSS route search for this candidate.
+         */
+        public Metrics getMetrics()
+        {
+            return metrics;
+        }
+    }
+    
+    private final int candidatesCount;
+    
+    /**
+     * @param candidatesCount Number of structures with the fewest clauses to try as basic structure.
+     */
+    public PortfolioSolver(int candidatesCount)
+    {
+        if (candidatesCount < 1)
+        {
+            throw new IllegalArgumentException("Number of candidates should be > 0");
+        }
+        this.candidatesCount = candidatesCount;
+    }
+    
+    /**
+     * @param cts List of unified {@link ICompactTripletsStructure}. Structures are not modified.
+     * @return Result of the first candidate completed.
+     * @throws EmptyStructureException If the first completed candidate built empty HSS.
+     */
+    public Result solve(ObjectArrayList cts) throws EmptyStructureException
+    {
+        IntArrayList candidates = Helper.chooseBasicStructureCandidates(cts, candidatesCount);
+        
+        ExecutorService executor = Executors.newFixedThreadPool(candidates.size());
+        try
+        {
+            CompletionService<Result> completionService = new ExecutorCompletionService<Result>(executor);
+            
+            for (int i = 0; i < candidates.size(); i++)
+            {
+                //  Copy CTS in the calling thread, so that candidates never share structures
+                completionService.submit(new Candidate(SolverContext.current().fork(), Helper.cloneStructures(cts), candidates.get(i)));
+            }
+            
+            Result result = completionService.take().get();
+            
+            LOGGER.info("Portfolio completed with CTS-{} as basic structure", result.getBasicCTSIndex());
+            
+            //  Candidates run in forked contexts, account work of the winner only
+            SolverContext.current().getMetrics().merge(result.getMetrics());
+            
+            return result;
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for portfolio to complete");
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof RuntimeException)
+            {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error)
+            {
+                throw (Error) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+    
+    private static class Candidate implements Callable<Result>
+    {
+        private final SolverContext solverContext;
+        private final ObjectArrayList cts;
+        private final int basicCTSIndex;
+        
+        public Candidate(SolverContext solverContext, ObjectArrayList cts, int basicCTSIndex)
+        {
+            this.solverContext = solverContext;
+            this.cts = cts;
+            this.basicCTSIndex = basicCTSIndex;
+        }
+        
+        public Result call() throws Exception
+        {
+            SolverContext previous = solverContext.enter();
+            try
+            {
+                LOGGER.info("Building HSS with CTS-{} as basic structure", basicCTSIndex);
+                
+                Properties statistics = new Properties();
+                ObjectArrayList hss = Helper.createHyperStructuresSystem(
+                        cts, (ICompactTripletsStructure) cts.get(basicCTSIndex), statistics);
+                
+                ObjectArrayList route = Helper.findHSSRouteByReduce(hss, CheckpointPolicy.NONE);
+                
+                return new Result(basicCTSIndex, route, statistics, solverContext.getMetrics());
+            }
+            finally
+            {
+                SolverContext.exit(previous);
+            }
+        }
+    }
+}
@@ -31,7 +31,11 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.Properties;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -56,6 +60,18 @@ public class Program
     private static final String USE_ABC_VAR_NAMES_OPTION = "u";
     private static final String DISABLE_ASSERTIONS_OPTION = "a";
     private static final String USE_PRETTY_PRINT_OPTION = "p";
+    private static final String NUMBER_OF_THREADS_OPTION = "t";
+    private static final String NUMBER_OF_IO_THREADS_OPTION = "w";
+    private static final String ASSERTION_LEVEL_OPTION = "l";
+    private static final String BINARY_HSS_OPTION = "b";
+    private static final String CHECKPOINT_INTERVAL_OPTION = "k";
+    private static final String SPECULATIVE_REDUCTION_OPTION = "s";
+    private static final String PORTFOLIO_OPTION = "f";
+    private static final String DEADLINE_OPTION = "d";
+    private static final String RESUME_OPTION = "x";
+    private static final String HSS_CHECKPOINT_TIERS_OPTION = "n";
+    private static final String HSS_CHECKPOINT_MINUTES_OPTION = "m";
+    private static final String METRICS_JSON_OPTION = "j";
     
     private static final Logger LOGGER = LoggerFactory.getLogger(Program.class);
     
@@ -87,11 +103,53 @@ public class Program
         String formulaFile = commandLine.getArgs()[0];
 
         Helper.UsePrettyPrint = commandLine.hasOption(USE_PRETTY_PRINT_OPTION);
-        Helper.EnableAssertions = !commandLine.hasOption(DISABLE_ASSERTIONS_OPTION);
+        if (commandLine.hasOption(DISABLE_ASSERTIONS_OPTION))
+        {
+            Helper.setAssertionLevel(AssertionLevel.Off);
+        }
+        else if (commandLine.hasOption(ASSERTION_LEVEL_OPTION))
+        {
+            String level = commandLine.getOptionValue(ASSERTION_LEVEL_OPTION);
+            Helper.setAssertionLevel(parseAssertionLevel(level));
+        }
+        else
+        {
+            Helper.setAssertionLevel(AssertionLevel.Full);
+        }
         Helper.UseUniversalVarNames = !commandLine.hasOption(USE_ABC_VAR_NAMES_OPTION);
+        Helper.UseBinaryHSSFormat = commandLine.hasOption(BINARY_HSS_OPTION);
+        Helper.UseSpeculativeReduction = commandLine.hasOption(SPECULATIVE_REDUCTION_OPTION);
+        
+        if (commandLine.hasOption(NUMBER_OF_THREADS_OPTION))
+        {
+            Helper.NumberOfThreads = Integer.parseInt(commandLine.getOptionValue(NUMBER_OF_THREADS_OPTION));
+            if (Helper.NumberOfThreads < 1)
+            {
+                Helper.NumberOfThreads = Runtime.getRuntime().availableProcessors();
+            }
+        }
+        
+        if (commandLine.hasOption(NUMBER_OF_IO_THREADS_OPTION))
+        {
+            Helper.NumberOfIOThreads = Integer.parseInt(commandLine.getOptionValue(NUMBER_OF_IO_THREADS_OPTION));
+            if (Helper.NumberOfIOThreads < 1)
+            {
+                Helper.NumberOfIOThreads = Runtime.getRuntime().availableProcessors();
+            }
+        }
+        
+        if (commandLine.hasOption(DEADLINE_OPTION))
+        {
+            Helper.GlobalCancellationToken = new CancellationToken();
+            Helper.GlobalCancellationToken.cancelAfter(
+                    Long.parseLong(commandLine.getOptionValue(DEADLINE_OPTION)), TimeUnit.SECONDS);
+        }
         
         Properties statistics = new Properties();
         StopWatch stopWatch = new StopWatch();
+        StageCheckpoints stages = null;
+        
+        SolverContext.current().getProgress().register(new File(formulaFile).getName());
         
         try
         {
@@ -99,9 +157,9 @@ public class Program
             
             stopWatch.start("Load formula");
             ITabularFormula formula = Helper.loadFromFile(formulaFile);
-            long timeElapsed = stopWatch.stop();
+            stopWatch.stop();
             
-            statistics.put(Helper.INITIAL_FORMULA_LOAD_TIME, String.valueOf(timeElapsed));
+            putTime(statistics, Helper.INITIAL_FORMULA_LOAD_TIME, stopWatch);
             
             if (commandLine.hasOption(GENERATE_3SAT_OPTION))
             {
@@ -132,7 +190,7 @@ public class Program
                 stopWatch.stop();
                 stopWatch.printElapsed();
                 
-                findHSSRoute(commandLine, formulaFile, statistics, stopWatch, formula, null, null, hss, hssPath);
+                findHSSRoute(commandLine, formulaFile, statistics, stopWatch, formula, null, null, hss, hssPath + "-reduced");
                 
                 return;
             }
@@ -155,6 +213,14 @@ public class Program
             
             //  Find if formula is SAT
             
+            stages = new StageCheckpoints(formulaFile);
+            SolverPhase completedPhase = null;
+            if (commandLine.hasOption(RESUME_OPTION))
+            {
+                completedPhase = stages.getLastCompletedPhase();
+                LOGGER.info("Resume solve after {} from {}", completedPhase, stages.getDirectory());
+            }
+            
             //  Clone initial formula to verify formula satisfiability later
             ITabularFormula formulaClone = null;
             if (Helper.EnableAssertions)
@@ -165,58 +231,133 @@ public class Program
                 stopWatch.printElapsed();
             }
             
-            stopWatch.start("Create CTF");
-            ObjectArrayList ct = Helper.createCTF(formula);
-            timeElapsed = stopWatch.stop();
-            printFormulas(ct);
-            stopWatch.printElapsed();
-            
-            statistics.put(Helper.CTF_CREATION_TIME, String.valueOf(timeElapsed));
-            statistics.put(Helper.CTF_COUNT, String.valueOf(ct.size()));
-            
-            LOGGER.info("CTF count: {}", ct.size());
-
-            if (Helper.EnableAssertions)
-            {
-                assertNoTripletsLost(formula, ct);
-            }
-
+            ObjectArrayList ct = null;
             //  Clone CTF to verify formula satisfiability against it later
             ObjectArrayList ctfClone = null;
             
-            if (Helper.EnableAssertions)
+            if (completedPhase == null)
             {
-                ctfClone = Helper.cloneStructures(ct);
+                SolverContext.current().getProgress().phaseStarted(SolverPhase.CreateCTF);
+                stopWatch.start("Create CTF");
+                ct = Helper.createCTF(formula);
+                stopWatch.stop();
+                printFormulas(ct);
+                stopWatch.printElapsed();
+                
+                putTime(statistics, Helper.CTF_CREATION_TIME, stopWatch);
+                statistics.put(Helper.CTF_COUNT, String.valueOf(ct.size()));
+                
+                LOGGER.info("CTF count: {}", ct.size());
+                
+                if (Helper.EnableAssertions)
+                {
+                    assertNoTripletsLost(formula, ct);
+                    
+                    ctfClone = Helper.cloneStructures(ct);
+                }
+                
+                saveCheckpoint(stages, SolverPhase.CreateCTF, ct, stopWatch);
+            }
+            else if (completedPhase.compareTo(SolverPhase.CreateHSS) < 0)
+            {
+                stopWatch.start("Load " + completedPhase + " checkpoint");
+                ct = stages.loadStructures(completedPhase);
+                stopWatch.stop();
+                stopWatch.printElapsed();
             }
             
-            stopWatch.start("Create CTS");
-            Helper.completeToCTS(ct, formula.getPermutation());
-            timeElapsed = stopWatch.stop();
-            printFormulas(ct);
-            stopWatch.printElapsed();
-            
-            statistics.put(Helper.CTS_CREATION_TIME, String.valueOf(timeElapsed));
+            if (completedPhase == null || completedPhase == SolverPhase.CreateCTF)
+            {
+                SolverContext.current().getProgress().phaseStarted(SolverPhase.CreateCTS);
+                stopWatch.start("Create CTS");
+                Helper.completeToCTS(ct, formula.getPermutation());
+                stopWatch.stop();
+                printFormulas(ct);
+                stopWatch.printElapsed();
+                
+                putTime(statistics, Helper.CTS_CREATION_TIME, stopWatch);
+                
+                if (commandLine.hasOption(CREATE_SKT_OPTION))
+                {
+                    String sktFilename = formulaFile + ".skt";
+                    stopWatch.start("Convert CTS to " + sktFilename);
+                    Helper.convertCTStructuresToRomanovSKTFileFormat(ct, sktFilename);
+                    stopWatch.stop();
+                    stopWatch.printElapsed();
+                    
+                    return;
+                }
+                
+                saveCheckpoint(stages, SolverPhase.CreateCTS, ct, stopWatch);
+            }
             
-            if (commandLine.hasOption(CREATE_SKT_OPTION))
+            if (commandLine.hasOption(PORTFOLIO_OPTION) && ct != null)
             {
-                String sktFilename = formulaFile + ".skt";
-                stopWatch.start("Convert CTS to " + sktFilename);
-                Helper.convertCTStructuresToRomanovSKTFileFormat(ct, sktFilename);
+                int candidatesCount = Integer.parseInt(commandLine.getOptionValue(PORTFOLIO_OPTION));
+                
+                unifyCTS(statistics, stopWatch, ct);
+                
+                SolverContext.current().getProgress().phaseStarted(SolverPhase.FindHSSRoute);
+                stopWatch.start("Find HSS route using portfolio of " + candidatesCount + " basic structures");
+                PortfolioSolver.Result result = new PortfolioSolver(candidatesCount).solve(ct);
                 stopWatch.stop();
                 stopWatch.printElapsed();
                 
+                statistics.putAll(result.getStatistics());
+                statistics.put(Helper.BASIC_CTS_INDEX, String.valueOf(result.getBasicCTSIndex()));
+                putTime(statistics, Helper.SEARCH_HSS_ROUTE_TIME, stopWatch);
+                
+                writeHSSRoute(commandLine, formulaFile, statistics, stopWatch, formula, formulaClone, ctfClone, result.getRoute());
+                
+                stages.clear();
+                
                 return;
             }
             
-            ObjectArrayList hss = unifyAndCreateHSS(statistics, stopWatch, ct);
+            ObjectArrayList hss;
             
-            String hssPath = formulaFile + "-hss";
-            stopWatch.start("Save HSS to " + hssPath + "...");
-            Helper.saveHSS(hssPath, hss);
-            stopWatch.stop();
-            stopWatch.printElapsed();
+            if (completedPhase == SolverPhase.CreateHSS || completedPhase == SolverPhase.FindHSSRoute)
+            {
+                stopWatch.start("Load " + completedPhase + " checkpoint");
+                hss = stages.loadHSS(completedPhase);
+                stopWatch.stop();
+                stopWatch.printElapsed();
+            }
+            else
+            {
+                if (completedPhase != SolverPhase.Unify)
+                {
+                    unifyCTS(statistics, stopWatch, ct);
+                    
+                    saveCheckpoint(stages, SolverPhase.Unify, ct, stopWatch);
+                }
+                
+                ObjectArrayList partialHSS = null;
+                if (completedPhase == SolverPhase.Unify && stages.hasPartialHSS())
+                {
+                    stopWatch.start("Load partially built HSS");
+                    partialHSS = stages.loadPartialHSS();
+                    stopWatch.stop();
+                    stopWatch.printElapsed();
+                }
+                
+                hss = createHSS(statistics, stopWatch, ct, partialHSS, getTierCheckpointPolicy(commandLine, stages));
+                
+                stopWatch.start("Save " + SolverPhase.CreateHSS + " checkpoint");
+                stages.saveHSS(hss);
+                stopWatch.stop();
+                stopWatch.printElapsed();
+                
+                String hssPath = formulaFile + "-hss";
+                stopWatch.start("Save HSS to " + hssPath + "...");
+                Helper.saveHSS(hssPath, hss);
+                stopWatch.stop();
+                stopWatch.printElapsed();
+            }
+            
+            findHSSRoute(commandLine, formulaFile, statistics, stopWatch, formula, formulaClone, ctfClone, hss, stages.getReducedHSSPath());
             
-            findHSSRoute(commandLine, formulaFile, statistics, stopWatch, formula, formulaClone, ctfClone, hss, hssPath);
+            stages.clear();
         }
         catch (EmptyStructureException e)
         {
@@ -231,42 +372,121 @@ public class Program
             stopWatch.stop();
             stopWatch.printElapsed();
             
+            if (stages != null)
+            {
+                stages.clear();
+            }
+            
             System.out.println("Formula not satisfiable");
         }
+        catch (CancellationException e)
+        {
+            stopWatch.stop();
+            stopWatch.printElapsed();
+            
+            LOGGER.debug("Solve cancelled", e);
+            
+            //  Phase is null if the solve was cancelled before CTF creation
+            String phase = SolverContext.current().getProgress().getPhase();
+            if (phase != null)
+            {
+                statistics.put(Helper.CANCELLED_PHASE, phase);
+            }
+            
+            String resultsFilename = getResultsFilename(commandLine, formulaFile);
+            stopWatch.start("Saving current statictics of calculations to " + resultsFilename);
+            writeStatisticsToFile(resultsFilename, statistics, "Cancelled");
+            stopWatch.stop();
+            stopWatch.printElapsed();
+            
+            System.out.println("Deadline reached, solve cancelled" + (phase != null ? " during " + phase : ""));
+        }
         finally
         {
+            if (commandLine.hasOption(METRICS_JSON_OPTION))
+            {
+                writeMetrics(commandLine.getOptionValue(METRICS_JSON_OPTION));
+            }
+            
+            SolverContext.current().getProgress().unregister();
+            
             System.out.println("Program completed");
         }
     }
 
-    private static ObjectArrayList unifyAndCreateHSS(Properties statistics, StopWatch stopWatch, ObjectArrayList cts)
+    private static void unifyCTS(Properties statistics, StopWatch stopWatch, ObjectArrayList cts)
     {
-        long timeElapsed;
+        SolverContext.current().getProgress().phaseStarted(SolverPhase.Unify);
         stopWatch.start("Unify all CTS");
         Helper.unify(cts);
-        timeElapsed = stopWatch.stop();
+        stopWatch.stop();
         printFormulas(cts);
         stopWatch.printElapsed();
 
-        statistics.put(Helper.CTS_UNIFICATION_TIME, String.valueOf(timeElapsed));
+        putTime(statistics, Helper.CTS_UNIFICATION_TIME, stopWatch);
         
         LOGGER.info("CTF: {}", cts.size());
-        
+    }
+
+    /**
+     * Puts time of the last stage of <code>stopWatch</code> to statistics and records it to metrics.
+     * The stage is completed in solver progress.
+     */
+    private static void putTime(Properties statistics, String key, StopWatch stopWatch)
+    {
+        SolverContext.current().getProgress().phaseCompleted();
+        statistics.put(key, String.valueOf(TimeUnit.NANOSECONDS.toMillis(stopWatch.getElapsedNanos())));
+        SolverContext.current().getMetrics().timer(key).record(stopWatch.getElapsedNanos());
+    }
+    
+    private static void saveCheckpoint(StageCheckpoints stages, SolverPhase phase, ObjectArrayList cts, StopWatch stopWatch)
+            throws IOException
+    {
+        stopWatch.start("Save " + phase + " checkpoint");
+        stages.saveStructures(phase, cts);
+        stopWatch.stop();
+        stopWatch.printElapsed();
+    }
+    
+    private static TierCheckpointPolicy getTierCheckpointPolicy(CommandLine commandLine, StageCheckpoints stages)
+    {
+        int tiers = 0;
+        if (commandLine.hasOption(HSS_CHECKPOINT_TIERS_OPTION))
+        {
+            tiers = Integer.parseInt(commandLine.getOptionValue(HSS_CHECKPOINT_TIERS_OPTION));
+        }
+        long interval = 0;
+        if (commandLine.hasOption(HSS_CHECKPOINT_MINUTES_OPTION))
+        {
+            interval = TimeUnit.MINUTES.toMillis(Long.parseLong(commandLine.getOptionValue(HSS_CHECKPOINT_MINUTES_OPTION)));
+        }
+        return new TierCheckpointPolicy(stages.getPartialHSSPath(), tiers, interval);
+    }
+    
+    /**
+     * @param partialHSS Partially built HSS to continue with or <code>null</code>.
+     */
+    private static ObjectArrayList createHSS(Properties statistics, StopWatch stopWatch, ObjectArrayList cts, 
+            ObjectArrayList partialHSS, TierCheckpointPolicy checkpointPolicy)
+    {
         ObjectArrayList hss = null;
         try
         {
+            SolverContext.current().getProgress().phaseStarted(SolverPhase.CreateHSS);
             stopWatch.start("Create HSS");
-            hss = Helper.createHyperStructuresSystem(cts, statistics);
+            hss = partialHSS == null 
+                ? Helper.createHyperStructuresSystem(cts, statistics, checkpointPolicy)
+                : Helper.resumeHyperStructuresSystem(partialHSS, statistics, checkpointPolicy);
         }
         finally
         {
-            timeElapsed = stopWatch.stop();
+            stopWatch.stop();
             stopWatch.printElapsed();
             if (hss != null)
             {
                 statistics.put(Helper.BASIC_CTS_FINAL_CLAUSES_COUNT, String.valueOf(((IHyperStructure) hss.get(0)).getBasicCTS().getClausesCount()));
             }
-            statistics.put(Helper.HSS_CREATION_TIME, String.valueOf(timeElapsed));
+            putTime(statistics, Helper.HSS_CREATION_TIME, stopWatch);
         }
         return hss;
     }
@@ -274,19 +494,36 @@ public class Program
     private static void findHSSRoute(CommandLine commandLine, String formulaFile,
             Properties statistics, StopWatch stopWatch,
             ITabularFormula formula, ITabularFormula formulaClone,
-            ObjectArrayList ctfClone, ObjectArrayList hss, String hssPath)
+            ObjectArrayList ctfClone, ObjectArrayList hss, String reducedHSSPath)
             throws IOException
     {
-        long timeElapsed;
-        //  TODO Configure hssTempPath using CL options
-        String hssTempPath = hssPath + "-temp"; 
+        CheckpointPolicy checkpointPolicy = CheckpointPolicy.NONE;
+        if (commandLine.hasOption(CHECKPOINT_INTERVAL_OPTION) || commandLine.hasOption(DEADLINE_OPTION))
+        {
+            int interval = 0;
+            if (commandLine.hasOption(CHECKPOINT_INTERVAL_OPTION))
+            {
+                interval = Integer.parseInt(commandLine.getOptionValue(CHECKPOINT_INTERVAL_OPTION));
+            }
+            checkpointPolicy = new CheckpointPolicy(reducedHSSPath, interval, commandLine.hasOption(DEADLINE_OPTION));
+        }
+        SolverContext.current().getProgress().phaseStarted(SolverPhase.FindHSSRoute);
         stopWatch.start("Find HSS route");
-        ObjectArrayList route = Helper.findHSSRouteByReduce(hss, hssTempPath);
-        timeElapsed = stopWatch.stop();
+        ObjectArrayList route = Helper.findHSSRouteByReduce(hss, checkpointPolicy);
+        stopWatch.stop();
         stopWatch.printElapsed();
         
-        statistics.put(Helper.SEARCH_HSS_ROUTE_TIME, String.valueOf(timeElapsed));
+        putTime(statistics, Helper.SEARCH_HSS_ROUTE_TIME, stopWatch);
         
+        writeHSSRoute(commandLine, formulaFile, statistics, stopWatch, formula, formulaClone, ctfClone, route);
+    }
+
+    private static void writeHSSRoute(CommandLine commandLine, String formulaFile,
+            Properties statistics, StopWatch stopWatch,
+            ITabularFormula formula, ITabularFormula formulaClone,
+            ObjectArrayList ctfClone, ObjectArrayList route)
+            throws IOException
+    {
         if (Helper.EnableAssertions)
         {
             if (formulaClone != null)
@@ -355,14 +592,50 @@ public class Program
         return satisfiable;
     }
 
+    private static void writeMetrics(String metricsFile)
+    {
+        Writer out = null;
+        try
+        {
+            out = new OutputStreamWriter(new FileOutputStream(new File(metricsFile)), "UTF-8");
+            
+            SolverContext.current().getMetrics().writeJSON(out);
+        }
+        catch (IOException e)
+        {
+            LOGGER.warn("Error writing metrics to " + metricsFile, e);
+        }
+        finally
+        {
+            if (out != null)
+            {
+                try
+                {
+                    out.close();
+                }
+                catch (IOException e)
+                {
+                    LOGGER.warn("Error closing " + metricsFile, e);
+                }
+            }
+        }
+    }
+
     private static void writeUnsatToFile(String resultsFile, Properties statistics) throws IOException
+    {
+        writeStatisticsToFile(resultsFile, statistics, "Unsatisfiable");
+    }
+
+    private static void writeStatisticsToFile(String resultsFile, Properties statistics, String comment) throws IOException
     {
         OutputStream out = null;
         try
         {
             out = new FileOutputStream(new File(resultsFile));
             
-            statistics.store(out, "Unsatisfiable");
+            SolverContext.current().getMetrics().exportTo(statistics);
+            
+            statistics.store(out, comment);
         }
         finally
         {
@@ -380,18 +653,9 @@ public class Program
         {
             out = new FileOutputStream(new File(resultsFile));
             
-            IVertex vertex = null;
-            for (int i = 0; i < route.size(); i++)
-            {
-                vertex = (IVertex) route.get(i);
-                
-                writeToStatistics(formula, statistics, vertex.getPermutation().getAName(), vertex.getTripletValue().isNotA());
-            }
-            if (vertex != null)
-            {
-                writeToStatistics(formula, statistics, vertex.getPermutation().getBName(), vertex.getTripletValue().isNotB());
-                writeToStatistics(formula, statistics, vertex.getPermutation().getCName(), vertex.getTripletValue().isNotC());
-            }
+            Helper.putAssignment(statistics, formula, Sat3Solver.getAssignment(formula, route));
+            
+            SolverContext.current().getMetrics().exportTo(statistics);
             
             statistics.store(out, "Satisfiable. Variable values from HSS route");
         }
@@ -404,18 +668,6 @@ public class Program
         }
     }
 
-    private static void writeToStatistics(ITabularFormula formula, Properties statistics, int varName, boolean varValue)
-    {
-        String stringValue = String.valueOf(varValue);
-        statistics.put("_" + varName, stringValue);
-        
-        int originalVarName = formula.getOriginalVarName(varName);
-        if (originalVarName > 0)
-        {
-            statistics.put(String.valueOf(originalVarName), stringValue);
-        }
-    }
-
     private static String getResultsFilename(CommandLine commandLine, String formulaFile)
     {
         String resultsFile = formulaFile + "-results.txt";
@@ -427,6 +679,18 @@ public class Program
     }
 
     @SuppressWarnings("static-access")
+    private static AssertionLevel parseAssertionLevel(String level)
+    {
+        for (AssertionLevel value : AssertionLevel.values())
+        {
+            if (value.name().equalsIgnoreCase(level))
+            {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Unknown assertion level: " + level);
+    }
+
     private static Options getCommandLineOptions()
     {
         Options options = new Options();
@@ -446,6 +710,84 @@ public class Program
                                        .withDescription("Disables internal program self-check during execution. This may improve performance.")
                                        .create(DISABLE_ASSERTIONS_OPTION));
         
+        options.addOption(OptionBuilder.withLongOpt("assertion-level")
+                                       .hasArg()
+                                       .withArgName("level")
+                                       .withDescription("Level of internal program self-check: off, sampled, incremental or full." +
+                                                        "\nSampled and incremental levels only check the changed parts of structures." +
+                                                        "\nDefaults to full.")
+                                       .create(ASSERTION_LEVEL_OPTION));
+        
+        options.addOption(OptionBuilder.withLongOpt("threads")
+                                       .hasArg()
+                                       .withArgName("count")
+                                       .withDescription("Number of threads used to build HSS. Use 0 to run one thread per available processor." +
+                                                        "\nDefaults to 1.")
+                                       .create(NUMBER_OF_THREADS_OPTION));
+        
+        options.addOption(OptionBuilder.withLongOpt("io-threads")
+                                       .hasArg()
+                                       .withArgName("count")
+                                       .withDescription("Maximum number of threads used to load and save HSS substructures. " +
+                                                        "Use 0 to run one thread per available processor." +
+                                                        "\nDefaults to the number of available processors, but not more than 8.")
+                                       .create(NUMBER_OF_IO_THREADS_OPTION));
+        
+        options.addOption(OptionBuilder.withLongOpt("binary-hss")
+                                       .withDescription("If specified, HSS will be saved to a single binary file instead of " +
+                                                        "a directory with a file per substructure-vertex." +
+                                                        "\nHSS images are not saved in this mode.")
+                                       .create(BINARY_HSS_OPTION));
+        
+        options.addOption(OptionBuilder.withLongOpt("checkpoint-interval")
+                                       .hasArg()
+                                       .withArgName("count")
+                                       .withDescription("Save reduced HSS to disk after every <count> reductions of the basic graph." +
+                                                        "\nBy default reduced HSS is only kept in memory.")
+                                       .create(CHECKPOINT_INTERVAL_OPTION));
+        
+        options.addOption(OptionBuilder.withLongOpt("hss-checkpoint-tiers")
+                                       .hasArg()
+                                       .withArgName("count")
+                                       .withDescription("Save partially built HSS to disk after every <count> tiers, " +
+                                                        "use --resume to continue building HSS from the last saved tier.")
+                                       .create(HSS_CHECKPOINT_TIERS_OPTION));
+        
+        options.addOption(OptionBuilder.withLongOpt("hss-checkpoint-minutes")
+                                       .hasArg()
+                                       .withArgName("minutes")
+                                       .withDescription("Save partially built HSS to disk every <minutes>, " +
+                                                        "use --resume to continue building HSS from the last saved tier.")
+                                       .create(HSS_CHECKPOINT_MINUTES_OPTION));
+        
+        options.addOption(OptionBuilder.withLongOpt("speculative-reduction")
+                                       .withDescription("If specified, both bottom vertices are tried concurrently when reducing " +
+                                                        "a tier of the basic graph, and the first successful one is kept.")
+                                       .create(SPECULATIVE_REDUCTION_OPTION));
+        
+        options.addOption(OptionBuilder.withLongOpt("portfolio")
+                                       .hasArg()
+                                       .withArgName("count")
+                                       .withDescription("Build HSS concurrently for <count> structures with the fewest clauses " +
+                                                        "as the basic structure and use the first one that completes." +
+                                                        "\nHSS is not saved to disk in this mode.")
+                                       .create(PORTFOLIO_OPTION));
+        
+        options.addOption(OptionBuilder.withLongOpt("deadline")
+                                       .hasArg()
+                                       .withArgName("seconds")
+                                       .withDescription("Cancel the solve if it is not completed within <seconds>." +
+                                                        "\nIf cancelled while searching HSS route, reduced HSS is saved, " +
+                                                        "use --resume to continue the search." +
+                                                        "\nResults file of cancelled solve contains the phase it was cancelled in.")
+                                       .create(DEADLINE_OPTION));
+        
+        options.addOption(OptionBuilder.withLongOpt("resume")
+                                       .withDescription("Continue the solve from the last completed stage." +
+                                                        "\nOutput of every stage is saved to <input-file-name>-stages " +
+                                                        "until the formula is solved.")
+                                       .create(RESUME_OPTION));
+        
         options.addOption(OptionBuilder.withLongOpt("use-abc-var-names")
                                        .withDescription("If specified, program will use ABC names for variables " +
                                                         "(like 'a', 'b', ..., 'z' instead of 'x1', 'x2', etc.) during formula output." +
@@ -464,6 +806,13 @@ public class Program
                                        .withDescription("File name where results of calculation will be written (time measurements and satisfying set for SAT instances). Defaults to <input-file-name>-results.txt")
                                        .create(RESULTS_OUTPUT_FILE_OPTION));
         
+        options.addOption(OptionBuilder.withLongOpt("metrics-json")
+                                       .hasArg()
+                                       .withArgName("filename")
+                                       .withDescription("File name where metrics of the solve will be written in JSON format " +
+                                                        "(timers, counters and histograms, also written to the results file).")
+                                       .create(METRICS_JSON_OPTION));
+        
         options.addOption(OptionBuilder.withLongOpt("evaluate-formula")
                                        .hasArg()
                                        .withArgName("filename")
@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2010, 2011 AnjLab
+ * 
+ * This file is part of 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem 
+ * is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem
+ * is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.anjlab.sat3;
+
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import cern.colt.list.ObjectArrayList;
+
+/**
+ * <p>Entry point to use the solver as a library.</p>
+ * 
+ * <p>Every solve runs in the calling thread with its own {@link SolverContext}, so several 
+ * formulas may be solved concurrently. Nothing is written to disk.</p>
+ */
+public class Sat3Solver
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(Sat3Solver.class);
+    
+    public SolverResult solve(ITabularFormula formula, SolverOptions options)
+    {
+        return solve(formula, options, null, null);
+    }
+    
+    /**
+     * @param formula Formula to solve. Formula is not modified.
+     * @param options Options of the solve.
+     * @param listener Listener of the solve progress (optional).
+     * @param cancellationToken Token to cancel the solve from another thread (optional).
+     * @return Result of the solve. Status of the result is {@link SolverResult.Status#Cancelled} 
+     * if solve was cancelled with the token, deadline of the token was reached or the thread was interrupted, 
+     * and {@link SolverResult.Status#Error} if the solve failed with an internal error.
+     */
+    public SolverResult solve(ITabularFormula formula, SolverOptions options, 
+            ISolverListener listener, CancellationToken cancellationToken)
+    {
+        SolverContext context = new SolverContext(options, cancellationToken);
+        Properties statistics = context.getStatistics();
+        long[] phaseTimes = new long[SolverPhase.values().length];
+        SolverPhase phase = null;
+        
+        if (options.getProgressName() != null)
+        {
+            context.getProgress().register(options.getProgressName());
+        }
+        
+        SolverContext previous = context.enter();
+        try
+        {
+            statistics.put(Helper.INITIAL_FORMULA_VAR_COUNT, String.valueOf(formula.getVarCount()));
+            statistics.put(Helper.INITIAL_FORMULA_CLAUSES_COUNT, String.valueOf(formula.getClausesCount()));
+            
+            phase = SolverPhase.CreateCTF;
+            long start = phaseStarted(listener, phase);
+            ObjectArrayList cts = Helper.createCTF(formula);
+            phaseCompleted(listener, phase, start, phaseTimes, statistics, context.getMetrics());
+            
+            statistics.put(Helper.CTF_COUNT, String.valueOf(cts.size()));
+            
+            phase = SolverPhase.CreateCTS;
+            start = phaseStarted(listener, phase);
+            Helper.completeToCTS(cts, formula.getPermutation());
+            phaseCompleted(listener, phase, start, phaseTimes, statistics, context.getMetrics());
+            
+            phase = SolverPhase.Unify;
+            start = phaseStarted(listener, phase);
+            Helper.unify(cts);
+            phaseCompleted(listener, phase, start, phaseTimes, statistics, context.getMetrics());
+            
+            phase = SolverPhase.CreateHSS;
+            start = phaseStarted(listener, phase);
+            ObjectArrayList hss = Helper.createHyperStructuresSystem(cts, statistics);
+            phaseCompleted(listener, phase, start, phaseTimes, statistics, context.getMetrics());
+            
+            statistics.put(Helper.BASIC_CTS_FINAL_CLAUSES_COUNT, 
+                    String.valueOf(((IHyperStructure) hss.get(0)).getBasicCTS().getClausesCount()));
+            
+            phase = SolverPhase.FindHSSRoute;
+            start = phaseStarted(listener, phase);
+            ObjectArrayList route = Helper.findHSSRouteByReduce(hss, CheckpointPolicy.NONE);
+            phaseCompleted(listener, phase, start, phaseTimes, statistics, context.getMetrics());
+            
+            boolean[] assignment = getAssignment(formula, route);
+            
+            if (!evaluate(formula, assignment))
+            {
+                return error(phase, "HSS was built but formula is not satisfiable with values from HSS route", 
+                        phaseTimes, statistics);
+            }
+            
+            return new SolverResult(SolverResult.Status.Satisfiable, assignment, getOriginalAssignment(formula, assignment), 
+                    phaseTimes, statistics, null, null);
+        }
+        catch (EmptyStructureException e)
+        {
+            LOGGER.debug("One of the structures was built empty", e);
+            
+            return new SolverResult(SolverResult.Status.Unsatisfiable, null, phaseTimes, statistics);
+        }
+        catch (CancellationException e)
+        {
+            LOGGER.debug("Solve cancelled during " + phase, e);
+            
+            statistics.put(Helper.CANCELLED_PHASE, phase.name());
+            
+            return new SolverResult(SolverResult.Status.Cancelled, null, phaseTimes, statistics, phase);
+        }
+        catch (IOException e)
+        {
+            //  Never happens, HSS checkpoints are not saved
+            throw new IllegalStateException(e);
+        }
+        catch (AssertionError e)
+        {
+            //  Failed assertions of the algorithm and its theorems
+            LOGGER.warn("Solve failed during " + phase, e);
+            
+            return error(phase, e.getMessage(), phaseTimes, statistics);
+        }
+        finally
+        {
+            context.getMetrics().exportTo(statistics);
+            context.getProgress().unregister();
+            
+            SolverContext.exit(previous);
+            context.close();
+        }
+    }
+    
+    private static SolverResult error(SolverPhase phase, String message, long[] phaseTimes, Properties statistics)
+    {
+        message = phase + ": " + message;
+        
+        statistics.put(Helper.ERROR_MESSAGE, message);
+        
+        return new SolverResult(SolverResult.Status.Error, null, null, phaseTimes, statistics, null, message);
+    }
+    
+    private static long phaseStarted(ISolverListener listener, SolverPhase phase)
+    {
+        SolverContext.current().getProgress().phaseStarted(phase);
+        if (listener != null)
+        {
+            listener.phaseStarted(phase);
+        }
+        return System.nanoTime();
+    }
+    
+    private static void phaseCompleted(ISolverListener listener, SolverPhase phase, long start, 
+            long[] phaseTimes, Properties statistics, Metrics metrics)
+    {
+        long timeElapsed = TimeUnit.NANOSECONDS.toMillis(
+                metrics.timer(phase.getTimeStatisticsKey()).stop(start));
+        SolverContext.current().getProgress().phaseCompleted();
+        phaseTimes[phase.ordinal()] = timeElapsed;
+        statistics.put(phase.getTimeStatisticsKey(), String.valueOf(timeElapsed));
+        if (listener != null)
+        {
+            listener.phaseCompleted(phase, timeElapsed);
+        }
+    }
+    
+    /**
+     * @param route List of {@link IVertex}
+     * @return Values of variables from HSS route indexed by variable name.
+     */
+    static boolean[] getAssignment(ITabularFormula formula, ObjectArrayList route)
+    {
+        IPermutation varNames = formula.getPermutation();
+        int maxVarName = 0;
+        for (int i = 0; i < varNames.size(); i++)
+        {
+            maxVarName = Math.max(maxVarName, varNames.get(i));
+        }
+        
+        boolean[] assignment = new boolean[maxVarName + 1];
+        for (int i = 0; i < route.size(); i++)
+        {
+            IVertex vertex = (IVertex) route.get(i);
+            ITripletPermutation permutation = vertex.getPermutation();
+            ITripletValue value = vertex.getTripletValue();
+            
+            assignment[permutation.getAName()] = value.isNotA();
+            assignment[permutation.getBName()] = value.isNotB();
+            assignment[permutation.getCName()] = value.isNotC();
+        }
+        return assignment;
+    }
+    
+    /**
+     * @param assignment Values of variables indexed by variable name.
+     * @return Values of variables indexed by original variable name, see {@link ITabularFormula#getOriginalVarName(int)}.
+     */
+    static boolean[] getOriginalAssignment(ITabularFormula formula, boolean[] assignment)
+    {
+        int[] originalVarNames = new int[assignment.length];
+        int maxOriginalVarName = 0;
+        for (int varName = 1; varName < assignment.length; varName++)
+        {
+            if (formula.getPermutation().contains(varName))
+            {
+                originalVarNames[varName] = formula.getOriginalVarName(varName);
+                maxOriginalVarName = Math.max(maxOriginalVarName, originalVarNames[varName]);
+            }
+        }
+        
+        boolean[] originalAssignment = new boolean[maxOriginalVarName + 1];
+        for (int varName = 1; varName < assignment.length; varName++)
+        {
+            //  Variables added to convert k-SAT to 3-SAT have negative original names
+            if (originalVarNames[varName] > 0)
+            {
+                originalAssignment[originalVarNames[varName]] = assignment[varName];
+            }
+        }
+        return originalAssignment;
+    }
+    
+    static boolean evaluate(ITabularFormula formula, boolean[] assignment)
+    {
+        for (int j = 0; j < formula.getTiers().size(); j++)
+        {
+            ITier tier = formula.getTier(j);
+            for (ITripletValue value : tier)
+            {
+                if (!((assignment[tier.getAName()] ^ value.isNotA()) 
+                   || (assignment[tier.getBName()] ^ value.isNotB()) 
+                   || (assignment[tier.getCName()] ^ value.isNotC())))
+                {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
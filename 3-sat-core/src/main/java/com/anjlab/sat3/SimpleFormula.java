@@ -44,9 +44,12 @@ public final class SimpleFormula implements ICompactTripletsStructure, ICompactT
     private OpenLongObjectHashMap tiersHash3;
     private final IPermutation permutation;
     private OpenIntIntHashMap internalToOriginalMap;
+    //  Looked up once per formula created from scratch, clones share it with the original
+    private final Metrics.Counter clonesCounter;
 
     public SimpleFormula()
     {
+        clonesCounter = Metrics.structureClonesCounter();
         permutation = new SimplePermutation();
         tiers = new ObjectArrayList();
         tiersHash1 = new OpenIntObjectHashMap();
@@ -56,6 +59,7 @@ public final class SimpleFormula implements ICompactTripletsStructure, ICompactT
     
     public SimpleFormula(IPermutation permutation)
     {
+        this.clonesCounter = Metrics.structureClonesCounter();
         this.permutation = permutation;
         tiers = new ObjectArrayList();
         tiersHash3 = new OpenLongObjectHashMap();
@@ -71,6 +75,7 @@ public final class SimpleFormula implements ICompactTripletsStructure, ICompactT
      */
     private SimpleFormula(SimpleFormula formula, final boolean fillTiersHash3)
     {
+        this.clonesCounter = formula.clonesCounter;
         this.permutation = formula.permutation;
         int tiersCount = formula.tiers.size();
         
@@ -100,6 +105,7 @@ public final class SimpleFormula implements ICompactTripletsStructure, ICompactT
      */
     public SimpleFormula clone()
     {
+        clonesCounter.increment();
         return new SimpleFormula(this, false);
     }
     
@@ -217,11 +223,29 @@ public final class SimpleFormula implements ICompactTripletsStructure, ICompactT
         }
         
         sortTiers();
-        if (Helper.EnableAssertions)
+        if (Helper.isAssertionsEnabled())
         {
             assertTiersSorted();
         }
-        cleanup();
+        //  Complete tiers have pairs to any clause of their neighbours, 
+        //  so only the range of incomplete tiers needs cleanup
+        int from = -1;
+        int to = -1;
+        for (int i = 0; i < tiersCount; i++)
+        {
+            if (((ITier) tiers.get(i)).size() != 8)
+            {
+                if (from < 0)
+                {
+                    from = i;
+                }
+                to = i;
+            }
+        }
+        if (from >= 0)
+        {
+            cleanup(from, to);
+        }
         if (isEmpty())
         {
             throw new EmptyStructureException(this);
@@ -397,80 +421,45 @@ public final class SimpleFormula implements ICompactTripletsStructure, ICompactT
             throw new IllegalArgumentException("(from > to) || (from < 0) || (to > tiers.size() - 1), from: " + from + ", to: " + to);
         }
         
-        if (Helper.EnableAssertions)
+        if (Helper.isFullAssertions())
         {
             assertTiersSorted();
         }
         
-        int numberOfClausesRemoved = 0;
+        CleanupStatus status = internalCleanup(from, to);
         
-        int index;
-
-        index = from - 1;
-        while (index >= 0)
+        if (Helper.isFullAssertions())
         {
-            ITier tier = (ITier) tiers.get(index);
-            ITier bottom = (ITier) tiers.get(index + 1);
-            int size = tier.size();
-            tier.adjoinRight(bottom);
-            int removed = size - tier.size();
-            numberOfClausesRemoved += removed;
-            if (removed == 0)
-            {
-                //  Nothing removed
-                break;
-            }
-            else
+            SimpleFormula clone = this.clone();
+            clone.cleanup();
+            if (this.getClausesCount() != clone.getClausesCount())
             {
-                if (tier.isEmpty())
-                {
-                    clear();
-                    return CleanupStatus.ALL_REMOVED;
-                }
+                throw new AssertionError("Error in cleanup(from,to) implementation");
             }
-            index--;
         }
-        
-        int actualFrom = index + 1;
-        
-        index = to + 1;
-        while (index < tiers.size())
+        else if (Helper.isIncrementalAssertions() && !isEmpty())
         {
-            ITier top = (ITier) tiers.get(index - 1);
-            ITier tier = (ITier) tiers.get(index);
-            int size = tier.size();
-            tier.adjoinLeft(top);
-            int removed = size - tier.size();
-            numberOfClausesRemoved += removed;
-            if (removed == 0)
-            {
-                //  Nothing removed
-                break;
-            }
-            else
-            {
-                if (tier.isEmpty())
-                {
-                    clear();
-                    return CleanupStatus.ALL_REMOVED;
-                }
-            }
-            index++;
+            assertCleanRange(status.someClausesRemoved ? status.from : from, 
+                             status.someClausesRemoved ? status.to : to);
         }
         
-        int actualTo = index - 1;
-        
-        if (Helper.EnableAssertions)
+        return status;
+    }
+    
+    /**
+     * Checks that every clause of tiers <code>[from - 1, to + 1]</code> has pairs in both neighbour tiers.
+     */
+    private void assertCleanRange(int from, int to)
+    {
+        for (int i = Math.max(0, from - 1); i < Math.min(tiers.size() - 1, to + 1); i++)
         {
-            SimpleFormula clone = this.clone();
-            clone.cleanup();
-            if (this.getClausesCount() != clone.getClausesCount())
+            byte keys = SimpleTier.keysOf((ITier) tiers.get(i));
+            byte nextKeys = SimpleTier.keysOf((ITier) tiers.get(i + 1));
+            if (TierKernels.adjoinRight(keys, nextKeys) != keys || TierKernels.adjoinLeft(nextKeys, keys) != nextKeys)
             {
-                throw new AssertionError("Error in cleanup(from,to) implementation");
+                throw new AssertionError("Error in cleanup(from,to) implementation, tiers " + i + " and " + (i + 1) + " are not clean");
             }
         }
-        
-        return new CleanupStatus(numberOfClausesRemoved > 0, actualFrom, actualTo, numberOfClausesRemoved);
     }
     
     public boolean cleanup()
@@ -486,12 +475,12 @@ public final class SimpleFormula implements ICompactTripletsStructure, ICompactT
             return true;
         }
 
-        if (Helper.EnableAssertions)
+        if (Helper.isAssertionsEnabled())
         {
             assertTiersSorted();
         }
 
-        return internalCleanup();
+        return internalCleanup(0, tiers.size() - 1).someClausesRemoved;
     }
 
     private void assertTiersSorted()
@@ -502,53 +491,79 @@ public final class SimpleFormula implements ICompactTripletsStructure, ICompactT
         }
     }
 
-    private boolean internalCleanup()
-    {        
-        boolean someClausesRemoved = false;
-
+    /**
+     * Runs clearing procedure assuming that only tiers from the range <code>[from, to]</code> 
+     * were changed since the formula was clean. Clauses removed from the tier can only make clauses 
+     * of its neighbours unpaired, so propagation goes outward from the range and stops as soon as 
+     * some tier outside the range remains unchanged. Backward pass of adjoinRight followed by 
+     * forward pass of adjoinLeft is enough, because clauses removed during the backward pass 
+     * never were pairs to clauses of the next tier.
+     */
+    private CleanupStatus internalCleanup(int from, int to)
+    {
+        Object[] tiersElements = tiers.elements();
         int tiersSize = tiers.size();
-        int tiersSizeMinusOne = tiersSize - 1;
         
-        Object[] tiersElements = tiers.elements();
+        int numberOfClausesRemoved = 0;
         
-        for (int i = 0; i < tiersSize; i++)
+        int actualFrom = from;
+        
+        for (int index = to - 1; index >= 0; index--)
         {
-            ITier tier = (ITier) tiersElements[i];
+            ITier tier = (ITier) tiersElements[index];
             int size = tier.size();
-            if (i < tiersSizeMinusOne)
-            {
-                ITier nextTier = (ITier) tiersElements[i + 1];
-                tier.adjoinRight(nextTier);
-            }
-            if (i > 0)
+            tier.adjoinRight((ITier) tiersElements[index + 1]);
+            int removed = size - tier.size();
+            if (removed == 0)
             {
-                ITier prevTier = (ITier) tiersElements[i - 1];
-                tier.adjoinLeft(prevTier);
+                if (index < from)
+                {
+                    break;
+                }
+                continue;
             }
             if (tier.isEmpty())
             {
                 clear();
-                return true;
-            }
-            if (size != tier.size())
-            {
-                someClausesRemoved = true;
+                return CleanupStatus.ALL_REMOVED;
             }
+            numberOfClausesRemoved += removed;
+            actualFrom = Math.min(actualFrom, index);
         }
         
-        if (someClausesRemoved)
+        int actualTo = to;
+        
+        for (int index = from + 1; index < tiersSize; index++)
         {
-            internalCleanup();
+            ITier tier = (ITier) tiersElements[index];
+            int size = tier.size();
+            tier.adjoinLeft((ITier) tiersElements[index - 1]);
+            int removed = size - tier.size();
+            if (removed == 0)
+            {
+                if (index > to)
+                {
+                    break;
+                }
+                continue;
+            }
+            if (tier.isEmpty())
+            {
+                clear();
+                return CleanupStatus.ALL_REMOVED;
+            }
+            numberOfClausesRemoved += removed;
+            actualTo = Math.max(actualTo, index);
         }
         
-        return someClausesRemoved;
+        return new CleanupStatus(numberOfClausesRemoved > 0, actualFrom, actualTo, numberOfClausesRemoved);
     }
 
     public void union(ICompactTripletsStructure cts)
     {
         SimpleFormula other = (SimpleFormula) cts;
 
-        if (Helper.EnableAssertions)
+        if (Helper.isAssertionsEnabled())
         {
             assertSamePermutation(other);
         }
@@ -598,7 +613,7 @@ public final class SimpleFormula implements ICompactTripletsStructure, ICompactT
     {
         SimpleFormula other = (SimpleFormula) cts;
         
-        if (Helper.EnableAssertions)
+        if (Helper.isAssertionsEnabled())
         {
             assertSamePermutation(other);
         }
@@ -610,45 +625,37 @@ public final class SimpleFormula implements ICompactTripletsStructure, ICompactT
             return;
         }
         
-        //  XXX Test when implementation with partial cleanups be better 
-        //  than the full single cleanup. The value 100 in condition was taken 
-        //  based just on few runs.
+        int from = -1;
+        int to = -1;
         
-        if (permutation.size() > 100)
+        for (int i = 0; i < tiers.size(); i++)
         {
-            for (int i = 0; i < tiers.size(); i++)
+            SimpleTier tier = (SimpleTier) tiers.get(i);
+            
+            SimpleTier otherTier = (SimpleTier) other.tiers.get(i);
+            
+            if ((tier.keys_73516240 & otherTier.keys_73516240) != tier.keys_73516240)
             {
-                SimpleTier tier = (SimpleTier) tiers.get(i);
+                tier.intersect(otherTier);
                 
-                SimpleTier otherTier = (SimpleTier) other.tiers.get(i);
+                if (tier.isEmpty())
+                {
+                    clear();
+                    return;
+                }
                 
-                if (tier.keys_73516240 != otherTier.keys_73516240)
+                if (from < 0)
                 {
-                    tier.intersect(otherTier);
-                    
-                    //  Partial cleanup each time triplets get removed from tier
-                    cleanup(i, i);
-                    
-                    if (isEmpty())
-                    {
-                        break;
-                    }
+                    from = i;
                 }
+                to = i;
             }
         }
-        else
+        
+        //  Single partial cleanup of the range where triplets were removed
+        if (from >= 0)
         {
-            for (int i = 0; i < tiers.size(); i++)
-            {
-                ITier tier = (SimpleTier) tiers.get(i);
-                
-                ITier otherTier = (SimpleTier) other.tiers.get(i);
-                
-                tier.intersect(otherTier);
-            }
-            
-            //  Full single cleanup after all tiers been intersected
-            cleanup();
+            cleanup(from, to);
         }
     }
 
@@ -675,7 +682,7 @@ public final class SimpleFormula implements ICompactTripletsStructure, ICompactT
         
         int indexOf = permutation.indexOf(varName);
 
-        if (Helper.EnableAssertions)
+        if (Helper.isAssertionsEnabled())
         {
             if (value != Value.AllPlain && value != Value.AllNegative)
             {
@@ -754,7 +761,7 @@ public final class SimpleFormula implements ICompactTripletsStructure, ICompactT
         
         int indexOf = permutation.indexOf(varName);
         
-        if (Helper.EnableAssertions)
+        if (Helper.isAssertionsEnabled())
         {
             if (indexOf < 0)
             {
@@ -812,13 +819,18 @@ public final class SimpleFormula implements ICompactTripletsStructure, ICompactT
     }
     
     public boolean evaluate(Properties properties)
+    {
+        return evaluate(this, properties);
+    }
+    
+    static boolean evaluate(ITabularFormula formula, Properties properties)
     {
         boolean result = true;
-        for (int j = 0; j < getTiers().size(); j++)
+        for (int j = 0; j < formula.getTiers().size(); j++)
         {
-            for (ITripletValue tiplet : getTier(j))
+            for (ITripletValue tiplet : formula.getTier(j))
             {
-                ITripletPermutation permutation = getTier(j);
+                ITripletPermutation permutation = formula.getTier(j);
                 
                 boolean aValue = parseBoolean(String.valueOf(properties.get("_" + permutation.getAName())));
                 boolean bValue = parseBoolean(String.valueOf(properties.get("_" + permutation.getBName())));
@@ -840,13 +852,18 @@ public final class SimpleFormula implements ICompactTripletsStructure, ICompactT
     }
     
     public boolean evaluate(ObjectArrayList route)
+    {
+        return evaluate(this, route);
+    }
+    
+    static boolean evaluate(ITabularFormula formula, ObjectArrayList route)
     {
         boolean result = true;
-        for (int j = 0; j < getTiers().size(); j++)
+        for (int j = 0; j < formula.getTiers().size(); j++)
         {
-            for (ITripletValue tiplet : getTier(j))
+            for (ITripletValue tiplet : formula.getTier(j))
             {
-                ITripletPermutation permutation = getTier(j);
+                ITripletPermutation permutation = formula.getTier(j);
                 
                 boolean aValue = getValueFromRoute(route, permutation.getAName());
                 boolean bValue = getValueFromRoute(route, permutation.getBName());
@@ -867,7 +884,7 @@ public final class SimpleFormula implements ICompactTripletsStructure, ICompactT
         return result;
     }
 
-    private boolean getValueFromRoute(ObjectArrayList route, int varName)
+    private static boolean getValueFromRoute(ObjectArrayList route, int varName)
     {
         for (int i = 0; i < route.size(); i++)
         {
@@ -918,9 +935,14 @@ public final class SimpleFormula implements ICompactTripletsStructure, ICompactT
     
     public boolean containsAllValuesOf(ITier anotherTier)
     {
-        for (int i = 0; i < getTiers().size(); i++)
+        return containsAllValuesOf(this, anotherTier);
+    }
+    
+    static boolean containsAllValuesOf(ITabularFormula formula, ITier anotherTier)
+    {
+        for (int i = 0; i < formula.getTiers().size(); i++)
         {
-            ITier tier = getTier(i);
+            ITier tier = formula.getTier(i);
             if (tier.hasSameVariablesAs(anotherTier))
             {
                 int[] abc = new int[3];
@@ -944,7 +966,7 @@ public final class SimpleFormula implements ICompactTripletsStructure, ICompactT
     
     public boolean isElementary()
     {
-        if (Helper.EnableAssertions)
+        if (Helper.isAssertionsEnabled())
         {
             assertTiersSorted();
         }
@@ -976,6 +998,11 @@ public final class SimpleFormula implements ICompactTripletsStructure, ICompactT
     
     public int getOriginalVarName(int varName)
     {
+        if (internalToOriginalMap == null)
+        {
+            //  Formula was not read from file, so variables have their original names
+            return varName;
+        }
         int originalVarName = internalToOriginalMap.get(varName);
         if (originalVarName == 0)
         {
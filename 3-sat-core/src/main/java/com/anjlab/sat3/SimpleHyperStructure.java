@@ -40,6 +40,14 @@ public class SimpleHyperStructure implements IHyperStructure
         
         this.tiers = new ObjectArrayList();
     }
+    /**
+     * Replaces basic and other CTS, used to restore HSS from {@link HSSSnapshot}.
+     */
+    void setCTS(ICompactTripletsStructure basicCTS, ICompactTripletsStructure otherCTS)
+    {
+        this.basicCTS = basicCTS;
+        this.otherCTS = otherCTS;
+    }
     public ICompactTripletsStructure getBasicCTS()
     {
         return basicCTS;
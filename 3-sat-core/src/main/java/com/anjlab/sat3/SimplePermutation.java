@@ -75,7 +75,7 @@ public final class SimplePermutation implements IPermutation
     
     public void add(int varName)
     {
-        if (Helper.EnableAssertions)
+        if (Helper.isAssertionsEnabled())
         {
             assertNotContains(varName);
         }
@@ -103,7 +103,7 @@ public final class SimplePermutation implements IPermutation
      */
     public void add(int index, int varName)
     {
-        if (Helper.EnableAssertions)
+        if (Helper.isAssertionsEnabled())
         {
             assertNotContains(varName);
         }
@@ -39,6 +39,14 @@ public class SimpleTier extends SimpleTripletPermutation implements ITier
         return result;
     }
     
+    static SimpleTier createTier(int a, int b, int c, byte keys_73516240)
+    {
+        SimpleTier result = new SimpleTier(a, b, c);
+        result.keys_73516240 = keys_73516240;
+        result.updateSize();
+        return result;
+    }
+    
     public SimpleTier(int a, int b, int c)
     {
         super(a, b, c);
@@ -49,6 +57,12 @@ public class SimpleTier extends SimpleTripletPermutation implements ITier
         super(tier.getABC().clone(), tier.getCanonicalName(), tier.canonicalHashCode());
     }
     
+    void setKeys(byte keys_73516240)
+    {
+        this.keys_73516240 = keys_73516240;
+        updateSize();
+    }
+    
     public ITier clone()
     {
         SimpleTier tier = new SimpleTier(this);
@@ -138,13 +152,12 @@ public class SimpleTier extends SimpleTripletPermutation implements ITier
             return;
         }
         
-        int keys_oo51oooo = keys_73516240 & 0x30;
-        int keys_oooo62oo = keys_73516240 & 0x0C;
-        
-        keys_73516240 = (byte)
-                       ((keys_73516240 & 0xC3)
-                      | ((keys_oo51oooo >> 2) & 0x3F)
-                      | (keys_oooo62oo << 2));
+        keys_73516240 = swapAB(keys_73516240);
+    }
+    
+    static byte swapAB(byte keys_73516240)
+    {
+        return TierTables.SWAP_AB[keys_73516240 & 0xFF];
     }
     
     public void swapAC()
@@ -156,13 +169,12 @@ public class SimpleTier extends SimpleTripletPermutation implements ITier
             return;
         }
         
-        int keys_o3o1oooo = keys_73516240 & 0x50;
-        int keys_oooo6o4o = keys_73516240 & 0x0A;
-        
-        keys_73516240 = (byte)
-                       ((keys_73516240 & 0xA5)
-                      | ((keys_o3o1oooo >> 3) & 0x1F)
-                      | (keys_oooo6o4o << 3));
+        keys_73516240 = swapAC(keys_73516240);
+    }
+
+    static byte swapAC(byte keys_73516240)
+    {
+        return TierTables.SWAP_AC[keys_73516240 & 0xFF];
     }
 
     public void swapBC()
@@ -174,13 +186,12 @@ public class SimpleTier extends SimpleTripletPermutation implements ITier
             return;
         }
         
-        int keys_o3ooo2oo = keys_73516240 & 0x44;
-        int keys_oo5ooo4o = keys_73516240 & 0x22;
-        
-        keys_73516240 = (byte)
-                       ((keys_73516240 & 0x99)
-                      | ((keys_o3ooo2oo >> 1) & 0x7F)
-                      | (keys_oo5ooo4o << 1));
+        keys_73516240 = swapBC(keys_73516240);
+    }
+    
+    static byte swapBC(byte keys_73516240)
+    {
+        return TierTables.SWAP_BC[keys_73516240 & 0xFF];
     }
     
     public String toString()
@@ -227,17 +238,15 @@ public class SimpleTier extends SimpleTripletPermutation implements ITier
     
     public void adjoinRight(ITier tier)
     {
-        int tier_keys_73516240 = ((SimpleTier) tier).keys_73516240;
-        
-        int this_keys_o6o2o4o0 = (((tier_keys_73516240 >> 1) & 0x7F) | tier_keys_73516240) & 0x55;
-        int this_keys_7o3o5o1o = ((this_keys_o6o2o4o0 << 1));
-        
-        int this_keys_76325410 = (this_keys_o6o2o4o0 | this_keys_7o3o5o1o) & get_keys_76325410();
-        
-        keys_73516240 = get_keys_73516240_from(this_keys_76325410);
+        keys_73516240 = adjoinRight(keys_73516240, keysOf(tier));
         
         updateSize();
     }
+    
+    static byte adjoinRight(byte keys_73516240, byte tier_keys_73516240)
+    {
+        return (byte) (keys_73516240 & TierTables.ADJOIN_RIGHT_MASK[tier_keys_73516240 & 0xFF]);
+    }
 
 //    public void adjoinLeft(ITier tier)
 //    {
@@ -272,116 +281,59 @@ public class SimpleTier extends SimpleTripletPermutation implements ITier
     
     public void adjoinLeft(ITier tier)
     {
-        int tier_keys_76325410 = ((SimpleTier) tier).get_keys_76325410();
-        
-//        printBits(((SimpleTier) tier).keys_73516240);
-//        printBits(tier_keys_76325410);
-        
-        int this_keys_o3o1o2o0 = (((tier_keys_76325410 >> 1) & 0x7F) | tier_keys_76325410) & 0x55;
-        int this_keys_7o5o6o4o = ((this_keys_o3o1o2o0 << 1));
-        
-//        printBits(this_keys_o3o1o2o0);
-//        printBits(this_keys_7o5o6o4o);
-        
-//        printBits(keys_73516240);
-        
-        keys_73516240 = (byte)((this_keys_7o5o6o4o | this_keys_o3o1o2o0) & keys_73516240);
-        
-//        printBits(keys_73516240);
+        keys_73516240 = adjoinLeft(keys_73516240, keysOf(tier));
         
         updateSize();
     }
     
-    private void updateSize()
+    static byte adjoinLeft(byte keys_73516240, byte tier_keys_73516240)
     {
-        size = 0;
-        
-        int mask = 1;
-        for (int i = 0; i < 8; i++)
-        {
-            if ((keys_73516240 & mask) == mask)
-            {
-                size++;
-            }
-            mask <<= 1;
-        }
+        return (byte) (keys_73516240 & TierTables.ADJOIN_LEFT_MASK[tier_keys_73516240 & 0xFF]);
     }
-
-    private byte get_keys_73516240_from(int keys_76325410)
+    
+    /**
+     * @return Keys of the <code>tier</code>, which should be either {@link SimpleTier} or {@link PackedTier}.
+     */
+    static byte keysOf(ITier tier)
     {
-        int keys_7o3o5o1o = keys_76325410;
-        int keys_6o2o4o0o = keys_76325410 << 1;
-        
-        int keys_7351oooo = 0;
-        int keys_6240oooo = 0;
-        
-        int mask          = 0x80;
-        
-        for (int i = 0; i < 4; i++)
-        {
-            keys_7351oooo = (keys_7351oooo)
-                          | (keys_7o3o5o1o & mask);
-            
-            keys_6240oooo = (keys_6240oooo)
-                          | (keys_6o2o4o0o & mask);
-                          
-            keys_7o3o5o1o <<= 1;
-            keys_6o2o4o0o <<= 1;
-            mask          >>= 1;
-        }
-        
-        return (byte)(keys_7351oooo | ((keys_6240oooo >> 4) & 0x0F));
+        return tier instanceof SimpleTier
+             ? ((SimpleTier) tier).keys_73516240
+             : ((PackedTier) tier).getKeys();
     }
-
-    public boolean isEmpty()
+    
+    /**
+     * @return Hash code consistent with <code>equals()</code> of both {@link SimpleTier} and {@link PackedTier}.
+     */
+    static int hashCodeOf(ITier tier)
     {
-        return size == 0;
+        return 31 * Arrays.hashCode(tier.getABC()) + keysOf(tier);
     }
     
-    private int get_keys_76325410()
+    private void updateSize()
     {
-        int keys_7351oooo = (keys_73516240 & 0xF0);
-        int keys_o6420ooo = (keys_73516240 & 0x0F) << 3;
-        int mask          = 0x80;
-
-//        printBits(keys_73516240);
-
-        int keys_76325410 = 0;
-        
-        for (int i = 0; i < 8; i++)
-        {
-//            printBits(keys_7351oooo);
-//            printBits(keys_o6420ooo);
-
-            keys_76325410 = (keys_76325410)
-                          | (keys_7351oooo & (mask))
-                          | (keys_o6420ooo & (mask >>= 1));
-
-//            printBits(keys_76325410);
-
-            keys_7351oooo = (keys_7351oooo >> 1) & 0x7F;
-            keys_o6420ooo = (keys_o6420ooo >> 1) & 0x7F;
-            mask          >>= 1;
-        }
-        
-        return keys_76325410;
+        size = Integer.bitCount(keys_73516240 & 0xFF);
     }
 
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+    
     public void intersect(ITier tier)
     {
-        keys_73516240 = (byte)(keys_73516240 & ((SimpleTier)tier).keys_73516240);
+        keys_73516240 = (byte)(keys_73516240 & keysOf(tier));
         updateSize();
     }
     
     public void union(ITier tier)
     {
-        keys_73516240 = (byte)(keys_73516240 | ((SimpleTier)tier).keys_73516240);
+        keys_73516240 = (byte)(keys_73516240 | keysOf(tier));
         updateSize();
     }
     
     public void concretize(int varName, Value value)
     {
-        if (Helper.EnableAssertions)
+        if (Helper.isAssertionsEnabled())
         {
             if (value != Value.AllPlain && value != Value.AllNegative)
             {
@@ -391,19 +343,21 @@ public class SimpleTier extends SimpleTripletPermutation implements ITier
             }
         }
         
+        byte[] masks = TierTables.CONCRETIZE_MASKS[value == Value.AllPlain ? 0 : 1];
+        
         if (getAName() == varName)
         {
-            keys_73516240 = (byte)(value == Value.AllPlain ? keys_73516240 & 0x0F : keys_73516240 & 0xF0); 
+            keys_73516240 = (byte)(keys_73516240 & masks[0]); 
             updateSize();
         }
         else if (getBName() == varName)
         {
-            keys_73516240 = (byte)(value == Value.AllPlain ? keys_73516240 & 0x33 : keys_73516240 & 0xCC); 
+            keys_73516240 = (byte)(keys_73516240 & masks[1]); 
             updateSize();
         }
         else if (getCName() == varName)
         {
-            keys_73516240 = (byte)(value == Value.AllPlain ? keys_73516240 & 0x55 : keys_73516240 & 0xAA); 
+            keys_73516240 = (byte)(keys_73516240 & masks[2]); 
             updateSize();
         }
         else
@@ -415,35 +369,32 @@ public class SimpleTier extends SimpleTripletPermutation implements ITier
     
     public Value valueOfA()
     {
-        return size == 0 
-             ? Value.Mixed  //  empty tier 
-             : (byte)(keys_73516240 & 0x0F) == keys_73516240 
-                 ? Value.AllPlain 
-                 : (byte)(keys_73516240 & 0xF0) == keys_73516240 
-                     ? Value.AllNegative
-                     : Value.Mixed;
+        return valueOfA(keys_73516240);
     }
     
     public Value valueOfB()
     {
-        return size == 0 
-             ? Value.Mixed  //  empty tier 
-             : (byte)(keys_73516240 & 0x33) == keys_73516240 
-                 ? Value.AllPlain 
-                 : (byte)(keys_73516240 & 0xCC) == keys_73516240 
-                     ? Value.AllNegative
-                     : Value.Mixed;
+        return valueOfB(keys_73516240);
     }
     
     public Value valueOfC()
     {
-        return size == 0 
-             ? Value.Mixed  //  empty tier 
-             : (byte)(keys_73516240 & 0x55) == keys_73516240 
-                 ? Value.AllPlain 
-                 : (byte)(keys_73516240 & 0xAA) == keys_73516240 
-                     ? Value.AllNegative
-                     : Value.Mixed;
+        return valueOfC(keys_73516240);
+    }
+    
+    static Value valueOfA(byte keys_73516240)
+    {
+        return TierTables.VALUE_OF_A[keys_73516240 & 0xFF];
+    }
+    
+    static Value valueOfB(byte keys_73516240)
+    {
+        return TierTables.VALUE_OF_B[keys_73516240 & 0xFF];
+    }
+    
+    static Value valueOfC(byte keys_73516240)
+    {
+        return TierTables.VALUE_OF_C[keys_73516240 & 0xFF];
     }
     
     public void inverse()
@@ -454,16 +405,21 @@ public class SimpleTier extends SimpleTripletPermutation implements ITier
     
     public boolean equals(Object obj)
     {
-        if (!(obj instanceof SimpleTier))
+        if (!(obj instanceof SimpleTier || obj instanceof PackedTier))
         {
             return false;
         }
-        SimpleTier otherTier = (SimpleTier) obj;
+        ITier otherTier = (ITier) obj;
         if (!Arrays.equals(getABC(), otherTier.getABC()))
         {
             //  Permutation differs
             return false;
         }
-        return keys_73516240 == otherTier.keys_73516240;
+        return keys_73516240 == keysOf(otherTier);
+    }
+    
+    public int hashCode()
+    {
+        return hashCodeOf(this);
     }
 }
@@ -120,7 +120,7 @@ public class SimpleTripletPermutation implements ITripletPermutation
 
     public final void transposeTo(ITripletPermutation targetPermutation)
     {
-        if (Helper.EnableAssertions)
+        if (Helper.isAssertionsEnabled())
         {
             if (!hasSameVariablesAs(targetPermutation))
             {
@@ -135,7 +135,7 @@ public class SimpleTripletPermutation implements ITripletPermutation
 
     public final void transposeTo(int targetA, int targetB, int targetC)
     {
-        if (Helper.EnableAssertions)
+        if (Helper.isAssertionsEnabled())
         {
             if (!(hasVariable(targetA) && hasVariable(targetB) && hasVariable(targetC)))
             {
@@ -150,7 +150,7 @@ public class SimpleTripletPermutation implements ITripletPermutation
 
     public final void transposeTo(int[] targetABC)
     {
-        if (Helper.EnableAssertions)
+        if (Helper.isAssertionsEnabled())
         {
             if (targetABC.length != 3)
             {
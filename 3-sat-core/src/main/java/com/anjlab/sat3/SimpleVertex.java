@@ -83,6 +83,14 @@ public final class SimpleVertex implements IVertex
             bottom2Empty = true;
         }
     }
+    /**
+     * @return True if the edge was marked with {@link #foundEmptyEdge(EdgeKind)}, unlike 
+     * {@link #isBottom1Empty()} doesn't depend on tiers built below this vertex.
+     */
+    boolean isEmptyEdgeFound(EdgeKind edgeKind)
+    {
+        return edgeKind == EdgeKind.Bottom1 ? bottom1Empty : bottom2Empty;
+    }
     void setHyperStructure(IHyperStructure hyperStructure)
     {
         this.hyperStructure = hyperStructure;
@@ -0,0 +1,335 @@
+/*
+ * Copyright (c) 2010, 2011 AnjLab
+ * 
+ * This file is part of 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem 
+ * is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem
+ * is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.anjlab.sat3;
+
+import java.util.Properties;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>State of a single solve: options, cache of var pairs indices, statistics, metrics and progress.</p>
+ * 
+ * <p>Context is attached to the current thread with {@link #enter()}, so that several 
+ * formulas may be solved concurrently in one JVM each with its own context:</p>
+ * 
+ * <pre>
+ * SolverContext previous = context.enter();
+ * try
+ * {
+ *     ...
+ * }
+ * finally
+ * {
+ *     SolverContext.exit(previous);
+ *     context.close();
+ * }
+ * </pre>
+ * 
+ * <p>Worker threads of the solve enter the same context. Independent solves should never 
+ * share context, use {@link #fork()} to create a context for each of them.</p>
+ * 
+ * <p>Worker threads are started on demand and stopped with {@link #close()} when the solve ends.</p>
+ * 
+ * <p>Threads without attached context use the global context, which reads options from 
+ * static fields of {@link Helper} and keeps var pairs indices per thread.</p>
+ */
+public final class SolverContext
+{
+    private static final ThreadLocal<SolverContext> current = new ThreadLocal<SolverContext>();
+    
+    //  While no contexts attached to threads the global context 
+    //  may be returned without looking into the thread local
+    private static final AtomicInteger attachedCount = new AtomicInteger();
+    
+    private static final ThreadLocal<VarPairsIndexFactory> globalVarPairsIndexFactory = new ThreadLocal<VarPairsIndexFactory>()
+    {
+        protected VarPairsIndexFactory initialValue()
+        {
+            return new VarPairsIndexFactory();
+        }
+    };
+    
+    private static final SolverContext global = new SolverContext();
+    
+    private final SolverOptions options;
+    private final VarPairsIndexFactory varPairsIndexFactory;
+    private final Properties statistics;
+    private final Metrics metrics;
+    private final SolverProgress progress;
+    private final CancellationToken cancellationToken;
+    //  Shared with forked contexts
+    private final WorkerPool workerPool;
+    
+    private SolverContext()
+    {
+        this.options = null;
+        this.varPairsIndexFactory = null;
+        this.statistics = new Properties();
+        this.metrics = new Metrics();
+        this.progress = new SolverProgress();
+        this.cancellationToken = null;
+        this.workerPool = new WorkerPool();
+    }
+    
+    /**
+     * @param options Options of the solve. Context keeps its own copy of the options.
+     */
+    public SolverContext(SolverOptions options)
+    {
+        this(options, null);
+    }
+    
+    /**
+     * @param options Options of the solve. Context keeps its own copy of the options.
+     * @param cancellationToken Token to cancel the solve (optional).
+     */
+    public SolverContext(SolverOptions options, CancellationToken cancellationToken)
+    {
+        this(options, cancellationToken, new WorkerPool());
+    }
+    
+    private SolverContext(SolverOptions options, CancellationToken cancellationToken, WorkerPool workerPool)
+    {
+        this.options = options.copy();
+        this.varPairsIndexFactory = new VarPairsIndexFactory();
+        this.statistics = new Properties();
+        this.metrics = new Metrics();
+        this.progress = new SolverProgress();
+        this.cancellationToken = cancellationToken;
+        this.workerPool = workerPool;
+    }
+    
+    /**
+     * @return Context attached to the current thread or the global context.
+     */
+    public static SolverContext current()
+    {
+        if (attachedCount.get() == 0)
+        {
+            return global;
+        }
+        SolverContext context = current.get();
+        return context == null ? global : context;
+    }
+    
+    /**
+     * Attaches this context to the current thread.
+     * 
+     * @return Context that was attached to the current thread before, 
+     * it should be passed to {@link #exit(SolverContext)}.
+     */
+    public SolverContext enter()
+    {
+        SolverContext previous = current.get();
+        current.set(this);
+        if (previous == null)
+        {
+            attachedCount.incrementAndGet();
+        }
+        return previous;
+    }
+    
+    /**
+     * Restores context that was attached to the current thread before {@link #enter()}.
+     */
+    public static void exit(SolverContext previous)
+    {
+        if (previous == null)
+        {
+            if (current.get() != null)
+            {
+                current.remove();
+                attachedCount.decrementAndGet();
+            }
+        }
+        else
+        {
+            current.set(previous);
+        }
+    }
+    
+    /**
+     * @return New context with the same options, cancellation token and worker threads, but its own cache of 
+     * var pairs indices, statistics, metrics and progress, to run independent solve concurrently.
+     */
+    public SolverContext fork()
+    {
+        return new SolverContext(getOptions(), getCancellationToken(), workerPool);
+    }
+    
+    /**
+     * Stops worker threads of the solve. Contexts forked from this context share its worker threads, 
+     * their parallel operations are cancelled after this method is called.
+     * The global context is never closed, this method does nothing for it.
+     */
+    public void close()
+    {
+        if (options != null)
+        {
+            workerPool.shutdown();
+        }
+    }
+    
+    /**
+     * @return Pool of {@link #getNumberOfThreads()} worker threads of the solve, started on demand.
+     * @throws CancellationException If the context was closed.
+     */
+    ForkJoinPool getForkJoinPool()
+    {
+        return workerPool.get(getNumberOfThreads());
+    }
+    
+    /**
+     * @return Cancellation token of this context or <code>null</code>. 
+     * The global context uses {@link Helper#GlobalCancellationToken}.
+     */
+    public CancellationToken getCancellationToken()
+    {
+        return options == null ? Helper.GlobalCancellationToken : cancellationToken;
+    }
+    
+    /**
+     * @return True if the solve was cancelled with the cancellation token of this context 
+     * or its deadline was reached.
+     */
+    public boolean isCancelled()
+    {
+        CancellationToken token = getCancellationToken();
+        return token != null && token.isCancelled();
+    }
+    
+    public boolean isGlobal()
+    {
+        return options == null;
+    }
+    
+    /**
+     * @return Copy of options of this context.
+     */
+    public SolverOptions getOptions()
+    {
+        return options == null ? SolverOptions.fromGlobals() : options.copy();
+    }
+    
+    public AssertionLevel getAssertionLevel()
+    {
+        return options == null ? Helper.getGlobalAssertionLevel() : options.getAssertionLevel();
+    }
+    
+    public boolean isUsePrettyPrint()
+    {
+        return options == null ? Helper.UsePrettyPrint : options.isUsePrettyPrint();
+    }
+    
+    public boolean isUseUniversalVarNames()
+    {
+        return options == null ? Helper.UseUniversalVarNames : options.isUseUniversalVarNames();
+    }
+    
+    public boolean isUseBinaryHSSFormat()
+    {
+        return options == null ? Helper.UseBinaryHSSFormat : options.isUseBinaryHSSFormat();
+    }
+    
+    public boolean isUseSpeculativeReduction()
+    {
+        return options == null ? Helper.UseSpeculativeReduction : options.isUseSpeculativeReduction();
+    }
+    
+    public int getNumberOfThreads()
+    {
+        return options == null ? Helper.NumberOfThreads : options.getNumberOfThreads();
+    }
+    
+    public int getNumberOfIOThreads()
+    {
+        return options == null ? Helper.NumberOfIOThreads : options.getNumberOfIOThreads();
+    }
+    
+    public VarPairsIndexFactory getVarPairsIndexFactory()
+    {
+        return varPairsIndexFactory == null ? globalVarPairsIndexFactory.get() : varPairsIndexFactory;
+    }
+    
+    /**
+     * @return Statistics collected during the solve.
+     */
+    public Properties getStatistics()
+    {
+        return statistics;
+    }
+    
+    /**
+     * @return Metrics collected during the solve.
+     */
+    public Metrics getMetrics()
+    {
+        return metrics;
+    }
+    
+    /**
+     * @return Live progress of the solve.
+     */
+    public SolverProgress getProgress()
+    {
+        return progress;
+    }
+    
+    private static final class WorkerPool
+    {
+        private ForkJoinPool pool;
+        private boolean shutdown;
+        
+        public synchronized ForkJoinPool get(int parallelism)
+        {
+            if (shutdown)
+            {
+                throw new CancellationException("Solve has ended");
+            }
+            if (pool != null && pool.getParallelism() != parallelism)
+            {
+                //  Number of threads of the global context was changed, 
+                //  tasks already submitted to the pool complete before it terminates
+                pool.shutdown();
+                pool = null;
+            }
+            if (pool == null)
+            {
+                pool = new ForkJoinPool(parallelism);
+            }
+            return pool;
+        }
+        
+        public synchronized void shutdown()
+        {
+            shutdown = true;
+            if (pool != null)
+            {
+                pool.shutdown();
+                pool = null;
+            }
+        }
+    }
+}
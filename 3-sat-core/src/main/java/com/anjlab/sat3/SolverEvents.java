@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2010, 2011 AnjLab
+ * 
+ * This file is part of 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem 
+ * is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem
+ * is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.anjlab.sat3;
+
+/**
+ * <p>Java Flight Recorder events of the solver, see {@link Recorder}.</p>
+ * 
+ * <p>Each <code>begin*</code> method returns an event or <code>null</code> if JFR is not available 
+ * in this JVM or the event is disabled in the current recording, the event should then be passed 
+ * to the corresponding <code>commit*</code> method.</p>
+ * 
+ * <p>JFR events are implemented by <code>FlightRecorderEvents</code>, which is only compiled when 
+ * the build JDK has JFR (see <code>no-jfr</code> profile of the pom) and only loaded when JFR is 
+ * available at runtime, so the solver still builds and runs on JDKs without JFR.</p>
+ */
+final class SolverEvents
+{
+    /**
+     * Implementation of the events, methods are the same as of {@link SolverEvents}
+     * except that <code>begin*</code> methods are only called when JFR is available.
+     */
+    interface Recorder
+    {
+        Object beginPhase();
+        void commitPhase(Object event, SolverPhase phase);
+        Object beginHSSTier();
+        void commitHSSTier(Object event, int tierIndex, int tiersCount, int hyperStructuresCount, int dirtyTiersRemoved);
+        Object beginUnifyRound();
+        void commitUnifyRound(Object event, int round, int structuresCount, int pairsCount, int clausesRemoved);
+        Object beginConcordantShift();
+        void commitConcordantShift(Object event, int tierIndex, int vertexIndex, int verticesCount, int hyperStructuresCount);
+        Object beginReductionStep();
+        void commitReductionStep(Object event, int tierIndex, int hyperStructuresCount, boolean rolledBack);
+    }
+    
+    private static final Recorder RECORDER = createRecorder();
+    
+    private SolverEvents()
+    {
+    }
+    
+    private static Recorder createRecorder()
+    {
+        try
+        {
+            Class.forName("jdk.jfr.Event");
+            return (Recorder) Class.forName("com.anjlab.sat3.FlightRecorderEvents").getDeclaredConstructor().newInstance();
+        }
+        catch (ReflectiveOperationException e)
+        {
+            return null;
+        }
+        catch (LinkageError e)
+        {
+            return null;
+        }
+    }
+    
+    static boolean isAvailable()
+    {
+        return RECORDER != null;
+    }
+    
+    static Object beginPhase()
+    {
+        return RECORDER != null ? RECORDER.beginPhase() : null;
+    }
+    
+    static void commitPhase(Object event, SolverPhase phase)
+    {
+        if (event != null)
+        {
+            RECORDER.commitPhase(event, phase);
+        }
+    }
+    
+    static Object beginHSSTier()
+    {
+        return RECORDER != null ? RECORDER.beginHSSTier() : null;
+    }
+    
+    static void commitHSSTier(Object event, int tierIndex, int tiersCount, int hyperStructuresCount, int dirtyTiersRemoved)
+    {
+        if (event != null)
+        {
+            RECORDER.commitHSSTier(event, tierIndex, tiersCount, hyperStructuresCount, dirtyTiersRemoved);
+        }
+    }
+    
+    static Object beginUnifyRound()
+    {
+        return RECORDER != null ? RECORDER.beginUnifyRound() : null;
+    }
+    
+    static void commitUnifyRound(Object event, int round, int structuresCount, int pairsCount, int clausesRemoved)
+    {
+        if (event != null)
+        {
+            RECORDER.commitUnifyRound(event, round, structuresCount, pairsCount, clausesRemoved);
+        }
+    }
+    
+    static Object beginConcordantShift()
+    {
+        return RECORDER != null ? RECORDER.beginConcordantShift() : null;
+    }
+    
+    static void commitConcordantShift(Object event, int tierIndex, int vertexIndex, int verticesCount, int hyperStructuresCount)
+    {
+        if (event != null)
+        {
+            RECORDER.commitConcordantShift(event, tierIndex, vertexIndex, verticesCount, hyperStructuresCount);
+        }
+    }
+    
+    static Object beginReductionStep()
+    {
+        return RECORDER != null ? RECORDER.beginReductionStep() : null;
+    }
+    
+    static void commitReductionStep(Object event, int tierIndex, int hyperStructuresCount, boolean rolledBack)
+    {
+        if (event != null)
+        {
+            RECORDER.commitReductionStep(event, tierIndex, hyperStructuresCount, rolledBack);
+        }
+    }
+}
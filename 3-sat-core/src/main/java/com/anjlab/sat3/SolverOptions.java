@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2010, 2011 AnjLab
+ * 
+ * This file is part of 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem 
+ * is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem
+ * is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.anjlab.sat3;
+
+/**
+ * Options of a single solve, see {@link SolverContext}.
+ */
+public class SolverOptions
+{
+    /**
+     * Default maximum number of threads used to load and save hyperstructures of HSS saved to a directory.
+     */
+    public static final int DEFAULT_NUMBER_OF_IO_THREADS = Math.min(8, Runtime.getRuntime().availableProcessors());
+    
+    private AssertionLevel assertionLevel = AssertionLevel.Full;
+    private boolean usePrettyPrint = false;
+    private boolean useUniversalVarNames = true;
+    private boolean useBinaryHSSFormat = false;
+    private boolean useSpeculativeReduction = false;
+    private int numberOfThreads = 1;
+    private int numberOfIOThreads = DEFAULT_NUMBER_OF_IO_THREADS;
+    private String progressName;
+    
+    /**
+     * @return Options with values of the corresponding static fields of {@link Helper}.
+     */
+    public static SolverOptions fromGlobals()
+    {
+        SolverOptions options = new SolverOptions();
+        options.assertionLevel = Helper.getGlobalAssertionLevel();
+        options.usePrettyPrint = Helper.UsePrettyPrint;
+        options.useUniversalVarNames = Helper.UseUniversalVarNames;
+        options.useBinaryHSSFormat = Helper.UseBinaryHSSFormat;
+        options.useSpeculativeReduction = Helper.UseSpeculativeReduction;
+        options.numberOfThreads = Helper.NumberOfThreads;
+        options.numberOfIOThreads = Helper.NumberOfIOThreads;
+        return options;
+    }
+    
+    public SolverOptions copy()
+    {
+        SolverOptions copy = new SolverOptions();
+        copy.assertionLevel = assertionLevel;
+        copy.usePrettyPrint = usePrettyPrint;
+        copy.useUniversalVarNames = useUniversalVarNames;
+        copy.useBinaryHSSFormat = useBinaryHSSFormat;
+        copy.useSpeculativeReduction = useSpeculativeReduction;
+        copy.numberOfThreads = numberOfThreads;
+        copy.numberOfIOThreads = numberOfIOThreads;
+        copy.progressName = progressName;
+        return copy;
+    }
+    
+    public AssertionLevel getAssertionLevel()
+    {
+        return assertionLevel;
+    }
+    public SolverOptions setAssertionLevel(AssertionLevel assertionLevel)
+    {
+        this.assertionLevel = assertionLevel;
+        return this;
+    }
+    public boolean isUsePrettyPrint()
+    {
+        return usePrettyPrint;
+    }
+    public SolverOptions setUsePrettyPrint(boolean usePrettyPrint)
+    {
+        this.usePrettyPrint = usePrettyPrint;
+        return this;
+    }
+    public boolean isUseUniversalVarNames()
+    {
+        return useUniversalVarNames;
+    }
+    public SolverOptions setUseUniversalVarNames(boolean useUniversalVarNames)
+    {
+        this.useUniversalVarNames = useUniversalVarNames;
+        return this;
+    }
+    public boolean isUseBinaryHSSFormat()
+    {
+        return useBinaryHSSFormat;
+    }
+    public SolverOptions setUseBinaryHSSFormat(boolean useBinaryHSSFormat)
+    {
+        this.useBinaryHSSFormat = useBinaryHSSFormat;
+        return this;
+    }
+    public boolean isUseSpeculativeReduction()
+    {
+        return useSpeculativeReduction;
+    }
+    public SolverOptions setUseSpeculativeReduction(boolean useSpeculativeReduction)
+    {
+        this.useSpeculativeReduction = useSpeculativeReduction;
+        return this;
+    }
+    public int getNumberOfThreads()
+    {
+        return numberOfThreads;
+    }
+    /**
+     * @param numberOfThreads Number of threads used to process hyperstructures of HSS in parallel.
+     * Value of 1 means that all the work is done in the calling thread.
+     */
+    public SolverOptions setNumberOfThreads(int numberOfThreads)
+    {
+        if (numberOfThreads < 1)
+        {
+            throw new IllegalArgumentException("Number of threads should be > 0");
+        }
+        this.numberOfThreads = numberOfThreads;
+        return this;
+    }
+    public int getNumberOfIOThreads()
+    {
+        return numberOfIOThreads;
+    }
+    /**
+     * @param numberOfIOThreads Maximum number of threads used to load and save hyperstructures 
+     * of HSS saved to a directory, not limited by number of threads of the solve. 
+     * Value of 1 means that all the files are read and written in the calling thread.
+     */
+    public SolverOptions setNumberOfIOThreads(int numberOfIOThreads)
+    {
+        if (numberOfIOThreads < 1)
+        {
+            throw new IllegalArgumentException("Number of IO threads should be > 0");
+        }
+        this.numberOfIOThreads = numberOfIOThreads;
+        return this;
+    }
+    public String getProgressName()
+    {
+        return progressName;
+    }
+    /**
+     * @param progressName If not <code>null</code>, progress of the solve is registered 
+     * as JMX MBean with this name while solving, see {@link SolverProgress}.
+     */
+    public SolverOptions setProgressName(String progressName)
+    {
+        this.progressName = progressName;
+        return this;
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2010, 2011 AnjLab
+ * 
+ * This file is part of 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem 
+ * is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem
+ * is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.anjlab.sat3;
+
+/**
+ * Phases of the solve, see {@link Sat3Solver}.
+ */
+public enum SolverPhase
+{
+    CreateCTF(Helper.CTF_CREATION_TIME),
+    CreateCTS(Helper.CTS_CREATION_TIME),
+    Unify(Helper.CTS_UNIFICATION_TIME),
+    CreateHSS(Helper.HSS_CREATION_TIME),
+    FindHSSRoute(Helper.SEARCH_HSS_ROUTE_TIME);
+    
+    private final String timeStatisticsKey;
+    
+    private SolverPhase(String timeStatisticsKey)
+    {
+        this.timeStatisticsKey = timeStatisticsKey;
+    }
+    
+    /**
+     * @return Key of the phase time in solve statistics.
+     */
+    public String getTimeStatisticsKey()
+    {
+        return timeStatisticsKey;
+    }
+}
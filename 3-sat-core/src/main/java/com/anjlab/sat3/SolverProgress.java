@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2010, 2011 AnjLab
+ * 
+ * This file is part of 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem 
+ * is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem
+ * is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.anjlab.sat3;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import cern.colt.list.ObjectArrayList;
+import cern.colt.map.OpenIntObjectHashMap;
+
+/**
+ * <p>Live progress of a solve, see {@link SolverContext#getProgress()}.</p>
+ * 
+ * <p>Progress is updated by the solving thread once per phase and once per HSS tier, and may be 
+ * watched with jconsole or VisualVM when registered with {@link #register(String)}. Phases are 
+ * also recorded as JFR events, see {@link SolverEvents}.</p>
+ */
+public final class SolverProgress implements SolverProgressMBean
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(SolverProgress.class);
+    
+    //  Shallow sizes of SimpleFormula with its list and of SimpleTier with its arrays on 64-bit JVM 
+    //  with compressed oops, hash tables are not created for substructures
+    private static final long ESTIMATED_STRUCTURE_BYTES = 64;
+    private static final long ESTIMATED_TIER_BYTES = 116;
+    
+    private volatile SolverPhase phase;
+    private volatile long phaseStartNanos;
+    
+    private volatile int hssTiersBuilt;
+    private volatile int hssTiersCount;
+    private volatile int verticesInLastTier;
+    private volatile long verticesCount;
+    private volatile int hyperStructuresCount;
+    private volatile long substructuresHeapBytes;
+    private volatile long hssBuildNanos;
+    private volatile int hssTiersBuildCount;
+    private volatile boolean hssBuilding;
+    
+    private volatile long dirtyTierRollbacks;
+    
+    private volatile ObjectName objectName;
+    
+    //  JFR event of the current phase, only accessed by the solving thread
+    private Object phaseEvent;
+    
+    public void phaseStarted(SolverPhase phase)
+    {
+        phaseCompleted();
+        this.phase = phase;
+        this.phaseStartNanos = System.nanoTime();
+        this.phaseEvent = SolverEvents.beginPhase();
+    }
+    
+    /**
+     * Completes the current phase, if any.
+     */
+    public void phaseCompleted()
+    {
+        SolverEvents.commitPhase(phaseEvent, phase);
+        phaseEvent = null;
+    }
+    
+    void hssBuildStarted(int tiersCount)
+    {
+        hssTiersCount = tiersCount;
+        hssBuildNanos = 0;
+        hssTiersBuildCount = 0;
+        hssBuilding = true;
+    }
+    
+    void hssBuildCompleted()
+    {
+        hssBuilding = false;
+    }
+    
+    /**
+     * @param tiersBuilt Number of HSS tiers built including this one.
+     * @param elapsedNanos Time spent to build this tier.
+     * @param hss HSS being built.
+     */
+    void hssTierBuilt(int tiersBuilt, long elapsedNanos, ObjectArrayList hss)
+    {
+        hssTiersBuilt = tiersBuilt;
+        hssBuildNanos += elapsedNanos;
+        hssTiersBuildCount++;
+        
+        //  Single pass over vertices of HSS takes much less than building a tier
+        int verticesInLastTier = 0;
+        long verticesCount = 0;
+        long heapBytes = 0;
+        for (int h = 0; h < hss.size(); h++)
+        {
+            ObjectArrayList tiers = ((IHyperStructure) hss.get(h)).getTiers();
+            for (int t = 0; t < tiers.size(); t++)
+            {
+                ObjectArrayList vertices = ((OpenIntObjectHashMap) tiers.get(t)).values();
+                for (int v = 0; v < vertices.size(); v++)
+                {
+                    ICompactTripletsStructure structure = ((ICompactTripletsStructureHolder) vertices.get(v)).getCTS();
+                    heapBytes += ESTIMATED_STRUCTURE_BYTES + ESTIMATED_TIER_BYTES * structure.getTiers().size();
+                }
+                verticesCount += vertices.size();
+                if (h == 0 && t == tiers.size() - 1)
+                {
+                    verticesInLastTier = vertices.size();
+                }
+            }
+        }
+        this.verticesInLastTier = verticesInLastTier;
+        this.verticesCount = verticesCount;
+        this.substructuresHeapBytes = heapBytes;
+        this.hyperStructuresCount = hss.size();
+    }
+    
+    void hssTiersRolledBack(int tiersCount)
+    {
+        dirtyTierRollbacks += tiersCount;
+    }
+    
+    /**
+     * Registers this progress with the platform MBean server. Errors are logged, but never thrown, 
+     * as monitoring should not break the solve.
+     * 
+     * @param name Name of the solve, e.g. name of the formula file.
+     */
+    public void register(String name)
+    {
+        try
+        {
+            ObjectName objectName = new ObjectName("com.anjlab.sat3:type=SolverProgress,name=" + ObjectName.quote(name));
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName))
+            {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(this, objectName);
+            this.objectName = objectName;
+        }
+        catch (JMException e)
+        {
+            LOGGER.warn("Error registering solver progress MBean for " + name, e);
+        }
+    }
+    
+    public void unregister()
+    {
+        ObjectName objectName = this.objectName;
+        if (objectName == null)
+        {
+            return;
+        }
+        this.objectName = null;
+        try
+        {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        }
+        catch (JMException e)
+        {
+            LOGGER.warn("Error unregistering solver progress MBean " + objectName, e);
+        }
+    }
+    
+    public String getPhase()
+    {
+        SolverPhase phase = this.phase;
+        return phase == null ? null : phase.name();
+    }
+    
+    public long getPhaseElapsedSeconds()
+    {
+        return phase == null ? 0 : TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - phaseStartNanos);
+    }
+    
+    public int getHSSTiersBuilt()
+    {
+        return hssTiersBuilt;
+    }
+    
+    public int getHSSTiersCount()
+    {
+        return hssTiersCount;
+    }
+    
+    public int getVerticesInLastTier()
+    {
+        return verticesInLastTier;
+    }
+    
+    public long getVerticesCount()
+    {
+        return verticesCount;
+    }
+    
+    public int getHyperStructuresCount()
+    {
+        return hyperStructuresCount;
+    }
+    
+    public long getDirtyTierRollbacks()
+    {
+        return dirtyTierRollbacks;
+    }
+    
+    public long getSubstructuresHeapBytes()
+    {
+        return substructuresHeapBytes;
+    }
+    
+    public long getHSSEstimatedSecondsRemaining()
+    {
+        int tiersBuildCount = hssTiersBuildCount;
+        if (!hssBuilding || tiersBuildCount == 0)
+        {
+            return -1;
+        }
+        long meanTierNanos = hssBuildNanos / tiersBuildCount;
+        return TimeUnit.NANOSECONDS.toSeconds(meanTierNanos * Math.max(0, hssTiersCount - hssTiersBuilt));
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2010, 2011 AnjLab
+ * 
+ * This file is part of 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem 
+ * is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem
+ * is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.anjlab.sat3;
+
+/**
+ * Progress of a solve exposed via JMX, see {@link SolverProgress}.
+ */
+public interface SolverProgressMBean
+{
+    /**
+     * @return Name of the current phase or <code>null</code> if no phase started yet.
+     */
+    String getPhase();
+    
+    long getPhaseElapsedSeconds();
+    
+    /**
+     * @return Number of tiers of HSS built so far. HSS is also rebuilt while searching HSS route.
+     */
+    int getHSSTiersBuilt();
+    
+    /**
+     * @return Number of tiers of HSS being built, which is the number of tiers of the basic CTS.
+     */
+    int getHSSTiersCount();
+    
+    /**
+     * @return Number of vertices in the last built tier of HSS.
+     */
+    int getVerticesInLastTier();
+    
+    /**
+     * @return Number of vertices in all hyperstructures of HSS.
+     */
+    long getVerticesCount();
+    
+    int getHyperStructuresCount();
+    
+    /**
+     * @return Number of dirty tiers removed from HSS to rebuild them since the solve started.
+     */
+    long getDirtyTierRollbacks();
+    
+    /**
+     * @return Estimated heap used by substructures of HSS vertices.
+     */
+    long getSubstructuresHeapBytes();
+    
+    /**
+     * @return Estimated time to build the rest of HSS from the mean time of tiers built so far, 
+     * or -1 if HSS is not being built.
+     */
+    long getHSSEstimatedSecondsRemaining();
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2010, 2011 AnjLab
+ * 
+ * This file is part of 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem 
+ * is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem
+ * is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.anjlab.sat3;
+
+import java.util.Properties;
+
+/**
+ * Result of {@link Sat3Solver#solve(ITabularFormula, SolverOptions)}.
+ */
+public class SolverResult
+{
+    public enum Status
+    {
+        Satisfiable,
+        Unsatisfiable,
+        Cancelled,
+        /**
+         * Solve failed with an internal error, see {@link SolverResult#getErrorMessage()}.
+         */
+        Error
+    }
+    
+    private final Status status;
+    private final boolean[] assignment;
+    private final boolean[] originalAssignment;
+    private final long[] phaseTimes;
+    private final Properties statistics;
+    private final SolverPhase cancelledPhase;
+    private final String errorMessage;
+    
+    public SolverResult(Status status, boolean[] assignment, long[] phaseTimes, Properties statistics)
+    {
+        this(status, assignment, null, phaseTimes, statistics, null, null);
+    }
+    
+    public SolverResult(Status status, boolean[] assignment, long[] phaseTimes, Properties statistics, 
+            SolverPhase cancelledPhase)
+    {
+        this(status, assignment, null, phaseTimes, statistics, cancelledPhase, null);
+    }
+    
+    public SolverResult(Status status, boolean[] assignment, boolean[] originalAssignment, long[] phaseTimes, 
+            Properties statistics, SolverPhase cancelledPhase, String errorMessage)
+    {
+        this.status = status;
+        this.assignment = assignment;
+        this.originalAssignment = originalAssignment;
+        this.phaseTimes = phaseTimes;
+        this.statistics = statistics;
+        this.cancelledPhase = cancelledPhase;
+        this.errorMessage = errorMessage;
+    }
+    
+    public Status getStatus()
+    {
+        return status;
+    }
+    
+    public boolean isSatisfiable()
+    {
+        return status == Status.Satisfiable;
+    }
+    
+    /**
+     * @return Values of variables that satisfy the formula, indexed by variable name 
+     * (element <code>0</code> is not used), or <code>null</code> if formula is not satisfiable.
+     * Variables are named as in the formula, which may differ from the names in the file it was read from, 
+     * see {@link #getOriginalAssignment()}.
+     */
+    public boolean[] getAssignment()
+    {
+        return assignment;
+    }
+    
+    /**
+     * @return Values of variables that satisfy the formula, indexed by variable name in the file 
+     * the formula was read from (see {@link ITabularFormula#getOriginalVarName(int)}), 
+     * or <code>null</code> if formula is not satisfiable. Variables added by the reader 
+     * to convert k-SAT clauses to 3-SAT are not included.
+     */
+    public boolean[] getOriginalAssignment()
+    {
+        return originalAssignment;
+    }
+    
+    /**
+     * @return Phase that was running when the solve was cancelled, 
+     * or <code>null</code> if the solve was not cancelled.
+     */
+    public SolverPhase getCancelledPhase()
+    {
+        return cancelledPhase;
+    }
+    
+    /**
+     * @return Phase and description of the error if status is {@link Status#Error}, otherwise <code>null</code>.
+     */
+    public String getErrorMessage()
+    {
+        return errorMessage;
+    }
+    
+    /**
+     * @return Time of the phase in milliseconds, <code>0</code> if phase was not executed.
+     */
+    public long getPhaseTime(SolverPhase phase)
+    {
+        return phaseTimes[phase.ordinal()];
+    }
+    
+    /**
+     * @return Statistics collected during the solve. Keys are constants of {@link Helper}.
+     */
+    public Properties getStatistics()
+    {
+        return statistics;
+    }
+}
@@ -0,0 +1,353 @@
+/*
+ * Copyright (c) 2010, 2011 AnjLab
+ * 
+ * This file is part of 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem 
+ * is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem
+ * is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.anjlab.sat3;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import cern.colt.list.ObjectArrayList;
+
+/**
+ * <p>Persists output of every {@link SolverPhase} of a formula solve, so that the solve 
+ * may be resumed from the last completed phase after crash or cancellation.</p>
+ * 
+ * <p>Checkpoints are kept in <code>&lt;input-file-name&gt;-stages/&lt;hash&gt;</code> directory, 
+ * where <code>hash</code> is SHA-1 of the input file content, so checkpoints of a modified 
+ * formula are never used. Each checkpoint is written to a temporary file first and then renamed, 
+ * i.e. a checkpoint either exists and is complete, or doesn't exist at all.</p>
+ * 
+ * <p>Lists of structures (CTF, CTS, unified CTS) are saved in a binary format:</p>
+ * <pre>
+ * MAGIC VERSION structuresCount {
+ *     permutationSize varName[permutationSize]
+ *     tiersCount { aName bName cName keys_73516240:byte }
+ * }
+ * </pre>
+ * <p>HSS is saved in {@link BinaryHSSFile} format.</p>
+ */
+public final class StageCheckpoints
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(StageCheckpoints.class);
+    
+    private static final int MAGIC = 0x43545331;   //  "CTS1"
+    private static final int VERSION = 1;
+    
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    private final File directory;
+    
+    /**
+     * @param formulaFile Path to the input file of the solve.
+     */
+    public StageCheckpoints(String formulaFile) throws IOException
+    {
+        this.directory = new File(formulaFile + "-stages", contentHash(new File(formulaFile)));
+    }
+    
+    public File getDirectory()
+    {
+        return directory;
+    }
+    
+    /**
+     * @return Path to save HSS to during {@link SolverPhase#FindHSSRoute}, 
+     * see {@link CheckpointPolicy}.
+     */
+    public String getReducedHSSPath()
+    {
+        return getFile(SolverPhase.FindHSSRoute).getPath();
+    }
+    
+    /**
+     * @return Path to save partially built HSS to during {@link SolverPhase#CreateHSS}, 
+     * see {@link TierCheckpointPolicy}.
+     */
+    public String getPartialHSSPath()
+    {
+        return getPartialHSSFile().getPath();
+    }
+    
+    public boolean hasPartialHSS()
+    {
+        return getPartialHSSFile().exists();
+    }
+    
+    private File getPartialHSSFile()
+    {
+        return new File(directory, SolverPhase.CreateHSS.name() + "-partial.hss");
+    }
+    
+    /**
+     * @return The last phase whose output was saved or <code>null</code> if there are no checkpoints. 
+     * {@link SolverPhase#FindHSSRoute} means that HSS was saved during the route search.
+     */
+    public SolverPhase getLastCompletedPhase()
+    {
+        SolverPhase[] phases = SolverPhase.values();
+        for (int i = phases.length - 1; i >= 0; i--)
+        {
+            if (getFile(phases[i]).exists())
+            {
+                return phases[i];
+            }
+        }
+        return null;
+    }
+    
+    private File getFile(SolverPhase phase)
+    {
+        if (phase == SolverPhase.CreateHSS || phase == SolverPhase.FindHSSRoute)
+        {
+            return new File(directory, phase.name() + ".hss");
+        }
+        return new File(directory, phase.name() + ".cts");
+    }
+    
+    /**
+     * @param phase One of {@link SolverPhase#CreateCTF}, {@link SolverPhase#CreateCTS} or {@link SolverPhase#Unify}.
+     * @param structures List of {@link ITabularFormula}
+     */
+    public void saveStructures(SolverPhase phase, ObjectArrayList structures) throws IOException
+    {
+        File file = getFile(phase);
+        File tempFile = createTempFile(file);
+        
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile), BUFFER_SIZE));
+        try
+        {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(structures.size());
+            for (int s = 0; s < structures.size(); s++)
+            {
+                ITabularFormula formula = (ITabularFormula) structures.get(s);
+                
+                IPermutation permutation = formula.getPermutation();
+                int[] varNames = permutation.elements();
+                output.writeInt(permutation.size());
+                for (int i = 0; i < permutation.size(); i++)
+                {
+                    output.writeInt(varNames[i]);
+                }
+                
+                ObjectArrayList tiers = formula.getTiers();
+                output.writeInt(tiers.size());
+                for (int j = 0; j < tiers.size(); j++)
+                {
+                    ITier tier = (ITier) tiers.get(j);
+                    output.writeInt(tier.getAName());
+                    output.writeInt(tier.getBName());
+                    output.writeInt(tier.getCName());
+                    output.writeByte(SimpleTier.keysOf(tier));
+                }
+            }
+        }
+        finally
+        {
+            output.close();
+        }
+        
+        commit(tempFile, file);
+        
+        LOGGER.info("{} checkpoint saved to {}", phase, file);
+    }
+    
+    /**
+     * @return List of {@link ITabularFormula} saved with {@link #saveStructures(SolverPhase, ObjectArrayList)}.
+     */
+    public ObjectArrayList loadStructures(SolverPhase phase) throws IOException
+    {
+        File file = getFile(phase);
+        
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE));
+        try
+        {
+            if (input.readInt() != MAGIC)
+            {
+                throw new IOException(file + " is not a structures checkpoint file");
+            }
+            int version = input.readInt();
+            if (version != VERSION)
+            {
+                throw new IOException("Unsupported version of structures checkpoint file: " + version);
+            }
+            
+            int structuresCount = input.readInt();
+            ObjectArrayList structures = new ObjectArrayList(structuresCount);
+            for (int s = 0; s < structuresCount; s++)
+            {
+                int permutationSize = input.readInt();
+                IPermutation permutation = new SimplePermutation();
+                for (int i = 0; i < permutationSize; i++)
+                {
+                    permutation.add(input.readInt());
+                }
+                
+                SimpleFormula formula = new SimpleFormula(permutation);
+                int tiersCount = input.readInt();
+                for (int j = 0; j < tiersCount; j++)
+                {
+                    int a = input.readInt();
+                    int b = input.readInt();
+                    int c = input.readInt();
+                    formula.addTier(SimpleTier.createTier(a, b, c, input.readByte()));
+                }
+                structures.add(formula);
+            }
+            
+            LOGGER.info("{} checkpoint loaded from {}", phase, file);
+            
+            return structures;
+        }
+        finally
+        {
+            input.close();
+        }
+    }
+    
+    /**
+     * Saves output of {@link SolverPhase#CreateHSS}, partially built HSS is not needed after that.
+     */
+    public void saveHSS(ObjectArrayList hss) throws IOException
+    {
+        File file = getFile(SolverPhase.CreateHSS);
+        File tempFile = createTempFile(file);
+        
+        BinaryHSSFile.save(tempFile, hss);
+        
+        commit(tempFile, file);
+        
+        Helper.deleteHSS(getPartialHSSFile());
+        
+        LOGGER.info("{} checkpoint saved to {}", SolverPhase.CreateHSS, file);
+    }
+    
+    /**
+     * @param phase {@link SolverPhase#CreateHSS} or {@link SolverPhase#FindHSSRoute}.
+     * @see #loadPartialHSS()
+     */
+    public ObjectArrayList loadHSS(SolverPhase phase) throws IOException
+    {
+        return Helper.loadHSS(getFile(phase).getPath());
+    }
+    
+    public ObjectArrayList loadPartialHSS() throws IOException
+    {
+        return Helper.loadHSS(getPartialHSSPath());
+    }
+    
+    /**
+     * Deletes all checkpoints of the formula.
+     */
+    public void clear() throws IOException
+    {
+        for (SolverPhase phase : SolverPhase.values())
+        {
+            Helper.deleteHSS(getFile(phase));
+        }
+        Helper.deleteHSS(getPartialHSSFile());
+        if (directory.exists() && !directory.delete())
+        {
+            throw new IOException("Cannot delete " + directory);
+        }
+        File parent = directory.getParentFile();
+        String[] children = parent.list();
+        if (children != null && children.length == 0 && !parent.delete())
+        {
+            throw new IOException("Cannot delete " + parent);
+        }
+    }
+    
+    private File createTempFile(File file) throws IOException
+    {
+        if (!directory.exists() && !directory.mkdirs())
+        {
+            throw new IOException("Cannot create " + directory);
+        }
+        return new File(file.getPath() + ".tmp");
+    }
+    
+    /**
+     * Replaces <code>target</code> with <code>source</code>. Used to make checkpoints appear atomically.
+     */
+    static void commit(File source, File target) throws IOException
+    {
+        Helper.deleteHSS(target);
+        if (!source.renameTo(target))
+        {
+            throw new IOException("Cannot rename " + source + " to " + target);
+        }
+    }
+    
+    /**
+     * @return Hex SHA-1 hash of the file content.
+     */
+    static String contentHash(File file) throws IOException
+    {
+        MessageDigest digest;
+        try
+        {
+            digest = MessageDigest.getInstance("SHA-1");
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new IllegalStateException(e);
+        }
+        
+        InputStream input = new FileInputStream(file);
+        try
+        {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int count;
+            while ((count = input.read(buffer)) > 0)
+            {
+                digest.update(buffer, 0, count);
+            }
+        }
+        finally
+        {
+            input.close();
+        }
+        
+        StringBuilder builder = new StringBuilder();
+        for (byte b : digest.digest())
+        {
+            builder.append(Character.forDigit((b >> 4) & 0xF, 16));
+            builder.append(Character.forDigit(b & 0xF, 16));
+        }
+        return builder.toString();
+    }
+}
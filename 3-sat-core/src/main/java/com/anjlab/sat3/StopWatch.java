@@ -23,6 +23,8 @@
  */
 package com.anjlab.sat3;
 
+import java.util.concurrent.TimeUnit;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -40,17 +42,28 @@ public class StopWatch
         Helper.printLine('*', 70);
         LOGGER.info(comment + "...");
         this.comment = comment;
-        start = System.currentTimeMillis();
+        start = System.nanoTime();
     }
+    /**
+     * @return Milliseconds elapsed since {@link #start(String)}.
+     */
     public long stop()
     {
-        end = System.currentTimeMillis();
+        end = System.nanoTime();
         long delta = end - start;
         overall += delta;
-        return delta;
+        return TimeUnit.NANOSECONDS.toMillis(delta);
+    }
+    /**
+     * @return Nanoseconds elapsed between last {@link #start(String)} and {@link #stop()}.
+     */
+    public long getElapsedNanos()
+    {
+        return end - start;
     }
     public void printElapsed()
     {
-        LOGGER.info("{}: {}ms; overall: {}ms", new Object[] { comment, (end - start), overall });
+        LOGGER.info("{}: {}ms; overall: {}ms", new Object[] { comment, 
+                TimeUnit.NANOSECONDS.toMillis(end - start), TimeUnit.NANOSECONDS.toMillis(overall) });
     }
 }
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2010, 2011 AnjLab
+ * 
+ * This file is part of 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem 
+ * is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem
+ * is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.anjlab.sat3;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import cern.colt.list.ObjectArrayList;
+
+/**
+ * <p>Defines how often partially built HSS is saved to disk during 
+ * {@link Helper#createHyperStructuresSystem(ObjectArrayList, ICompactTripletsStructure, java.util.Properties, TierCheckpointPolicy)}.</p>
+ * 
+ * <p>HSS is saved in {@link BinaryHSSFile} format after a tier was built and there are no dirty tiers left, 
+ * building may be continued from the saved HSS with 
+ * {@link Helper#resumeHyperStructuresSystem(ObjectArrayList, java.util.Properties, TierCheckpointPolicy)}.</p>
+ */
+public final class TierCheckpointPolicy
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(TierCheckpointPolicy.class);
+    
+    /**
+     * Never save partially built HSS.
+     */
+    public static final TierCheckpointPolicy NONE = new TierCheckpointPolicy(null, 0, 0);
+    
+    private final String hssPath;
+    private final int tiersPerCheckpoint;
+    private final long checkpointInterval;
+    
+    private int tiersBuilt;
+    private long lastCheckpointTime = System.currentTimeMillis();
+    
+    /**
+     * @param hssPath Path to save HSS to.
+     * @param tiersPerCheckpoint HSS will be saved after every N-th built tier, <code>0</code> means never.
+     * @param checkpointInterval HSS will be saved if this number of milliseconds elapsed 
+     * since the previous checkpoint, <code>0</code> means never.
+     */
+    public TierCheckpointPolicy(String hssPath, int tiersPerCheckpoint, long checkpointInterval)
+    {
+        this.hssPath = hssPath;
+        this.tiersPerCheckpoint = tiersPerCheckpoint;
+        this.checkpointInterval = checkpointInterval;
+    }
+    
+    public String getHSSPath()
+    {
+        return hssPath;
+    }
+    
+    /**
+     * Called each time a tier of HSS was built and HSS contains no dirty tiers.
+     * 
+     * <p>Failure to save checkpoint is logged and doesn't interrupt building of HSS.</p>
+     */
+    public void tierBuilt(ObjectArrayList hss)
+    {
+        if (tiersPerCheckpoint <= 0 && checkpointInterval <= 0)
+        {
+            return;
+        }
+        
+        tiersBuilt++;
+        
+        long now = System.currentTimeMillis();
+        
+        if ((tiersPerCheckpoint > 0 && tiersBuilt % tiersPerCheckpoint == 0)
+            || (checkpointInterval > 0 && now - lastCheckpointTime >= checkpointInterval))
+        {
+            int tiersCount = ((IHyperStructure) hss.get(0)).getTiers().size();
+            
+            LOGGER.info("Checkpoint HSS with {} tiers built to {}", tiersCount, hssPath);
+            
+            try
+            {
+                File tempFile = new File(hssPath + ".tmp");
+                BinaryHSSFile.save(tempFile, hss);
+                StageCheckpoints.commit(tempFile, new File(hssPath));
+            }
+            catch (IOException e)
+            {
+                LOGGER.warn("Error saving HSS checkpoint to " + hssPath, e);
+            }
+            
+            lastCheckpointTime = now;
+        }
+    }
+
+}
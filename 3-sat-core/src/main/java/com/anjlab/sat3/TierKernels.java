@@ -0,0 +1,304 @@
+/*
+ * Copyright (c) 2010, 2011 AnjLab
+ * 
+ * This file is part of 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem 
+ * is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem
+ * is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.anjlab.sat3;
+
+/**
+ * <p>Word-parallel operations on packed tiers.</p>
+ * 
+ * <p>Keys of 8 consecutive tiers are packed into a single <code>long</code>: keys of the 
+ * j-th tier are stored in bits <code>8 * (j % 8) ... 8 * (j % 8) + 7</code> of the word 
+ * <code>j / 8</code>. Unused bytes of the last word are filled with <code>0xFF</code>,
+ * so they never look like empty tiers and never restrict their neighbours.</p>
+ * 
+ * <p>In keys_73516240 layout bit <code>4 * a + 2 * b + c</code> corresponds to the triplet 
+ * value <code>abc</code>, so tier value <code>abc</code> has a pair in the next tier if 
+ * any of values <code>bc0, bc1</code> present there, and it has a pair in the previous 
+ * tier if any of values <code>0ab, 1ab</code> present there. Both masks are computed 
+ * with shifts and per-byte masks, which allows to apply them to 8 tiers at once.</p>
+ * 
+ * <p>Clearing procedure adjoins whole words until nothing changes, starting from the words 
+ * of the changed tiers, see {@link #cleanup(long[], int, int[])}.</p>
+ */
+final class TierKernels
+{
+    private static final long LOW_BITS  = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+    
+    private static final long MASK_55 = 0x5555555555555555L;
+    private static final long MASK_33 = 0x3333333333333333L;
+    private static final long MASK_0F = 0x0F0F0F0F0F0F0F0FL;
+    
+    //  Results of intersect(...) and cleanup(...)
+    static final int NOTHING_REMOVED = 0;
+    static final int SOME_REMOVED = 1;
+    static final int EMPTY_TIER = 2;
+    
+    private TierKernels()
+    {
+    }
+    
+    static int wordsCount(int tiersCount)
+    {
+        return (tiersCount + 7) >>> 3;
+    }
+    
+    /**
+     * @return Mask of unused bytes of the last word.
+     */
+    static long tailMask(int tiersCount)
+    {
+        int usedBytes = tiersCount & 7;
+        return usedBytes == 0 ? 0 : -1L << (usedBytes << 3);
+    }
+    
+    static byte get(long[] words, int tierIndex)
+    {
+        return (byte) (words[tierIndex >>> 3] >>> ((tierIndex & 7) << 3));
+    }
+    
+    static void set(long[] words, int tierIndex, byte keys_73516240)
+    {
+        int shift = (tierIndex & 7) << 3;
+        int wordIndex = tierIndex >>> 3;
+        words[wordIndex] = (words[wordIndex] & ~(0xFFL << shift)) | ((keys_73516240 & 0xFFL) << shift);
+    }
+    
+    /**
+     * @return True if any byte of <code>word</code> is zero.
+     */
+    static boolean hasEmptyTier(long word)
+    {
+        return ((word - LOW_BITS) & ~word & HIGH_BITS) != 0;
+    }
+    
+    static boolean hasEmptyTier(long[] words, int wordsCount)
+    {
+        for (int i = 0; i < wordsCount; i++)
+        {
+            if (hasEmptyTier(words[i]))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * @param next Keys of the next tiers.
+     * @return Masks of the values that have pair in the next tiers.
+     */
+    static long adjoinRightMask(long next)
+    {
+        //  Bit (2 * bc) is set if any of bc0, bc1 present
+        long mask = (next | (next >>> 1)) & MASK_55;
+        //  Compress bits 0, 2, 4, 6 to 0, 1, 2, 3
+        mask = (mask | (mask >>> 1)) & MASK_33;
+        mask = (mask | (mask >>> 2)) & MASK_0F;
+        //  Values 0bc and 1bc have the same pairs
+        return mask | (mask << 4);
+    }
+    
+    /**
+     * @param prev Keys of the previous tiers.
+     * @return Masks of the values that have pair in the previous tiers.
+     */
+    static long adjoinLeftMask(long prev)
+    {
+        //  Bit (ab) is set if any of 0ab, 1ab present
+        long mask = (prev | (prev >>> 4)) & MASK_0F;
+        //  Spread bits 0, 1, 2, 3 to 0, 2, 4, 6
+        mask = (mask | (mask << 2)) & MASK_33;
+        mask = (mask | (mask << 1)) & MASK_55;
+        //  Values ab0 and ab1 have the same pairs
+        return mask | (mask << 1);
+    }
+    
+    static byte adjoinRight(byte keys_73516240, byte nextKeys)
+    {
+        return (byte) (keys_73516240 & TierTables.ADJOIN_RIGHT_MASK[nextKeys & 0xFF]);
+    }
+    
+    static byte adjoinLeft(byte keys_73516240, byte prevKeys)
+    {
+        return (byte) (keys_73516240 & TierTables.ADJOIN_LEFT_MASK[prevKeys & 0xFF]);
+    }
+    
+    /**
+     * Intersects <code>words</code> with <code>otherWords</code>.
+     * 
+     * @param range If some values were removed, range of tiers they were removed from is put here.
+     * @return {@link #EMPTY_TIER} if some tier became empty, {@link #SOME_REMOVED} if
+     * some values were removed, {@link #NOTHING_REMOVED} otherwise.
+     */
+    static int intersect(long[] words, long[] otherWords, int wordsCount, int[] range)
+    {
+        int result = NOTHING_REMOVED;
+        for (int i = 0; i < wordsCount; i++)
+        {
+            long word = words[i];
+            long intersection = word & otherWords[i];
+            if (intersection != word)
+            {
+                if (hasEmptyTier(intersection))
+                {
+                    return EMPTY_TIER;
+                }
+                words[i] = intersection;
+                
+                long removed = word ^ intersection;
+                if (result == NOTHING_REMOVED)
+                {
+                    range[0] = firstTierOf(i, removed);
+                }
+                range[1] = lastTierOf(i, removed);
+                result = SOME_REMOVED;
+            }
+        }
+        return result;
+    }
+    
+    private static int firstTierOf(int wordIndex, long bits)
+    {
+        return (wordIndex << 3) + (Long.numberOfTrailingZeros(bits) >>> 3);
+    }
+    
+    private static int lastTierOf(int wordIndex, long bits)
+    {
+        return (wordIndex << 3) + ((63 - Long.numberOfLeadingZeros(bits)) >>> 3);
+    }
+    
+    static void union(long[] words, long[] otherWords, int wordsCount)
+    {
+        for (int i = 0; i < wordsCount; i++)
+        {
+            words[i] |= otherWords[i];
+        }
+    }
+    
+    /**
+     * Adjoins every tier of the word <code>wordIndex</code> with both of its neighbours at once.
+     * 
+     * @return Keys of the tiers of the word, that have pairs in both neighbour tiers.
+     */
+    static long adjoin(long[] words, int wordIndex, int wordsCount, long tailMask)
+    {
+        long word = words[wordIndex];
+        
+        //  Previous tiers for the first tier and next tiers for the last tier 
+        //  should not restrict anything
+        long prevWord = wordIndex > 0 ? words[wordIndex - 1] : -1L;
+        long nextWord = wordIndex + 1 < wordsCount ? words[wordIndex + 1] : -1L;
+        
+        long next = (word >>> 8) | (nextWord << 56);
+        long prev = (word << 8) | (prevWord >>> 56);
+        
+        long adjoined = word & adjoinRightMask(next) & adjoinLeftMask(prev);
+        
+        return wordIndex == wordsCount - 1 ? adjoined | tailMask : adjoined;
+    }
+    
+    /**
+     * Runs clearing procedure on packed tiers until nothing can be removed.
+     * 
+     * @return {@link #EMPTY_TIER} if some tier became empty, {@link #SOME_REMOVED} if
+     * some values were removed, {@link #NOTHING_REMOVED} otherwise.
+     */
+    static int cleanup(long[] words, int tiersCount)
+    {
+        if (hasEmptyTier(words, wordsCount(tiersCount)))
+        {
+            return EMPTY_TIER;
+        }
+        
+        int numberOfValuesRemoved = cleanup(words, tiersCount, new int[] { 0, tiersCount - 1 });
+        
+        return numberOfValuesRemoved < 0 ? EMPTY_TIER 
+             : numberOfValuesRemoved > 0 ? SOME_REMOVED : NOTHING_REMOVED;
+    }
+    
+    /**
+     * Runs clearing procedure on packed tiers assuming that only tiers from the range 
+     * <code>[range[0], range[1]]</code> were changed since the tiers were clean.
+     * 
+     * <p>Only words of the changed tiers and their neighbours are adjoined, and words are adjoined 
+     * again only when their neighbours changed, so the work depends on the number of changed words 
+     * rather than on the number of tiers.</p>
+     * 
+     * @param range Range of the changed tiers, on return it's extended with the tiers changed by clearing.
+     * @return Number of values removed or <code>-1</code> if some tier became empty.
+     */
+    static int cleanup(long[] words, int tiersCount, int[] range)
+    {
+        int wordsCount = wordsCount(tiersCount);
+        long tailMask = tailMask(tiersCount);
+        
+        //  Words [wordIndex, lastWordIndex] should be adjoined, 
+        //  neighbours of the changed tiers may have lost their pairs
+        int wordIndex = Math.max(0, range[0] - 1) >>> 3;
+        int lastWordIndex = Math.min(tiersCount - 1, range[1] + 1) >>> 3;
+        
+        int numberOfValuesRemoved = 0;
+        
+        while (wordIndex <= lastWordIndex)
+        {
+            long word = words[wordIndex];
+            long adjoined = adjoin(words, wordIndex, wordsCount, tailMask);
+            
+            if (adjoined == word)
+            {
+                wordIndex++;
+                continue;
+            }
+            if (hasEmptyTier(adjoined))
+            {
+                return -1;
+            }
+            words[wordIndex] = adjoined;
+            
+            long removed = word ^ adjoined;
+            numberOfValuesRemoved += Long.bitCount(removed);
+            range[0] = Math.min(range[0], firstTierOf(wordIndex, removed));
+            range[1] = Math.max(range[1], lastTierOf(wordIndex, removed));
+            
+            //  Tiers of the word are adjoined at once, so the word itself should be adjoined again 
+            //  as well as its neighbours. All words after the previous one are still to be adjoined
+            lastWordIndex = Math.max(lastWordIndex, Math.min(wordIndex + 1, wordsCount - 1));
+            wordIndex = Math.max(0, wordIndex - 1);
+        }
+        
+        return numberOfValuesRemoved;
+    }
+    
+    static int clausesCount(long[] words, int tiersCount)
+    {
+        int wordsCount = wordsCount(tiersCount);
+        int clausesCount = 0;
+        for (int i = 0; i < wordsCount; i++)
+        {
+            clausesCount += Long.bitCount(words[i]);
+        }
+        //  Exclude unused bytes of the last word
+        return clausesCount - Long.bitCount(tailMask(tiersCount));
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2010, 2011 AnjLab
+ * 
+ * This file is part of 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem 
+ * is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem
+ * is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.anjlab.sat3;
+
+/**
+ * <p>Precomputed transition tables of the tier algebra.</p>
+ * 
+ * <p>Each table is indexed by unsigned tier keys in keys_73516240 layout and is generated 
+ * once from the bit-twiddling implementation (the <code>xxxBits</code> methods below), 
+ * which is kept as a reference for tests and benchmarks.</p>
+ * 
+ * <p>Adjoin operations only remove values, and whether a value is kept depends on the 
+ * neighbour tier alone, so instead of 256x256 result tables we store a 256-entry mask of 
+ * the values that have pair in the neighbour tier: 
+ * <code>adjoinRight(keys, next) == keys & ADJOIN_RIGHT_MASK[next]</code>.</p>
+ */
+final class TierTables
+{
+    static final byte[] SWAP_AB = new byte[256];
+    static final byte[] SWAP_AC = new byte[256];
+    static final byte[] SWAP_BC = new byte[256];
+    
+    static final byte[] ADJOIN_RIGHT_MASK = new byte[256];
+    static final byte[] ADJOIN_LEFT_MASK = new byte[256];
+    
+    static final Value[] VALUE_OF_A = new Value[256];
+    static final Value[] VALUE_OF_B = new Value[256];
+    static final Value[] VALUE_OF_C = new Value[256];
+    
+    /**
+     * Masks of values to keep after concretization of variable A, B or C (second index)
+     * to {@link Value#AllPlain} (first index 0) or {@link Value#AllNegative} (first index 1).
+     */
+    static final byte[][] CONCRETIZE_MASKS = { { 0x0F, 0x33, 0x55 }, 
+                                               { (byte) 0xF0, (byte) 0xCC, (byte) 0xAA } };
+    
+    static
+    {
+        for (int i = 0; i < 256; i++)
+        {
+            byte keys = (byte) i;
+            
+            SWAP_AB[i] = swapABBits(keys);
+            SWAP_AC[i] = swapACBits(keys);
+            SWAP_BC[i] = swapBCBits(keys);
+            
+            ADJOIN_RIGHT_MASK[i] = adjoinRightBits((byte) -1, keys);
+            ADJOIN_LEFT_MASK[i] = adjoinLeftBits((byte) -1, keys);
+            
+            VALUE_OF_A[i] = valueOfBits(keys, CONCRETIZE_MASKS[0][0], CONCRETIZE_MASKS[1][0]);
+            VALUE_OF_B[i] = valueOfBits(keys, CONCRETIZE_MASKS[0][1], CONCRETIZE_MASKS[1][1]);
+            VALUE_OF_C[i] = valueOfBits(keys, CONCRETIZE_MASKS[0][2], CONCRETIZE_MASKS[1][2]);
+        }
+    }
+    
+    private TierTables()
+    {
+    }
+    
+    static byte swapABBits(byte keys_73516240)
+    {
+        int keys_oo51oooo = keys_73516240 & 0x30;
+        int keys_oooo62oo = keys_73516240 & 0x0C;
+        
+        return (byte)
+              ((keys_73516240 & 0xC3)
+             | ((keys_oo51oooo >> 2) & 0x3F)
+             | (keys_oooo62oo << 2));
+    }
+    
+    static byte swapACBits(byte keys_73516240)
+    {
+        int keys_o3o1oooo = keys_73516240 & 0x50;
+        int keys_oooo6o4o = keys_73516240 & 0x0A;
+        
+        return (byte)
+              ((keys_73516240 & 0xA5)
+             | ((keys_o3o1oooo >> 3) & 0x1F)
+             | (keys_oooo6o4o << 3));
+    }
+    
+    static byte swapBCBits(byte keys_73516240)
+    {
+        int keys_o3ooo2oo = keys_73516240 & 0x44;
+        int keys_oo5ooo4o = keys_73516240 & 0x22;
+        
+        return (byte)
+              ((keys_73516240 & 0x99)
+             | ((keys_o3ooo2oo >> 1) & 0x7F)
+             | (keys_oo5ooo4o << 1));
+    }
+    
+    static byte adjoinRightBits(byte keys_73516240, byte tier_keys_73516240)
+    {
+        int this_keys_o6o2o4o0 = (((tier_keys_73516240 >> 1) & 0x7F) | tier_keys_73516240) & 0x55;
+        int this_keys_7o3o5o1o = ((this_keys_o6o2o4o0 << 1));
+        
+        int this_keys_76325410 = (this_keys_o6o2o4o0 | this_keys_7o3o5o1o) & get_keys_76325410(keys_73516240);
+        
+        return get_keys_73516240_from(this_keys_76325410);
+    }
+    
+    static byte adjoinLeftBits(byte keys_73516240, byte tier_keys_73516240)
+    {
+        int tier_keys_76325410 = get_keys_76325410(tier_keys_73516240);
+        
+        int this_keys_o3o1o2o0 = (((tier_keys_76325410 >> 1) & 0x7F) | tier_keys_76325410) & 0x55;
+        int this_keys_7o5o6o4o = ((this_keys_o3o1o2o0 << 1));
+        
+        return (byte)((this_keys_7o5o6o4o | this_keys_o3o1o2o0) & keys_73516240);
+    }
+    
+    static Value valueOfBits(byte keys_73516240, byte plainMask, byte negativeMask)
+    {
+        return keys_73516240 == 0 
+             ? Value.Mixed  //  empty tier 
+             : (byte)(keys_73516240 & plainMask) == keys_73516240 
+                 ? Value.AllPlain 
+                 : (byte)(keys_73516240 & negativeMask) == keys_73516240 
+                     ? Value.AllNegative
+                     : Value.Mixed;
+    }
+    
+    static int sizeBits(byte keys_73516240)
+    {
+        int size = 0;
+        
+        int mask = 1;
+        for (int i = 0; i < 8; i++)
+        {
+            if ((keys_73516240 & mask) == mask)
+            {
+                size++;
+            }
+            mask <<= 1;
+        }
+        
+        return size;
+    }
+    
+    private static byte get_keys_73516240_from(int keys_76325410)
+    {
+        int keys_7o3o5o1o = keys_76325410;
+        int keys_6o2o4o0o = keys_76325410 << 1;
+        
+        int keys_7351oooo = 0;
+        int keys_6240oooo = 0;
+        
+        int mask          = 0x80;
+        
+        for (int i = 0; i < 4; i++)
+        {
+            keys_7351oooo = (keys_7351oooo)
+                          | (keys_7o3o5o1o & mask);
+            
+            keys_6240oooo = (keys_6240oooo)
+                          | (keys_6o2o4o0o & mask);
+                          
+            keys_7o3o5o1o <<= 1;
+            keys_6o2o4o0o <<= 1;
+            mask          >>= 1;
+        }
+        
+        return (byte)(keys_7351oooo | ((keys_6240oooo >> 4) & 0x0F));
+    }
+    
+    private static int get_keys_76325410(byte keys_73516240)
+    {
+        int keys_7351oooo = (keys_73516240 & 0xF0);
+        int keys_o6420ooo = (keys_73516240 & 0x0F) << 3;
+        int mask          = 0x80;
+
+        int keys_76325410 = 0;
+        
+        for (int i = 0; i < 8; i++)
+        {
+            keys_76325410 = (keys_76325410)
+                          | (keys_7351oooo & (mask))
+                          | (keys_o6420ooo & (mask >>= 1));
+
+            keys_7351oooo = (keys_7351oooo >> 1) & 0x7F;
+            keys_o6420ooo = (keys_o6420ooo >> 1) & 0x7F;
+            mask          >>= 1;
+        }
+        
+        return keys_76325410;
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2010, 2011 AnjLab
+ * 
+ * This file is part of 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem 
+ * is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem
+ * is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.anjlab.sat3;
+
+import java.util.BitSet;
+
+import cern.colt.list.IntArrayList;
+import cern.colt.list.LongArrayList;
+import cern.colt.list.ObjectArrayList;
+import cern.colt.map.OpenLongObjectHashMap;
+
+import com.anjlab.sat3.VarPairsIndexFactory.VarPairsIndex;
+
+/**
+ * <p>Queue of pending unification work.</p>
+ * 
+ * <p>There are two kinds of events:</p>
+ * <ul>
+ * <li>pair of variables, which tiers should be adjoined again;</li>
+ * <li>variable of a CTS, which value should be checked again and 
+ *     concretized in all other CTS if it became fixed.</li>
+ * </ul>
+ * <p>When some tier of a CTS changes, only three pairs of the tier and three 
+ * variables of the tier in this CTS are queued. Each event is queued at most once 
+ * until it is taken from the queue.</p>
+ */
+final class UnificationWorklist
+{
+    private final VarPairsIndex index;
+    private final ObjectArrayList cts;
+    private final IPermutation variables;
+    private final int varCount;
+    
+    private final LongArrayList pairs = new LongArrayList();
+    private final OpenLongObjectHashMap queuedPairs = new OpenLongObjectHashMap();
+    
+    //  Encoded as formulaIndex * varCount + index of varName in variables
+    private final IntArrayList formulaVariables = new IntArrayList();
+    private final BitSet queuedFormulaVariables = new BitSet();
+    
+    /**
+     * @param index Full index of the <code>cts</code>.
+     * @param cts List of {@link ICompactTripletsStructureHolder}
+     */
+    public UnificationWorklist(VarPairsIndex index, ObjectArrayList cts)
+    {
+        this.index = index;
+        this.cts = cts;
+        this.variables = ((ICompactTripletsStructureHolder) cts.get(0)).getCTS().getPermutation();
+        this.varCount = variables.size();
+    }
+    
+    public boolean isEmpty()
+    {
+        return pairs.isEmpty() && formulaVariables.isEmpty();
+    }
+    
+    public void addAllPairs()
+    {
+        LongArrayList keys = index.pairs();
+        for (int i = 0; i < keys.size(); i++)
+        {
+            addPair(keys.getQuick(i));
+        }
+    }
+    
+    public void addAllVariables()
+    {
+        for (int formulaIndex = 0; formulaIndex < cts.size(); formulaIndex++)
+        {
+            for (int i = 0; i < varCount; i++)
+            {
+                addVariable(formulaIndex, variables.get(i));
+            }
+        }
+    }
+    
+    /**
+     * @param changedTiers List of formulaAndTierIndices (see {@link VarPairsIndex#addTier(int, int, int, int, ObjectArrayList)}).
+     */
+    public void addChangedTiers(LongArrayList changedTiers)
+    {
+        for (int i = 0; i < changedTiers.size(); i++)
+        {
+            long formulaAndTierIndex = changedTiers.getQuick(i);
+            int formulaIndex = (int)(formulaAndTierIndex >> 32);
+            int tierIndex = (int)(formulaAndTierIndex & 0x00000000FFFFFFFFL);
+            
+            ITier tier = ((ICompactTripletsStructureHolder) cts.getQuick(formulaIndex)).getCTS().getTier(tierIndex);
+            int[] abc = tier.getCanonicalName();
+            
+            addPair(VarPairsIndexFactory.getPairKey(abc[0], abc[1]));
+            addPair(VarPairsIndexFactory.getPairKey(abc[0], abc[2]));
+            addPair(VarPairsIndexFactory.getPairKey(abc[1], abc[2]));
+            
+            addVariable(formulaIndex, abc[0]);
+            addVariable(formulaIndex, abc[1]);
+            addVariable(formulaIndex, abc[2]);
+        }
+    }
+    
+    private void addPair(long key)
+    {
+        //  Pairs that were purged from the index don't link tiers of different CTS
+        if (!queuedPairs.containsKey(key) && index.getTiers(key) != null)
+        {
+            queuedPairs.put(key, Boolean.TRUE);
+            pairs.add(key);
+        }
+    }
+    
+    private void addVariable(int formulaIndex, int varName)
+    {
+        int code = formulaIndex * varCount + variables.indexOf(varName);
+        if (!queuedFormulaVariables.get(code))
+        {
+            queuedFormulaVariables.set(code);
+            formulaVariables.add(code);
+        }
+    }
+    
+    /**
+     * @return Keys of all queued pairs. Queue of pairs will be empty after this call.
+     */
+    public LongArrayList takePairs()
+    {
+        LongArrayList result = pairs.copy();
+        pairs.clear();
+        queuedPairs.clear();
+        return result;
+    }
+    
+    /**
+     * @return Codes of all queued variables. Queue of variables will be empty after this call.
+     * 
+     * @see #getFormulaIndex(int)
+     * @see #getVarName(int)
+     */
+    public IntArrayList takeVariables()
+    {
+        IntArrayList result = formulaVariables.copy();
+        formulaVariables.clear();
+        queuedFormulaVariables.clear();
+        return result;
+    }
+    
+    public int getFormulaIndex(int code)
+    {
+        return code / varCount;
+    }
+    
+    public int getVarName(int code)
+    {
+        return variables.get(code % varCount);
+    }
+}
@@ -36,13 +36,14 @@ public class VarPairsIndexFactory
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(VarPairsIndexFactory.class);
     
-    private static VarPairsIndexFactory instance = new VarPairsIndexFactory();
-    
     private OpenIntObjectHashMap indexCache = new OpenIntObjectHashMap();
     
+    /**
+     * @return Factory of the current {@link SolverContext}.
+     */
     public static VarPairsIndexFactory getInstance()
     {
-        return instance;
+        return SolverContext.current().getVarPairsIndexFactory();
     }
     
     public void clear()
@@ -50,6 +51,14 @@ public class VarPairsIndexFactory
         indexCache.clear();
     }
     
+    /**
+     * @return Key of the pair of variables in {@link VarPairsIndex}.
+     */
+    public static long getPairKey(int varName1, int varName2)
+    {
+        return varName1 < varName2 ? (long)varName1 << 21 | varName2 : (long)varName2 << 21 | varName1;
+    }
+    
     public class VarPairsIndex
     {
         private OpenLongObjectHashMap pairsToTiersIndex = new OpenLongObjectHashMap();
@@ -75,10 +84,10 @@ public class VarPairsIndexFactory
          */
         public void addTier(int varName1, int varName2, int formulaIndex, int tierIndex, ObjectArrayList cts)
         {
-            long key = varName1 < varName2 ? (long)varName1 << 21 | varName2 : (long)varName2 << 21 | varName1;
+            long key = getPairKey(varName1, varName2);
             long formulaAndTierIndices = (long)formulaIndex << 32 | (long)tierIndex;
             
-            if (Helper.EnableAssertions)
+            if (Helper.isAssertionsEnabled())
             {
                 int varName1_ = (int) (key >> 21);
                 int varName2_ = (int) (key & 0x1FFFFF);
@@ -100,7 +109,7 @@ public class VarPairsIndexFactory
             }
             else
             {
-                if (Helper.EnableAssertions)
+                if (Helper.isAssertionsEnabled())
                 {
                     ITier tier = ((ICompactTripletsStructureHolder) cts.get(formulaIndex)).getCTS().getTier(tierIndex);
                     if (!tier.hasVariable(varName1) || !tier.hasVariable(varName2))
@@ -196,11 +205,24 @@ public class VarPairsIndexFactory
         {
             return pairsToTiersIndex.keys();
         }
+        
+        public int pairsCount()
+        {
+            return pairsToTiersIndex.size();
+        }
 
         public LongArrayList getPairs(int varName)
         {
             return (LongArrayList) varNameToPairsIndex.get(varName);
         }
+        
+        /**
+         * @return List of formulaAndTierIndices of the pair or <code>null</code> if index doesn't contain the pair.
+         */
+        public LongArrayList getTiers(long pair)
+        {
+            return (LongArrayList) pairsToTiersIndex.get(pair);
+        }
 
         public void rebuildIndex(ObjectArrayList cts, ICompactTripletsStructureHolder formula, int fromTier, int toTier)
         {
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2010, 2011 AnjLab
+ * 
+ * This file is part of 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem 
+ * is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem
+ * is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.anjlab.sat3;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class TestFlightRecorderEvents
+{
+    @BeforeClass
+    public static void setup()
+    {
+        System.out.println(TestFlightRecorderEvents.class.getName());
+    }
+    
+    @Test
+    public void testSolveEvents() throws Exception
+    {
+        Assume.assumeTrue(SolverEvents.isAvailable());
+        
+        ITabularFormula formula = Helper.loadFromFile("target/test-classes/uf20-01000.cnf");
+        
+        File file = File.createTempFile("solve", ".jfr");
+        file.deleteOnExit();
+        
+        Recording recording = new Recording();
+        try
+        {
+            String[] names = new String[] { "Phase", "HSSTier", "UnifyRound", "ConcordantShift", "ReductionStep" };
+            for (String name : names)
+            {
+                recording.enable("com.anjlab.sat3." + name).withThreshold(null);
+            }
+            recording.start();
+            
+            SolverResult result = new Sat3Solver().solve(formula, new SolverOptions().setAssertionLevel(AssertionLevel.Off));
+            assertTrue(result.isSatisfiable());
+            
+            recording.stop();
+            recording.dump(file.toPath());
+        }
+        finally
+        {
+            recording.close();
+        }
+        
+        Map<String, Integer> counts = new HashMap<String, Integer>();
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file.toPath());
+        for (RecordedEvent event : events)
+        {
+            String name = event.getEventType().getName();
+            Integer count = counts.get(name);
+            counts.put(name, count == null ? 1 : count + 1);
+            
+            if (name.equals("com.anjlab.sat3.HSSTier"))
+            {
+                assertTrue(event.getInt("tierIndex") < event.getInt("tiersCount"));
+            }
+        }
+        
+        assertEquals(Integer.valueOf(SolverPhase.values().length), counts.get("com.anjlab.sat3.Phase"));
+        assertTrue(counts.get("com.anjlab.sat3.HSSTier") > 0);
+        assertTrue(counts.get("com.anjlab.sat3.UnifyRound") > 0);
+        assertTrue(counts.get("com.anjlab.sat3.ConcordantShift") > 0);
+    }
+}
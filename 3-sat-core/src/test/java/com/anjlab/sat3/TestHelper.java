@@ -33,12 +33,15 @@ import static com.anjlab.sat3.SimpleTripletValueFactory._110_instance;
 import static com.anjlab.sat3.SimpleTripletValueFactory._111_instance;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.Properties;
 import java.util.Random;
+import java.util.concurrent.CancellationException;
 
 import org.junit.Assert;
 import org.junit.BeforeClass;
@@ -261,6 +264,340 @@ public class TestHelper
         Helper.saveHSS(hssPath, hss);
         ObjectArrayList hss2 = Helper.loadHSS(hssPath);
         
+        assertHSSEqual(hss, hss2);
+    }
+    
+    @Test
+    public void testSaveLoadHSSInParallel() throws Exception
+    {
+        String filename = "target/test-classes/uf20-01000.cnf";
+        ITabularFormula formula = Helper.loadFromFile(filename);
+        ObjectArrayList hss = createHSS(formula);
+        assertTrue(hss.size() > 1);
+        
+        String hssPath = "target/" + new File(filename).getName() + "-hss-parallel";
+        
+        SolverContext previous = new SolverContext(new SolverOptions().setNumberOfIOThreads(4)).enter();
+        try
+        {
+            Helper.saveHSS(hssPath, hss, false);
+            assertHSSEqual(hss, Helper.loadHSS(hssPath));
+        }
+        finally
+        {
+            SolverContext.exit(previous);
+        }
+        
+        previous = new SolverContext(new SolverOptions().setNumberOfIOThreads(1)).enter();
+        try
+        {
+            assertHSSEqual(hss, Helper.loadHSS(hssPath));
+        }
+        finally
+        {
+            SolverContext.exit(previous);
+        }
+    }
+    
+    @Test
+    public void testSaveLoadBinaryHSS() throws Exception
+    {
+        String filename = "target/test-classes/uf20-01000.cnf";
+        ITabularFormula formula = Helper.loadFromFile(filename);
+        ObjectArrayList hss = createHSS(formula);
+        
+        //  Binary file replaces directory and vice versa
+        String hssPath = "target/" + new File(filename).getName() + "-hss";
+        Helper.saveHSS(hssPath, hss, false);
+        Helper.saveHSS(hssPath, hss, true);
+        assertTrue(new File(hssPath).isFile());
+        
+        ObjectArrayList hss2 = Helper.loadHSS(hssPath);
+        
+        assertHSSEqual(hss, hss2);
+        
+        for (int h = 0; h < hss.size(); h++)
+        {
+            IHyperStructure hs = (IHyperStructure) hss.get(h);
+            IHyperStructure hs2 = (IHyperStructure) hss2.get(h);
+            assertEquals(hs.getBasicCTS().getTiers(), hs2.getBasicCTS().getTiers());
+            assertEquals(hs.getOtherCTS().getTiers(), hs2.getOtherCTS().getTiers());
+        }
+        
+        Helper.saveHSS(hssPath, hss2, false);
+        assertTrue(new File(hssPath).isDirectory());
+        assertHSSEqual(hss, Helper.loadHSS(hssPath));
+    }
+    
+    @Test
+    public void testHSSSnapshotRestore() throws Exception
+    {
+        String filename = "target/test-classes/uf20-01000.cnf";
+        ITabularFormula formula = Helper.loadFromFile(filename);
+        ObjectArrayList hss = createHSS(formula);
+        
+        IHyperStructure hs = (IHyperStructure) hss.get(0);
+        ITabularFormula basicCTS = hs.getBasicCTS().clone();
+        ITabularFormula otherCTS = hs.getOtherCTS().clone();
+        
+        HSSSnapshot snapshot = HSSSnapshot.take(hss);
+        
+        for (int i = 0; i < 2; i++)
+        {
+            ITier tier = hs.getBasicCTS().getTier(0);
+            tier.intersect(tier.iterator().next());
+            hs.getOtherCTS().getTier(0).intersect(_000_instance);
+            
+            ObjectArrayList hss2 = snapshot.restore();
+            
+            assertHSSEqual(hss, hss2);
+            assertSame(hs, hss2.get(0));
+            assertEquals(basicCTS.getTiers(), hs.getBasicCTS().getTiers());
+            assertEquals(otherCTS.getTiers(), hs.getOtherCTS().getTiers());
+        }
+    }
+    
+    @Test
+    public void testFindHSSRouteWithCheckpoints() throws Exception
+    {
+        String filename = "target/test-classes/uf20-01000.cnf";
+        ITabularFormula formula = Helper.loadFromFile(filename);
+        ObjectArrayList hss = createHSS(formula);
+        
+        String hssPath = "target/" + new File(filename).getName() + "-hss-reduced";
+        ObjectArrayList route = Helper.findHSSRouteByReduce(hss, new CheckpointPolicy(hssPath, 1));
+        
+        assertTrue(Helper.loadFromFile(filename).evaluate(route));
+    }
+    
+    @Test
+    public void testFindHSSRouteSavesHSSOnCancel() throws Exception
+    {
+        String filename = "target/test-classes/uf20-01000.cnf";
+        ITabularFormula formula = Helper.loadFromFile(filename);
+        ObjectArrayList hss = createHSS(formula);
+        ObjectArrayList expected = HSSSnapshot.take(hss).restore();
+        
+        String hssPath = "target/" + new File(filename).getName() + "-hss-cancelled";
+        
+        CancellationToken cancellationToken = new CancellationToken();
+        cancellationToken.cancel();
+        
+        SolverContext previous = new SolverContext(new SolverOptions(), cancellationToken).enter();
+        try
+        {
+            Helper.findHSSRouteByReduce(hss, new CheckpointPolicy(hssPath, 0, true));
+            fail("Solve should be cancelled");
+        }
+        catch (CancellationException e)
+        {
+            //  Expected
+        }
+        finally
+        {
+            SolverContext.exit(previous);
+        }
+        
+        assertHSSEqual(expected, Helper.loadHSS(hssPath));
+    }
+    
+    @Test
+    public void testResumeHyperStructuresSystem() throws Exception
+    {
+        String filename = "target/test-classes/uf20-01000.cnf";
+        ITabularFormula formula = Helper.loadFromFile(filename);
+        ObjectArrayList expected = createHSS(formula);
+        
+        String hssPath = "target/" + new File(filename).getName() + "-hss-partial";
+        
+        ObjectArrayList ct = createCTS(formula);
+        Helper.unify(ct);
+        Helper.createHyperStructuresSystem(ct, new Properties(), new TierCheckpointPolicy(hssPath, 4, 0));
+        
+        ObjectArrayList partialHSS = Helper.loadHSS(hssPath);
+        
+        int tiersBuilt = ((IHyperStructure) partialHSS.get(0)).getTiers().size();
+        int tiersTotal = ((IHyperStructure) expected.get(0)).getTiers().size();
+        assertTrue(tiersBuilt < tiersTotal);
+        
+        ObjectArrayList hss = Helper.resumeHyperStructuresSystem(partialHSS, new Properties(), TierCheckpointPolicy.NONE);
+        
+        assertHSSEqual(expected, hss);
+        
+        ObjectArrayList route = Helper.findHSSRouteByReduce(hss, CheckpointPolicy.NONE);
+        assertTrue(formula.evaluate(route));
+    }
+    
+    @Test
+    public void testSpeculativeReduction() throws Exception
+    {
+        String filename = "target/test-classes/uf20-01000.cnf";
+        ITabularFormula formula = Helper.loadFromFile(filename);
+        ObjectArrayList hss = createHSS(formula);
+        
+        ITier tier = ((IHyperStructure) hss.get(0)).getBasicCTS().getTier(0);
+        assertTrue(tier.size() > 1);
+        
+        ObjectArrayList values = new ObjectArrayList();
+        for (ITripletValue value : tier)
+        {
+            values.add(value);
+        }
+        ITripletValue value1 = (ITripletValue) values.get(0);
+        ITripletValue value2 = (ITripletValue) values.get(1);
+        
+        ObjectArrayList hss1 = tryReduceTier(hss, value1);
+        ObjectArrayList hss2 = tryReduceTier(hss, value2);
+        
+        SolverContext context = new SolverContext(new SolverOptions());
+        SolverContext previous = context.enter();
+        try
+        {
+            Helper.ReductionBranch branch = Helper.reduceTierSpeculatively(hss, 0, value1, value2);
+            
+            //  Result must be the same as of the sequential reduction to the same value
+            ObjectArrayList expected = branch.basicCTS.getTier(0).contains(value1) ? hss1 : hss2;
+            assertTrue(expected != null);
+            assertHSSEqual(expected, branch.hss);
+            
+            //  Metrics of the winning branch are merged to the calling context
+            assertTrue(context.getMetrics().timer(Metrics.HSS_TIER_BUILD_TIME).getCount() > 0);
+        }
+        catch (EmptyStructureException e)
+        {
+            assertTrue(hss1 == null && hss2 == null);
+        }
+        finally
+        {
+            SolverContext.exit(previous);
+        }
+    }
+    
+    private static ObjectArrayList tryReduceTier(ObjectArrayList hss, ITripletValue value)
+    {
+        try
+        {
+            return Helper.reduceTier(Helper.copyCTS(hss), 0, value);
+        }
+        catch (EmptyStructureException e)
+        {
+            return null;
+        }
+    }
+    
+    @Test
+    public void testParallelHSSCreation() throws Exception
+    {
+        String filename = "target/test-classes/uf20-01000.cnf";
+        ITabularFormula formula = Helper.loadFromFile(filename);
+        
+        ObjectArrayList hss = createHSS(formula);
+        
+        int numberOfThreads = Helper.NumberOfThreads;
+        try
+        {
+            Helper.NumberOfThreads = 4;
+            ObjectArrayList hss2 = createHSS(formula);
+            
+            assertHSSEqual(hss, hss2);
+        }
+        finally
+        {
+            Helper.NumberOfThreads = numberOfThreads;
+        }
+    }
+
+    @Test
+    public void testAssertionLevels() throws Exception
+    {
+        String filename = "target/test-classes/uf20-01000.cnf";
+        ITabularFormula formula = Helper.loadFromFile(filename);
+        
+        ObjectArrayList hss = createHSS(formula);
+        
+        try
+        {
+            for (AssertionLevel level : AssertionLevel.values())
+            {
+                Helper.setAssertionLevel(level);
+                
+                assertEquals(level != AssertionLevel.Off, Helper.EnableAssertions);
+                assertEquals(level, Helper.getAssertionLevel());
+                
+                assertHSSEqual(hss, createHSS(formula));
+            }
+        }
+        finally
+        {
+            Helper.setAssertionLevel(AssertionLevel.Full);
+        }
+    }
+
+    @Test
+    public void testParallelUnify() throws Exception
+    {
+        String filename = "target/test-classes/unif-k3-r4.25-v360-c1530-S1293537826-039.cnf";
+        ITabularFormula formula = Helper.loadFromFile(filename);
+        
+        ObjectArrayList ct = createCTS(formula);
+        Helper.unify(ct);
+        
+        int numberOfThreads = Helper.NumberOfThreads;
+        try
+        {
+            Helper.NumberOfThreads = 4;
+            ObjectArrayList ct2 = createCTS(formula);
+            Helper.unify(ct2);
+            
+            assertEquals(ct.size(), ct2.size());
+            for (int i = 0; i < ct.size(); i++)
+            {
+                assertEquals(ct.get(i), ct2.get(i));
+            }
+        }
+        finally
+        {
+            Helper.NumberOfThreads = numberOfThreads;
+        }
+    }
+
+    @Test
+    public void testUnifyReachesFixpoint() throws Exception
+    {
+        String filename = "target/test-classes/cnf_50_179.cnf";
+        ITabularFormula formula = Helper.loadFromFile(filename);
+        
+        ObjectArrayList ct = createCTS(formula);
+        Helper.unify(ct);
+        
+        //  Unification of already unified structures should not remove any clauses
+        ObjectArrayList ct2 = createCTS(formula);
+        Helper.unify(ct2);
+        Helper.unify(ct2);
+        
+        assertEquals(ct.size(), ct2.size());
+        for (int i = 0; i < ct.size(); i++)
+        {
+            assertEquals(ct.get(i), ct2.get(i));
+        }
+    }
+
+    private ObjectArrayList createCTS(ITabularFormula formula)
+    {
+        ObjectArrayList ct = Helper.createCTF(formula);
+        Helper.completeToCTS(ct, formula.getPermutation());
+        return ct;
+    }
+
+    private ObjectArrayList createHSS(ITabularFormula formula) throws EmptyStructureException
+    {
+        ObjectArrayList ct = createCTS(formula);
+        Helper.unify(ct);
+        return Helper.createHyperStructuresSystem(ct, new Properties());
+    }
+
+    private void assertHSSEqual(ObjectArrayList hss, ObjectArrayList hss2)
+    {
         assertEquals(hss.size(), hss2.size());
         
         for (int h = 0; h < hss.size(); h++)
@@ -307,4 +644,21 @@ public class TestHelper
         assertEquals(vertex.isBottom2Empty(), vertex2.isBottom2Empty());
         assertEquals(vertex.getCTS(), vertex2.getCTS());
     }
-}
\ No newline at end of file
+    
+    @Test
+    public void testPutAssignment() throws Exception
+    {
+        ITabularFormula formula = Helper.loadFromFile("target/test-classes/uf20-01000.cnf");
+        
+        boolean[] assignment = new boolean[formula.getVarCount() + 1];
+        assignment[3] = true;
+        
+        Properties statistics = new Properties();
+        Helper.putAssignment(statistics, formula, assignment);
+        
+        assertEquals(formula.getVarCount() * 2, statistics.size());
+        assertEquals("true", statistics.get("_3"));
+        assertEquals("true", statistics.get(String.valueOf(formula.getOriginalVarName(3))));
+        assertEquals("false", statistics.get("_4"));
+    }
+}
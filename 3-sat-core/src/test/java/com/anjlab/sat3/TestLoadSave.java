@@ -31,6 +31,9 @@ import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertNotNull;
 import static junit.framework.Assert.assertTrue;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilenameFilter;
 import java.io.IOException;
 import java.util.Random;
 
@@ -195,6 +198,49 @@ public class TestLoadSave
                 + ", loadTime=" + (end - start));
     }
     
+    @Test
+    public void testMappedReaderMatchesGenericReader() throws IOException
+    {
+        File[] files = new File("target/test-classes").listFiles(new FilenameFilter()
+        {
+            public boolean accept(File dir, String name)
+            {
+                return name.endsWith(".cnf");
+            }
+        });
+        
+        assertTrue(files.length > 0);
+        
+        for (File file : files)
+        {
+            FileInputStream input = new FileInputStream(file);
+            ITabularFormula expected;
+            try
+            {
+                expected = new GenericFormulaReader().readFormula(input);
+            }
+            finally
+            {
+                input.close();
+            }
+            ITabularFormula actual = new MappedDIMACSFormulaReader().readFormula(file);
+            
+            assertEquals(file.getName(), expected.getVarCount(), actual.getVarCount());
+            assertEquals(file.getName(), expected.getClausesCount(), actual.getClausesCount());
+            assertTrue(file.getName(), expected.getPermutation().sameAs(actual.getPermutation()));
+            
+            for (int i = 0; i < expected.getTiers().size(); i++)
+            {
+                assertEquals(file.getName(), expected.getTiers().get(i), actual.getTiers().get(i));
+            }
+            
+            for (int varName = 1; varName <= expected.getVarCount(); varName++)
+            {
+                assertEquals(file.getName(), expected.getOriginalVarName(varName), actual.getOriginalVarName(varName));
+            }
+        }
+    }
+    
     @Test
     public void testLoadFromSKT() throws Exception
     {
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2010, 2011 AnjLab
+ * 
+ * This file is part of 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem 
+ * is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem
+ * is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.anjlab.sat3;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringWriter;
+import java.util.Properties;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class TestMetrics
+{
+    @BeforeClass
+    public static void setup()
+    {
+        System.out.println(TestMetrics.class.getName());
+    }
+    
+    @Test
+    public void testCounter()
+    {
+        Metrics metrics = new Metrics();
+        
+        metrics.counter("Counter").increment();
+        metrics.counter("Counter").add(5);
+        
+        assertEquals(6, metrics.counter("Counter").get());
+        assertEquals(0, metrics.counter("Other").get());
+    }
+    
+    @Test
+    public void testBuckets()
+    {
+        long previousUpperBound = -1;
+        for (int bucket = 0; bucket < 4 + 61 * 4; bucket++)
+        {
+            long upperBound = Metrics.Histogram.upperBoundOf(bucket);
+            assertTrue(upperBound > previousUpperBound);
+            assertEquals(bucket, Metrics.Histogram.bucketOf(upperBound));
+            assertEquals(bucket, Metrics.Histogram.bucketOf(previousUpperBound + 1));
+            previousUpperBound = upperBound;
+        }
+        assertEquals(Long.MAX_VALUE, previousUpperBound);
+    }
+    
+    @Test
+    public void testHistogram()
+    {
+        Metrics.Histogram histogram = new Metrics().histogram("Histogram");
+        
+        assertEquals(0, histogram.getPercentile(50));
+        
+        for (int value = 1; value <= 100; value++)
+        {
+            histogram.record(value);
+        }
+        
+        assertEquals(100, histogram.getCount());
+        assertEquals(5050, histogram.getSum());
+        assertEquals(1, histogram.getMin());
+        assertEquals(100, histogram.getMax());
+        assertEquals(50.5, histogram.getMean(), 0);
+        
+        //  Percentiles are approximate, but within 25%
+        assertTrue(histogram.getPercentile(50) >= 50 && histogram.getPercentile(50) <= 63);
+        assertTrue(histogram.getPercentile(95) >= 95 && histogram.getPercentile(95) <= 100);
+        assertEquals(100, histogram.getPercentile(100));
+        assertEquals(1, histogram.getPercentile(0));
+    }
+    
+    @Test
+    public void testTimer() throws Exception
+    {
+        Metrics.Timer timer = new Metrics().timer("Timer");
+        
+        long start = timer.start();
+        Thread.sleep(5);
+        long elapsed = timer.stop(start);
+        
+        assertTrue(elapsed >= 5000000);
+        assertEquals(1, timer.getCount());
+        assertEquals(elapsed, timer.getMax());
+    }
+    
+    @Test
+    public void testMerge()
+    {
+        Metrics metrics = new Metrics();
+        metrics.counter("Counter").add(2);
+        metrics.histogram("Histogram").record(10);
+        
+        Metrics other = new Metrics();
+        other.counter("Counter").add(3);
+        other.histogram("Histogram").record(1);
+        other.histogram("Histogram").record(100);
+        other.timer("Timer").record(1500000);
+        other.histogram("Empty");
+        
+        metrics.merge(other);
+        
+        assertEquals(5, metrics.counter("Counter").get());
+        
+        Metrics.Histogram histogram = metrics.histogram("Histogram");
+        assertEquals(3, histogram.getCount());
+        assertEquals(111, histogram.getSum());
+        assertEquals(1, histogram.getMin());
+        assertEquals(100, histogram.getMax());
+        assertEquals(Metrics.Histogram.upperBoundOf(Metrics.Histogram.bucketOf(10)), histogram.getPercentile(50));
+        
+        assertEquals(1, metrics.timer("Timer").getCount());
+        assertEquals(1500000, metrics.timer("Timer").getMax());
+        assertEquals(0, metrics.histogram("Empty").getCount());
+        
+        //  Source metrics are not modified
+        assertEquals(3, other.counter("Counter").get());
+        assertEquals(2, other.histogram("Histogram").getCount());
+    }
+    
+    @Test
+    public void testExport() throws Exception
+    {
+        Metrics metrics = new Metrics();
+        metrics.counter("Counter").add(3);
+        metrics.histogram("Histogram").record(7);
+        metrics.timer("Timer").record(1500000);
+        metrics.histogram("Empty");
+        
+        Properties statistics = new Properties();
+        metrics.exportTo(statistics);
+        
+        assertEquals("3", statistics.get("Counter"));
+        assertEquals("1", statistics.get("Histogram.count"));
+        assertEquals("7", statistics.get("Histogram.p50"));
+        assertEquals("1.5", statistics.get("Timer.max"));
+        assertEquals("0", statistics.get("Empty.count"));
+        assertEquals(null, statistics.get("Empty.max"));
+        
+        StringWriter writer = new StringWriter();
+        metrics.writeJSON(writer);
+        
+        assertEquals("{\n" 
+                   + "  \"Counter\": 3,\n" 
+                   + "  \"Empty\": {\"count\": 0},\n" 
+                   + "  \"Histogram\": {\"count\": 1, \"total\": 7, \"min\": 7, \"mean\": 7, \"p50\": 7, \"p95\": 7, \"max\": 7},\n" 
+                   + "  \"Timer\": {\"count\": 1, \"total\": 1.5, \"min\": 1.5, \"mean\": 1.5, \"p50\": 1.5, \"p95\": 1.5, \"max\": 1.5}\n" 
+                   + "}\n", writer.toString());
+    }
+}
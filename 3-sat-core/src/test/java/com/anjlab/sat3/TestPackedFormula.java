@@ -0,0 +1,368 @@
+/*
+ * Copyright (c) 2010, 2011 AnjLab
+ * 
+ * This file is part of 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem 
+ * is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem
+ * is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.anjlab.sat3;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import cern.colt.list.ObjectArrayList;
+
+public class TestPackedFormula
+{
+    @BeforeClass
+    public static void setup()
+    {
+        Helper.UsePrettyPrint = true;
+        Helper.EnableAssertions = true;
+        System.out.println(TestPackedFormula.class.getName());
+    }
+    
+    @Test
+    public void testCreateFromCTS()
+    {
+        ICompactTripletsStructure s = (ICompactTripletsStructure)
+            Helper.createFormula(
+                     new int[]
+                         {               //             x1 x2 x3 x4                               
+                             1, 2, 3,    //              0  0  0                                  
+                             -1, 2, -3,  //              1  0  1                                  
+                             2, -3, 4,   //                 0  1  0                               
+                             2, 3, -4    //                 0  0  1                               
+                         });             //            VarCount: 4; ClausesCount: 4; TiersCount: 2
+        
+        PackedFormula p = new PackedFormula(s);
+        
+        assertSameStructure(s, p);
+        assertEquals(4, p.getVarCount());
+        assertEquals(2, p.getTiers().size());
+        assertTrue(p.tiersSorted());
+        
+        Helper.prettyPrint(p);
+    }
+    
+    @Test
+    public void testCloneIsIndependent()
+    {
+        ICompactTripletsStructure s = createRandomCTS(1, 20);
+        
+        PackedFormula p = new PackedFormula(s);
+        PackedFormula clone = p.clone();
+        
+        assertEquals(p, clone);
+        
+        clone.getTier(0).inverse();
+        
+        assertFalse(p.equals(clone));
+        assertSameStructure(s, p);
+    }
+    
+    @Test
+    public void testOperationsMatchSimpleFormula()
+    {
+        for (int seed = 0; seed < 20; seed++)
+        {
+            ICompactTripletsStructure s = createRandomCTS(seed, 30);
+            PackedFormula p = new PackedFormula(s);
+            
+            assertSameStructure(s, p);
+            
+            int[] varNames = s.getPermutation().elements();
+            int varCount = s.getPermutation().size();
+            
+            for (int i = 0; i < varCount; i++)
+            {
+                int varName = varNames[i];
+                
+                assertEquals(s.valueOf(varName), p.valueOf(varName));
+                
+                for (Value value : new Value[] { Value.AllPlain, Value.AllNegative })
+                {
+                    ICompactTripletsStructure sClone = (ICompactTripletsStructure) s.clone();
+                    PackedFormula pClone = p.clone();
+                    
+                    CleanupStatus expected = sClone.concretize(varName, value);
+                    CleanupStatus actual = pClone.concretize(varName, value);
+                    
+                    assertEquals(expected.someClausesRemoved, actual.someClausesRemoved);
+                    assertEquals(expected.numberOfClausesRemoved, actual.numberOfClausesRemoved);
+                    assertSameStructure(sClone, pClone);
+                }
+            }
+            
+            Random random = new Random(seed);
+            for (int k = 0; k < 10; k++)
+            {
+                int varName1 = varNames[random.nextInt(varCount)];
+                int varName2 = varNames[random.nextInt(varCount)];
+                
+                ICompactTripletsStructure s1 = (ICompactTripletsStructure) s.clone();
+                ICompactTripletsStructure s2 = (ICompactTripletsStructure) s.clone();
+                s1.concretize(varName1, Value.AllPlain);
+                s2.concretize(varName2, Value.AllNegative);
+                
+                PackedFormula p1 = p.clone();
+                PackedFormula p2 = p.clone();
+                p1.concretize(varName1, Value.AllPlain);
+                p2.concretize(varName2, Value.AllNegative);
+                
+                ICompactTripletsStructure sUnion = (ICompactTripletsStructure) s1.clone();
+                sUnion.union(s2);
+                PackedFormula pUnion = p1.clone();
+                pUnion.union(p2);
+                assertSameStructure(sUnion, pUnion);
+                
+                s1.intersect(s2);
+                p1.intersect(p2);
+                assertSameStructure(s1, p1);
+            }
+        }
+    }
+    
+    @Test
+    public void testPartialCleanupMatchesSweeps()
+    {
+        for (int seed = 0; seed < 50; seed++)
+        {
+            ICompactTripletsStructure s = createRandomCTS(seed, 40);
+            PackedFormula p = new PackedFormula(s);
+            
+            //  Remove random values from the range of tiers
+            Random random = new Random(seed);
+            int tiersCount = s.getTiers().size();
+            int from = random.nextInt(tiersCount);
+            int to = Math.min(tiersCount - 1, from + random.nextInt(5));
+            for (int i = from; i <= to; i++)
+            {
+                byte keys = (byte) (SimpleTier.keysOf(s.getTier(i)) & (random.nextInt(255) + 1));
+                if (keys == 0)
+                {
+                    keys = SimpleTier.keysOf(s.getTier(i));
+                }
+                ((SimpleTier) s.getTier(i)).setKeys(keys);
+                TierKernels.set(p.words, i, keys);
+            }
+            
+            //  Reference implementation runs sweeps over all tiers until nothing changes
+            long[] expected = p.words.clone();
+            int result = TierKernels.cleanup(expected, tiersCount);
+            
+            CleanupStatus status = p.cleanup(from, to);
+            s.cleanup(from, to);
+            
+            if (result == TierKernels.EMPTY_TIER)
+            {
+                assertTrue(p.isEmpty());
+                assertTrue(s.isEmpty());
+            }
+            else
+            {
+                assertEquals(result == TierKernels.SOME_REMOVED, status.someClausesRemoved);
+                for (int i = 0; i < tiersCount; i++)
+                {
+                    assertEquals(TierKernels.get(expected, i), TierKernels.get(p.words, i));
+                }
+                assertSameStructure(s, p);
+            }
+        }
+    }
+    
+    @Test
+    public void testUnifyMatchesSimpleFormula() throws Exception
+    {
+        for (int seed = 0; seed < 10; seed++)
+        {
+            ITabularFormula formula = Helper.createRandomFormula(new Random(seed), 20, 60);
+            ObjectArrayList ct = Helper.createCTF(formula);
+            try
+            {
+                Helper.completeToCTS(ct, formula.getPermutation());
+            }
+            catch (EmptyStructureException e)
+            {
+                continue;
+            }
+            
+            //  Concretize first structure to make unification remove some clauses
+            ICompactTripletsStructure first = (ICompactTripletsStructure) ct.get(0);
+            first.concretize(first.getPermutation().get(first.getVarCount() / 2), Value.AllNegative);
+            if (first.isEmpty())
+            {
+                continue;
+            }
+            
+            ObjectArrayList packed = new ObjectArrayList();
+            for (int i = 0; i < ct.size(); i++)
+            {
+                packed.add(new PackedFormula((ICompactTripletsStructure) ct.get(i)));
+            }
+            
+            boolean simpleIsEmpty = false;
+            try
+            {
+                Helper.unify(ct);
+            }
+            catch (EmptyStructureException e)
+            {
+                simpleIsEmpty = true;
+            }
+            
+            boolean packedIsEmpty = false;
+            try
+            {
+                Helper.unify(packed);
+            }
+            catch (EmptyStructureException e)
+            {
+                packedIsEmpty = true;
+            }
+            
+            assertEquals(simpleIsEmpty, packedIsEmpty);
+            
+            if (!simpleIsEmpty)
+            {
+                for (int i = 0; i < ct.size(); i++)
+                {
+                    assertSameStructure((ICompactTripletsStructure) ct.get(i), (PackedFormula) packed.get(i));
+                }
+            }
+        }
+    }
+    
+    @Test
+    public void testClonesCounted()
+    {
+        SolverContext context = new SolverContext(new SolverOptions());
+        SolverContext previous = context.enter();
+        ICompactTripletsStructure s;
+        PackedFormula p;
+        try
+        {
+            s = createRandomCTS(1, 20);
+            p = new PackedFormula(s);
+        }
+        finally
+        {
+            SolverContext.exit(previous);
+        }
+        
+        Metrics.Counter clones = context.getMetrics().counter(Metrics.STRUCTURE_CLONES);
+        long clonesCount = clones.get();
+        
+        //  Clones are counted in the context the structures were created in
+        p.clone().clone();
+        s.clone();
+        
+        assertEquals(clonesCount + 3, clones.get());
+    }
+    
+    @Test
+    public void testStructureBuildingMethods() throws Exception
+    {
+        ICompactTripletsStructure s = (ICompactTripletsStructure)
+            Helper.createFormula(
+                     new int[]
+                         {
+                             1, 2, 3,
+                             -1, 2, -3,
+                             2, -3, 4,
+                             2, 3, -4
+                         });
+        
+        PackedFormula p = new PackedFormula(s);
+        
+        assertEquals(p.clone().hashCode(), p.hashCode());
+        assertEquals(s.getTier(1), p.getTier(1));
+        assertEquals(s.getTier(1).hashCode(), p.getTier(1).hashCode());
+        
+        assertEquals(1, p.findTiersFor(1).size());
+        assertEquals(2, p.findTiersFor(3).size());
+        assertEquals(2, p.findTiersFor(2, 3).size());
+        assertEquals(1, p.findTiersFor(4, 2).size());
+        assertNull(p.findTiersFor(1, 4));
+        assertNull(p.findTiersFor(5));
+        
+        assertEquals(3, p.getOriginalVarName(3));
+        
+        PackedFormula clone = p.clone();
+        p.complete(SimplePermutation.createPermutation(4, 3));
+        assertEquals(clone, p);
+        
+        s.add(new SimpleTriplet(3, -2, -1));
+        p.add(new SimpleTriplet(3, -2, -1));
+        assertSameStructure(s, p);
+        
+        ITier tier = SimpleTier.createCompleteTier(4, 3, 2);
+        s.unionOrAdd(tier.clone());
+        p.unionOrAdd(tier.clone());
+        assertSameStructure(s, p);
+        
+        try
+        {
+            p.add(new SimpleTriplet(1, 2, 4));
+            fail("Packed structure has no tier for variables 1, 2 and 4");
+        }
+        catch (IllegalArgumentException e)
+        {
+            //  Expected
+        }
+    }
+    
+    private static ICompactTripletsStructure createRandomCTS(int seed, int varCount)
+    {
+        Random random = new Random(seed);
+        while (true)
+        {
+            ITabularFormula formula = Helper.createRandomFormula(random, varCount, varCount * 2);
+            ObjectArrayList ct = Helper.createCTF(formula);
+            try
+            {
+                Helper.completeToCTS(ct, formula.getPermutation());
+                return (ICompactTripletsStructure) ct.get(0);
+            }
+            catch (EmptyStructureException e)
+            {
+                //  Try another formula
+            }
+        }
+    }
+    
+    private static void assertSameStructure(ICompactTripletsStructure expected, PackedFormula actual)
+    {
+        assertEquals(expected.isEmpty(), actual.isEmpty());
+        assertEquals(expected.getClausesCount(), actual.getClausesCount());
+        assertEquals(expected.getTiers().size(), actual.getTiers().size());
+        for (int j = 0; j < expected.getTiers().size(); j++)
+        {
+            assertEquals(expected.getTier(j), actual.getTier(j));
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2010, 2011 AnjLab
+ * 
+ * This file is part of 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem 
+ * is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem
+ * is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.anjlab.sat3;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Properties;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import cern.colt.list.IntArrayList;
+import cern.colt.list.ObjectArrayList;
+
+public class TestPortfolioSolver
+{
+    @BeforeClass
+    public static void setup()
+    {
+        Helper.UsePrettyPrint = false;
+        Helper.EnableAssertions = true;
+        System.out.println(TestPortfolioSolver.class.getName());
+    }
+    
+    @Test
+    public void testChooseBasicStructureCandidates() throws Exception
+    {
+        ObjectArrayList cts = createCTS("target/test-classes/uf20-01000.cnf");
+        
+        IntArrayList candidates = Helper.chooseBasicStructureCandidates(cts, cts.size() + 1);
+        
+        assertEquals(cts.size(), candidates.size());
+        for (int i = 1; i < candidates.size(); i++)
+        {
+            assertTrue(((ICompactTripletsStructure) cts.get(candidates.get(i - 1))).getClausesCount() 
+                    <= ((ICompactTripletsStructure) cts.get(candidates.get(i))).getClausesCount());
+        }
+        
+        //  First candidate is the default basic structure
+        ObjectArrayList hss = Helper.createHyperStructuresSystem(cts, new Properties());
+        assertTrue(cts.get(candidates.get(0)) == ((IHyperStructure) hss.get(0)).getBasicCTS());
+    }
+    
+    @Test
+    public void testSolve() throws Exception
+    {
+        String filename = "target/test-classes/uf20-01000.cnf";
+        ObjectArrayList cts = createCTS(filename);
+        ObjectArrayList copy = Helper.cloneStructures(cts);
+        
+        SolverContext context = new SolverContext(new SolverOptions());
+        SolverContext previous = context.enter();
+        PortfolioSolver.Result result;
+        try
+        {
+            result = new PortfolioSolver(3).solve(cts);
+        }
+        finally
+        {
+            SolverContext.exit(previous);
+        }
+        
+        assertTrue(Helper.loadFromFile(filename).evaluate(result.getRoute()));
+        
+        //  Metrics of the winner are merged to the calling context
+        long tiersBuilt = result.getMetrics().timer(Metrics.HSS_TIER_BUILD_TIME).getCount();
+        assertTrue(tiersBuilt > 0);
+        assertEquals(tiersBuilt, context.getMetrics().timer(Metrics.HSS_TIER_BUILD_TIME).getCount());
+        
+        //  Source structures are not modified
+        for (int i = 0; i < cts.size(); i++)
+        {
+            assertEquals(((ITabularFormula) copy.get(i)).getTiers(), ((ITabularFormula) cts.get(i)).getTiers());
+        }
+    }
+    
+    private static ObjectArrayList createCTS(String filename) throws Exception
+    {
+        ITabularFormula formula = Helper.loadFromFile(filename);
+        ObjectArrayList cts = Helper.createCTF(formula);
+        Helper.completeToCTS(cts, formula.getPermutation());
+        Helper.unify(cts);
+        return cts;
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2010, 2011 AnjLab
+ * 
+ * This file is part of 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem 
+ * is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem
+ * is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.anjlab.sat3;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class TestSat3Solver
+{
+    @BeforeClass
+    public static void setup()
+    {
+        Helper.UsePrettyPrint = false;
+        Helper.EnableAssertions = true;
+        System.out.println(TestSat3Solver.class.getName());
+    }
+    
+    @Test
+    public void testSolveSatisfiable() throws Exception
+    {
+        ITabularFormula formula = Helper.loadFromFile("target/test-classes/uf20-01000.cnf");
+        
+        final List<String> events = new ArrayList<String>();
+        
+        SolverResult result = new Sat3Solver().solve(formula, new SolverOptions().setAssertionLevel(AssertionLevel.Incremental), 
+                new ISolverListener()
+                {
+                    public void phaseStarted(SolverPhase phase)
+                    {
+                        events.add("started " + phase);
+                    }
+                    public void phaseCompleted(SolverPhase phase, long timeElapsed)
+                    {
+                        events.add("completed " + phase);
+                    }
+                }, null);
+        
+        assertTrue(result.isSatisfiable());
+        
+        assertTrue(Sat3Solver.evaluate(formula, result.getAssignment()));
+        
+        assertEquals(SolverPhase.values().length * 2, events.size());
+        for (SolverPhase phase : SolverPhase.values())
+        {
+            assertEquals("started " + phase, events.get(phase.ordinal() * 2));
+            assertEquals("completed " + phase, events.get(phase.ordinal() * 2 + 1));
+            assertEquals(String.valueOf(result.getPhaseTime(phase)), result.getStatistics().get(phase.getTimeStatisticsKey()));
+        }
+        
+        assertTrue(Integer.parseInt((String) result.getStatistics().get(Metrics.UNIFY_ROUNDS + ".count")) > 0);
+        assertTrue(Integer.parseInt((String) result.getStatistics().get(Metrics.HSS_TIER_BUILD_TIME + ".count")) > 0);
+        assertEquals("1", result.getStatistics().get(SolverPhase.CreateHSS.getTimeStatisticsKey() + ".count"));
+    }
+    
+    @Test
+    public void testOriginalAssignment() throws Exception
+    {
+        //  Variables 1, 5, 10 and 20 are renamed to 1..4 by the reader, 
+        //  clauses with two literals get new variables
+        int[][] clauses = new int[][] { { 1, -5, 10 }, { -1, 5 }, { 5, -10, 20 }, { -20, 1 }, { 10, 20 } };
+        
+        File file = File.createTempFile("gaps", ".cnf");
+        file.deleteOnExit();
+        FileWriter writer = new FileWriter(file);
+        try
+        {
+            writer.write("p cnf 20 " + clauses.length + "\n");
+            for (int[] clause : clauses)
+            {
+                for (int literal : clause)
+                {
+                    writer.write(literal + " ");
+                }
+                writer.write("0\n");
+            }
+        }
+        finally
+        {
+            writer.close();
+        }
+        
+        ITabularFormula formula = Helper.loadFromFile(file.getPath());
+        
+        SolverResult result = new Sat3Solver().solve(formula, new SolverOptions());
+        
+        assertTrue(result.isSatisfiable());
+        assertTrue(Sat3Solver.evaluate(formula, result.getAssignment()));
+        
+        boolean[] values = result.getOriginalAssignment();
+        assertEquals(21, values.length);
+        for (int[] clause : clauses)
+        {
+            boolean satisfied = false;
+            for (int literal : clause)
+            {
+                satisfied |= literal > 0 ? values[literal] : !values[-literal];
+            }
+            assertTrue(satisfied);
+        }
+        for (int varName = 1; varName <= 4; varName++)
+        {
+            assertEquals(result.getAssignment()[varName], values[formula.getOriginalVarName(varName)]);
+        }
+    }
+    
+    @Test
+    public void testSolveUnsatisfiable() throws Exception
+    {
+        ITabularFormula formula = Helper.loadFromFile("target/test-classes/test-unsat.cnf");
+        
+        SolverResult result = new Sat3Solver().solve(formula, new SolverOptions());
+        
+        assertEquals(SolverResult.Status.Unsatisfiable, result.getStatus());
+        assertFalse(result.isSatisfiable());
+        assertNull(result.getAssignment());
+    }
+    
+    @Test
+    public void testProgressMBean() throws Exception
+    {
+        ITabularFormula formula = Helper.loadFromFile("target/test-classes/uf20-01000.cnf");
+        
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName objectName = new ObjectName("com.anjlab.sat3:type=SolverProgress,name=\"uf20-01000.cnf\"");
+        final List<String> errors = new ArrayList<String>();
+        
+        SolverResult result = new Sat3Solver().solve(formula, new SolverOptions().setProgressName("uf20-01000.cnf"), 
+                new ISolverListener()
+                {
+                    public void phaseStarted(SolverPhase phase)
+                    {
+                    }
+                    public void phaseCompleted(SolverPhase phase, long timeElapsed)
+                    {
+                        if (phase != SolverPhase.CreateHSS)
+                        {
+                            return;
+                        }
+                        try
+                        {
+                            assertEquals(SolverPhase.CreateHSS.name(), server.getAttribute(objectName, "Phase"));
+                            assertEquals(server.getAttribute(objectName, "HSSTiersCount"), server.getAttribute(objectName, "HSSTiersBuilt"));
+                            assertTrue((Integer) server.getAttribute(objectName, "HyperStructuresCount") > 0);
+                            assertTrue((Integer) server.getAttribute(objectName, "VerticesInLastTier") > 0);
+                            assertTrue((Long) server.getAttribute(objectName, "SubstructuresHeapBytes") > 0);
+                            assertEquals(-1L, server.getAttribute(objectName, "HSSEstimatedSecondsRemaining"));
+                        }
+                        catch (Throwable e)
+                        {
+                            errors.add(e.toString());
+                        }
+                    }
+                }, null);
+        
+        assertTrue(result.isSatisfiable());
+        assertEquals(new ArrayList<String>(), errors);
+        assertFalse(server.isRegistered(objectName));
+    }
+    
+    @Test
+    public void testAssertionError() throws Exception
+    {
+        ITabularFormula formula = Helper.loadFromFile("target/test-classes/uf20-01000.cnf");
+        
+        SolverResult result = new Sat3Solver().solve(formula, new SolverOptions(), 
+                new ISolverListener()
+                {
+                    public void phaseStarted(SolverPhase phase)
+                    {
+                        if (phase == SolverPhase.FindHSSRoute)
+                        {
+                            throw new AssertionError("HSS route not found");
+                        }
+                    }
+                    public void phaseCompleted(SolverPhase phase, long timeElapsed)
+                    {
+                    }
+                }, null);
+        
+        assertEquals(SolverResult.Status.Error, result.getStatus());
+        assertNull(result.getAssignment());
+        assertEquals("FindHSSRoute: HSS route not found", result.getErrorMessage());
+        assertEquals(result.getErrorMessage(), result.getStatistics().get(Helper.ERROR_MESSAGE));
+    }
+    
+    @Test
+    public void testCancel() throws Exception
+    {
+        ITabularFormula formula = Helper.loadFromFile("target/test-classes/uf20-01000.cnf");
+        
+        final CancellationToken cancellationToken = new CancellationToken();
+        
+        SolverResult result = new Sat3Solver().solve(formula, new SolverOptions(), 
+                new ISolverListener()
+                {
+                    public void phaseStarted(SolverPhase phase)
+                    {
+                        if (phase == SolverPhase.Unify)
+                        {
+                            cancellationToken.cancel();
+                        }
+                    }
+                    public void phaseCompleted(SolverPhase phase, long timeElapsed)
+                    {
+                    }
+                }, cancellationToken);
+        
+        assertEquals(SolverResult.Status.Cancelled, result.getStatus());
+        assertTrue(result.getPhaseTime(SolverPhase.CreateCTS) >= 0);
+        assertEquals(0, result.getPhaseTime(SolverPhase.CreateHSS));
+        assertEquals(SolverPhase.Unify, result.getCancelledPhase());
+        assertEquals(SolverPhase.Unify.name(), result.getStatistics().get(Helper.CANCELLED_PHASE));
+    }
+    
+    @Test
+    public void testDeadline() throws Exception
+    {
+        ITabularFormula formula = Helper.loadFromFile("target/test-classes/uf20-01000.cnf");
+        
+        CancellationToken cancellationToken = new CancellationToken();
+        cancellationToken.cancelAfter(0, TimeUnit.MILLISECONDS);
+        
+        assertTrue(cancellationToken.isDeadlineExceeded());
+        
+        SolverResult result = new Sat3Solver().solve(formula, new SolverOptions(), null, cancellationToken);
+        
+        assertEquals(SolverResult.Status.Cancelled, result.getStatus());
+        assertEquals(SolverPhase.CreateCTF, result.getCancelledPhase());
+    }
+}
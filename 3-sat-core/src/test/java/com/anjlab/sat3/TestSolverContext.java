@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2010, 2011 AnjLab
+ * 
+ * This file is part of 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem 
+ * is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem
+ * is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.anjlab.sat3;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import cern.colt.list.ObjectArrayList;
+
+public class TestSolverContext
+{
+    @BeforeClass
+    public static void setup()
+    {
+        Helper.UsePrettyPrint = false;
+        Helper.EnableAssertions = true;
+        System.out.println(TestSolverContext.class.getName());
+    }
+    
+    @Test
+    public void testEnterExit()
+    {
+        SolverContext global = SolverContext.current();
+        assertTrue(global.isGlobal());
+        
+        SolverContext context = new SolverContext(new SolverOptions().setAssertionLevel(AssertionLevel.Off));
+        
+        SolverContext previous = context.enter();
+        try
+        {
+            assertSame(context, SolverContext.current());
+            assertEquals(AssertionLevel.Off, Helper.getAssertionLevel());
+            assertFalse(Helper.isAssertionsEnabled());
+            assertSame(context.getVarPairsIndexFactory(), VarPairsIndexFactory.getInstance());
+            
+            SolverContext fork = context.fork();
+            assertEquals(AssertionLevel.Off, fork.getAssertionLevel());
+            assertNotSame(context.getVarPairsIndexFactory(), fork.getVarPairsIndexFactory());
+            assertNotSame(context.getStatistics(), fork.getStatistics());
+        }
+        finally
+        {
+            SolverContext.exit(previous);
+        }
+        
+        assertSame(global, SolverContext.current());
+        assertTrue(Helper.isAssertionsEnabled());
+    }
+    
+    @Test
+    public void testGlobalNumberOfIOThreads()
+    {
+        int numberOfIOThreads = Helper.NumberOfIOThreads;
+        try
+        {
+            Helper.NumberOfIOThreads = 3;
+            
+            assertEquals(3, SolverContext.current().getNumberOfIOThreads());
+            assertEquals(3, SolverOptions.fromGlobals().getNumberOfIOThreads());
+        }
+        finally
+        {
+            Helper.NumberOfIOThreads = numberOfIOThreads;
+        }
+    }
+    
+    @Test
+    public void testCloseShutsDownWorkerThreads()
+    {
+        SolverContext context = new SolverContext(new SolverOptions().setNumberOfThreads(2));
+        SolverContext fork = context.fork();
+        
+        ForkJoinPool pool = context.getForkJoinPool();
+        assertEquals(2, pool.getParallelism());
+        assertSame(pool, fork.getForkJoinPool());
+        
+        context.close();
+        
+        assertTrue(pool.isShutdown());
+        try
+        {
+            fork.getForkJoinPool();
+            fail("Forked context should not start worker threads after the solve ended");
+        }
+        catch (CancellationException e)
+        {
+            //  Expected
+        }
+    }
+    
+    @Test
+    public void testConcurrentSolves() throws Exception
+    {
+        final String[] filenames = new String[] { "target/test-classes/uf20-01000.cnf", 
+                                                  "target/test-classes/uf20-0532.cnf" };
+        
+        ExecutorService executor = Executors.newFixedThreadPool(filenames.length);
+        try
+        {
+            List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+            for (int i = 0; i < filenames.length; i++)
+            {
+                final String filename = filenames[i];
+                final SolverContext context = new SolverContext(
+                        new SolverOptions().setAssertionLevel(i == 0 ? AssertionLevel.Full : AssertionLevel.Off)
+                                           .setNumberOfThreads(2));
+                
+                results.add(executor.submit(new Callable<Boolean>()
+                {
+                    public Boolean call() throws Exception
+                    {
+                        SolverContext previous = context.enter();
+                        try
+                        {
+                            ITabularFormula formula = Helper.loadFromFile(filename);
+                            ObjectArrayList cts = Helper.createCTF(formula);
+                            Helper.completeToCTS(cts, formula.getPermutation());
+                            Helper.unify(cts);
+                            ObjectArrayList hss = Helper.createHyperStructuresSystem(cts, context.getStatistics());
+                            ObjectArrayList route = Helper.findHSSRouteByReduce(hss, CheckpointPolicy.NONE);
+                            
+                            return Helper.loadFromFile(filename).evaluate(route);
+                        }
+                        finally
+                        {
+                            SolverContext.exit(previous);
+                            context.close();
+                        }
+                    }
+                }));
+            }
+            for (Future<Boolean> result : results)
+            {
+                assertTrue(result.get());
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2010, 2011 AnjLab
+ * 
+ * This file is part of 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem 
+ * is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem
+ * is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.anjlab.sat3;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Properties;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import cern.colt.list.ObjectArrayList;
+
+public class TestStageCheckpoints
+{
+    private static final String FORMULA_FILE = "target/test-classes/uf20-01000.cnf";
+    
+    @BeforeClass
+    public static void setup()
+    {
+        Helper.UsePrettyPrint = false;
+        Helper.EnableAssertions = true;
+        System.out.println(TestStageCheckpoints.class.getName());
+    }
+    
+    @Test
+    public void testSaveLoadStructures() throws Exception
+    {
+        ITabularFormula formula = Helper.loadFromFile(FORMULA_FILE);
+        
+        StageCheckpoints stages = new StageCheckpoints(FORMULA_FILE);
+        stages.clear();
+        
+        assertNull(stages.getLastCompletedPhase());
+        
+        ObjectArrayList ctf = Helper.createCTF(formula);
+        stages.saveStructures(SolverPhase.CreateCTF, ctf);
+        
+        assertEquals(SolverPhase.CreateCTF, stages.getLastCompletedPhase());
+        
+        ObjectArrayList ctf2 = stages.loadStructures(SolverPhase.CreateCTF);
+        assertStructuresEqual(ctf, ctf2);
+        
+        //  Solve may be continued from the loaded checkpoint
+        Helper.completeToCTS(ctf, formula.getPermutation());
+        Helper.completeToCTS(ctf2, formula.getPermutation());
+        assertStructuresEqual(ctf, ctf2);
+        
+        stages.saveStructures(SolverPhase.CreateCTS, ctf);
+        
+        assertEquals(SolverPhase.CreateCTS, stages.getLastCompletedPhase());
+        
+        stages.clear();
+        
+        assertNull(stages.getLastCompletedPhase());
+        assertFalse(stages.getDirectory().exists());
+    }
+    
+    @Test
+    public void testSaveLoadHSS() throws Exception
+    {
+        ITabularFormula formula = Helper.loadFromFile(FORMULA_FILE);
+        
+        StageCheckpoints stages = new StageCheckpoints(FORMULA_FILE);
+        stages.clear();
+        
+        ObjectArrayList cts = Helper.createCTF(formula);
+        Helper.completeToCTS(cts, formula.getPermutation());
+        Helper.unify(cts);
+        stages.saveStructures(SolverPhase.Unify, cts);
+        stages.saveHSS(Helper.createHyperStructuresSystem(cts, new Properties()));
+        
+        assertEquals(SolverPhase.CreateHSS, stages.getLastCompletedPhase());
+        
+        ObjectArrayList route = Helper.findHSSRouteByReduce(stages.loadHSS(SolverPhase.CreateHSS), CheckpointPolicy.NONE);
+        
+        assertTrue(Helper.loadFromFile(FORMULA_FILE).evaluate(route));
+        
+        stages.clear();
+    }
+    
+    private void assertStructuresEqual(ObjectArrayList expected, ObjectArrayList actual)
+    {
+        assertEquals(expected.size(), actual.size());
+        for (int s = 0; s < expected.size(); s++)
+        {
+            ITabularFormula expectedFormula = (ITabularFormula) expected.get(s);
+            ITabularFormula actualFormula = (ITabularFormula) actual.get(s);
+            
+            assertArrayEquals(expectedFormula.getPermutation().elements(), actualFormula.getPermutation().elements());
+            assertEquals(expectedFormula.getTiers().size(), actualFormula.getTiers().size());
+            for (int j = 0; j < expectedFormula.getTiers().size(); j++)
+            {
+                ITier expectedTier = expectedFormula.getTier(j);
+                ITier actualTier = actualFormula.getTier(j);
+                
+                assertEquals(expectedTier.getAName(), actualTier.getAName());
+                assertEquals(expectedTier.getBName(), actualTier.getBName());
+                assertEquals(expectedTier.getCName(), actualTier.getCName());
+                assertEquals(SimpleTier.keysOf(expectedTier), SimpleTier.keysOf(actualTier));
+            }
+        }
+    }
+}
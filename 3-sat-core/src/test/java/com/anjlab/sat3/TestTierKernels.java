@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2010, 2011 AnjLab
+ * 
+ * This file is part of 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem 
+ * is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem
+ * is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.anjlab.sat3;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class TestTierKernels
+{
+    @BeforeClass
+    public static void setup()
+    {
+        Helper.UsePrettyPrint = true;
+        Helper.EnableAssertions = true;
+        System.out.println(TestTierKernels.class.getName());
+    }
+    
+    @Test
+    public void testAdjoinMatchesSimpleTier()
+    {
+        for (int keys = 0; keys < 256; keys++)
+        {
+            for (int otherKeys = 0; otherKeys < 256; otherKeys++)
+            {
+                assertEquals(TierTables.adjoinRightBits((byte) keys, (byte) otherKeys), 
+                             (byte) (keys & TierKernels.adjoinRightMask(otherKeys)));
+                assertEquals(TierTables.adjoinLeftBits((byte) keys, (byte) otherKeys), 
+                             (byte) (keys & TierKernels.adjoinLeftMask(otherKeys)));
+            }
+        }
+    }
+    
+    @Test
+    public void testGetSet()
+    {
+        long[] words = new long[TierKernels.wordsCount(13)];
+        
+        assertEquals(2, words.length);
+        
+        for (int j = 0; j < 13; j++)
+        {
+            TierKernels.set(words, j, (byte) (j * 17));
+        }
+        words[words.length - 1] |= TierKernels.tailMask(13);
+        
+        for (int j = 0; j < 13; j++)
+        {
+            assertEquals((byte) (j * 17), TierKernels.get(words, j));
+        }
+        for (int j = 13; j < 16; j++)
+        {
+            assertEquals((byte) 0xFF, TierKernels.get(words, j));
+        }
+        
+        assertFalse(TierKernels.hasEmptyTier(words[1]));
+        //  Tier 0 is empty
+        assertTrue(TierKernels.hasEmptyTier(words[0]));
+    }
+    
+    @Test
+    public void testCleanupMatchesSequentialCleanup()
+    {
+        Random random = new Random(42);
+        
+        for (int k = 0; k < 1000; k++)
+        {
+            int tiersCount = 1 + random.nextInt(40);
+            
+            byte[] keys = new byte[tiersCount];
+            long[] words = new long[TierKernels.wordsCount(tiersCount)];
+            for (int j = 0; j < tiersCount; j++)
+            {
+                //  Mostly dense tiers, so that cleanup doesn't always clear everything
+                keys[j] = (byte) (random.nextInt(256) | random.nextInt(256) | random.nextInt(256));
+                TierKernels.set(words, j, keys[j]);
+            }
+            words[words.length - 1] |= TierKernels.tailMask(tiersCount);
+            
+            int clausesCount = 0;
+            for (int j = 0; j < tiersCount; j++)
+            {
+                clausesCount += Integer.bitCount(keys[j] & 0xFF);
+            }
+            assertEquals(clausesCount, TierKernels.clausesCount(words, tiersCount));
+            
+            boolean expectedEmpty = sequentialCleanup(keys);
+            
+            int result = TierKernels.cleanup(words, tiersCount);
+            
+            assertEquals(expectedEmpty, result == TierKernels.EMPTY_TIER);
+            
+            if (!expectedEmpty)
+            {
+                for (int j = 0; j < tiersCount; j++)
+                {
+                    assertEquals(keys[j], TierKernels.get(words, j));
+                }
+            }
+        }
+    }
+    
+    @Test
+    public void testPartialCleanupMatchesSequentialCleanup()
+    {
+        Random random = new Random(42);
+        
+        for (int k = 0; k < 1000; k++)
+        {
+            int tiersCount = 2 + random.nextInt(40);
+            
+            byte[] keys = new byte[tiersCount];
+            for (int j = 0; j < tiersCount; j++)
+            {
+                keys[j] = (byte) (random.nextInt(256) | random.nextInt(256) | random.nextInt(256));
+            }
+            if (sequentialCleanup(keys))
+            {
+                continue;
+            }
+            
+            //  Remove random values from the range of clean tiers
+            int from = random.nextInt(tiersCount);
+            int to = Math.min(tiersCount - 1, from + random.nextInt(10));
+            for (int j = from; j <= to; j++)
+            {
+                byte tierKeys = (byte) (keys[j] & random.nextInt(256));
+                if (tierKeys != 0)
+                {
+                    keys[j] = tierKeys;
+                }
+            }
+            
+            long[] words = new long[TierKernels.wordsCount(tiersCount)];
+            for (int j = 0; j < tiersCount; j++)
+            {
+                TierKernels.set(words, j, keys[j]);
+            }
+            words[words.length - 1] |= TierKernels.tailMask(tiersCount);
+            
+            byte[] before = keys.clone();
+            boolean expectedEmpty = sequentialCleanup(keys);
+            
+            int[] range = new int[] { from, to };
+            int numberOfValuesRemoved = TierKernels.cleanup(words, tiersCount, range);
+            
+            assertEquals(expectedEmpty, numberOfValuesRemoved < 0);
+            
+            if (!expectedEmpty)
+            {
+                int expectedRemoved = 0;
+                for (int j = 0; j < tiersCount; j++)
+                {
+                    assertEquals(keys[j], TierKernels.get(words, j));
+                    if (keys[j] != before[j])
+                    {
+                        assertTrue(range[0] <= j && j <= range[1]);
+                        expectedRemoved += Integer.bitCount((keys[j] ^ before[j]) & 0xFF);
+                    }
+                }
+                assertEquals(expectedRemoved, numberOfValuesRemoved);
+                assertTrue(range[0] <= from && to <= range[1]);
+            }
+        }
+    }
+    
+    /**
+     * @return True if some tier became empty
+     */
+    private static boolean sequentialCleanup(byte[] keys)
+    {
+        boolean someClausesRemoved = true;
+        while (someClausesRemoved)
+        {
+            someClausesRemoved = false;
+            for (int j = 0; j < keys.length; j++)
+            {
+                byte tierKeys = keys[j];
+                if (j < keys.length - 1)
+                {
+                    tierKeys = SimpleTier.adjoinRight(tierKeys, keys[j + 1]);
+                }
+                if (j > 0)
+                {
+                    tierKeys = SimpleTier.adjoinLeft(tierKeys, keys[j - 1]);
+                }
+                if (tierKeys == 0)
+                {
+                    return true;
+                }
+                if (tierKeys != keys[j])
+                {
+                    keys[j] = tierKeys;
+                    someClausesRemoved = true;
+                }
+            }
+        }
+        return false;
+    }
+}
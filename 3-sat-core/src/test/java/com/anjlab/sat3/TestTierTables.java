@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2010, 2011 AnjLab
+ * 
+ * This file is part of 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem 
+ * is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem
+ * is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.anjlab.sat3;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class TestTierTables
+{
+    @BeforeClass
+    public static void setup()
+    {
+        Helper.UsePrettyPrint = true;
+        Helper.EnableAssertions = true;
+        System.out.println(TestTierTables.class.getName());
+    }
+    
+    @Test
+    public void testSwapMatchesBits()
+    {
+        for (int keys = 0; keys < 256; keys++)
+        {
+            assertEquals(TierTables.swapABBits((byte) keys), SimpleTier.swapAB((byte) keys));
+            assertEquals(TierTables.swapACBits((byte) keys), SimpleTier.swapAC((byte) keys));
+            assertEquals(TierTables.swapBCBits((byte) keys), SimpleTier.swapBC((byte) keys));
+        }
+    }
+    
+    @Test
+    public void testAdjoinMatchesBits()
+    {
+        for (int keys = 0; keys < 256; keys++)
+        {
+            for (int otherKeys = 0; otherKeys < 256; otherKeys++)
+            {
+                assertEquals(TierTables.adjoinRightBits((byte) keys, (byte) otherKeys), 
+                             SimpleTier.adjoinRight((byte) keys, (byte) otherKeys));
+                assertEquals(TierTables.adjoinLeftBits((byte) keys, (byte) otherKeys), 
+                             SimpleTier.adjoinLeft((byte) keys, (byte) otherKeys));
+            }
+        }
+    }
+    
+    @Test
+    public void testValueOfAndSizeMatchBits()
+    {
+        byte[] plain = TierTables.CONCRETIZE_MASKS[0];
+        byte[] negative = TierTables.CONCRETIZE_MASKS[1];
+        
+        for (int keys = 0; keys < 256; keys++)
+        {
+            assertEquals(TierTables.valueOfBits((byte) keys, plain[0], negative[0]), SimpleTier.valueOfA((byte) keys));
+            assertEquals(TierTables.valueOfBits((byte) keys, plain[1], negative[1]), SimpleTier.valueOfB((byte) keys));
+            assertEquals(TierTables.valueOfBits((byte) keys, plain[2], negative[2]), SimpleTier.valueOfC((byte) keys));
+            
+            assertEquals(TierTables.sizeBits((byte) keys), SimpleTier.createTier(1, 2, 3, (byte) keys).size());
+        }
+    }
+    
+    @Test
+    public void testValueOfMatchesTripletValues()
+    {
+        //  Single value tiers
+        for (int key = 1; key < 256; key <<= 1)
+        {
+            ITripletValue value = SimpleTripletValueFactory.getTripletValue(key);
+            
+            assertEquals(value.isNotA() ? Value.AllNegative : Value.AllPlain, SimpleTier.valueOfA((byte) key));
+            assertEquals(value.isNotB() ? Value.AllNegative : Value.AllPlain, SimpleTier.valueOfB((byte) key));
+            assertEquals(value.isNotC() ? Value.AllNegative : Value.AllPlain, SimpleTier.valueOfC((byte) key));
+        }
+    }
+}
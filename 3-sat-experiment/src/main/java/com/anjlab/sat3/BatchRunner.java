@@ -0,0 +1,447 @@
+/*
+ * Copyright (c) 2010, 2011 AnjLab
+ * 
+ * This file is part of 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem 
+ * is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem
+ * is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with
+ * Reference Implementation of Romanov's Polynomial Algorithm for 3-SAT Problem.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.anjlab.sat3;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.OptionBuilder;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.cli.PosixParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>Solves all instances from the folder in a single JVM using {@link Sat3Solver}, several instances 
+ * at a time, and writes aggregated results as they complete.</p>
+ * 
+ * <p>For every solved instance <code>&lt;input-file-name&gt;-results.txt</code> file is written, 
+ * instances that already have this file are skipped.</p>
+ */
+public class BatchRunner
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchRunner.class);
+    
+    private static final String HELP_OPTION = "h";
+    private static final String PARALLELISM_OPTION = "p";
+    private static final String TIMEOUT_OPTION = "t";
+    private static final String MEMORY_BUDGET_OPTION = "m";
+    private static final String ASSERTION_LEVEL_OPTION = "l";
+    
+    private static final String AGGREGATED_RESULTS_FILENAME = "aggregated-results.tab";
+    
+    //  How often heap usage is checked against the memory budget
+    private static final long MEMORY_CHECK_INTERVAL = 1000;
+    
+    private final int parallelism;
+    private final long timeout;
+    private final long memoryBudget;
+    private final SolverOptions options;
+    private final String implementationVersion;
+    
+    //  Instances being solved, in order of their start
+    private final List<Instance> running = new ArrayList<Instance>();
+    
+    private BufferedWriter aggregatedResults;
+    
+    //  Number of GCs when an instance was cancelled last time, only accessed by the watchdog thread
+    private long collectionCountAtLastCancel = -1;
+    
+    /**
+     * @param parallelism Number of instances solved at a time.
+     * @param timeout Timeout of each instance in milliseconds, <code>0</code> means no timeout.
+     * @param memoryBudget Heap size in bytes. When heap used after GC exceeds the budget the most recently 
+     * started instance is cancelled. <code>0</code> means no budget.
+     * @param options Options of each solve.
+     */
+    public BatchRunner(int parallelism, long timeout, long memoryBudget, SolverOptions options)
+    {
+        this.parallelism = parallelism;
+        this.timeout = timeout;
+        this.memoryBudget = memoryBudget;
+        this.options = options;
+        this.implementationVersion = Helper.getImplementationVersionFromManifest("3-SAT Core RI");
+    }
+    
+    public static void main(String[] args) throws Exception
+    {
+        Options options = getCommandLineOptions();
+        
+        CommandLineParser parser = new PosixParser();
+        CommandLine commandLine;
+        try
+        {
+            commandLine = parser.parse(options, args);
+        }
+        catch (ParseException e)
+        {
+            commandLine = null;
+        }
+        
+        if (commandLine == null || commandLine.getArgs().length != 1 || commandLine.hasOption(HELP_OPTION))
+        {
+            HelpFormatter formatter = new HelpFormatter();
+            formatter.printHelp(BatchRunner.class.getName() + " [OPTIONS] <cnf-dir>" +
+                    "\nWhere <cnf-dir> is a path to folder containing *.cnf and *.skt files.", options);
+            System.exit(0);
+        }
+        
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        if (commandLine.hasOption(PARALLELISM_OPTION))
+        {
+            parallelism = Integer.parseInt(commandLine.getOptionValue(PARALLELISM_OPTION));
+        }
+        long timeout = 0;
+        if (commandLine.hasOption(TIMEOUT_OPTION))
+        {
+            timeout = TimeUnit.SECONDS.toMillis(Long.parseLong(commandLine.getOptionValue(TIMEOUT_OPTION)));
+        }
+        long memoryBudget = 0;
+        if (commandLine.hasOption(MEMORY_BUDGET_OPTION))
+        {
+            memoryBudget = Long.parseLong(commandLine.getOptionValue(MEMORY_BUDGET_OPTION)) * 1024 * 1024;
+        }
+        SolverOptions solverOptions = new SolverOptions().setAssertionLevel(AssertionLevel.Off);
+        if (commandLine.hasOption(ASSERTION_LEVEL_OPTION))
+        {
+            solverOptions.setAssertionLevel(AssertionLevel.valueOf(
+                    capitalize(commandLine.getOptionValue(ASSERTION_LEVEL_OPTION))));
+        }
+        
+        new BatchRunner(parallelism, timeout, memoryBudget, solverOptions).run(new File(commandLine.getArgs()[0]));
+        
+        System.out.println("Done");
+    }
+    
+    private static String capitalize(String value)
+    {
+        return value.substring(0, 1).toUpperCase() + value.substring(1).toLowerCase();
+    }
+    
+    /**
+     * Solves instances from the folder and writes {@link ExecutionRecord}s of all solved instances to 
+     * <code>aggregated-results.tab</code> file in this folder.
+     */
+    public void run(File folder) throws IOException, InterruptedException
+    {
+        File[] files = folder.listFiles(new FilenameFilter()
+        {
+            public boolean accept(File dir, String name)
+            {
+                return name.endsWith(".cnf") || name.endsWith(".skt");
+            }
+        });
+        if (files == null)
+        {
+            throw new IllegalArgumentException("Invalid CNF folder " + folder);
+        }
+        Arrays.sort(files);
+        
+        aggregatedResults = new BufferedWriter(new FileWriter(new File(folder, AGGREGATED_RESULTS_FILENAME)));
+        
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor();
+        try
+        {
+            aggregatedResults.write(ExecutionRecord.tabDelimitedHeader());
+            aggregatedResults.write('\n');
+            
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            
+            for (File file : files)
+            {
+                File resultsFile = getResultsFile(file);
+                if (resultsFile.exists())
+                {
+                    LOGGER.info("Skip already solved instance {}", file);
+                    writeRecord(ResultsAggregator.loadRecord(resultsFile));
+                }
+                else
+                {
+                    futures.add(pool.submit(new Instance(file)));
+                }
+            }
+            
+            if (memoryBudget > 0)
+            {
+                watchdog.scheduleWithFixedDelay(new Runnable()
+                {
+                    public void run()
+                    {
+                        checkMemoryBudget();
+                    }
+                }, MEMORY_CHECK_INTERVAL, MEMORY_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+            }
+            
+            for (Future<?> future : futures)
+            {
+                try
+                {
+                    future.get();
+                }
+                catch (ExecutionException e)
+                {
+                    LOGGER.error("Error solving instance", e.getCause());
+                }
+            }
+        }
+        finally
+        {
+            watchdog.shutdownNow();
+            pool.shutdownNow();
+            aggregatedResults.close();
+        }
+    }
+    
+    private static File getResultsFile(File file)
+    {
+        return new File(file.getPath() + "-results.txt");
+    }
+    
+    private synchronized void writeRecord(ExecutionRecord record) throws IOException
+    {
+        aggregatedResults.write(record.toTABDelimitedLine());
+        aggregatedResults.write('\n');
+        aggregatedResults.flush();
+    }
+    
+    private void checkMemoryBudget()
+    {
+        //  Heap used after GC doesn't include garbage, but it only changes with the next GC, 
+        //  so at most one instance is cancelled per GC
+        long collectionCount = getCollectionCount();
+        if (collectionCount == collectionCountAtLastCancel)
+        {
+            return;
+        }
+        long usedMemory = getHeapUsedAfterGC();
+        if (usedMemory <= memoryBudget)
+        {
+            return;
+        }
+        synchronized (running)
+        {
+            //  Cancel the youngest instance to let others complete
+            for (int i = running.size() - 1; i >= 0; i--)
+            {
+                Instance instance = running.get(i);
+                if (!instance.cancellationToken.isCancelled())
+                {
+                    LOGGER.warn("Heap used after GC {}MB exceeds budget, cancel instance {}", usedMemory / 1024 / 1024, instance.file);
+                    instance.cancel("memory budget exceeded");
+                    collectionCountAtLastCancel = collectionCount;
+                    return;
+                }
+            }
+        }
+    }
+    
+    private static long getCollectionCount()
+    {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans())
+        {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+    
+    /**
+     * @return Sum of heap pools usage after the last GC of each pool.
+     */
+    private static long getHeapUsedAfterGC()
+    {
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+        {
+            MemoryUsage usage = pool.getCollectionUsage();
+            if (pool.getType() == MemoryType.HEAP && usage != null)
+            {
+                used += usage.getUsed();
+            }
+        }
+        return used;
+    }
+    
+    private class Instance implements Runnable
+    {
+        private final File file;
+        private final CancellationToken cancellationToken = new CancellationToken();
+        private volatile String cancelReason = "timeout";
+        
+        public Instance(File file)
+        {
+            this.file = file;
+        }
+        
+        public void cancel(String reason)
+        {
+            cancelReason = reason;
+            cancellationToken.cancel();
+        }
+        
+        public void run()
+        {
+            synchronized (running)
+            {
+                running.add(this);
+            }
+            if (timeout > 0)
+            {
+                cancellationToken.cancelAfter(timeout, TimeUnit.MILLISECONDS);
+            }
+            try
+            {
+                solve();
+            }
+            catch (IOException e)
+            {
+                LOGGER.error("Error solving instance " + file, e);
+            }
+            finally
+            {
+                synchronized (running)
+                {
+                    running.remove(this);
+                }
+            }
+        }
+        
+        private void solve() throws IOException
+        {
+            LOGGER.info("Solving instance {}", file);
+            
+            long start = System.currentTimeMillis();
+            ITabularFormula formula = Helper.loadFromFile(file.getPath());
+            long loadTime = System.currentTimeMillis() - start;
+            
+            SolverResult result = new Sat3Solver().solve(formula, options.copy().setProgressName(file.getName()), 
+                    null, cancellationToken);
+            
+            if (result.getStatus() == SolverResult.Status.Cancelled)
+            {
+                LOGGER.warn("Instance {} cancelled during {}: {}", new Object[] { file, result.getCancelledPhase(), cancelReason });
+                return;
+            }
+            if (result.getStatus() == SolverResult.Status.Error)
+            {
+                LOGGER.error("Instance {} failed: {}", file, result.getErrorMessage());
+                return;
+            }
+            
+            Properties statistics = result.getStatistics();
+            statistics.put(Helper.IMPLEMENTATION_VERSION, implementationVersion);
+            statistics.put(Helper.INITIAL_FORMULA_LOAD_TIME, String.valueOf(loadTime));
+            
+            String comment = "Unsatisfiable";
+            if (result.isSatisfiable())
+            {
+                Helper.putAssignment(statistics, formula, result.getAssignment());
+                comment = "Satisfiable. Variable values from HSS route";
+            }
+            
+            File resultsFile = getResultsFile(file);
+            OutputStream out = null;
+            try
+            {
+                out = new FileOutputStream(resultsFile);
+                statistics.store(out, comment);
+            }
+            finally
+            {
+                if (out != null)
+                {
+                    out.close();
+                }
+            }
+            
+            LOGGER.info("Instance {} solved: {}", file, comment);
+            
+            writeRecord(new ExecutionRecord(file.getName(), statistics));
+        }
+    }
+    
+    @SuppressWarnings("static-access")
+    private static Options getCommandLineOptions()
+    {
+        Options options = new Options();
+        
+        options.addOption(OptionBuilder.withLongOpt("help")
+                                       .withDescription("Prints this help message.")
+                                       .create(HELP_OPTION));
+        
+        options.addOption(OptionBuilder.withLongOpt("parallelism")
+                                       .hasArg()
+                                       .withArgName("count")
+                                       .withDescription("Number of instances solved at a time." +
+                                                        "\nDefaults to the number of available processors.")
+                                       .create(PARALLELISM_OPTION));
+        
+        options.addOption(OptionBuilder.withLongOpt("timeout")
+                                       .hasArg()
+                                       .withArgName("seconds")
+                                       .withDescription("Cancel instance if it is not solved within this time." +
+                                                        "\nCancelled instances are not marked as solved.")
+                                       .create(TIMEOUT_OPTION));
+        
+        options.addOption(OptionBuilder.withLongOpt("memory-budget")
+                                       .hasArg()
+                                       .withArgName("megabytes")
+                                       .withDescription("If heap used after GC exceeds this size, the most recently started instance is cancelled.")
+                                       .create(MEMORY_BUDGET_OPTION));
+        
+        options.addOption(OptionBuilder.withLongOpt("assertion-level")
+                                       .hasArg()
+                                       .withArgName("level")
+                                       .withDescription("Level of internal program self-check: off, sampled, incremental or full." +
+                                                        "\nDefaults to off.")
+                                       .create(ASSERTION_LEVEL_OPTION));
+        
+        return options;
+    }
+}
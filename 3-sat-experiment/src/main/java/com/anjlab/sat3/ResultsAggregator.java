@@ -53,27 +53,35 @@ public class ResultsAggregator
         List<ExecutionRecord> records = new ArrayList<ExecutionRecord>();
         for (String file : resultFiles)
         {
-            Properties statistics = new Properties();
-            FileInputStream is = null;
-            try
-            {
-                is = new FileInputStream(resultsFolder.getPath() + File.separator + file);
-                statistics.load(is);
-                ExecutionRecord record = new ExecutionRecord(file.substring(0, file.indexOf("-results.txt")), statistics);
-                records.add(record);
-            }
-            finally
-            {
-                if (is != null)
-                {
-                    is.close();
-                }
-            }
+            records.add(loadRecord(new File(resultsFolder, file)));
         }
         exportToTABDelimited(records, resultsFolder.getPath() + File.separator + "aggregated-results.tab");
         System.out.println("Done");
     }
 
+    /**
+     * @param resultsFile File with statistics of the solved instance (<code>&lt;input-file-name&gt;-results.txt</code>).
+     */
+    public static ExecutionRecord loadRecord(File resultsFile) throws IOException
+    {
+        Properties statistics = new Properties();
+        FileInputStream is = null;
+        try
+        {
+            is = new FileInputStream(resultsFile);
+            statistics.load(is);
+            String file = resultsFile.getName();
+            return new ExecutionRecord(file.substring(0, file.indexOf("-results.txt")), statistics);
+        }
+        finally
+        {
+            if (is != null)
+            {
+                is.close();
+            }
+        }
+    }
+
     private static void exportToTABDelimited(List<ExecutionRecord> records, String filename) throws IOException
     {
         BufferedWriter writer = null;
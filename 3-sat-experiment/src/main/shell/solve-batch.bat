@@ -12,24 +12,12 @@ FOR %%j IN (lib\*.jar) DO IF DEFINED CP (SET CP=!CP!;%%j) ELSE (SET CP=%%j)
 ECHO *******************************************************
 ECHO * Java classpath: %CP%
 
-SET SOLVER_MAIN_CLASS=com.anjlab.sat3.Program
+SET BATCH_MAIN_CLASS=com.anjlab.sat3.BatchRunner
 
 ECHO *******************************************************
 ECHO * Solving instances
 
-FOR %%f IN (%CNF_FOLDER%\*.cnf) DO IF NOT EXIST "%%f-results.txt" (
-    ECHO Solving instance %%f
-    java -cp %CP% %SOLVER_MAIN_CLASS% "%%f"
-) ELSE (ECHO Skip already solved instance %%f)
-FOR %%f IN (%CNF_FOLDER%\*.skt) DO IF NOT EXIST "%%f-results.txt" (
-    ECHO Solving instance %%f
-    java -cp %CP% %SOLVER_MAIN_CLASS% "%%f"
-) ELSE (ECHO Skip already solved instance %%f)
-
-ECHO *******************************************************
-ECHO * Aggregating results
-
-java -cp %CP% com.anjlab.sat3.ResultsAggregator %CNF_FOLDER% 
+java -cp %CP% %BATCH_MAIN_CLASS% %*
 
 GOTO exit
 